@@ -0,0 +1,165 @@
+package org.de013.apigateway.bff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.apigateway.config.BffProperties;
+import org.de013.apigateway.dto.bff.ProductPageResponse;
+import org.de013.apigateway.exception.CircuitBreakerOpenException;
+import org.de013.apigateway.exception.GatewayException;
+import org.de013.apigateway.exception.GatewayTimeoutException;
+import org.de013.apigateway.exception.ServiceUnavailableException;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreaker;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreakerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fans a product detail page out to product-catalog-service in parallel and merges the
+ * results.
+ * <p>
+ * Legs go through the load-balanced WebClient and the same circuit breaker as the
+ * {@code product-catalog-service} route, so an open breaker fails them fast. The product
+ * leg is required; inventory, variant inventory and category path each have their own
+ * timeout and are left out of a partial response when they fail. The category path needs
+ * a category id: when the client passes none, it is taken from the product's primary
+ * category and that leg starts once the product arrives.
+ */
+@Slf4j
+@Service
+public class ProductPageAggregator {
+
+    private static final String SERVICE_NAME = "product-catalog-service";
+    private static final String CIRCUIT_BREAKER = "productServiceCircuitBreaker";
+
+    /**
+     * Request headers passed on to every leg
+     */
+    private static final String[] FORWARDED_HEADERS = {
+            HttpHeaders.AUTHORIZATION,
+            HttpHeaders.ACCEPT_LANGUAGE,
+            "X-Forwarded-For"
+    };
+
+    private final BffProperties properties;
+    private final WebClient webClient;
+    private final ReactiveCircuitBreaker circuitBreaker;
+
+    public ProductPageAggregator(BffProperties properties,
+                                 WebClient.Builder loadBalancedWebClientBuilder,
+                                 ReactiveCircuitBreakerFactory<?, ?> circuitBreakerFactory) {
+        this.properties = properties;
+        this.webClient = loadBalancedWebClientBuilder.build();
+        this.circuitBreaker = circuitBreakerFactory.create(CIRCUIT_BREAKER);
+    }
+
+    public Mono<ProductPageResponse> getProductPage(long productId, Long categoryId, HttpHeaders requestHeaders) {
+        BffProperties.ProductPage timeouts = properties.getProductPage();
+        HttpHeaders forwarded = forwardedHeaders(requestHeaders);
+        Map<String, String> missing = new ConcurrentHashMap<>();
+
+        Mono<JsonNode> product = fetch("/products/{id}", productId, forwarded, timeouts.getProductTimeoutMillis())
+                .onErrorMap(e -> productError(productId, e));
+        Mono<Optional<JsonNode>> inventory = optional("inventory", missing,
+                fetch("/products/{id}/inventory", productId, forwarded, timeouts.getInventoryTimeoutMillis()));
+        Mono<Optional<JsonNode>> variantInventory = optional("variantInventory", missing,
+                fetch("/products/{id}/variants/inventory", productId, forwarded, timeouts.getVariantInventoryTimeoutMillis()));
+
+        Mono<ProductPageResponse.ProductPageResponseBuilder> productAndPath;
+        if (categoryId != null) {
+            productAndPath = Mono.zip(product, categoryPath(categoryId, forwarded, missing),
+                    (p, path) -> ProductPageResponse.builder().product(p).categoryPath(path.orElse(null)));
+        } else {
+            productAndPath = product.flatMap(p -> {
+                JsonNode primaryCategoryId = p.path("primaryCategory").path("id");
+                Mono<Optional<JsonNode>> path = primaryCategoryId.canConvertToLong()
+                        ? categoryPath(primaryCategoryId.asLong(), forwarded, missing)
+                        : Mono.just(Optional.empty());
+                return path.map(c -> ProductPageResponse.builder().product(p).categoryPath(c.orElse(null)));
+            });
+        }
+
+        return Mono.zip(productAndPath, inventory, variantInventory)
+                .map(legs -> legs.getT1()
+                        .inventory(legs.getT2().orElse(null))
+                        .variantInventory(legs.getT3().orElse(null))
+                        .partial(!missing.isEmpty())
+                        .missing(missing.isEmpty() ? null : new TreeMap<>(missing))
+                        .build());
+    }
+
+    private Mono<Optional<JsonNode>> categoryPath(long categoryId, HttpHeaders forwarded, Map<String, String> missing) {
+        return optional("categoryPath", missing, fetch("/categories/{id}/path", categoryId, forwarded,
+                properties.getProductPage().getCategoryPathTimeoutMillis()));
+    }
+
+    /**
+     * GET one leg and unwrap the {@code data} of its ApiResponse
+     */
+    private Mono<JsonNode> fetch(String path, long id, HttpHeaders forwarded, long timeoutMillis) {
+        Mono<JsonNode> call = webClient.get()
+                .uri(properties.getProductCatalogUrl() + path, id)
+                .headers(headers -> headers.addAll(forwarded))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(Duration.ofMillis(timeoutMillis));
+        return circuitBreaker.run(call, Mono::error)
+                .map(body -> body.path("data"));
+    }
+
+    private static Mono<Optional<JsonNode>> optional(String leg, Map<String, String> missing, Mono<JsonNode> call) {
+        return call.map(Optional::of)
+                .onErrorResume(e -> {
+                    String reason = reason(e);
+                    log.warn("Product page leg {} missing ({}): {}", leg, reason, e.getMessage());
+                    missing.put(leg, reason);
+                    return Mono.just(Optional.empty());
+                })
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    private static String reason(Throwable e) {
+        if (e instanceof TimeoutException) {
+            return "TIMEOUT";
+        }
+        if (e instanceof WebClientResponseException.NotFound) {
+            return "NOT_FOUND";
+        }
+        if (e instanceof CallNotPermittedException) {
+            return "CIRCUIT_OPEN";
+        }
+        return "UNAVAILABLE";
+    }
+
+    private static Throwable productError(long productId, Throwable e) {
+        return switch (reason(e)) {
+            case "NOT_FOUND" -> new GatewayException("Product not found with id: " + productId,
+                    HttpStatus.NOT_FOUND, "PRODUCT_NOT_FOUND");
+            case "TIMEOUT" -> new GatewayTimeoutException(SERVICE_NAME, e);
+            case "CIRCUIT_OPEN" -> new CircuitBreakerOpenException(SERVICE_NAME);
+            default -> new ServiceUnavailableException(SERVICE_NAME, e);
+        };
+    }
+
+    private static HttpHeaders forwardedHeaders(HttpHeaders requestHeaders) {
+        HttpHeaders forwarded = new HttpHeaders();
+        for (String name : FORWARDED_HEADERS) {
+            String value = requestHeaders.getFirst(name);
+            if (value != null) {
+                forwarded.set(name, value);
+            }
+        }
+        return forwarded;
+    }
+}
@@ -0,0 +1,84 @@
+package org.de013.apigateway.bff;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.de013.apigateway.dto.bff.ProductPageResponse;
+import org.de013.apigateway.exception.InvalidRequestException;
+import org.de013.common.dto.ApiResponse;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Terminal filter of the {@code product-page-bff} route: answers
+ * {@code GET /api/v1/bff/products/{id}} with the aggregated product page instead of
+ * proxying.
+ * <p>
+ * Being a route rather than a controller, the endpoint goes through the same security
+ * rules, rate limiting, user context propagation and response compression as the
+ * product-catalog routes. Errors are left to {@code GatewayExceptionHandler}.
+ */
+@Component
+public class ProductPageFilter implements GatewayFilter, Ordered {
+
+    private final ProductPageAggregator aggregator;
+    private final ObjectMapper objectMapper;
+
+    public ProductPageFilter(ProductPageAggregator aggregator, ObjectMapper objectMapper) {
+        this.aggregator = aggregator;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Long productId = parseId(ServerWebExchangeUtils.getUriTemplateVariables(exchange).get("id"));
+        Long categoryId = parseId(exchange.getRequest().getQueryParams().getFirst("categoryId"));
+        if (productId == null) {
+            return Mono.error(new InvalidRequestException("Product ID must be a positive number", "INVALID_PRODUCT_ID"));
+        }
+        // The route has no upstream: the chain is deliberately not continued
+        return aggregator.getProductPage(productId, categoryId, exchange.getRequest().getHeaders())
+                .flatMap(page -> write(exchange.getResponse(), page));
+    }
+
+    @Override
+    public int getOrder() {
+        // After every global pre-filter that decorates the exchange (user context, compression)
+        return 0;
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, ProductPageResponse page) {
+        ApiResponse<ProductPageResponse> body = page.isPartial()
+                ? ApiResponse.success(page, "Product page retrieved with missing sections", "PARTIAL_CONTENT")
+                : ApiResponse.success(page);
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(bytes.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+    }
+
+    private static Long parseId(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            long id = Long.parseLong(value);
+            return id > 0 ? id : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
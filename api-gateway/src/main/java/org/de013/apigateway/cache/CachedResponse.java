@@ -0,0 +1,42 @@
+package org.de013.apigateway.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Upstream response as stored in the response cache.
+ * <p>
+ * Only representation headers are kept; hop-by-hop and per-request headers such as
+ * {@code Set-Cookie} or trace ids are never cached. The body is serialized as Base64
+ * when the entry is written to Redis.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CachedResponse {
+
+    private int status;
+    private Map<String, List<String>> headers;
+    private byte[] body;
+    private String etag;
+    private long storedAtMillis;
+    private long expiresAtMillis;
+
+    @JsonIgnore
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+
+    /**
+     * Seconds since the entry was stored, for the {@code Age} header
+     */
+    @JsonIgnore
+    public long getAgeSeconds(long nowMillis) {
+        return Math.max(0, (nowMillis - storedAtMillis) / 1000);
+    }
+}
@@ -0,0 +1,272 @@
+package org.de013.apigateway.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.apigateway.config.CoalescingProperties;
+import org.de013.apigateway.filter.BoundedBody;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collapses identical in-flight GETs into a single upstream call (single flight).
+ * <p>
+ * The first request for a key becomes the leader and goes upstream; requests for the
+ * same key arriving while it is in flight wait up to {@code max-wait-millis} for the
+ * leader's response and get a copy of it. Followers fall back to their own upstream call
+ * when the wait times out, the leader fails or is cancelled, or the body is larger than
+ * {@code max-body-bytes}. Requests are keyed like the response cache and only the
+ * upstream part of the leader's headers is shared, never headers set for the leader's
+ * client by earlier filters. Only responses the response cache would also store are shared:
+ * 2xx, no {@code Set-Cookie} and no {@code private}, {@code no-store} or {@code no-cache};
+ * requests carrying a {@code Cookie} are never coalesced.
+ * <p>
+ * Runs inside the response cache, so it only sees cache misses.
+ */
+@Slf4j
+@Component
+public class RequestCoalescingFilter implements GlobalFilter, Ordered {
+
+    private static final String METRIC_PREFIX = "gateway.coalescing";
+
+    private final CoalescingProperties properties;
+    private final List<PathPattern> paths;
+    private final Map<String, Sinks.One<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter followers;
+    private final Counter fallbacks;
+
+    public RequestCoalescingFilter(CoalescingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.paths = properties.getPaths().stream().map(PathPatternParser.defaultInstance::parse).toList();
+        this.leaders = requestCounter(meterRegistry, "leader");
+        this.followers = requestCounter(meterRegistry, "follower");
+        this.fallbacks = requestCounter(meterRegistry, "fallback");
+        Gauge.builder(METRIC_PREFIX + ".collapse.ratio", this, RequestCoalescingFilter::collapseRatio)
+                .description("Share of coalescable requests served from another request's upstream call")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".inflight.keys", inFlight, Map::size)
+                .description("Keys with an upstream call currently in flight")
+                .register(meterRegistry);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String role) {
+        return Counter.builder(METRIC_PREFIX + ".requests")
+                .description("Coalescable requests by role")
+                .tag("role", role)
+                .register(meterRegistry);
+    }
+
+    private double collapseRatio() {
+        double total = leaders.count() + followers.count() + fallbacks.count();
+        return total == 0 ? 0 : followers.count() / total;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled() || !isCoalescable(exchange)) {
+            return chain.filter(exchange);
+        }
+
+        String key = ResponseCacheFilter.cacheKey(exchange.getRequest());
+        Sinks.One<SharedResponse> sink = Sinks.one();
+        Sinks.One<SharedResponse> existing = inFlight.putIfAbsent(key, sink);
+        if (existing != null) {
+            return follow(exchange, chain, existing);
+        }
+        return lead(exchange, chain, key, sink);
+    }
+
+    @Override
+    public int getOrder() {
+        // Just inside the response cache, outside response compression
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2;
+    }
+
+    private boolean isCoalescable(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.GET) {
+            return false;
+        }
+        if (!properties.isCoalesceAuthenticated() && request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)) {
+            return false;
+        }
+        if (request.getHeaders().containsKey(HttpHeaders.COOKIE)) {
+            return false;
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null || !properties.getRoutes().contains(route.getId())) {
+            return false;
+        }
+        PathContainer path = request.getPath().pathWithinApplication();
+        for (PathPattern pattern : paths) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Mono<Void> lead(ServerWebExchange exchange, GatewayFilterChain chain, String key,
+                            Sinks.One<SharedResponse> sink) {
+        leaders.increment();
+        Set<String> ownHeaders = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        ownHeaders.addAll(exchange.getResponse().getHeaders().keySet());
+        SharingResponse response = new SharingResponse(exchange.getResponse(), key, sink, ownHeaders);
+        // The chain includes writing the response, so the body has been shared from writeWith by the
+        // time it completes; whatever ends it without sharing lets the followers go upstream
+        return chain.filter(exchange.mutate().response(response).build())
+                .doOnSuccess(v -> response.release())
+                .doOnError(e -> response.release())
+                .doOnCancel(response::release);
+    }
+
+    private Mono<Void> follow(ServerWebExchange exchange, GatewayFilterChain chain, Sinks.One<SharedResponse> sink) {
+        return sink.asMono()
+                .timeout(Duration.ofMillis(properties.getMaxWaitMillis()), Mono.empty())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(shared -> {
+                    if (shared.isPresent()) {
+                        followers.increment();
+                        return shared.get().writeTo(exchange.getResponse());
+                    }
+                    fallbacks.increment();
+                    return chain.filter(exchange);
+                });
+    }
+
+    /**
+     * Same rules as {@link ResponseCacheFilter#ttlSeconds}: a response meant for one client only
+     * goes to that client
+     */
+    static boolean isShareable(HttpStatusCode status, HttpHeaders headers) {
+        if (status == null || !status.is2xxSuccessful() || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return false;
+        }
+        String cacheControl = headers.getFirst(HttpHeaders.CACHE_CONTROL);
+        return cacheControl == null
+                || !(ResponseCacheFilter.hasDirective(cacheControl, "no-store")
+                || ResponseCacheFilter.hasDirective(cacheControl, "private")
+                || ResponseCacheFilter.hasDirective(cacheControl, "no-cache"));
+    }
+
+    /**
+     * Leader's upstream response as handed to followers
+     */
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+
+        Mono<Void> writeTo(ServerHttpResponse response) {
+            response.setStatusCode(status);
+            response.getHeaders().putAll(headers);
+            response.getHeaders().setContentLength(body.length);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        }
+    }
+
+    /**
+     * Buffers the leader's body, up to max-body-bytes, publishes it to followers and writes it
+     * to the leader
+     */
+    private class SharingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+        private final Sinks.One<SharedResponse> sink;
+        private final Set<String> ownHeaders;
+
+        SharingResponse(ServerHttpResponse delegate, String key, Sinks.One<SharedResponse> sink, Set<String> ownHeaders) {
+            super(delegate);
+            this.key = key;
+            this.sink = sink;
+            this.ownHeaders = ownHeaders;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!isShareable(getStatusCode(), getHeaders())
+                    || getHeaders().getContentLength() > properties.getMaxBodyBytes()) {
+                release();
+                return super.writeWith(body);
+            }
+            // Without a Content-Length, bodies past max-body-bytes stream to the leader and are not shared
+            return super.writeWith(BoundedBody.buffer(body, properties.getMaxBodyBytes(), this::share, this::release)
+                    .doOnError(e -> release())
+                    .doOnCancel(this::release));
+        }
+
+        private Publisher<DataBuffer> share(List<DataBuffer> buffers) {
+            int size = 0;
+            for (DataBuffer buffer : buffers) {
+                size += buffer.readableByteCount();
+            }
+            byte[] bytes = new byte[size];
+            int offset = 0;
+            for (DataBuffer buffer : buffers) {
+                int count = buffer.readableByteCount();
+                buffer.read(bytes, offset, count);
+                offset += count;
+                DataBufferUtils.release(buffer);
+            }
+            publish(bytes);
+            getHeaders().setContentLength(bytes.length);
+            return Mono.just(bufferFactory().wrap(bytes));
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            // No body to share
+            release();
+            return super.setComplete();
+        }
+
+        private void publish(byte[] bytes) {
+            HttpHeaders upstream = new HttpHeaders();
+            getHeaders().forEach((name, values) -> {
+                if (!ownHeaders.contains(name) && !HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)) {
+                    upstream.addAll(name, values);
+                }
+            });
+            if (inFlight.remove(key, sink)) {
+                sink.tryEmitValue(new SharedResponse(getStatusCode(), upstream, bytes));
+            }
+        }
+
+        /**
+         * Not shareable or failed: let waiting followers go upstream right away
+         */
+        void release() {
+            if (inFlight.remove(key, sink)) {
+                sink.tryEmitEmpty();
+            }
+        }
+    }
+}
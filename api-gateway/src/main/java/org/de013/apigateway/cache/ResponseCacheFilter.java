@@ -0,0 +1,358 @@
+package org.de013.apigateway.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.de013.apigateway.config.ResponseCacheProperties;
+import org.de013.apigateway.filter.BoundedBody;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * HTTP response cache for public catalog GETs.
+ * <p>
+ * Responses are keyed on path, query and the content negotiation headers. Upstream
+ * {@code Cache-Control} decides whether and how long a response is kept ({@code s-maxage}
+ * or {@code max-age}, capped by {@code max-ttl-seconds}; {@code no-store}, {@code private}
+ * and {@code no-cache} are never cached). Every cached response carries a strong ETag,
+ * so a matching {@code If-None-Match} is answered with 304 without touching upstream.
+ * <p>
+ * Runs just before {@link NettyWriteResponseFilter} and request coalescing, so the body it
+ * captures is the raw upstream body, and after the global rate limit and user context filters.
+ */
+@Slf4j
+@Component
+public class ResponseCacheFilter implements GatewayFilter, Ordered {
+
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    /**
+     * Representation headers worth replaying; everything else is per-response
+     */
+    private static final List<String> STORED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CONTENT_ENCODING,
+            HttpHeaders.CONTENT_LANGUAGE,
+            HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.LAST_MODIFIED,
+            HttpHeaders.VARY
+    );
+
+    private static final Set<HttpMethod> WRITE_METHODS =
+            Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+
+    private final ResponseCacheProperties properties;
+    private final ResponseCacheStore store;
+    private final List<PathPattern> includes;
+    private final List<PathPattern> excludes;
+
+    public ResponseCacheFilter(ResponseCacheProperties properties, ResponseCacheStore store) {
+        this.properties = properties;
+        this.store = store;
+        this.includes = parse(properties.getPaths());
+        this.excludes = parse(properties.getExcludedPaths());
+    }
+
+    private static List<PathPattern> parse(List<String> patterns) {
+        return patterns.stream().map(PathPatternParser.defaultInstance::parse).toList();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        if (WRITE_METHODS.contains(request.getMethod())) {
+            return chain.filter(exchange).then(Mono.fromRunnable(() -> invalidateOnWrite(exchange)));
+        }
+        if (request.getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+        if (!isCacheableRequest(request)) {
+            return chain.filter(exchange);
+        }
+
+        String key = cacheKey(request);
+        // writeCached completes empty, so the hit/miss branch must not hang off switchIfEmpty
+        return store.get(key)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(cached -> cached.isPresent()
+                        ? writeCached(exchange, cached.get())
+                        : chain.filter(exchange.mutate().response(new CachingResponse(exchange, key)).build()));
+    }
+
+    @Override
+    public int getOrder() {
+        // Outside request coalescing, so only misses are collapsed, and outside compression,
+        // so the encoded body is what gets cached
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 3;
+    }
+
+    private boolean isCacheableRequest(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        if (!properties.isCacheAuthenticated() && headers.containsKey(HttpHeaders.AUTHORIZATION)) {
+            return false;
+        }
+        String cacheControl = headers.getFirst(HttpHeaders.CACHE_CONTROL);
+        if (cacheControl != null && hasDirective(cacheControl, "no-store")) {
+            return false;
+        }
+        PathContainer path = request.getPath().pathWithinApplication();
+        return matchesAny(includes, path) && !matchesAny(excludes, path);
+    }
+
+    private static boolean matchesAny(List<PathPattern> patterns, PathContainer path) {
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Key on path, query and the headers the representation may vary on
+     */
+    static String cacheKey(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        StringBuilder key = new StringBuilder(128).append(request.getURI().getRawPath());
+        String query = request.getURI().getRawQuery();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        appendHeader(key, headers, HttpHeaders.ACCEPT);
+        appendHeader(key, headers, HttpHeaders.ACCEPT_ENCODING);
+        appendHeader(key, headers, HttpHeaders.ACCEPT_LANGUAGE);
+        return key.toString();
+    }
+
+    private static void appendHeader(StringBuilder key, HttpHeaders headers, String name) {
+        key.append('|');
+        List<String> values = headers.get(name);
+        if (values != null) {
+            key.append(String.join(",", values));
+        }
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        long now = System.currentTimeMillis();
+        HttpHeaders headers = response.getHeaders();
+        cached.getHeaders().forEach(headers::put);
+        headers.setETag(cached.getEtag());
+        headers.set(HttpHeaders.AGE, String.valueOf(cached.getAgeSeconds(now)));
+        headers.set(CACHE_STATUS_HEADER, "HIT");
+
+        if (etagMatches(exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH), cached.getEtag())) {
+            return notModified(response);
+        }
+        response.setStatusCode(HttpStatusCode.valueOf(cached.getStatus()));
+        headers.setContentLength(cached.getBody().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.getBody())));
+    }
+
+    private static Mono<Void> notModified(ServerHttpResponse response) {
+        toNotModified(response);
+        return response.setComplete();
+    }
+
+    private static void toNotModified(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.NOT_MODIFIED);
+        response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+        response.getHeaders().remove(HttpHeaders.CONTENT_TYPE);
+        response.getHeaders().remove(HttpHeaders.CONTENT_ENCODING);
+    }
+
+    /**
+     * Writes through this gateway mean the local copy is stale; peers and Redis rely on TTL
+     */
+    private void invalidateOnWrite(ServerWebExchange exchange) {
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        if (status != null && status.is2xxSuccessful() && store.getLocalSize() > 0) {
+            log.debug("Catalog write {} {}, flushing local response cache",
+                    exchange.getRequest().getMethod(), exchange.getRequest().getPath());
+            store.invalidateLocal();
+        }
+    }
+
+    /**
+     * Freshness lifetime in seconds, or -1 if the response must not be cached
+     */
+    long ttlSeconds(HttpHeaders headers) {
+        if (headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return -1;
+        }
+        String cacheControl = headers.getFirst(HttpHeaders.CACHE_CONTROL);
+        long ttl = properties.getDefaultTtlSeconds();
+        if (cacheControl != null) {
+            if (hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "private")
+                    || hasDirective(cacheControl, "no-cache")) {
+                return -1;
+            }
+            long sMaxAge = directiveValue(cacheControl, "s-maxage");
+            long maxAge = sMaxAge >= 0 ? sMaxAge : directiveValue(cacheControl, "max-age");
+            if (maxAge >= 0) {
+                ttl = maxAge;
+            }
+        }
+        ttl = Math.min(ttl, properties.getMaxTtlSeconds());
+        return ttl > 0 ? ttl : -1;
+    }
+
+    static boolean hasDirective(String cacheControl, String directive) {
+        for (String part : cacheControl.split(",")) {
+            String name = part.trim();
+            int eq = name.indexOf('=');
+            if (eq >= 0) {
+                name = name.substring(0, eq).trim();
+            }
+            if (name.equalsIgnoreCase(directive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static long directiveValue(String cacheControl, String directive) {
+        for (String part : cacheControl.split(",")) {
+            String trimmed = part.trim();
+            int eq = trimmed.indexOf('=');
+            if (eq > 0 && trimmed.substring(0, eq).trim().equalsIgnoreCase(directive)) {
+                try {
+                    return Long.parseLong(trimmed.substring(eq + 1).trim().replace("\"", ""));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Weak comparison as required for If-None-Match (RFC 9110 13.1.2)
+     */
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String target = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || stripWeak(value).equals(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * Captures the upstream body of a cache miss, stores it if cacheable and answers
+     * the client with the body or a 304
+     */
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String key;
+
+        CachingResponse(ServerWebExchange exchange, String key) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            HttpStatusCode status = getStatusCode();
+            long ttl = status != null && status.value() == HttpStatus.OK.value() ? ttlSeconds(headers) : -1;
+            long contentLength = headers.getContentLength();
+            if (ttl < 0 || contentLength > properties.getMaxBodyBytes()) {
+                headers.set(CACHE_STATUS_HEADER, "BYPASS");
+                return super.writeWith(body);
+            }
+
+            // Without a Content-Length, bodies past max-body-bytes stream through uncached
+            return super.writeWith(BoundedBody.buffer(body, properties.getMaxBodyBytes(),
+                    buffers -> store(buffers, ttl), () -> headers.set(CACHE_STATUS_HEADER, "BYPASS")));
+        }
+
+        /**
+         * Cache a complete body and answer with it, or with a 304 when the client already has it
+         */
+        private Publisher<DataBuffer> store(List<DataBuffer> buffers, long ttl) {
+            HttpHeaders headers = getHeaders();
+            int size = 0;
+            for (DataBuffer buffer : buffers) {
+                size += buffer.readableByteCount();
+            }
+            byte[] bytes = new byte[size];
+            int offset = 0;
+            for (DataBuffer buffer : buffers) {
+                int count = buffer.readableByteCount();
+                buffer.read(bytes, offset, count);
+                offset += count;
+                DataBufferUtils.release(buffer);
+            }
+
+            String etag = headers.getETag();
+            if (etag == null) {
+                etag = "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+                headers.setETag(etag);
+            }
+            long now = System.currentTimeMillis();
+            store.put(key, new CachedResponse(HttpStatus.OK.value(), storedHeaders(headers), bytes,
+                    etag, now, now + ttl * 1000));
+            headers.set(CACHE_STATUS_HEADER, "MISS");
+
+            if (etagMatches(exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH), etag)) {
+                // Written as an empty body, so the status and headers are committed with it
+                toNotModified(this);
+                return Flux.empty();
+            }
+            headers.setContentLength(bytes.length);
+            return Mono.just(bufferFactory().wrap(bytes));
+        }
+
+        private Map<String, List<String>> storedHeaders(HttpHeaders headers) {
+            Map<String, List<String>> stored = new LinkedHashMap<>();
+            for (String name : STORED_HEADERS) {
+                List<String> values = headers.get(name);
+                if (values != null) {
+                    stored.put(name, new ArrayList<>(values));
+                }
+            }
+            return stored;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.de013.apigateway.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.apigateway.config.ResponseCacheProperties;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-tier store for cached responses: a byte-bounded Caffeine cache per pod in front
+ * of an optional Redis tier shared by all pods.
+ * <p>
+ * Redis failures are treated as misses so the cache can never take the catalog route
+ * down with it. A Redis hit is copied into the local tier for its remaining lifetime.
+ */
+@Slf4j
+@Component
+public class ResponseCacheStore {
+
+    private static final String METRIC_NAME = "gateway.response.cache";
+
+    private final ResponseCacheProperties properties;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, CachedResponse> local;
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    public ResponseCacheStore(ResponseCacheProperties properties,
+                              ReactiveStringRedisTemplate redisTemplate,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.local = Caffeine.newBuilder()
+                .maximumWeight(properties.getLocal().getMaxBytes())
+                .weigher((String key, CachedResponse value) -> key.length() + value.getBody().length)
+                .expireAfter(new ResponseExpiry())
+                .recordStats()
+                .build();
+
+        // Exposes size, evictions, hits and misses of the local tier
+        CaffeineCacheMetrics.monitor(meterRegistry, local, METRIC_NAME + ".local");
+        this.localHits = lookupCounter(meterRegistry, "local");
+        this.redisHits = lookupCounter(meterRegistry, "redis");
+        this.misses = lookupCounter(meterRegistry, "miss");
+
+        log.info("Response cache: local tier {}, redis tier {}",
+                properties.getLocal().isEnabled() ? "enabled" : "disabled",
+                properties.getRedis().isEnabled() ? "enabled" : "disabled");
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(METRIC_NAME + ".lookups")
+                .description("Response cache lookups by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Look up a fresh entry, local tier first
+     */
+    public Mono<CachedResponse> get(String key) {
+        long now = System.currentTimeMillis();
+        if (properties.getLocal().isEnabled()) {
+            CachedResponse cached = local.getIfPresent(key);
+            if (cached != null && !cached.isExpired(now)) {
+                localHits.increment();
+                return Mono.just(cached);
+            }
+        }
+        if (!properties.getRedis().isEnabled()) {
+            misses.increment();
+            return Mono.empty();
+        }
+        return redisTemplate.opsForValue().get(redisKey(key))
+                .timeout(Duration.ofMillis(properties.getRedis().getTimeoutMillis()))
+                .map(this::deserialize)
+                .filter(cached -> !cached.isExpired(System.currentTimeMillis()))
+                .doOnNext(cached -> {
+                    redisHits.increment();
+                    if (properties.getLocal().isEnabled()) {
+                        local.put(key, cached);
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.warn("Response cache lookup in Redis failed for {}: {}", key, e.getMessage());
+                    return Mono.empty();
+                })
+                .switchIfEmpty(Mono.fromRunnable(misses::increment));
+    }
+
+    /**
+     * Store an entry in every enabled tier. The Redis write is fire-and-forget.
+     */
+    public void put(String key, CachedResponse response) {
+        if (properties.getLocal().isEnabled()) {
+            local.put(key, response);
+        }
+        if (!properties.getRedis().isEnabled()) {
+            return;
+        }
+        long ttlMillis = response.getExpiresAtMillis() - System.currentTimeMillis();
+        if (ttlMillis <= 0) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize cached response for {}: {}", key, e.getMessage());
+            return;
+        }
+        redisTemplate.opsForValue().set(redisKey(key), json, Duration.ofMillis(ttlMillis))
+                .timeout(Duration.ofMillis(properties.getRedis().getTimeoutMillis()))
+                .subscribe(ok -> { }, e -> log.warn("Response cache write to Redis failed for {}: {}", key, e.getMessage()));
+    }
+
+    /**
+     * Drop the local tier. Redis entries age out on their own TTL.
+     */
+    public void invalidateLocal() {
+        local.invalidateAll();
+    }
+
+    public long getLocalSize() {
+        return local.estimatedSize();
+    }
+
+    private String redisKey(String key) {
+        return properties.getRedis().getKeyPrefix() + key;
+    }
+
+    private CachedResponse deserialize(String json) {
+        try {
+            return objectMapper.readValue(json, CachedResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid cached response", e);
+        }
+    }
+
+    /**
+     * Expires each entry at its own freshness deadline
+     */
+    private static final class ResponseExpiry implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+            long millis = value.getExpiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.de013.apigateway.compression;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Content codings the gateway can apply, in server preference order
+ */
+public enum ContentCoding {
+
+    BROTLI("br"),
+    GZIP("gzip");
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Pick the coding to use for an Accept-Encoding header (RFC 9110 section 12.5.3).
+     * Highest q-value wins, ties go to server preference; {@code *} covers codings the
+     * client did not list. Returns null when the client accepts none of {@code available}.
+     */
+    public static ContentCoding negotiate(List<String> acceptEncoding, Set<ContentCoding> available) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty() || available.isEmpty()) {
+            return null;
+        }
+        float[] quality = new float[values().length];
+        boolean[] listed = new boolean[values().length];
+        float wildcard = 0;
+        for (String header : acceptEncoding) {
+            for (String element : header.split(",")) {
+                int semicolon = element.indexOf(';');
+                String name = (semicolon < 0 ? element : element.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+                float q = semicolon < 0 ? 1 : qValue(element.substring(semicolon + 1));
+                if (name.equals("*")) {
+                    wildcard = q;
+                    continue;
+                }
+                for (ContentCoding coding : values()) {
+                    if (coding.token.equals(name) || (coding == GZIP && name.equals("x-gzip"))) {
+                        quality[coding.ordinal()] = q;
+                        listed[coding.ordinal()] = true;
+                    }
+                }
+            }
+        }
+
+        ContentCoding best = null;
+        float bestQuality = 0;
+        for (ContentCoding coding : values()) {
+            float q = listed[coding.ordinal()] ? quality[coding.ordinal()] : wildcard;
+            if (available.contains(coding) && q > bestQuality) {
+                best = coding;
+                bestQuality = q;
+            }
+        }
+        return best;
+    }
+
+    private static float qValue(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.length() > 2 && (trimmed.charAt(0) == 'q' || trimmed.charAt(0) == 'Q') && trimmed.charAt(1) == '=') {
+                try {
+                    return Math.max(0, Math.min(1, Float.parseFloat(trimmed.substring(2))));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,234 @@
+package org.de013.apigateway.compression;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.apigateway.config.CompressionProperties;
+import org.de013.apigateway.filter.BoundedBody;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses responses of enabled routes with gzip or brotli, negotiated from the
+ * client's Accept-Encoding.
+ * <p>
+ * Runs innermost, right before the response is written, so the response cache and
+ * request coalescing hold and share the already-compressed body (both key on
+ * Accept-Encoding) and a cache hit costs no compression at all. Bodies below
+ * {@code min-response-size}, above {@code max-body-bytes}, of other content types, or
+ * already encoded by upstream are passed through untouched.
+ */
+@Slf4j
+@Component
+public class ResponseCompressionFilter implements GlobalFilter, Ordered {
+
+    private static final String METRIC_PREFIX = "gateway.compression";
+
+    private final CompressionProperties properties;
+    private final ResponseCompressor compressor;
+    private final List<MediaType> mimeTypes;
+    private final Map<ContentCoding, Meters> meters = new EnumMap<>(ContentCoding.class);
+
+    public ResponseCompressionFilter(CompressionProperties properties, ResponseCompressor compressor,
+                                     MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.compressor = compressor;
+        this.mimeTypes = properties.getMimeTypes().stream().map(MediaType::parseMediaType).toList();
+        for (ContentCoding coding : ContentCoding.values()) {
+            meters.put(coding, new Meters(meterRegistry, coding));
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (!properties.isEnabled() || route == null || !properties.getRoutes().contains(route.getId())) {
+            return chain.filter(exchange);
+        }
+
+        HttpHeaders requestHeaders = exchange.getRequest().getHeaders();
+        ContentCoding coding = ContentCoding.negotiate(requestHeaders.get(HttpHeaders.ACCEPT_ENCODING),
+                compressor.getAvailable());
+        boolean stripUpstream = !properties.isUpstreamPassthrough() && requestHeaders.containsKey(HttpHeaders.ACCEPT_ENCODING);
+        if (coding == null && !stripUpstream) {
+            return chain.filter(exchange);
+        }
+
+        ServerWebExchange.Builder mutated = exchange.mutate();
+        if (stripUpstream) {
+            // Upstream sends identity; the encoding is chosen here
+            mutated.request(request -> request.headers(headers -> headers.remove(HttpHeaders.ACCEPT_ENCODING)));
+        }
+        if (coding != null) {
+            mutated.response(new CompressingResponse(exchange.getResponse(), coding));
+        }
+        return chain.filter(mutated.build());
+    }
+
+    @Override
+    public int getOrder() {
+        // Inside the response cache and request coalescing, before the response is written
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+
+    private boolean isCompressible(ServerHttpResponse response) {
+        HttpStatusCode status = response.getStatusCode();
+        if (status != null && (status.value() == HttpStatus.NO_CONTENT.value()
+                || status.value() == HttpStatus.PARTIAL_CONTENT.value()
+                || status.value() == HttpStatus.NOT_MODIFIED.value())) {
+            return false;
+        }
+        HttpHeaders headers = response.getHeaders();
+        String contentEncoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (contentEncoding != null && !contentEncoding.equalsIgnoreCase("identity")) {
+            return false;
+        }
+        String cacheControl = headers.getFirst(HttpHeaders.CACHE_CONTROL);
+        if (cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains("no-transform")) {
+            return false;
+        }
+        MediaType contentType = headers.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        for (MediaType mimeType : mimeTypes) {
+            if (mimeType.isCompatibleWith(contentType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addVary(HttpHeaders headers) {
+        List<String> vary = headers.getVary();
+        for (String value : vary) {
+            if (value.equalsIgnoreCase(HttpHeaders.ACCEPT_ENCODING) || value.equals("*")) {
+                return;
+            }
+        }
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    /**
+     * Buffers the body, up to max-body-bytes, and writes it encoded
+     */
+    private class CompressingResponse extends ServerHttpResponseDecorator {
+
+        private final ContentCoding coding;
+
+        CompressingResponse(ServerHttpResponse delegate, ContentCoding coding) {
+            super(delegate);
+            this.coding = coding;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!isCompressible(getDelegate())) {
+                return super.writeWith(body);
+            }
+            HttpHeaders headers = getHeaders();
+            // The body depends on Accept-Encoding from here on, whether or not this one is compressed
+            addVary(headers);
+            long contentLength = headers.getContentLength();
+            if (contentLength >= 0
+                    && (contentLength < properties.getMinResponseSize() || contentLength > properties.getMaxBodyBytes())) {
+                return super.writeWith(body);
+            }
+
+            // Without a Content-Length, bodies past max-body-bytes stream through as they arrive
+            return super.writeWith(BoundedBody.buffer(body, properties.getMaxBodyBytes(), this::compress, () -> { }));
+        }
+
+        /**
+         * Encode a complete body, setting the headers before the first byte is written
+         */
+        private Publisher<DataBuffer> compress(List<DataBuffer> buffers) {
+            int size = 0;
+            for (DataBuffer buffer : buffers) {
+                size += buffer.readableByteCount();
+            }
+            if (size < properties.getMinResponseSize()) {
+                return Flux.fromIterable(buffers);
+            }
+
+            Meters coded = meters.get(coding);
+            long start = System.nanoTime();
+            DataBuffer compressed;
+            try {
+                compressed = compressor.compress(coding, buffers, size, bufferFactory());
+            } catch (IOException | RuntimeException e) {
+                log.warn("{} compression failed, sending identity: {}", coding.getToken(), e.getMessage());
+                return Flux.fromIterable(buffers);
+            }
+            coded.time.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            coded.bytesIn.increment(size);
+            coded.bytesOut.increment(compressed.readableByteCount());
+            buffers.forEach(DataBufferUtils::release);
+
+            HttpHeaders headers = getHeaders();
+            headers.set(HttpHeaders.CONTENT_ENCODING, coding.getToken());
+            headers.remove(HttpHeaders.TRANSFER_ENCODING);
+            headers.setContentLength(compressed.readableByteCount());
+            weakenEtag(headers);
+            return Mono.just(compressed);
+        }
+
+        /**
+         * A strong ETag names the identity bytes; the encoded body is only semantically equal
+         */
+        private void weakenEtag(HttpHeaders headers) {
+            String etag = headers.getETag();
+            if (etag != null && !etag.startsWith("W/")) {
+                headers.setETag("W/" + etag);
+            }
+        }
+    }
+
+    private static final class Meters {
+
+        private final Timer time;
+        private final Counter bytesIn;
+        private final Counter bytesOut;
+
+        Meters(MeterRegistry meterRegistry, ContentCoding coding) {
+            this.time = Timer.builder(METRIC_PREFIX + ".time")
+                    .description("Time spent encoding response bodies")
+                    .tag("encoding", coding.getToken())
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            this.bytesIn = Counter.builder(METRIC_PREFIX + ".bytes")
+                    .description("Response body bytes before and after encoding")
+                    .tags("encoding", coding.getToken(), "stage", "in")
+                    .register(meterRegistry);
+            this.bytesOut = Counter.builder(METRIC_PREFIX + ".bytes")
+                    .description("Response body bytes before and after encoding")
+                    .tags("encoding", coding.getToken(), "stage", "out")
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.de013.apigateway.concurrency;
+
+import org.de013.apigateway.config.ConcurrencyLimitProperties.LimitSettings;
+
+/**
+ * Concurrency limit that adjusts itself from observed request latency
+ */
+public interface AdaptiveLimit {
+
+    /**
+     * Current number of requests allowed in flight
+     */
+    int getLimit();
+
+    /**
+     * Feed one completed request into the algorithm
+     *
+     * @param rttNanos round trip time of the request
+     * @param inflight requests in flight when it started
+     * @param dropped  whether it failed in a way that signals overload (timeout, 5xx)
+     */
+    void onSample(long rttNanos, int inflight, boolean dropped);
+
+    static AdaptiveLimit create(LimitSettings settings) {
+        return switch (settings.getAlgorithm()) {
+            case VEGAS -> new VegasLimit(settings);
+            case GRADIENT -> new GradientLimit(settings);
+        };
+    }
+}
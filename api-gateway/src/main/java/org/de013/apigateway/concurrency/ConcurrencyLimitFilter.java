@@ -0,0 +1,190 @@
+package org.de013.apigateway.concurrency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.search.Search;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.apigateway.config.ConcurrencyLimitProperties;
+import org.de013.apigateway.config.ConcurrencyLimitProperties.LimitSettings;
+import org.de013.apigateway.exception.ErrorBodyTemplate;
+import org.de013.apigateway.exception.ErrorBodyTemplates;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adaptive concurrency limit per route and, by default, per downstream instance.
+ * <p>
+ * Runs right after the load balancer picked an instance, so a single slow pod gets its
+ * own, smaller limit. Requests over the limit are shed with an immediate 503 instead of
+ * queueing until the circuit breaker's time limiter fires. Sheds are written as a normal
+ * response, so they do not count as failures for the route's circuit breaker.
+ */
+@Slf4j
+@Component
+public class ConcurrencyLimitFilter implements GlobalFilter, Ordered {
+
+    private static final String METRIC_PREFIX = "gateway.concurrency";
+
+    private final ConcurrencyLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ErrorBodyTemplate limitExceededBody;
+    private final Cache<String, LimiterEntry> limiters;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties,
+                                  MeterRegistry meterRegistry,
+                                  ErrorBodyTemplates errorBodyTemplates) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.limitExceededBody = errorBodyTemplates.compile(HttpStatus.SERVICE_UNAVAILABLE,
+                "CONCURRENCY_LIMIT_EXCEEDED", "Service is busy. Please try again later.");
+        this.limiters = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(properties.getIdleExpireMinutes()))
+                // Runs under the key's lock, so it cannot race a limiter being recreated for the key
+                .evictionListener((String key, LimiterEntry entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        unregister(entry);
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (!properties.isEnabled() || route == null) {
+            return chain.filter(exchange);
+        }
+        LimitSettings settings = properties.forRoute(route.getId());
+        if (!settings.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        String instance = instanceOf(exchange);
+        LimiterEntry entry = limiters.get(route.getId() + "@" + instance,
+                key -> register(route.getId(), instance, settings));
+        ConcurrencyLimiter limiter = entry.limiter;
+
+        int inflight = limiter.tryAcquire();
+        if (inflight < 0) {
+            entry.rejected.increment();
+            log.debug("Concurrency limit {} reached for route {} instance {}",
+                    limiter.getLimit(), route.getId(), instance);
+            return handleLimitExceeded(exchange);
+        }
+
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        return chain.filter(exchange)
+                .doOnSuccess(v -> {
+                    if (released.compareAndSet(false, true)) {
+                        limiter.release(System.nanoTime() - start, inflight,
+                                isOverload(exchange.getResponse().getStatusCode()));
+                    }
+                })
+                .doOnError(e -> {
+                    if (released.compareAndSet(false, true)) {
+                        limiter.release(System.nanoTime() - start, inflight, true);
+                    }
+                })
+                .doOnCancel(() -> {
+                    if (released.compareAndSet(false, true)) {
+                        limiter.releaseIgnored();
+                    }
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        // After the load balancer resolved lb:// to a concrete instance
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+
+    private String instanceOf(ServerWebExchange exchange) {
+        if (!properties.isPerInstance()) {
+            return "all";
+        }
+        URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        if (url == null || url.getHost() == null) {
+            return "all";
+        }
+        return url.getHost() + ":" + url.getPort();
+    }
+
+    private static boolean isOverload(HttpStatusCode status) {
+        if (status == null) {
+            return false;
+        }
+        int code = status.value();
+        return code == 502 || code == 503 || code == 504;
+    }
+
+    private LimiterEntry register(String routeId, String instance, LimitSettings settings) {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(AdaptiveLimit.create(settings));
+        Tags tags = Tags.of("route", routeId, "instance", instance);
+        // Meters left by an evicted limiter for this key would otherwise be returned by register()
+        Search.in(meterRegistry).name(name -> name.startsWith(METRIC_PREFIX + ".")).tags(tags).meters()
+                .forEach(meterRegistry::remove);
+        Gauge limit = Gauge.builder(METRIC_PREFIX + ".limit", limiter, ConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge inflight = Gauge.builder(METRIC_PREFIX + ".inflight", limiter, ConcurrencyLimiter::getInflight)
+                .description("Requests currently in flight")
+                .tags(tags)
+                .register(meterRegistry);
+        Counter rejected = Counter.builder(METRIC_PREFIX + ".rejected")
+                .description("Requests shed because the concurrency limit was reached")
+                .tags(tags)
+                .register(meterRegistry);
+        log.info("Concurrency limiter for route {} instance {}: {} starting at {}",
+                routeId, instance, settings.getAlgorithm(), settings.getInitialLimit());
+        return new LimiterEntry(limiter, rejected, List.of(limit, inflight, rejected));
+    }
+
+    /**
+     * Remove the meters of an evicted limiter, unless a newer limiter for the key already owns them
+     */
+    private void unregister(LimiterEntry entry) {
+        for (Meter meter : entry.meters) {
+            Meter current = meterRegistry.find(meter.getId().getName()).tags(meter.getId().getTags()).meter();
+            if (current == meter) {
+                meterRegistry.remove(meter);
+            }
+        }
+    }
+
+    /**
+     * Shed the request with a 503
+     */
+    private Mono<Void> handleLimitExceeded(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        return ErrorBodyTemplates.write(response, limitExceededBody, exchange.getRequest(), null);
+    }
+
+    private record LimiterEntry(ConcurrencyLimiter limiter, Counter rejected, List<Meter> meters) {
+    }
+}
@@ -0,0 +1,56 @@
+package org.de013.apigateway.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-flight counter for one route or route instance, bounded by an adaptive limit
+ */
+public class ConcurrencyLimiter {
+
+    private final AdaptiveLimit limit;
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    public ConcurrencyLimiter(AdaptiveLimit limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Reserve a slot
+     *
+     * @return in-flight count including this request, or -1 if the limit is reached
+     */
+    public int tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit.getLimit()) {
+                return -1;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Release a slot and feed the outcome back into the limit
+     */
+    public void release(long rttNanos, int inflightAtStart, boolean dropped) {
+        inflight.decrementAndGet();
+        limit.onSample(rttNanos, inflightAtStart, dropped);
+    }
+
+    /**
+     * Release a slot without a sample, e.g. when the client went away
+     */
+    public void releaseIgnored() {
+        inflight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
@@ -0,0 +1,63 @@
+package org.de013.apigateway.concurrency;
+
+import org.de013.apigateway.config.ConcurrencyLimitProperties.LimitSettings;
+
+/**
+ * Gradient style limit.
+ * <p>
+ * Compares each sample with a long-term exponential average of latency. While the
+ * short-term latency stays within {@code rtt-tolerance} of the average the limit grows by
+ * a queue allowance of {@code sqrt(limit)}; when it rises above, the limit shrinks in
+ * proportion. Drops halve the gradient floor so overload is shed quickly.
+ */
+class GradientLimit implements AdaptiveLimit {
+
+    private static final double LONG_WINDOW = 600;
+
+    private final LimitSettings settings;
+    private volatile int limit;
+    private double estimatedLimit;
+    private double longRtt;
+
+    GradientLimit(LimitSettings settings) {
+        this.settings = settings;
+        this.limit = settings.getInitialLimit();
+        this.estimatedLimit = settings.getInitialLimit();
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inflight, boolean dropped) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        double shortRtt = rttNanos;
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) / LONG_WINDOW;
+        }
+        // Recover faster once a latency spike is over
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        double current = estimatedLimit;
+        if (!dropped && inflight < current / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, settings.getRttTolerance() * longRtt / shortRtt));
+        if (dropped) {
+            gradient = 0.5;
+        }
+        double next = current * gradient + Math.sqrt(current);
+        next = Math.max(settings.getMinLimit(), Math.min(settings.getMaxLimit(), next));
+        estimatedLimit = (1 - settings.getSmoothing()) * current + settings.getSmoothing() * next;
+        limit = (int) estimatedLimit;
+    }
+}
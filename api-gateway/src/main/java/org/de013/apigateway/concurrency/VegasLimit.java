@@ -0,0 +1,83 @@
+package org.de013.apigateway.concurrency;
+
+import org.de013.apigateway.config.ConcurrencyLimitProperties.LimitSettings;
+
+/**
+ * TCP Vegas style limit.
+ * <p>
+ * Estimates the queue building up downstream as {@code limit * (1 - rttNoLoad / rtt)},
+ * where {@code rttNoLoad} is the lowest latency seen recently. A small queue grows the
+ * limit, a large one shrinks it, and any drop shrinks it straight away. The baseline is
+ * re-probed periodically so the limit can follow a downstream that got permanently slower.
+ */
+class VegasLimit implements AdaptiveLimit {
+
+    private final LimitSettings settings;
+    private volatile int limit;
+    private double estimatedLimit;
+    private long rttNoLoad;
+    private long samplesUntilProbe;
+
+    VegasLimit(LimitSettings settings) {
+        this.settings = settings;
+        this.limit = settings.getInitialLimit();
+        this.estimatedLimit = settings.getInitialLimit();
+        this.samplesUntilProbe = nextProbe(settings.getInitialLimit());
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inflight, boolean dropped) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        if (--samplesUntilProbe <= 0) {
+            // Forget the baseline so a new, possibly higher, no-load latency is learned
+            samplesUntilProbe = nextProbe(limit);
+            rttNoLoad = rttNanos;
+            return;
+        }
+        if (rttNoLoad == 0 || rttNanos < rttNoLoad) {
+            rttNoLoad = rttNanos;
+            return;
+        }
+
+        double current = estimatedLimit;
+        double log = Math.max(1, Math.log10(current));
+        double next;
+        if (dropped) {
+            next = current - log;
+        } else if (inflight * 2 < current) {
+            // Not enough traffic to tell anything about the downstream capacity
+            return;
+        } else {
+            int queueSize = (int) Math.ceil(current * (1 - (double) rttNoLoad / rttNanos));
+            double alpha = 3 * log;
+            double beta = 6 * log;
+            if (queueSize <= log) {
+                next = current + beta;
+            } else if (queueSize < alpha) {
+                next = current + log;
+            } else if (queueSize > beta) {
+                next = current - log;
+            } else {
+                return;
+            }
+        }
+        update(current, next);
+    }
+
+    private void update(double current, double next) {
+        next = Math.max(settings.getMinLimit(), Math.min(settings.getMaxLimit(), next));
+        estimatedLimit = (1 - settings.getSmoothing()) * current + settings.getSmoothing() * next;
+        limit = (int) estimatedLimit;
+    }
+
+    private long nextProbe(int currentLimit) {
+        return (long) settings.getProbeMultiplier() * Math.max(1, currentLimit);
+    }
+}
@@ -0,0 +1,33 @@
+package org.de013.apigateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for the backend-for-frontend composite endpoints
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bff")
+public class BffProperties {
+
+    /**
+     * Base URL of product-catalog-service, resolved through the load balancer
+     */
+    private String productCatalogUrl = "http://product-catalog-service";
+
+    private ProductPage productPage = new ProductPage();
+
+    /**
+     * Per-leg timeouts of the product detail page. The product itself is required; the
+     * other legs are dropped from the response (and listed as missing) when they time out.
+     */
+    @Data
+    public static class ProductPage {
+        private long productTimeoutMillis = 2000;
+        private long inventoryTimeoutMillis = 500;
+        private long variantInventoryTimeoutMillis = 500;
+        private long categoryPathTimeoutMillis = 500;
+    }
+}
@@ -0,0 +1,47 @@
+package org.de013.apigateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for collapsing identical concurrent GETs into one upstream call
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "request-coalescing")
+public class CoalescingProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Route ids whose GETs may be coalesced
+     */
+    private List<String> routes = new ArrayList<>(List.of("product-catalog-service"));
+
+    /**
+     * Gateway paths within those routes that may be coalesced (path patterns)
+     */
+    private List<String> paths = new ArrayList<>(List.of(
+            "/api/v1/product-catalog-service/products/**",
+            "/api/v1/product-catalog-service/categories/**"
+    ));
+
+    /**
+     * How long a follower waits for the leader's response before calling upstream itself
+     */
+    private long maxWaitMillis = 2000;
+
+    /**
+     * Responses larger than this are not shared; followers then call upstream themselves
+     */
+    private int maxBodyBytes = 512 * 1024;
+
+    /**
+     * Also coalesce requests carrying an Authorization header
+     */
+    private boolean coalesceAuthenticated = false;
+}
@@ -0,0 +1,81 @@
+package org.de013.apigateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for gateway-side response compression
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "response-compression")
+public class CompressionProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Route ids whose responses may be compressed by the gateway
+     */
+    private List<String> routes = new ArrayList<>(List.of("product-catalog-service", "product-page-bff"));
+
+    /**
+     * Content types worth compressing; parameters such as charset are ignored
+     */
+    private List<String> mimeTypes = new ArrayList<>(List.of(
+            "application/json",
+            "application/problem+json",
+            "application/xml",
+            "text/plain",
+            "text/html",
+            "text/xml",
+            "text/css",
+            "application/javascript"
+    ));
+
+    /**
+     * Bodies smaller than this are sent as is; compressing them costs more than it saves
+     */
+    private int minResponseSize = 1024;
+
+    /**
+     * Bodies larger than this are streamed through uncompressed instead of buffered
+     */
+    private int maxBodyBytes = 4 * 1024 * 1024;
+
+    /**
+     * Forward the client's Accept-Encoding upstream and leave bodies upstream already
+     * encoded untouched. When false the gateway asks upstream for identity and compresses
+     * itself, so the encoding (and brotli) is under its control.
+     */
+    private boolean upstreamPassthrough = false;
+
+    private Gzip gzip = new Gzip();
+    private Brotli brotli = new Brotli();
+
+    @Data
+    public static class Gzip {
+        private boolean enabled = true;
+
+        /**
+         * Deflate level, 1 (fastest) to 9 (smallest)
+         */
+        private int level = 5;
+    }
+
+    @Data
+    public static class Brotli {
+        /**
+         * Only takes effect when the brotli4j native library loads on this platform
+         */
+        private boolean enabled = true;
+
+        /**
+         * Brotli quality, 0 to 11; 4-5 is close to gzip's CPU cost with smaller output
+         */
+        private int quality = 4;
+    }
+}
@@ -0,0 +1,72 @@
+package org.de013.apigateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for adaptive concurrency limits on routed requests
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Keep one limit per downstream instance (route + host:port) instead of one per route
+     */
+    private boolean perInstance = true;
+
+    /**
+     * Drop limiters of instances that received no traffic for this long
+     */
+    private long idleExpireMinutes = 10;
+
+    /**
+     * Settings used by every route without an entry in {@link #routes}
+     */
+    private LimitSettings defaults = new LimitSettings();
+
+    /**
+     * Per route id settings; an entry replaces the defaults for that route
+     */
+    private Map<String, LimitSettings> routes = new HashMap<>();
+
+    public LimitSettings forRoute(String routeId) {
+        return routes.getOrDefault(routeId, defaults);
+    }
+
+    public enum Algorithm {
+        VEGAS, GRADIENT
+    }
+
+    @Data
+    public static class LimitSettings {
+        private boolean enabled = true;
+        private Algorithm algorithm = Algorithm.VEGAS;
+        private int initialLimit = 20;
+        private int minLimit = 5;
+        private int maxLimit = 500;
+
+        /**
+         * Weight of a new limit estimate (0..1], lower is smoother
+         */
+        private double smoothing = 1.0;
+
+        /**
+         * Gradient only: how much the short-term latency may exceed the long-term
+         * average before the limit is reduced
+         */
+        private double rttTolerance = 1.5;
+
+        /**
+         * Vegas only: reset the no-load latency baseline every this many limits worth of samples
+         */
+        private int probeMultiplier = 30;
+    }
+}
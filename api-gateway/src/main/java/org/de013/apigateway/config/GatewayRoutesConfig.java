@@ -1,11 +1,14 @@
 package org.de013.apigateway.config;
 
+import org.de013.apigateway.bff.ProductPageFilter;
+import org.de013.apigateway.cache.ResponseCacheFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 
 @Configuration
 public class GatewayRoutesConfig {
@@ -13,7 +16,8 @@ public class GatewayRoutesConfig {
     private static final Logger logger = LoggerFactory.getLogger(GatewayRoutesConfig.class);
 
     @Bean
-    public RouteLocator gatewayRoutes(RouteLocatorBuilder builder) {
+    public RouteLocator gatewayRoutes(RouteLocatorBuilder builder, ResponseCacheFilter responseCacheFilter,
+                                      ProductPageFilter productPageFilter) {
         RouteLocator routeLocator = builder.routes()
                 // User Service Routes
                 .route("user-service", r -> r
@@ -37,12 +41,20 @@ public class GatewayRoutesConfig {
                         .path("/api/v1/product-catalog-service/**")
                         .filters(f -> f
                                 .rewritePath("/api/v1/product-catalog-service/(?<remaining>.*)", "/${remaining}")
+                                .filter(responseCacheFilter)
                                 .circuitBreaker(c -> c
                                         .setName("productServiceCircuitBreaker")
                                         .setFallbackUri("forward:/fallback/product-catalog-service"))
                         )
                         .uri("lb://product-catalog-service"))
 
+                // Product detail page (BFF): answered by the gateway, fans out to product-catalog-service
+                .route("product-page-bff", r -> r
+                        .path("/api/v1/bff/products/{id}")
+                        .and().method(HttpMethod.GET)
+                        .filters(f -> f.filter(productPageFilter))
+                        .uri("no://op"))
+
                 // Product Catalog Service API Docs
                 .route("product-catalog-service-docs", r -> r
                         .path("/api/v1/product-catalog-service/v1/api-docs")
@@ -0,0 +1,31 @@
+package org.de013.apigateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for the verified JWT cache in front of the JWT decoder
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.security.jwt-cache")
+public class JwtCacheProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Max number of verified tokens kept in memory
+     */
+    private long maxSize = 50_000;
+
+    /**
+     * Upper bound on how long a token stays cached, even if it expires later
+     */
+    private long maxTtlSeconds = 300;
+
+    /**
+     * How often the JWK Set is polled to detect key rotation (0 disables polling)
+     */
+    private long jwksCheckIntervalSeconds = 60;
+}
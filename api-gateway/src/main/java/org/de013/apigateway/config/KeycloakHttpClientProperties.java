@@ -0,0 +1,23 @@
+package org.de013.apigateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Connection pool settings for the WebClient that talks to Keycloak
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "keycloak.http-client")
+public class KeycloakHttpClientProperties {
+
+    private int maxConnections = 50;
+    private int pendingAcquireMaxCount = 500;
+    private long pendingAcquireTimeoutMillis = 5000;
+    private long maxIdleTimeSeconds = 30;
+    private long maxLifeTimeSeconds = 300;
+    private long evictInBackgroundSeconds = 30;
+    private int connectTimeoutMillis = 3000;
+    private long responseTimeoutSeconds = 10;
+}
@@ -0,0 +1,15 @@
+package org.de013.apigateway.config;
+
+import org.de013.apigateway.loadbalancer.LatencyAwareLoadBalancerConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces the default round-robin balancer of every lb:// route with the latency-aware one
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "upstream.load-balancer", name = "latency-aware", havingValue = "true", matchIfMissing = true)
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
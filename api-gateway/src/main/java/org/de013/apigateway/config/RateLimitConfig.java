@@ -5,14 +5,12 @@ import io.github.bucket4j.Bucket;
 import io.github.bucket4j.Refill;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.de013.apigateway.ratelimit.BucketStore;
 import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Global Rate Limiting Configuration for API Gateway
@@ -23,12 +21,14 @@ import java.util.concurrent.ConcurrentHashMap;
 public class RateLimitConfig {
 
     private final RateLimitProperties properties;
-    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final BucketStore buckets;
 
-    public RateLimitConfig(RateLimitProperties properties) {
+    public RateLimitConfig(RateLimitProperties properties, BucketStore buckets) {
         this.properties = properties;
+        this.buckets = buckets;
         log.info("Rate limiting enabled: {}", properties.isEnabled());
         if (properties.isEnabled()) {
+            log.info("Rate limit mode: {}", properties.getMode());
             log.info("Per-IP limit: {} requests per {} minute(s)",
                     properties.getPerIp().getCapacity(),
                     properties.getPerIp().getRefillPeriodMinutes());
@@ -38,11 +38,6 @@ public class RateLimitConfig {
         }
     }
 
-    @Bean
-    public Map<String, Bucket> rateLimitBuckets() {
-        return buckets;
-    }
-
     /**
      * Check if rate limiting is enabled
      */
@@ -50,11 +45,30 @@ public class RateLimitConfig {
         return properties.isEnabled();
     }
 
+    /**
+     * Get rate limiting configuration properties
+     */
+    public RateLimitProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Get bucket for an arbitrary key using the given limit
+     */
+    public Bucket getBucket(String key, LimitConfig config) {
+        return createBucket(
+                key,
+                config.getCapacity(),
+                config.getRefillTokens(),
+                Duration.ofMinutes(config.getRefillPeriodMinutes())
+        );
+    }
+
     /**
      * Create or get bucket for a specific key
      */
     private Bucket createBucket(String key, int capacity, int refillTokens, Duration refillPeriod) {
-        return buckets.computeIfAbsent(key, k -> {
+        return buckets.getOrCreate(key, k -> {
             Bandwidth limit = Bandwidth.classic(capacity, Refill.intervally(refillTokens, refillPeriod));
             Bucket bucket = Bucket.builder()
                     .addLimit(limit)
@@ -69,26 +83,14 @@ public class RateLimitConfig {
      * Get bucket for IP-based rate limiting
      */
     public Bucket getIpBucket(String clientIp) {
-        LimitConfig config = properties.getPerIp();
-        return createBucket(
-                "ip:" + clientIp,
-                config.getCapacity(),
-                config.getRefillTokens(),
-                Duration.ofMinutes(config.getRefillPeriodMinutes())
-        );
+        return getBucket("ip:" + clientIp, properties.getPerIp());
     }
 
     /**
      * Get bucket for user-based rate limiting
      */
     public Bucket getUserBucket(String userId) {
-        LimitConfig config = properties.getPerUser();
-        return createBucket(
-                "user:" + userId,
-                config.getCapacity(),
-                config.getRefillTokens(),
-                Duration.ofMinutes(config.getRefillPeriodMinutes())
-        );
+        return getBucket("user:" + userId, properties.getPerUser());
     }
 
     /**
@@ -102,7 +104,7 @@ public class RateLimitConfig {
     /**
      * Get current bucket count (for monitoring)
      */
-    public int getBucketCount() {
+    public long getBucketCount() {
         return buckets.size();
     }
 
@@ -110,7 +112,7 @@ public class RateLimitConfig {
      * Clear all buckets (for testing/admin purposes)
      */
     public void clearAllBuckets() {
-        int count = buckets.size();
+        long count = buckets.size();
         buckets.clear();
         log.info("Cleared {} rate limit buckets", count);
     }
@@ -123,13 +125,28 @@ public class RateLimitConfig {
     @Getter
     public static class RateLimitProperties {
         private boolean enabled = true;
+        private Mode mode = Mode.LOCAL;
         private LimitConfig perIp = new LimitConfig(1000, 1000, 1);
         private LimitConfig perUser = new LimitConfig(10000, 10000, 1);
+        private RedisLimitConfig redis = new RedisLimitConfig();
+        private StoreConfig store = new StoreConfig();
 
         public void setEnabled(boolean enabled) {
             this.enabled = enabled;
         }
 
+        public void setMode(Mode mode) {
+            this.mode = mode;
+        }
+
+        public void setRedis(RedisLimitConfig redis) {
+            this.redis = redis;
+        }
+
+        public void setStore(StoreConfig store) {
+            this.store = store;
+        }
+
         public void setPerIp(LimitConfig perIp) {
             this.perIp = perIp;
         }
@@ -139,6 +156,80 @@ public class RateLimitConfig {
         }
     }
 
+    /**
+     * Where rate limit buckets are kept
+     */
+    public enum Mode {
+        /**
+         * Bucket4j buckets in gateway memory, limits apply per pod
+         */
+        LOCAL,
+        /**
+         * Shared buckets in Redis, limits apply across all gateway pods
+         */
+        REDIS
+    }
+
+    /**
+     * Redis-backed rate limiting configuration
+     */
+    @Getter
+    public static class RedisLimitConfig {
+        private String keyPrefix = "rate-limit:";
+        // Tokens leased from Redis per round trip and served from the local front cache
+        private int localBatchSize = 10;
+        // How long leased tokens (and cached rejections) stay valid locally
+        private long localLeaseMillis = 1000;
+        // Upper bound on keys held in the local front cache
+        private int localMaxKeys = 10000;
+        private long timeoutMillis = 200;
+        // Fall back to per-pod buckets when Redis is unreachable
+        private boolean failOpen = true;
+
+        public void setKeyPrefix(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+        }
+
+        public void setLocalBatchSize(int localBatchSize) {
+            this.localBatchSize = localBatchSize;
+        }
+
+        public void setLocalLeaseMillis(long localLeaseMillis) {
+            this.localLeaseMillis = localLeaseMillis;
+        }
+
+        public void setLocalMaxKeys(int localMaxKeys) {
+            this.localMaxKeys = localMaxKeys;
+        }
+
+        public void setTimeoutMillis(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        public void setFailOpen(boolean failOpen) {
+            this.failOpen = failOpen;
+        }
+    }
+
+    /**
+     * In-memory bucket store configuration
+     */
+    @Getter
+    public static class StoreConfig {
+        // Upper bound on buckets kept in memory, least valuable keys are evicted first
+        private long maxSize = 100_000;
+        // Buckets idle for longer than this are dropped (keep >= the longest refill period)
+        private long expireAfterAccessMinutes = 5;
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public void setExpireAfterAccessMinutes(long expireAfterAccessMinutes) {
+            this.expireAfterAccessMinutes = expireAfterAccessMinutes;
+        }
+    }
+
     /**
      * Individual limit configuration
      */
@@ -6,6 +6,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 
 @Configuration
@@ -22,7 +23,7 @@ public class RedisConfig {
     private int redisDatabase;
 
     @Bean
-    public RedisConnectionFactory redisConnectionFactory() {
+    public LettuceConnectionFactory redisConnectionFactory() {
         LettuceConnectionFactory factory = new LettuceConnectionFactory(redisHost, redisPort);
         factory.setDatabase(redisDatabase);
         log.info("Configured Redis connection: {}:{} database {}", redisHost, redisPort, redisDatabase);
@@ -36,4 +37,13 @@ public class RedisConfig {
         log.info("Configured StringRedisTemplate for API Gateway");
         return template;
     }
+
+    /**
+     * Reactive template on the same Lettuce connection, used by the Redis rate limiter
+     * so the filter chain never blocks the event loop on Redis
+     */
+    @Bean
+    public ReactiveStringRedisTemplate reactiveStringRedisTemplate(LettuceConnectionFactory connectionFactory) {
+        return new ReactiveStringRedisTemplate(connectionFactory);
+    }
 }
@@ -0,0 +1,76 @@
+package org.de013.apigateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for the gateway response cache on public catalog GETs
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "response-cache")
+public class ResponseCacheProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Gateway paths whose GET responses may be cached (path patterns)
+     */
+    private List<String> paths = new ArrayList<>(List.of(
+            "/api/v1/product-catalog-service/products/**",
+            "/api/v1/product-catalog-service/categories/**",
+            "/api/v1/product-catalog-service/search/**"
+    ));
+
+    /**
+     * Paths never cached even if they match {@link #paths}, e.g. live stock levels
+     */
+    private List<String> excludedPaths = new ArrayList<>(List.of(
+            "/api/v1/product-catalog-service/products/*/inventory/**",
+            "/api/v1/product-catalog-service/products/*/variants/inventory"
+    ));
+
+    /**
+     * TTL used when upstream sends no max-age (0 = only cache responses with an explicit max-age)
+     */
+    private long defaultTtlSeconds = 30;
+
+    /**
+     * Upper bound on how long a response is cached, whatever upstream says
+     */
+    private long maxTtlSeconds = 300;
+
+    /**
+     * Responses larger than this are passed through without caching
+     */
+    private int maxBodyBytes = 256 * 1024;
+
+    /**
+     * Also serve cached responses to requests carrying an Authorization header
+     */
+    private boolean cacheAuthenticated = false;
+
+    private Local local = new Local();
+    private Redis redis = new Redis();
+
+    @Data
+    public static class Local {
+        private boolean enabled = true;
+
+        /**
+         * Max total body bytes held in memory
+         */
+        private long maxBytes = 64L * 1024 * 1024;
+    }
+
+    @Data
+    public static class Redis {
+        private boolean enabled = false;
+        private String keyPrefix = "response-cache:";
+        private long timeoutMillis = 100;
+    }
+}
@@ -1,5 +1,9 @@
 package org.de013.apigateway.config;
 
+import org.de013.apigateway.security.CachingReactiveJwtDecoder;
+import org.de013.apigateway.security.RevocationCheckingJwtDecoder;
+import org.de013.apigateway.security.RevokedTokenStore;
+import org.de013.apigateway.security.VerifiedJwtCache;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -70,6 +74,9 @@ public class SecurityConfig {
                             .pathMatchers(HttpMethod.GET, "/api/v1/product-catalog-service/products/**").permitAll()
                             .pathMatchers(HttpMethod.GET, "/api/v1/product-catalog-service/categories/**").permitAll()
 
+                            // Product detail page (BFF) - same access as the catalog GETs it aggregates
+                            .pathMatchers(HttpMethod.GET, "/api/v1/bff/products/*").permitAll()
+
                             // Admin-only product management
                             .pathMatchers(HttpMethod.POST, "/api/v1/product-catalog-service/products/**").hasRole("ADMIN")
                             .pathMatchers(HttpMethod.PUT, "/api/v1/product-catalog-service/products/**").hasRole("ADMIN")
@@ -102,11 +109,15 @@ public class SecurityConfig {
                             .pathMatchers(HttpMethod.GET, "/api/v1/order-service/orders/number/*").hasAnyRole("ADMIN", "CUSTOMER") // Allow customers to view order by number
                             .pathMatchers(HttpMethod.GET, "/api/v1/order-service/orders/{id:\\d+}").hasAnyRole("ADMIN", "MANAGER", "SUPPORT", "CUSTOMER")
                             .pathMatchers(HttpMethod.GET, "/api/v1/order-service/orders").hasAnyRole("ADMIN", "MANAGER", "SUPPORT")
+                            .pathMatchers(HttpMethod.GET, "/api/v1/order-service/orders/cursor").hasAnyRole("ADMIN", "MANAGER", "SUPPORT")
                             .pathMatchers(HttpMethod.GET, "/api/v1/order-service/orders/user/**").hasAnyRole("ADMIN", "MANAGER", "SUPPORT")
                             .pathMatchers(HttpMethod.PUT, "/api/v1/order-service/orders/**").hasAnyRole("ADMIN", "MANAGER")
                             .pathMatchers(HttpMethod.PATCH, "/api/v1/order-service/orders/**").hasAnyRole("ADMIN", "MANAGER")
                             .pathMatchers(HttpMethod.DELETE, "/api/v1/order-service/orders/**").hasAnyRole("ADMIN", "CUSTOMER") // Need CUSTOMER to cancel order (DELETE /{orderId})
 
+                            // Order event outbox status and replay (admin only)
+                            .pathMatchers("/api/v1/order-service/outbox/**").hasRole("ADMIN")
+
                             // ========== PAYMENT SERVICE ==========
                             // Customer personal payments
                             .pathMatchers("/api/v1/payment-service/payments/my-payments/**").hasAnyRole("ADMIN", "CUSTOMER")
@@ -148,8 +159,16 @@ public class SecurityConfig {
     }
 
     @Bean
-    public ReactiveJwtDecoder jwtDecoder(@Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri) {
-        return org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder.withJwkSetUri(jwkSetUri).build();
+    public ReactiveJwtDecoder jwtDecoder(@Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+                                         VerifiedJwtCache verifiedJwtCache,
+                                         RevokedTokenStore revokedTokenStore) {
+        ReactiveJwtDecoder decoder = org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder.withJwkSetUri(jwkSetUri).build();
+        // Skip repeated signature verification for tokens clients keep reusing
+        if (verifiedJwtCache.isEnabled()) {
+            decoder = new CachingReactiveJwtDecoder(decoder, verifiedJwtCache);
+        }
+        // Tokens revoked on logout are rejected on every pod, cached or not
+        return new RevocationCheckingJwtDecoder(decoder, revokedTokenStore);
     }
 
     @Bean
@@ -177,14 +196,16 @@ public class SecurityConfig {
                 "Accept",
                 "Origin",
                 "Access-Control-Request-Method",
-                "Access-Control-Request-Headers"
+                "Access-Control-Request-Headers",
+                "Idempotency-Key"
         ));
 
         // Expose headers that frontend might need
         configuration.setExposedHeaders(Arrays.asList(
                 "Access-Control-Allow-Origin",
                 "Access-Control-Allow-Credentials",
-                "Authorization"
+                "Authorization",
+                "Idempotent-Replayed"
         ));
 
         configuration.setAllowCredentials(true);
@@ -0,0 +1,36 @@
+package org.de013.apigateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for the Redis denylist of access tokens revoked on logout
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "token.blacklist")
+public class TokenBlacklistProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Redis keys are {@code <prefix>:revoked:<jti>}, announced on channel {@code <prefix>:revoked-tokens}
+     */
+    private String prefix = "auth";
+
+    /**
+     * Max time recording a revocation in Redis may take
+     */
+    private long timeoutMillis = 100;
+
+    /**
+     * How often the local denylist is reloaded from Redis, to catch up on missed messages
+     */
+    private long syncIntervalSeconds = 60;
+
+    /**
+     * Revoked token ids kept in each pod's local denylist
+     */
+    private int localMaxSize = 100_000;
+}
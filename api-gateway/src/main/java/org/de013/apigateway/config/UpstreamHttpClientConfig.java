@@ -0,0 +1,110 @@
+package org.de013.apigateway.config;
+
+import io.netty.channel.epoll.Epoll;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.HttpResources;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Upstream connection pool profile for the gateway's routing HttpClient.
+ * <p>
+ * Spring Cloud Gateway defaults to an elastic pool: a burst opens as many connections
+ * as there are concurrent requests, and they are closed again once idle, which shows up
+ * as TIME_WAIT storms under load. This profile bounds the pool per upstream instance,
+ * queues the excess for a short while and evicts idle connections before the upstream
+ * closes them. Connect and response timeouts, SSL and other
+ * {@code spring.cloud.gateway.httpclient} settings still apply.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "upstream.http-client", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class UpstreamHttpClientConfig {
+
+    /**
+     * Literal path segments: lowercase words joined by hyphens, or an API version
+     */
+    private static final Pattern STATIC_SEGMENT = Pattern.compile("[a-z]+(?:-[a-z]+)*|v\\d+");
+
+    /**
+     * Segments followed by a natural key that can look like a literal, e.g. a category slug
+     */
+    private static final Set<String> KEY_PREFIXES = Set.of("sku", "slug", "number", "email", "username", "by-keycloak-id");
+
+    @Bean
+    public HttpClientFactory upstreamHttpClientFactory(HttpClientProperties httpClientProperties,
+                                                       ServerProperties serverProperties,
+                                                       HttpClientSslConfigurer sslConfigurer,
+                                                       List<HttpClientCustomizer> customizers,
+                                                       UpstreamHttpClientProperties upstream) {
+        return new HttpClientFactory(httpClientProperties, serverProperties, sslConfigurer, customizers) {
+            @Override
+            protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+                log.info("Upstream connection pool: max {} connections per instance, {} pending acquires, {}s idle",
+                        upstream.getMaxConnections(), upstream.getPendingAcquireMaxCount(), upstream.getMaxIdleTimeSeconds());
+                ConnectionProvider.Builder builder = ConnectionProvider.builder("gateway-upstream")
+                        .maxConnections(upstream.getMaxConnections())
+                        .pendingAcquireMaxCount(upstream.getPendingAcquireMaxCount())
+                        .pendingAcquireTimeout(Duration.ofMillis(upstream.getPendingAcquireTimeoutMillis()))
+                        .maxIdleTime(Duration.ofSeconds(upstream.getMaxIdleTimeSeconds()))
+                        .maxLifeTime(Duration.ofSeconds(upstream.getMaxLifeTimeSeconds()))
+                        .evictInBackground(Duration.ofSeconds(upstream.getEvictInBackgroundSeconds()))
+                        .metrics(upstream.isMetrics());
+                return (upstream.isLifo() ? builder.lifo() : builder.fifo()).build();
+            }
+        };
+    }
+
+    /**
+     * Transport, protocol and client metrics on top of whatever the gateway configured
+     */
+    @Bean
+    public HttpClientCustomizer upstreamTransportCustomizer(UpstreamHttpClientProperties upstream) {
+        boolean epoll = upstream.isNativeTransport() && Epoll.isAvailable();
+        log.info("Upstream transport: {}{}", epoll ? "epoll" : "nio", upstream.isHttp2Cleartext() ? ", h2c upgrade" : "");
+        return httpClient -> {
+            HttpClient client = httpClient.runOn(HttpResources.get(), upstream.isNativeTransport());
+            if (upstream.isHttp2Cleartext()) {
+                client = client.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C);
+            }
+            if (upstream.isMetrics()) {
+                client = client.metrics(true, UpstreamHttpClientConfig::uriTag);
+            }
+            return client;
+        };
+    }
+
+    /**
+     * Collapse ids, UUIDs, SKUs and other path values so client metrics stay at a bounded
+     * number of series (Reactor Netty drops metrics past its uri tag cap)
+     */
+    static String uriTag(String uri) {
+        int query = uri.indexOf('?');
+        String path = query < 0 ? uri : uri.substring(0, query);
+        String[] segments = path.split("/", -1);
+        StringBuilder tag = new StringBuilder(path.length());
+        String previous = "";
+        for (int i = 1; i < segments.length; i++) {
+            String segment = segments[i];
+            boolean literal = segment.isEmpty()
+                    || (STATIC_SEGMENT.matcher(segment).matches() && !KEY_PREFIXES.contains(previous));
+            tag.append('/').append(literal ? segment : "{id}");
+            previous = segment;
+        }
+        return tag.length() == 0 ? path : tag.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package org.de013.apigateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Connection pool and transport profile of the HttpClient the gateway routes through.
+ * Reactor Netty keeps one pool per remote address, so the limits apply per upstream instance.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "upstream.http-client")
+public class UpstreamHttpClientProperties {
+
+    /**
+     * Replace Spring Cloud Gateway's default (elastic, unbounded) pool with this profile
+     */
+    private boolean enabled = true;
+
+    private int maxConnections = 200;
+
+    /**
+     * Requests allowed to wait for a connection once all are busy (-1 = unbounded)
+     */
+    private int pendingAcquireMaxCount = 1000;
+    private long pendingAcquireTimeoutMillis = 2000;
+
+    /**
+     * Close idle connections before the upstream does; Tomcat drops keep-alive
+     * connections after 20s by default, and a race there means a failed request
+     */
+    private long maxIdleTimeSeconds = 15;
+    private long maxLifeTimeSeconds = 300;
+    private long evictInBackgroundSeconds = 10;
+
+    /**
+     * Reuse the most recently released connection, so surplus ones go idle and get evicted
+     * instead of all staying barely warm
+     */
+    private boolean lifo = true;
+
+    /**
+     * Offer HTTP/2 cleartext via upgrade; targets without h2c keep answering HTTP/1.1
+     * on the same connection
+     */
+    private boolean http2Cleartext = false;
+
+    /**
+     * Use the native epoll transport when available (Linux), NIO otherwise
+     */
+    private boolean nativeTransport = true;
+
+    /**
+     * Publish pool and client metrics through Micrometer
+     */
+    private boolean metrics = true;
+}
@@ -0,0 +1,61 @@
+package org.de013.apigateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for latency-aware load balancing and request hedging
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "upstream")
+public class UpstreamLatencyProperties {
+
+    private LoadBalancer loadBalancer = new LoadBalancer();
+    private Hedging hedging = new Hedging();
+
+    @Data
+    public static class LoadBalancer {
+        /**
+         * Use the latency-aware balancer for lb:// routes instead of round robin
+         */
+        private boolean latencyAware = true;
+
+        /**
+         * Time constant of the per-instance latency average; older samples fade out
+         */
+        private long decaySeconds = 10;
+
+        /**
+         * Forget instances that received no traffic for this long, with their latency histogram
+         */
+        private long idleExpireMinutes = 10;
+    }
+
+    @Data
+    public static class Hedging {
+        private boolean enabled = false;
+
+        /**
+         * Route ids whose idempotent GETs may be hedged
+         */
+        private List<String> routes = new ArrayList<>();
+
+        /**
+         * Send the hedge once the primary has been outstanding for this latency percentile
+         */
+        private double delayPercentile = 0.95;
+
+        private long minDelayMillis = 20;
+        private long maxDelayMillis = 500;
+
+        /**
+         * Max share of requests that may be hedged, per second
+         */
+        private double maxHedgeRatio = 0.1;
+    }
+}
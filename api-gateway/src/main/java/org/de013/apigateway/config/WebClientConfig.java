@@ -1,10 +1,18 @@
 package org.de013.apigateway.config;
 
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
+
+@Slf4j
 @Configuration
 public class WebClientConfig {
 
@@ -17,4 +25,38 @@ public class WebClientConfig {
     public WebClient.Builder loadBalancedWebClientBuilder() {
         return WebClient.builder();
     }
+
+    /**
+     * Dedicated connection pool for Keycloak so registration bursts reuse warm
+     * connections instead of opening new ones, and cannot starve other clients
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider keycloakConnectionProvider(KeycloakHttpClientProperties properties) {
+        log.info("Keycloak connection pool: max {} connections, {} pending acquires",
+                properties.getMaxConnections(), properties.getPendingAcquireMaxCount());
+        return ConnectionProvider.builder("keycloak")
+                .maxConnections(properties.getMaxConnections())
+                .pendingAcquireMaxCount(properties.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(properties.getPendingAcquireTimeoutMillis()))
+                .maxIdleTime(Duration.ofSeconds(properties.getMaxIdleTimeSeconds()))
+                .maxLifeTime(Duration.ofSeconds(properties.getMaxLifeTimeSeconds()))
+                .evictInBackground(Duration.ofSeconds(properties.getEvictInBackgroundSeconds()))
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * WebClient for Keycloak (direct URLs, not load balanced)
+     */
+    @Bean
+    public WebClient keycloakWebClient(ConnectionProvider keycloakConnectionProvider,
+                                       KeycloakHttpClientProperties properties) {
+        HttpClient httpClient = HttpClient.create(keycloakConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, properties.getConnectTimeoutMillis())
+                .responseTimeout(Duration.ofSeconds(properties.getResponseTimeoutSeconds()))
+                .keepAlive(true);
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
 }
@@ -13,12 +13,16 @@ import org.de013.apigateway.dto.SyncUserRequest;
 import org.de013.apigateway.dto.auth.*;
 import org.de013.apigateway.exception.KeycloakException;
 import org.de013.apigateway.exception.dto.ErrorResponse;
+import org.de013.apigateway.security.RevokedTokenStore;
 import org.de013.apigateway.service.KeycloakService;
 import org.de013.apigateway.service.UserServiceClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
@@ -32,6 +36,8 @@ public class AuthController {
 
     private final KeycloakService keycloakService;
     private final UserServiceClient userServiceClient;
+    private final ReactiveJwtDecoder jwtDecoder;
+    private final RevokedTokenStore revokedTokenStore;
 
     /**
      * Register new user
@@ -186,18 +192,31 @@ public class AuthController {
      */
     @Operation(
             summary = "Logout",
-            description = "Revoke refresh token and end user session"
+            description = "Revoke refresh token and end user session; the access token in Authorization, if any, is rejected from then on"
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Logout successful"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping("/logout")
-    public Mono<ResponseEntity<Void>> logout(@Valid @RequestBody LogoutRequest request) {
+    public Mono<ResponseEntity<Void>> logout(
+            @Valid @RequestBody LogoutRequest request,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
 
         log.info("Logout request");
 
-        return keycloakService.logout(request.getRefreshToken())
+        // Deny the access token on every gateway pod until it expires; only a verified token can be revoked
+        Mono<Void> revokeAccessToken = authorization != null && authorization.startsWith("Bearer ")
+                ? jwtDecoder.decode(authorization.substring(7))
+                        .flatMap(revokedTokenStore::revoke)
+                        .onErrorResume(e -> {
+                            log.debug("Access token not revoked: {}", e.getMessage());
+                            return Mono.empty();
+                        })
+                : Mono.empty();
+
+        return revokeAccessToken
+                .then(keycloakService.logout(request.getRefreshToken()))
                 .then(Mono.just(ResponseEntity.ok().<Void>build()))
                 .onErrorResume(e -> {
                     log.warn("Logout completed with warning: {}", e.getMessage());
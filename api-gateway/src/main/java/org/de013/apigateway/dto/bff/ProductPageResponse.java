@@ -0,0 +1,40 @@
+package org.de013.apigateway.dto.bff;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Product detail page assembled from several product-catalog-service calls.
+ * Upstream payloads are passed through as is (the {@code data} of each ApiResponse).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductPageResponse {
+
+    private JsonNode product;
+
+    private JsonNode inventory;
+
+    private JsonNode variantInventory;
+
+    private JsonNode categoryPath;
+
+    /**
+     * True when at least one optional leg is missing
+     */
+    private boolean partial;
+
+    /**
+     * Missing legs and why: TIMEOUT, NOT_FOUND, CIRCUIT_OPEN or UNAVAILABLE
+     */
+    private Map<String, String> missing;
+}
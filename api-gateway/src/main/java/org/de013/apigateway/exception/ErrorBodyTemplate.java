@@ -0,0 +1,317 @@
+package org.de013.apigateway.exception;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.de013.apigateway.exception.dto.ErrorResponse;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link ErrorResponse} body rendered once through Jackson, with the per-request fields
+ * (path, method, trace id, timestamp, and optionally message and details) patched straight
+ * into a buffer from the response's buffer factory (pooled on Netty).
+ * <p>
+ * Rendering a rejection then costs one buffer allocation and a few byte copies instead of
+ * building a DTO, serializing it and generating a UUID. The output is byte-for-byte what
+ * Jackson would have produced for the same values.
+ */
+public final class ErrorBodyTemplate {
+
+    private static final String PATH_MARKER = "__ERROR_PATH__";
+    private static final String METHOD_MARKER = "__ERROR_METHOD__";
+    private static final String TRACE_ID_MARKER = "__ERROR_TRACE_ID__";
+    private static final String MESSAGE_MARKER = "__ERROR_MESSAGE__";
+    private static final String DETAILS_MARKER = "__ERROR_DETAILS__";
+    private static final LocalDateTime TIMESTAMP_MARKER = LocalDateTime.of(1970, 1, 1, 0, 0, 0);
+    private static final String TIMESTAMP_MARKER_TEXT = "1970-01-01 00:00:00";
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int TRACE_ID_LENGTH = 8;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static volatile CachedTimestamp timestamp = new CachedTimestamp(-1, null);
+
+    private enum Slot { PATH, METHOD, TRACE_ID, TIMESTAMP, MESSAGE, DETAILS }
+
+    private final byte[][] literals;
+    private final Slot[] slots;
+    private final int literalLength;
+    private final ErrorBodyTemplate withoutMessage;
+    private final ErrorBodyTemplate withoutDetails;
+
+    private ErrorBodyTemplate(byte[][] literals, Slot[] slots,
+                              ErrorBodyTemplate withoutMessage, ErrorBodyTemplate withoutDetails) {
+        this.literals = literals;
+        this.slots = slots;
+        this.withoutMessage = withoutMessage;
+        this.withoutDetails = withoutDetails;
+        int length = 0;
+        for (byte[] literal : literals) {
+            length += literal.length;
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Render the fixed part of an error body whose message and details are filled in by
+     * {@link #render(DataBufferFactory, String, String, String, String, String)}
+     *
+     * @param withDetails whether the body has a details field
+     */
+    public static ErrorBodyTemplate compile(ObjectMapper objectMapper, int status, String error,
+                                            String code, boolean withDetails) {
+        // A null message or details is left out of the body, as Jackson does for ErrorResponse
+        ErrorBodyTemplate neither = compile(objectMapper, status, error, code, null, null, null, null);
+        if (!withDetails) {
+            return compile(objectMapper, status, error, code, MESSAGE_MARKER, null, neither, null);
+        }
+        ErrorBodyTemplate noMessage = compile(objectMapper, status, error, code, null, DETAILS_MARKER, null, neither);
+        ErrorBodyTemplate noDetails = compile(objectMapper, status, error, code, MESSAGE_MARKER, null, neither, null);
+        return compile(objectMapper, status, error, code, MESSAGE_MARKER, DETAILS_MARKER, noMessage, noDetails);
+    }
+
+    /**
+     * Render the fixed part of an error body
+     */
+    public static ErrorBodyTemplate compile(ObjectMapper objectMapper, int status, String error,
+                                            String code, String message, String details) {
+        return compile(objectMapper, status, error, code, message, details, null, null);
+    }
+
+    private static ErrorBodyTemplate compile(ObjectMapper objectMapper, int status, String error,
+                                             String code, String message, String details,
+                                             ErrorBodyTemplate withoutMessage, ErrorBodyTemplate withoutDetails) {
+        ErrorResponse prototype = ErrorResponse.builder()
+                .success(false)
+                .status(status)
+                .error(error)
+                .code(code)
+                .message(message)
+                .details(details)
+                .path(PATH_MARKER)
+                .method(METHOD_MARKER)
+                .timestamp(TIMESTAMP_MARKER)
+                .traceId(TRACE_ID_MARKER)
+                .build();
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(prototype);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot render error body template for " + code, e);
+        }
+
+        List<byte[]> literals = new ArrayList<>();
+        List<Slot> slots = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int next = -1;
+            Slot slot = null;
+            String marker = null;
+            for (Slot candidate : Slot.values()) {
+                String candidateMarker = marker(candidate);
+                int index = json.indexOf(candidateMarker, pos);
+                if (index >= 0 && (next < 0 || index < next)) {
+                    next = index;
+                    slot = candidate;
+                    marker = candidateMarker;
+                }
+            }
+            if (next < 0) {
+                literals.add(json.substring(pos).getBytes(StandardCharsets.UTF_8));
+                break;
+            }
+            literals.add(json.substring(pos, next).getBytes(StandardCharsets.UTF_8));
+            slots.add(slot);
+            pos = next + marker.length();
+        }
+        return new ErrorBodyTemplate(literals.toArray(new byte[0][]), slots.toArray(new Slot[0]),
+                withoutMessage, withoutDetails);
+    }
+
+    private static String marker(Slot slot) {
+        return switch (slot) {
+            case PATH -> PATH_MARKER;
+            case METHOD -> METHOD_MARKER;
+            case TRACE_ID -> TRACE_ID_MARKER;
+            case TIMESTAMP -> TIMESTAMP_MARKER_TEXT;
+            case MESSAGE -> MESSAGE_MARKER;
+            case DETAILS -> DETAILS_MARKER;
+        };
+    }
+
+    /**
+     * Write the body into a single buffer of exactly the right size
+     *
+     * @param traceId trace id to embed, or null to generate a random one in place
+     */
+    public DataBuffer render(DataBufferFactory bufferFactory, String path, String method, String traceId) {
+        return render(bufferFactory, null, null, path, method, traceId);
+    }
+
+    /**
+     * Write the body into a single buffer of exactly the right size
+     *
+     * @param message message for templates compiled with a message slot, ignored otherwise;
+     *                the field is left out when null
+     * @param details details for templates compiled with a details slot, ignored otherwise;
+     *                the field is left out when null
+     * @param traceId trace id to embed, or null to generate a random one in place
+     */
+    public DataBuffer render(DataBufferFactory bufferFactory, String message, String details,
+                             String path, String method, String traceId) {
+        if (message == null && withoutMessage != null) {
+            return withoutMessage.render(bufferFactory, null, details, path, method, traceId);
+        }
+        if (details == null && withoutDetails != null) {
+            return withoutDetails.render(bufferFactory, message, null, path, method, traceId);
+        }
+        byte[] now = currentTimestamp();
+        int length = literalLength;
+        for (Slot slot : slots) {
+            length += switch (slot) {
+                case PATH -> escapedLength(path);
+                case METHOD -> escapedLength(method);
+                case TRACE_ID -> traceId != null ? escapedLength(traceId) : TRACE_ID_LENGTH;
+                case TIMESTAMP -> now.length;
+                case MESSAGE -> escapedLength(message);
+                case DETAILS -> escapedLength(details);
+            };
+        }
+
+        DataBuffer buffer = bufferFactory.allocateBuffer(length);
+        for (int i = 0; i < literals.length; i++) {
+            buffer.write(literals[i]);
+            if (i < slots.length) {
+                switch (slots[i]) {
+                    case PATH -> writeEscaped(buffer, path);
+                    case METHOD -> writeEscaped(buffer, method);
+                    case TRACE_ID -> {
+                        if (traceId != null) {
+                            writeEscaped(buffer, traceId);
+                        } else {
+                            writeRandomTraceId(buffer);
+                        }
+                    }
+                    case TIMESTAMP -> buffer.write(now);
+                    case MESSAGE -> writeEscaped(buffer, message);
+                    case DETAILS -> writeEscaped(buffer, details);
+                }
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Short random trace id, same shape as the ids embedded by {@link #render}
+     */
+    public static String newTraceId() {
+        int bits = ThreadLocalRandom.current().nextInt();
+        char[] chars = new char[TRACE_ID_LENGTH];
+        for (int i = TRACE_ID_LENGTH - 1; i >= 0; i--) {
+            chars[i] = (char) HEX[bits & 0xF];
+            bits >>>= 4;
+        }
+        return new String(chars);
+    }
+
+    private static void writeRandomTraceId(DataBuffer buffer) {
+        int bits = ThreadLocalRandom.current().nextInt();
+        for (int shift = 28; shift >= 0; shift -= 4) {
+            buffer.write(HEX[(bits >>> shift) & 0xF]);
+        }
+    }
+
+    /**
+     * Timestamp text, formatted at most once per second
+     */
+    private static byte[] currentTimestamp() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedTimestamp cached = timestamp;
+        if (cached.second != second) {
+            cached = new CachedTimestamp(second,
+                    LocalDateTime.now().format(TIMESTAMP_FORMAT).getBytes(StandardCharsets.US_ASCII));
+            timestamp = cached;
+        }
+        return cached.bytes;
+    }
+
+    /**
+     * UTF-8 length of a string once escaped the way Jackson escapes it
+     */
+    static int escapedLength(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                length += 2;
+            } else if (c < 0x20) {
+                length += controlEscape(c).length;
+            } else if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    static void writeEscaped(DataBuffer buffer, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.write((byte) '\\');
+                buffer.write((byte) c);
+            } else if (c < 0x20) {
+                buffer.write(controlEscape(c));
+            } else if (c < 0x80) {
+                buffer.write((byte) c);
+            } else if (c < 0x800) {
+                buffer.write((byte) (0xC0 | (c >> 6)));
+                buffer.write((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buffer.write((byte) (0xF0 | (cp >> 18)));
+                buffer.write((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buffer.write((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buffer.write((byte) (0x80 | (cp & 0x3F)));
+            } else {
+                buffer.write((byte) (0xE0 | (c >> 12)));
+                buffer.write((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.write((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static byte[] controlEscape(char c) {
+        return switch (c) {
+            case '\b' -> new byte[]{'\\', 'b'};
+            case '\f' -> new byte[]{'\\', 'f'};
+            case '\n' -> new byte[]{'\\', 'n'};
+            case '\r' -> new byte[]{'\\', 'r'};
+            case '\t' -> new byte[]{'\\', 't'};
+            default -> new byte[]{'\\', 'u', '0', '0', HEX[c >> 4], HEX[c & 0xF]};
+        };
+    }
+
+    private record CachedTimestamp(long second, byte[] bytes) {
+    }
+}
@@ -0,0 +1,74 @@
+package org.de013.apigateway.exception;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled {@link ErrorBodyTemplate}s for the rejection hot path (429 / 503)
+ * <p>
+ * Filters compile their fixed bodies once and keep them. Templates for the exception
+ * handler are cached by status and error code, with the message and details filled in at
+ * render time, so messages naming a service or carrying per-request data never add entries.
+ */
+@Component
+public class ErrorBodyTemplates {
+
+    private final ObjectMapper objectMapper;
+    private final Map<TemplateKey, ErrorBodyTemplate> templates = new ConcurrentHashMap<>();
+
+    public ErrorBodyTemplates(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Compile a body whose message never changes; not cached, callers keep the result
+     */
+    public ErrorBodyTemplate compile(HttpStatus status, String code, String message) {
+        return ErrorBodyTemplate.compile(objectMapper, status.value(), status.getReasonPhrase(), code, message, null);
+    }
+
+    /**
+     * Template for an error code whose message and details are given to
+     * {@link #write(ServerHttpResponse, ErrorBodyTemplate, ServerHttpRequest, String, String, String)}
+     */
+    public ErrorBodyTemplate get(HttpStatus status, String code, boolean withDetails) {
+        return templates.computeIfAbsent(new TemplateKey(status.value(), code, withDetails),
+                key -> ErrorBodyTemplate.compile(objectMapper, status.value(), status.getReasonPhrase(), code, withDetails));
+    }
+
+    /**
+     * Write a rendered template as the JSON body of the response; status and other headers
+     * are left to the caller
+     *
+     * @param traceId trace id to embed, or null to generate one
+     */
+    public static Mono<Void> write(ServerHttpResponse response, ErrorBodyTemplate template,
+                                   ServerHttpRequest request, String traceId) {
+        return write(response, template, request, null, null, traceId);
+    }
+
+    /**
+     * Same as {@link #write(ServerHttpResponse, ErrorBodyTemplate, ServerHttpRequest, String)}
+     * for templates from {@link #get(HttpStatus, String, boolean)}
+     */
+    public static Mono<Void> write(ServerHttpResponse response, ErrorBodyTemplate template,
+                                   ServerHttpRequest request, String message, String details, String traceId) {
+        DataBuffer body = template.render(response.bufferFactory(), message, details,
+                request.getURI().getPath(), request.getMethod().name(), traceId);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(body.readableByteCount());
+        return response.writeWith(Mono.just(body));
+    }
+
+    private record TemplateKey(int status, String code, boolean withDetails) {
+    }
+}
@@ -19,7 +19,6 @@ import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.nio.charset.StandardCharsets;
-import java.util.UUID;
 
 /**
  * Global exception handler for API Gateway
@@ -31,10 +30,12 @@ import java.util.UUID;
 public class GatewayExceptionHandler implements ErrorWebExceptionHandler {
 
     private final ObjectMapper objectMapper;
+    private final ErrorBodyTemplates errorBodyTemplates;
 
-    public GatewayExceptionHandler() {
+    public GatewayExceptionHandler(ErrorBodyTemplates errorBodyTemplates) {
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
+        this.errorBodyTemplates = errorBodyTemplates;
     }
 
     @Override
@@ -291,6 +292,16 @@ public class GatewayExceptionHandler implements ErrorWebExceptionHandler {
         // Set status code
         response.setStatusCode(HttpStatus.resolve(errorResponse.getStatus()));
 
+        // Rejections (429 / 503) are the hot path under attack or overload: use a pre-rendered body
+        int status = errorResponse.getStatus();
+        if ((status == HttpStatus.TOO_MANY_REQUESTS.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value())
+                && errorResponse.getMetadata() == null && errorResponse.getMessage() != null) {
+            ErrorBodyTemplate template = errorBodyTemplates.get(HttpStatus.valueOf(status),
+                    errorResponse.getCode(), errorResponse.getDetails() != null);
+            return ErrorBodyTemplates.write(response, template, exchange.getRequest(),
+                    errorResponse.getMessage(), errorResponse.getDetails(), errorResponse.getTraceId());
+        }
+
         // Set content type
         response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
 
@@ -317,7 +328,7 @@ public class GatewayExceptionHandler implements ErrorWebExceptionHandler {
      * Generate unique trace ID for error tracking
      */
     private String generateTraceId() {
-        return UUID.randomUUID().toString().substring(0, 8);
+        return ErrorBodyTemplate.newTraceId();
     }
 }
 
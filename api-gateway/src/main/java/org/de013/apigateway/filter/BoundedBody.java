@@ -0,0 +1,92 @@
+package org.de013.apigateway.filter;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Buffers a response body for filters that need all of it (compression, caching,
+ * coalescing), but never more than a limit.
+ * <p>
+ * Buffers are held until the body is complete, which hands them to {@code whole}, or
+ * until the running byte count passes {@code maxBytes}: then {@code overflow} runs and
+ * the held prefix is passed on, followed by the rest of the body as it arrives. Either
+ * way only one subscription is made to the body, and held buffers are released if the
+ * write is cancelled or fails.
+ */
+public final class BoundedBody {
+
+    private BoundedBody() {
+    }
+
+    /**
+     * @param whole    turns the complete body into what is written; called at most once,
+     *                 owns the buffers it is given
+     * @param overflow called once when the body turns out to be larger than {@code maxBytes},
+     *                 before anything is passed on
+     */
+    public static Flux<DataBuffer> buffer(Publisher<? extends DataBuffer> body, long maxBytes,
+                                          Function<List<DataBuffer>, Publisher<? extends DataBuffer>> whole,
+                                          Runnable overflow) {
+        return Flux.defer(() -> {
+            Held held = new Held(maxBytes, overflow);
+            return Flux.<DataBuffer>from(body)
+                    .concatMapIterable(held::add)
+                    .concatWith(Flux.defer(() -> held.isStreaming()
+                            ? Flux.<DataBuffer>empty()
+                            : Flux.<DataBuffer>from(whole.apply(held.take()))))
+                    .doFinally(signal -> held.release());
+        });
+    }
+
+    private static final class Held {
+
+        private final long maxBytes;
+        private final Runnable overflow;
+        private List<DataBuffer> buffers = new ArrayList<>();
+        private long size;
+        private boolean streaming;
+
+        Held(long maxBytes, Runnable overflow) {
+            this.maxBytes = maxBytes;
+            this.overflow = overflow;
+        }
+
+        synchronized List<DataBuffer> add(DataBuffer buffer) {
+            if (streaming) {
+                return List.of(buffer);
+            }
+            buffers.add(buffer);
+            size += buffer.readableByteCount();
+            if (size <= maxBytes) {
+                return List.of();
+            }
+            streaming = true;
+            overflow.run();
+            return take();
+        }
+
+        synchronized boolean isStreaming() {
+            return streaming;
+        }
+
+        /**
+         * Hand the held buffers over; they are no longer released here
+         */
+        synchronized List<DataBuffer> take() {
+            List<DataBuffer> taken = buffers;
+            buffers = new ArrayList<>();
+            return taken;
+        }
+
+        synchronized void release() {
+            buffers.forEach(DataBufferUtils::release);
+            buffers.clear();
+        }
+    }
+}
@@ -1,25 +1,26 @@
 package org.de013.apigateway.filter;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.de013.apigateway.config.RateLimitConfig;
-import org.de013.apigateway.exception.dto.ErrorResponse;
+import org.de013.apigateway.exception.ErrorBodyTemplate;
+import org.de013.apigateway.exception.ErrorBodyTemplates;
+import org.de013.apigateway.ratelimit.RateLimitResult;
+import org.de013.apigateway.ratelimit.RateLimiter;
+import org.de013.apigateway.security.TokenClaimsResolver;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
-import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Global Rate Limiting Filter for API Gateway
@@ -32,12 +33,42 @@ import java.util.UUID;
 @Component
 public class GlobalRateLimitFilter implements GlobalFilter, Ordered {
 
+    private static final String[] SECONDS_HEADERS = new String[121];
+
+    static {
+        for (int i = 0; i < SECONDS_HEADERS.length; i++) {
+            SECONDS_HEADERS[i] = String.valueOf(i);
+        }
+    }
+
     private final RateLimitConfig rateLimitConfig;
-    private final ObjectMapper objectMapper;
+    private final RateLimiter rateLimiter;
+    private final TokenClaimsResolver tokenClaimsResolver;
+    private final Timer checkTimer;
 
-    public GlobalRateLimitFilter(RateLimitConfig rateLimitConfig, ObjectMapper objectMapper) {
+    /**
+     * Rejection bodies are pre-rendered; only path, method, trace id and time vary
+     */
+    private final ErrorBodyTemplate ipLimitBody;
+    private final ErrorBodyTemplate userLimitBody;
+
+    public GlobalRateLimitFilter(RateLimitConfig rateLimitConfig,
+                                 RateLimiter rateLimiter,
+                                 TokenClaimsResolver tokenClaimsResolver,
+                                 ErrorBodyTemplates errorBodyTemplates,
+                                 MeterRegistry meterRegistry) {
         this.rateLimitConfig = rateLimitConfig;
-        this.objectMapper = objectMapper;
+        this.rateLimiter = rateLimiter;
+        this.tokenClaimsResolver = tokenClaimsResolver;
+        this.ipLimitBody = errorBodyTemplates.compile(HttpStatus.TOO_MANY_REQUESTS,
+                "RATE_LIMIT_EXCEEDED", "IP rate limit exceeded. Please try again later.");
+        this.userLimitBody = errorBodyTemplates.compile(HttpStatus.TOO_MANY_REQUESTS,
+                "RATE_LIMIT_EXCEEDED", "User rate limit exceeded. Please try again later.");
+        this.checkTimer = Timer.builder("gateway.ratelimit.check")
+                .description("Time spent deciding whether a request is within its rate limit")
+                .tag("mode", rateLimitConfig.getProperties().getMode().name().toLowerCase())
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
     }
 
     @Override
@@ -57,43 +88,62 @@ public class GlobalRateLimitFilter implements GlobalFilter, Ordered {
 
         // Get client IP
         String clientIp = getClientIp(request);
+        RateLimitConfig.RateLimitProperties properties = rateLimitConfig.getProperties();
 
         // Check IP-based rate limit first (coarse-grained protection)
-        Bucket ipBucket = rateLimitConfig.getIpBucket(clientIp);
-        ConsumptionProbe ipProbe = ipBucket.tryConsumeAndReturnRemaining(1);
-
-        if (!ipProbe.isConsumed()) {
-            log.warn("Rate limit exceeded for IP: {} on path: {}", clientIp, path);
-            return handleRateLimitExceeded(
-                    exchange,
-                    "IP rate limit exceeded",
-                    ipProbe.getNanosToWaitForRefill()
-            );
-        }
+        return consume("ip:" + clientIp, properties.getPerIp())
+                .flatMap(ipResult -> {
+                    if (!ipResult.isConsumed()) {
+                        log.warn("Rate limit exceeded for IP: {} on path: {}", clientIp, path);
+                        return handleRateLimitExceeded(
+                                exchange,
+                                ipLimitBody,
+                                ipResult.getNanosToWaitForRefill()
+                        );
+                    }
+
+                    // Check user-based rate limit if authenticated (fine-grained protection)
+                    return tokenClaimsResolver.resolve(exchange)
+                            .flatMap(claims -> {
+                                String userId = claims.getSubject();
+                                if (userId == null) {
+                                    // Add rate limit headers for IP-based limiting
+                                    addRateLimitHeaders(exchange.getResponse(), ipResult);
+                                    return chain.filter(exchange);
+                                }
+                                return checkUserLimit(exchange, chain, userId, path);
+                            });
+                });
+    }
 
-        // Check user-based rate limit if authenticated (fine-grained protection)
-        String userId = getUserId(request);
-        if (userId != null) {
-            Bucket userBucket = rateLimitConfig.getUserBucket(userId);
-            ConsumptionProbe userProbe = userBucket.tryConsumeAndReturnRemaining(1);
-
-            if (!userProbe.isConsumed()) {
-                log.warn("Rate limit exceeded for user: {} on path: {}", userId, path);
-                return handleRateLimitExceeded(
-                        exchange,
-                        "User rate limit exceeded",
-                        userProbe.getNanosToWaitForRefill()
-                );
-            }
-
-            // Add rate limit headers for authenticated users
-            addRateLimitHeaders(exchange.getResponse(), userProbe);
-        } else {
-            // Add rate limit headers for IP-based limiting
-            addRateLimitHeaders(exchange.getResponse(), ipProbe);
-        }
+    /**
+     * Apply the per-user limit once the IP limit has passed
+     */
+    private Mono<Void> checkUserLimit(ServerWebExchange exchange, GatewayFilterChain chain, String userId, String path) {
+        return consume("user:" + userId, rateLimitConfig.getProperties().getPerUser())
+                .flatMap(userResult -> {
+                    if (!userResult.isConsumed()) {
+                        log.warn("Rate limit exceeded for user: {} on path: {}", userId, path);
+                        return handleRateLimitExceeded(
+                                exchange,
+                                userLimitBody,
+                                userResult.getNanosToWaitForRefill()
+                        );
+                    }
+
+                    // Add rate limit headers for authenticated users
+                    addRateLimitHeaders(exchange.getResponse(), userResult);
+                    return chain.filter(exchange);
+                });
+    }
 
-        return chain.filter(exchange);
+    /**
+     * Consume one token and record how long the check took
+     */
+    private Mono<RateLimitResult> consume(String key, RateLimitConfig.LimitConfig limit) {
+        long start = System.nanoTime();
+        return rateLimiter.tryConsume(key, limit)
+                .doOnSuccess(result -> checkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
     }
 
     /**
@@ -101,55 +151,33 @@ public class GlobalRateLimitFilter implements GlobalFilter, Ordered {
      */
     private Mono<Void> handleRateLimitExceeded(
             ServerWebExchange exchange,
-            String message,
+            ErrorBodyTemplate body,
             long nanosToWait) {
 
         ServerHttpResponse response = exchange.getResponse();
         response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
-        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
 
         // Add Retry-After header (in seconds)
         long secondsToWait = (nanosToWait / 1_000_000_000) + 1;
-        response.getHeaders().add("Retry-After", String.valueOf(secondsToWait));
+        HttpHeaders headers = response.getHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, secondsHeader(secondsToWait));
 
         // Add rate limit headers
-        response.getHeaders().add("X-RateLimit-Limit", "See configuration");
-        response.getHeaders().add("X-RateLimit-Remaining", "0");
-        response.getHeaders().add("X-RateLimit-Reset", String.valueOf(System.currentTimeMillis() / 1000 + secondsToWait));
+        headers.set("X-RateLimit-Limit", "See configuration");
+        headers.set("X-RateLimit-Remaining", "0");
+        headers.set("X-RateLimit-Reset", String.valueOf(System.currentTimeMillis() / 1000 + secondsToWait));
 
-        String traceId = generateTraceId();
-        ServerHttpRequest request = exchange.getRequest();
+        return ErrorBodyTemplates.write(response, body, exchange.getRequest(), null);
+    }
 
-        ErrorResponse errorResponse = ErrorResponse.of(
-                HttpStatus.TOO_MANY_REQUESTS.value(),
-                HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(),
-                "RATE_LIMIT_EXCEEDED",
-                message + ". Please try again later.",
-                request.getURI().getPath(),
-                request.getMethod().name(),
-                traceId
-        );
-
-        try {
-            byte[] bytes = objectMapper.writeValueAsBytes(errorResponse);
-            DataBuffer buffer = response.bufferFactory().wrap(bytes);
-            return response.writeWith(Mono.just(buffer));
-        } catch (Exception e) {
-            log.error("Error serializing rate limit error response: {}", e.getMessage());
-            String fallbackMessage = String.format(
-                    "{\"success\":false,\"message\":\"%s\",\"code\":\"RATE_LIMIT_EXCEEDED\",\"traceId\":\"%s\"}",
-                    message, traceId
-            );
-            byte[] bytes = fallbackMessage.getBytes(StandardCharsets.UTF_8);
-            DataBuffer buffer = response.bufferFactory().wrap(bytes);
-            return response.writeWith(Mono.just(buffer));
-        }
+    private static String secondsHeader(long seconds) {
+        return seconds < SECONDS_HEADERS.length ? SECONDS_HEADERS[(int) seconds] : String.valueOf(seconds);
     }
 
     /**
      * Add rate limit headers to response
      */
-    private void addRateLimitHeaders(ServerHttpResponse response, ConsumptionProbe probe) {
+    private void addRateLimitHeaders(ServerHttpResponse response, RateLimitResult probe) {
         response.getHeaders().add("X-RateLimit-Remaining", String.valueOf(probe.getRemainingTokens()));
 
         if (probe.getNanosToWaitForRefill() > 0) {
@@ -183,45 +211,6 @@ public class GlobalRateLimitFilter implements GlobalFilter, Ordered {
         return "unknown";
     }
 
-    /**
-     * Extract user ID from JWT token in Authorization header
-     * Simple extraction without full JWT validation (validation happens in SecurityConfig)
-     */
-    private String getUserId(ServerHttpRequest request) {
-        try {
-            String authHeader = request.getHeaders().getFirst("Authorization");
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                return null;
-            }
-
-            // Simple JWT parsing - extract sub claim from payload
-            String token = authHeader.substring(7);
-            String[] parts = token.split("\\.");
-            if (parts.length < 2) {
-                return null;
-            }
-
-            // Decode payload (Base64)
-            String payload = new String(java.util.Base64.getUrlDecoder().decode(parts[1]));
-
-            // Extract "sub" claim (simple string matching, not full JSON parsing)
-            // This is just for rate limiting, full validation happens later in SecurityConfig
-            if (payload.contains("\"sub\"")) {
-                int subIndex = payload.indexOf("\"sub\"");
-                int valueStart = payload.indexOf("\"", subIndex + 5) + 1;
-                int valueEnd = payload.indexOf("\"", valueStart);
-                if (valueStart > 0 && valueEnd > valueStart) {
-                    return payload.substring(valueStart, valueEnd);
-                }
-            }
-
-            return null;
-        } catch (Exception e) {
-            log.debug("Could not extract userId from token: {}", e.getMessage());
-            return null;
-        }
-    }
-
     /**
      * Check if the path is an infrastructure endpoint that should skip rate limiting
      */
@@ -232,13 +221,6 @@ public class GlobalRateLimitFilter implements GlobalFilter, Ordered {
                 path.startsWith("/webjars/");
     }
 
-    /**
-     * Generate unique trace ID for error tracking
-     */
-    private String generateTraceId() {
-        return UUID.randomUUID().toString().substring(0, 8);
-    }
-
     @Override
     public int getOrder() {
         // Run early in the filter chain, but after CORS (-200)
@@ -0,0 +1,293 @@
+package org.de013.apigateway.loadbalancer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.apigateway.config.UpstreamLatencyProperties;
+import org.de013.apigateway.config.UpstreamLatencyProperties.Hedging;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Opt-in request hedging for idempotent GETs on selected lb:// routes.
+ * <p>
+ * If the primary attempt has no response after the service's configured latency
+ * percentile, a second attempt is sent to another instance and whichever answers first
+ * is used; the other is cancelled. Each attempt routes on its own copy of the exchange
+ * attributes and response headers, and only the winner is copied back, so the normal
+ * response writing filter streams the winner's body. Hedges are capped at
+ * {@code max-hedge-ratio} of requests per second to bound the extra load.
+ */
+@Slf4j
+@Component
+public class HedgingFilter implements GlobalFilter, Ordered {
+
+    private static final String METRIC_PREFIX = "gateway.hedge";
+
+    private final UpstreamLatencyProperties properties;
+    private final InstanceLatencyTracker tracker;
+    private final LoadBalancerClientFactory clientFactory;
+    private final Counter hedgesSent;
+    private final Counter primaryWins;
+    private final Counter hedgeWins;
+    private final HedgeBudget budget = new HedgeBudget();
+
+    public HedgingFilter(UpstreamLatencyProperties properties,
+                         InstanceLatencyTracker tracker,
+                         LoadBalancerClientFactory clientFactory,
+                         MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.tracker = tracker;
+        this.clientFactory = clientFactory;
+        this.hedgesSent = Counter.builder(METRIC_PREFIX + ".sent")
+                .description("Hedged attempts sent to a second instance")
+                .register(meterRegistry);
+        this.primaryWins = winCounter(meterRegistry, "primary");
+        this.hedgeWins = winCounter(meterRegistry, "hedge");
+    }
+
+    private static Counter winCounter(MeterRegistry meterRegistry, String winner) {
+        return Counter.builder(METRIC_PREFIX + ".wins")
+                .description("Hedged requests by the attempt that answered first")
+                .tag("winner", winner)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Hedging hedging = properties.getHedging();
+        if (!hedging.isEnabled() || exchange.getRequest().getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String serviceId = InstanceLatencyFilter.serviceId(exchange);
+        URI primaryUrl = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        if (route == null || serviceId == null || primaryUrl == null || !hedging.getRoutes().contains(route.getId())) {
+            return chain.filter(exchange);
+        }
+        budget.onRequest();
+
+        AtomicReference<Attempt> winner = new AtomicReference<>();
+        Attempt primary = new Attempt(exchange, false);
+        Mono<Attempt> primaryAttempt = chain.filter(primary)
+                .thenReturn(primary)
+                .doOnNext(attempt -> claim(winner, attempt));
+        Mono<Attempt> hedgeAttempt = Mono.delay(Duration.ofNanos(hedgeDelayNanos(serviceId)))
+                .flatMap(tick -> hedgeUrl(serviceId, primaryUrl))
+                .flatMap(url -> {
+                    Attempt hedge = new Attempt(exchange, true);
+                    hedge.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, url);
+                    hedgesSent.increment();
+                    log.debug("Hedging {} {} to {}", exchange.getRequest().getMethod(), primaryUrl, url);
+                    return chain.filter(hedge).thenReturn(hedge);
+                })
+                .doOnNext(attempt -> claim(winner, attempt));
+
+        return Mono.firstWithValue(primaryAttempt, hedgeAttempt)
+                .onErrorMap(HedgingFilter::firstRealError)
+                .doOnNext(first -> {
+                    // The arbiter may pick a different attempt than the CAS on a tie; the CAS decides
+                    Attempt chosen = winner.get();
+                    (chosen.hedge ? hedgeWins : primaryWins).increment();
+                    chosen.commitTo(exchange);
+                })
+                .then();
+    }
+
+    @Override
+    public int getOrder() {
+        // Between the concurrency limit and the latency recording of each attempt
+        return InstanceLatencyFilter.ORDER - 1;
+    }
+
+    private static void claim(AtomicReference<Attempt> winner, Attempt attempt) {
+        if (!winner.compareAndSet(null, attempt)) {
+            attempt.discard();
+        }
+    }
+
+    /**
+     * Both attempts failed or the hedge was never sent: surface the primary's own error
+     */
+    private static Throwable firstRealError(Throwable error) {
+        for (Throwable e : Exceptions.unwrapMultiple(error)) {
+            if (!(e instanceof NoSuchElementException)) {
+                return e;
+            }
+        }
+        return error;
+    }
+
+    private long hedgeDelayNanos(String serviceId) {
+        Hedging hedging = properties.getHedging();
+        long min = TimeUnit.MILLISECONDS.toNanos(hedging.getMinDelayMillis());
+        long max = TimeUnit.MILLISECONDS.toNanos(hedging.getMaxDelayMillis());
+        long percentile = tracker.percentileNanos(serviceId, hedging.getDelayPercentile());
+        if (percentile < 0) {
+            return max;
+        }
+        return Math.max(min, Math.min(max, percentile));
+    }
+
+    /**
+     * URL of the best other instance, or empty if there is none or the hedge budget is spent
+     */
+    private Mono<URI> hedgeUrl(String serviceId, URI primaryUrl) {
+        ServiceInstanceListSupplier supplier = clientFactory
+                .getLazyProvider(serviceId, ServiceInstanceListSupplier.class)
+                .getIfAvailable();
+        if (supplier == null) {
+            return Mono.empty();
+        }
+        String primaryInstance = InstanceLatencyTracker.instanceKey(primaryUrl.getHost(), primaryUrl.getPort());
+        return supplier.get().next().flatMap(instances -> {
+            ServiceInstance other = LatencyAwareLoadBalancer.choose(instances, tracker, primaryInstance);
+            if (other == null || !budget.tryHedge()) {
+                return Mono.empty();
+            }
+            return Mono.just(UriComponentsBuilder.fromUri(primaryUrl)
+                    .scheme(other.isSecure() ? "https" : "http")
+                    .host(other.getHost())
+                    .port(other.getPort())
+                    .build(true)
+                    .toUri());
+        });
+    }
+
+    /**
+     * Per-second allowance of hedges relative to hedgeable requests
+     */
+    private final class HedgeBudget {
+        private long windowStart = System.nanoTime();
+        private long requests;
+        private long hedges;
+
+        synchronized void onRequest() {
+            roll();
+            requests++;
+        }
+
+        synchronized boolean tryHedge() {
+            roll();
+            if (hedges + 1 > Math.max(1, requests * properties.getHedging().getMaxHedgeRatio())) {
+                return false;
+            }
+            hedges++;
+            return true;
+        }
+
+        private void roll() {
+            long now = System.nanoTime();
+            if (now - windowStart >= TimeUnit.SECONDS.toNanos(1)) {
+                windowStart = now;
+                requests = 0;
+                hedges = 0;
+            }
+        }
+    }
+
+    /**
+     * One routing attempt with its own attributes and response status/headers
+     */
+    private static final class Attempt extends ServerWebExchangeDecorator {
+
+        private final boolean hedge;
+        private final Map<String, Object> attributes;
+        private final AttemptResponse response;
+
+        Attempt(ServerWebExchange exchange, boolean hedge) {
+            super(exchange);
+            this.hedge = hedge;
+            this.attributes = new ConcurrentHashMap<>(exchange.getAttributes());
+            this.response = new AttemptResponse(exchange.getResponse());
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public ServerHttpResponse getResponse() {
+            return response;
+        }
+
+        void commitTo(ServerWebExchange exchange) {
+            exchange.getAttributes().putAll(attributes);
+            ServerHttpResponse target = exchange.getResponse();
+            if (response.status != null) {
+                target.setStatusCode(response.status);
+            }
+            target.getHeaders().putAll(response.headers);
+        }
+
+        /**
+         * Close the upstream connection of an attempt that answered but lost the race
+         */
+        void discard() {
+            Object connection = attributes.get(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+            if (connection instanceof Connection conn) {
+                conn.dispose();
+            }
+        }
+    }
+
+    private static final class AttemptResponse extends ServerHttpResponseDecorator {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private volatile HttpStatusCode status;
+
+        AttemptResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public boolean setStatusCode(HttpStatusCode status) {
+            this.status = status;
+            return true;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status != null ? status : getDelegate().getStatusCode();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public boolean setRawStatusCode(Integer value) {
+            this.status = value != null ? HttpStatusCode.valueOf(value) : null;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.de013.apigateway.loadbalancer;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Feeds response times of lb:// routes into {@link InstanceLatencyTracker}.
+ * <p>
+ * Runs last before the routing filter, so each hedged attempt is measured against the
+ * instance it actually went to. The sample ends when response headers arrive.
+ */
+@Component
+@RequiredArgsConstructor
+public class InstanceLatencyFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 3;
+
+    private final InstanceLatencyTracker tracker;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String serviceId = serviceId(exchange);
+        URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        if (serviceId == null || url == null || url.getHost() == null) {
+            return chain.filter(exchange);
+        }
+
+        String instance = InstanceLatencyTracker.instanceKey(url.getHost(), url.getPort());
+        InstanceLatencyTracker.InFlight inFlight = tracker.onStart(serviceId, instance);
+        long start = System.nanoTime();
+        AtomicBoolean done = new AtomicBoolean();
+        return chain.filter(exchange)
+                .doOnSuccess(v -> {
+                    if (done.compareAndSet(false, true)) {
+                        inFlight.complete(System.nanoTime() - start);
+                    }
+                })
+                .doOnError(e -> {
+                    if (done.compareAndSet(false, true)) {
+                        // Failures are as slow as they took; this pushes the instance's cost up
+                        inFlight.complete(System.nanoTime() - start);
+                    }
+                })
+                .doOnCancel(() -> {
+                    if (done.compareAndSet(false, true)) {
+                        inFlight.cancel();
+                    }
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * Service id of an lb:// route, or null for direct routes
+     */
+    static String serviceId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null || !"lb".equalsIgnoreCase(route.getUri().getScheme())) {
+            return null;
+        }
+        return route.getUri().getHost();
+    }
+}
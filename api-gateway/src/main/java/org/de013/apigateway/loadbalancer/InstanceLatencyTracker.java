@@ -0,0 +1,178 @@
+package org.de013.apigateway.loadbalancer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.de013.apigateway.config.UpstreamLatencyProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Observed latency and in-flight requests per downstream instance.
+ * <p>
+ * Keeps a peak-sensitive EWMA per instance for the load balancer (a slow sample is taken
+ * as is, fast samples pull the average down over {@code decay-seconds}), a latency
+ * histogram per instance for dashboards, and per-service percentiles for hedging.
+ * Instances without traffic for {@code idle-expire-minutes} (e.g. replaced pods) are
+ * dropped together with their histogram.
+ */
+@Component
+public class InstanceLatencyTracker {
+
+    private static final String METRIC_NAME = "gateway.upstream.latency";
+
+    private final UpstreamLatencyProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, InstanceStats> instances;
+    private final Map<String, Timer> serviceTimers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public InstanceLatencyTracker(UpstreamLatencyProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Ticker.systemTicker());
+    }
+
+    InstanceLatencyTracker(UpstreamLatencyProperties properties, MeterRegistry meterRegistry, Ticker ticker) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        // Eviction listeners run as part of the eviction, so the histogram goes with the entry
+        this.instances = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(properties.getLoadBalancer().getIdleExpireMinutes()))
+                .ticker(ticker)
+                .evictionListener((String key, InstanceStats stats, RemovalCause cause) -> {
+                    if (stats != null) {
+                        meterRegistry.remove(stats.timer);
+                    }
+                })
+                .build();
+    }
+
+    public static String instanceKey(String host, int port) {
+        return host + ":" + port;
+    }
+
+    public static String instanceKey(ServiceInstance instance) {
+        return instanceKey(instance.getHost(), instance.getPort());
+    }
+
+    /**
+     * Count a request against the instance. The returned handle holds on to the instance's
+     * stats, so ending the request never touches an entry recreated after an eviction.
+     */
+    public InFlight onStart(String serviceId, String instance) {
+        InstanceStats stats = stats(serviceId, instance);
+        stats.inflight.incrementAndGet();
+        return new InFlight(serviceId, stats);
+    }
+
+    /**
+     * Expected cost of sending one more request: latency average times queue depth.
+     * Instances without samples cost 0 so they get probed.
+     */
+    public double cost(ServiceInstance instance) {
+        InstanceStats stats = instances.getIfPresent(instanceKey(instance));
+        if (stats == null) {
+            return 0;
+        }
+        return stats.ewmaNanos * (stats.inflight.get() + 1);
+    }
+
+    /**
+     * Latency at the configured hedging percentile for a service, or -1 before any sample
+     */
+    public long percentileNanos(String serviceId, double percentile) {
+        Timer timer = serviceTimers.get(serviceId);
+        if (timer == null) {
+            return -1;
+        }
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return (long) value.value(TimeUnit.NANOSECONDS);
+            }
+        }
+        return -1;
+    }
+
+    private InstanceStats stats(String serviceId, String instance) {
+        return instances.get(instance, key -> new InstanceStats(Timer.builder(METRIC_NAME)
+                .description("Upstream response time per instance")
+                .tag("service", serviceId)
+                .tag("instance", key)
+                .publishPercentileHistogram()
+                .register(meterRegistry)));
+    }
+
+    /**
+     * Number of instances currently tracked
+     */
+    long trackedInstances() {
+        instances.cleanUp();
+        return instances.estimatedSize();
+    }
+
+    private Timer serviceTimer(String serviceId) {
+        return serviceTimers.computeIfAbsent(serviceId, id -> Timer.builder(METRIC_NAME + ".service")
+                .description("Upstream response time per service")
+                .tag("service", id)
+                .publishPercentiles(0.5, properties.getHedging().getDelayPercentile(), 0.99)
+                .register(meterRegistry));
+    }
+
+    /**
+     * A request counted by {@link #onStart}; end it exactly once
+     */
+    public final class InFlight {
+        private final String serviceId;
+        private final InstanceStats stats;
+
+        private InFlight(String serviceId, InstanceStats stats) {
+            this.serviceId = serviceId;
+            this.stats = stats;
+        }
+
+        public void complete(long rttNanos) {
+            stats.inflight.decrementAndGet();
+            stats.update(rttNanos, System.nanoTime(), TimeUnit.SECONDS.toNanos(properties.getLoadBalancer().getDecaySeconds()));
+            stats.timer.record(rttNanos, TimeUnit.NANOSECONDS);
+            serviceTimer(serviceId).record(rttNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Release the in-flight slot without a sample, e.g. for a cancelled hedge
+         */
+        public void cancel() {
+            stats.inflight.decrementAndGet();
+        }
+    }
+
+    private static final class InstanceStats {
+        private final Timer timer;
+        private final AtomicInteger inflight = new AtomicInteger();
+        private volatile double ewmaNanos;
+        private long lastUpdateNanos;
+
+        private InstanceStats(Timer timer) {
+            this.timer = timer;
+        }
+
+        synchronized void update(long rttNanos, long now, long decayNanos) {
+            if (ewmaNanos == 0 || rttNanos > ewmaNanos) {
+                ewmaNanos = rttNanos;
+            } else {
+                double weight = Math.exp(-(double) (now - lastUpdateNanos) / decayNanos);
+                ewmaNanos = ewmaNanos * weight + rttNanos * (1 - weight);
+            }
+            lastUpdateNanos = now;
+        }
+    }
+}
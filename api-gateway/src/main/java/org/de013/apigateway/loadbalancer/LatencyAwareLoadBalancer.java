@@ -0,0 +1,94 @@
+package org.de013.apigateway.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power-of-two-choices load balancer over observed instance latency.
+ * <p>
+ * Picks two random instances and sends the request to the one with the lower
+ * {@link InstanceLatencyTracker#cost}. Compared to round robin a slow pod quickly gets
+ * less traffic, while randomness keeps all gateway pods from piling onto the same
+ * "fastest" instance.
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final String serviceId;
+    private final InstanceLatencyTracker tracker;
+
+    public LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+                                    String serviceId,
+                                    InstanceLatencyTracker tracker) {
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+        this.tracker = tracker;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().<Response<ServiceInstance>>map(instances -> {
+            ServiceInstance chosen = choose(instances, tracker, null);
+            if (chosen == null) {
+                return new EmptyResponse();
+            }
+            if (supplier instanceof SelectedInstanceCallback callback) {
+                callback.selectedServiceInstance(chosen);
+            }
+            return new DefaultResponse(chosen);
+        });
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    /**
+     * Power-of-two-choices pick
+     *
+     * @param excludedInstance host:port to skip (e.g. the primary of a hedged request), may be null
+     * @return chosen instance, or null if none is left
+     */
+    public static ServiceInstance choose(List<ServiceInstance> instances, InstanceLatencyTracker tracker,
+                                         String excludedInstance) {
+        List<ServiceInstance> candidates = instances;
+        if (excludedInstance != null) {
+            candidates = new ArrayList<>(instances.size());
+            for (ServiceInstance instance : instances) {
+                if (!excludedInstance.equals(InstanceLatencyTracker.instanceKey(instance))) {
+                    candidates.add(instance);
+                }
+            }
+        }
+        int size = candidates.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = candidates.get(first);
+        ServiceInstance b = candidates.get(second);
+        return tracker.cost(a) <= tracker.cost(b) ? a : b;
+    }
+}
@@ -0,0 +1,33 @@
+package org.de013.apigateway.ratelimit;
+
+import io.github.bucket4j.Bucket;
+
+import java.util.function.Function;
+
+/**
+ * Storage for in-memory Bucket4j buckets, keyed by rate limit key (e.g. {@code ip:10.0.0.1}).
+ * Lets {@link org.de013.apigateway.config.RateLimitConfig} stay agnostic of how buckets
+ * are held and evicted.
+ */
+public interface BucketStore {
+
+    /**
+     * Get the bucket for key, creating it with factory on first use
+     */
+    Bucket getOrCreate(String key, Function<String, Bucket> factory);
+
+    /**
+     * Remove the bucket for key, if present
+     */
+    void remove(String key);
+
+    /**
+     * Approximate number of buckets currently held
+     */
+    long size();
+
+    /**
+     * Remove all buckets
+     */
+    void clear();
+}
@@ -0,0 +1,70 @@
+package org.de013.apigateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.apigateway.config.RateLimitConfig.RateLimitProperties;
+import org.de013.apigateway.config.RateLimitConfig.StoreConfig;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded bucket store on a Caffeine (W-TinyLFU) cache.
+ * <p>
+ * Size-based eviction keeps the heap flat under rotating-IP floods, and the frequency
+ * sketch makes sure one-off keys are evicted before hot ones. Idle buckets expire after
+ * the configured time; a bucket idle for longer than its refill period is full again, so
+ * dropping it does not change the limit a returning client sees.
+ */
+@Slf4j
+@Component
+public class CaffeineBucketStore implements BucketStore {
+
+    private static final String METRIC_NAME = "gateway.ratelimit.buckets";
+
+    private final Cache<String, Bucket> cache;
+
+    public CaffeineBucketStore(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        StoreConfig config = properties.getStore();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfterAccess(Duration.ofMinutes(config.getExpireAfterAccessMinutes()))
+                .recordStats()
+                .build();
+
+        // Exposes size, evictions, hits and misses
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, METRIC_NAME);
+        Gauge.builder(METRIC_NAME + ".hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of rate limit lookups that found an existing bucket")
+                .register(meterRegistry);
+
+        log.info("Rate limit bucket store: max {} buckets, expire after {} minute(s) idle",
+                config.getMaxSize(), config.getExpireAfterAccessMinutes());
+    }
+
+    @Override
+    public Bucket getOrCreate(String key, Function<String, Bucket> factory) {
+        return cache.get(key, factory);
+    }
+
+    @Override
+    public void remove(String key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,26 @@
+package org.de013.apigateway.ratelimit;
+
+import lombok.RequiredArgsConstructor;
+import org.de013.apigateway.config.RateLimitConfig;
+import org.de013.apigateway.config.RateLimitConfig.LimitConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Rate limiter backed by in-memory Bucket4j buckets.
+ * Limits are enforced per gateway pod.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "rate-limit", name = "mode", havingValue = "local", matchIfMissing = true)
+public class LocalRateLimiter implements RateLimiter {
+
+    private final RateLimitConfig rateLimitConfig;
+
+    @Override
+    public Mono<RateLimitResult> tryConsume(String key, LimitConfig limit) {
+        return Mono.just(RateLimitResult.from(
+                rateLimitConfig.getBucket(key, limit).tryConsumeAndReturnRemaining(1)));
+    }
+}
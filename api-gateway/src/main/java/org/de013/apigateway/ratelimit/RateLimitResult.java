@@ -0,0 +1,40 @@
+package org.de013.apigateway.ratelimit;
+
+import io.github.bucket4j.ConsumptionProbe;
+import lombok.Getter;
+
+/**
+ * Outcome of a single rate limit check, independent of where the bucket lives
+ */
+@Getter
+public class RateLimitResult {
+
+    private final boolean consumed;
+    private final long remainingTokens;
+    private final long nanosToWaitForRefill;
+
+    public RateLimitResult(boolean consumed, long remainingTokens, long nanosToWaitForRefill) {
+        this.consumed = consumed;
+        this.remainingTokens = remainingTokens;
+        this.nanosToWaitForRefill = nanosToWaitForRefill;
+    }
+
+    public static RateLimitResult allowed(long remainingTokens, long nanosToWaitForRefill) {
+        return new RateLimitResult(true, remainingTokens, nanosToWaitForRefill);
+    }
+
+    public static RateLimitResult rejected(long nanosToWaitForRefill) {
+        return new RateLimitResult(false, 0, nanosToWaitForRefill);
+    }
+
+    /**
+     * Adapt a Bucket4j probe from a local bucket
+     */
+    public static RateLimitResult from(ConsumptionProbe probe) {
+        return new RateLimitResult(
+                probe.isConsumed(),
+                probe.getRemainingTokens(),
+                probe.getNanosToWaitForRefill()
+        );
+    }
+}
@@ -0,0 +1,20 @@
+package org.de013.apigateway.ratelimit;
+
+import org.de013.apigateway.config.RateLimitConfig.LimitConfig;
+import reactor.core.publisher.Mono;
+
+/**
+ * Token bucket rate limiter used by {@link org.de013.apigateway.filter.GlobalRateLimitFilter}.
+ * Implementations decide where buckets are stored (gateway memory or Redis).
+ */
+public interface RateLimiter {
+
+    /**
+     * Try to consume one token from the bucket identified by key
+     *
+     * @param key   bucket key, e.g. {@code ip:10.0.0.1} or {@code user:<sub>}
+     * @param limit capacity and refill settings for the bucket
+     * @return result of the consumption attempt
+     */
+    Mono<RateLimitResult> tryConsume(String key, LimitConfig limit);
+}
@@ -0,0 +1,214 @@
+package org.de013.apigateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.apigateway.config.RateLimitConfig;
+import org.de013.apigateway.config.RateLimitConfig.LimitConfig;
+import org.de013.apigateway.config.RateLimitConfig.RedisLimitConfig;
+import org.de013.apigateway.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limiter backed by token buckets in Redis, shared by all gateway pods.
+ * <p>
+ * Each bucket is updated atomically by {@code scripts/token_bucket.lua}. To avoid a Redis
+ * round trip per request, every call leases a small batch of tokens which is then served
+ * from a local front cache until it runs out or the lease expires. Rejections are cached
+ * locally until the bucket refills, for at most one lease. Unused leased tokens are dropped
+ * on expiry, so the effective limit can only be slightly lower than configured, never higher.
+ * Concurrent misses for the same key each lease a batch; their tokens are added up in the
+ * front cache rather than one lease replacing the other.
+ * <p>
+ * The front cache is a Caffeine cache bounded by {@code local-max-keys} whose entries expire
+ * one lease after they were written, so keys of clients that went away do not pin memory and
+ * new keys are still admitted once it is full.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "rate-limit", name = "mode", havingValue = "redis")
+public class RedisRateLimiter implements RateLimiter {
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final RateLimitConfig rateLimitConfig;
+    private final RedisScript<List<Long>> script;
+    private final Ticker ticker;
+    private final Cache<String, FrontEntry> frontCache;
+
+    @Autowired
+    public RedisRateLimiter(ReactiveStringRedisTemplate redisTemplate, RateLimitConfig rateLimitConfig) {
+        this(redisTemplate, rateLimitConfig, Ticker.systemTicker());
+    }
+
+    RedisRateLimiter(ReactiveStringRedisTemplate redisTemplate, RateLimitConfig rateLimitConfig, Ticker ticker) {
+        this.redisTemplate = redisTemplate;
+        this.rateLimitConfig = rateLimitConfig;
+        this.script = loadScript();
+        this.ticker = ticker;
+        RedisLimitConfig redis = rateLimitConfig.getProperties().getRedis();
+        this.frontCache = Caffeine.newBuilder()
+                .maximumSize(redis.getLocalMaxKeys())
+                .expireAfterWrite(Duration.ofMillis(redis.getLocalLeaseMillis()))
+                .ticker(ticker)
+                .build();
+        log.info("Redis rate limiter enabled with local batch size {}", redis.getLocalBatchSize());
+    }
+
+    @Override
+    public Mono<RateLimitResult> tryConsume(String key, LimitConfig limit) {
+        long now = ticker.read();
+        FrontEntry entry = frontCache.getIfPresent(key);
+        if (entry != null) {
+            RateLimitResult local = entry.tryConsume(now);
+            if (local != null) {
+                return Mono.just(local);
+            }
+            frontCache.asMap().remove(key, entry);
+        }
+        return consumeFromRedis(key, limit);
+    }
+
+    /**
+     * Lease a batch of tokens from the shared bucket in Redis
+     */
+    private Mono<RateLimitResult> consumeFromRedis(String key, LimitConfig limit) {
+        RedisLimitConfig redis = rateLimitConfig.getProperties().getRedis();
+        int batchSize = Math.max(1, redis.getLocalBatchSize());
+        long periodMillis = TimeUnit.MINUTES.toMillis(limit.getRefillPeriodMinutes());
+
+        List<String> keys = List.of(redis.getKeyPrefix() + key);
+        List<String> args = List.of(
+                String.valueOf(limit.getCapacity()),
+                String.valueOf(limit.getRefillTokens()),
+                String.valueOf(periodMillis),
+                String.valueOf(batchSize)
+        );
+
+        return redisTemplate.execute(script, keys, args)
+                .reduce(new ArrayList<Long>(), (values, chunk) -> {
+                    values.addAll(chunk);
+                    return values;
+                })
+                .timeout(Duration.ofMillis(redis.getTimeoutMillis()))
+                .map(values -> onRedisResult(key, values, redis))
+                .onErrorResume(e -> handleRedisError(key, limit, redis, e));
+    }
+
+    private RateLimitResult onRedisResult(String key, List<Long> values, RedisLimitConfig redis) {
+        long granted = values.get(0);
+        long remaining = values.get(1);
+        long nanosToWait = TimeUnit.MILLISECONDS.toNanos(values.get(2));
+        long now = ticker.read();
+
+        if (granted < 1) {
+            frontCache.asMap().merge(key, FrontEntry.rejection(now + nanosToWait),
+                    (current, fresh) -> FrontEntry.merge(current, fresh, now));
+            return RateLimitResult.rejected(nanosToWait);
+        }
+
+        if (granted > 1) {
+            long leaseExpiresAt = now + TimeUnit.MILLISECONDS.toNanos(redis.getLocalLeaseMillis());
+            frontCache.asMap().merge(key, FrontEntry.lease(granted - 1, remaining, nanosToWait, leaseExpiresAt),
+                    (current, fresh) -> FrontEntry.merge(current, fresh, now));
+        }
+        return RateLimitResult.allowed(remaining + granted - 1, nanosToWait);
+    }
+
+    private Mono<RateLimitResult> handleRedisError(String key, LimitConfig limit, RedisLimitConfig redis, Throwable e) {
+        if (!redis.isFailOpen()) {
+            log.error("Rate limit check failed for key {}: {}", key, e.getMessage());
+            return Mono.error(new ServiceUnavailableException("rate-limit-store", e));
+        }
+        log.warn("Redis rate limit unavailable, falling back to local bucket for key {}: {}", key, e.getMessage());
+        return Mono.just(RateLimitResult.from(
+                rateLimitConfig.getBucket(key, limit).tryConsumeAndReturnRemaining(1)));
+    }
+
+    /**
+     * Number of keys currently held in the local front cache
+     */
+    public long getFrontCacheSize() {
+        frontCache.cleanUp();
+        return frontCache.estimatedSize();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static RedisScript<List<Long>> loadScript() {
+        return (RedisScript) RedisScript.of(new ClassPathResource("scripts/token_bucket.lua"), List.class);
+    }
+
+    /**
+     * Locally cached outcome of a Redis call: either leased tokens or a rejection
+     */
+    private static final class FrontEntry {
+        private final AtomicLong tokens;
+        private final long remainingInRedis;
+        private final long nanosToWaitForRefill;
+        private final long expiresAtNanos;
+        private final boolean rejection;
+
+        private FrontEntry(long tokens, long remainingInRedis, long nanosToWaitForRefill,
+                           long expiresAtNanos, boolean rejection) {
+            this.tokens = new AtomicLong(tokens);
+            this.remainingInRedis = remainingInRedis;
+            this.nanosToWaitForRefill = nanosToWaitForRefill;
+            this.expiresAtNanos = expiresAtNanos;
+            this.rejection = rejection;
+        }
+
+        static FrontEntry lease(long tokens, long remainingInRedis, long nanosToWaitForRefill, long expiresAtNanos) {
+            return new FrontEntry(tokens, remainingInRedis, nanosToWaitForRefill, expiresAtNanos, false);
+        }
+
+        static FrontEntry rejection(long refillAtNanos) {
+            return new FrontEntry(0, 0, 0, refillAtNanos, true);
+        }
+
+        /**
+         * Combine an entry written by a concurrent Redis call with the fresh one, so tokens
+         * already taken from Redis are not thrown away
+         */
+        static FrontEntry merge(FrontEntry current, FrontEntry fresh, long now) {
+            if (current.rejection || now - current.expiresAtNanos >= 0) {
+                return fresh;
+            }
+            if (fresh.rejection) {
+                return current.tokens.get() > 0 ? current : fresh;
+            }
+            // Consumers still holding the current entry see it drained and go to Redis
+            long carried = Math.max(0, current.tokens.getAndSet(0));
+            return lease(carried + fresh.tokens.get(), fresh.remainingInRedis,
+                    fresh.nanosToWaitForRefill, fresh.expiresAtNanos);
+        }
+
+        /**
+         * @return local result, or null when the entry is used up or expired
+         */
+        RateLimitResult tryConsume(long now) {
+            if (now - expiresAtNanos >= 0) {
+                return null;
+            }
+            if (rejection) {
+                return RateLimitResult.rejected(expiresAtNanos - now);
+            }
+            long left = tokens.decrementAndGet();
+            if (left < 0) {
+                return null;
+            }
+            return RateLimitResult.allowed(remainingInRedis + left, nanosToWaitForRefill);
+        }
+    }
+}
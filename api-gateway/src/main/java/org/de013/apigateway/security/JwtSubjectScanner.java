@@ -0,0 +1,297 @@
+package org.de013.apigateway.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Extracts the {@code sub} claim from a compact JWT without splitting the token,
+ * materialising the decoded payload or building a JSON tree.
+ * <p>
+ * The Base64url payload is decoded byte by byte and fed straight into a minimal
+ * JSON scanner that only looks at top-level keys; every other value is skipped.
+ * The only allocation on the happy path is the returned subject string.
+ * <p>
+ * The token is NOT verified. Use the result for best-effort purposes such as rate
+ * limit keys only; authorization must rely on the verified {@code Jwt}.
+ */
+public final class JwtSubjectScanner {
+
+    private static final int END = -1;
+    private static final byte[] SUB = {'s', 'u', 'b'};
+    private static final int[] BASE64URL = new int[128];
+
+    static {
+        Arrays.fill(BASE64URL, -1);
+        for (int i = 0; i < 26; i++) {
+            BASE64URL['A' + i] = i;
+            BASE64URL['a' + i] = 26 + i;
+        }
+        for (int i = 0; i < 10; i++) {
+            BASE64URL['0' + i] = 52 + i;
+        }
+        BASE64URL['-'] = 62;
+        BASE64URL['_'] = 63;
+        // Tolerate standard alphabet as well
+        BASE64URL['+'] = 62;
+        BASE64URL['/'] = 63;
+    }
+
+    private final String token;
+    private final int end;
+    private int pos;
+    private int bits;
+    private int bitCount;
+    private int peeked = Integer.MIN_VALUE;
+
+    private JwtSubjectScanner(String token, int start, int end) {
+        this.token = token;
+        this.pos = start;
+        this.end = end;
+    }
+
+    /**
+     * Extract the subject from an {@code Authorization} header value
+     *
+     * @return subject, or null if the header is not a bearer JWT or has no string {@code sub}
+     */
+    public static String subjectFromAuthorizationHeader(String authHeader) {
+        if (authHeader == null || !authHeader.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return subjectFromToken(authHeader, 7);
+    }
+
+    /**
+     * Extract the subject from a compact JWT starting at offset in the given string
+     *
+     * @return subject, or null if the token is malformed or has no string {@code sub}
+     */
+    public static String subjectFromToken(String source, int offset) {
+        int headerEnd = source.indexOf('.', offset);
+        if (headerEnd < 0) {
+            return null;
+        }
+        int payloadEnd = source.indexOf('.', headerEnd + 1);
+        if (payloadEnd < 0) {
+            payloadEnd = source.length();
+        }
+        try {
+            return new JwtSubjectScanner(source, headerEnd + 1, payloadEnd).scanSubject();
+        } catch (IllegalStateException e) {
+            // Malformed payload
+            return null;
+        }
+    }
+
+    private String scanSubject() {
+        if (nextNonWhitespace() != '{') {
+            return null;
+        }
+        int b = nextNonWhitespace();
+        if (b == '}') {
+            return null;
+        }
+        while (true) {
+            if (b != '"') {
+                return null;
+            }
+            boolean isSub = keyMatchesSub();
+            if (nextNonWhitespace() != ':') {
+                return null;
+            }
+            int valueStart = nextNonWhitespace();
+            if (isSub) {
+                return valueStart == '"' ? readString() : null;
+            }
+            skipValue(valueStart);
+            b = nextNonWhitespace();
+            if (b != ',') {
+                // '}' or garbage: no subject at top level
+                return null;
+            }
+            b = nextNonWhitespace();
+        }
+    }
+
+    /**
+     * Consume a key (opening quote already read) and report whether it is "sub"
+     */
+    private boolean keyMatchesSub() {
+        int matched = 0;
+        boolean matches = true;
+        while (true) {
+            int b = next();
+            if (b == END) {
+                throw new IllegalStateException("Unterminated key");
+            }
+            if (b == '"') {
+                return matches && matched == SUB.length;
+            }
+            if (b == '\\') {
+                // Escaped keys are never emitted by Keycloak; treat as non-matching
+                next();
+                matches = false;
+                continue;
+            }
+            if (matched < SUB.length && b == SUB[matched]) {
+                matched++;
+            } else {
+                matches = false;
+            }
+        }
+    }
+
+    /**
+     * Read a string value (opening quote already read), decoding escapes and UTF-8
+     */
+    private String readString() {
+        byte[] buf = new byte[40];
+        int len = 0;
+        while (true) {
+            int b = next();
+            if (b == END) {
+                throw new IllegalStateException("Unterminated string");
+            }
+            if (b == '"') {
+                return new String(buf, 0, len, StandardCharsets.UTF_8);
+            }
+            if (b == '\\') {
+                int esc = next();
+                switch (esc) {
+                    case '"', '\\', '/' -> b = esc;
+                    case 'b' -> b = '\b';
+                    case 'f' -> b = '\f';
+                    case 'n' -> b = '\n';
+                    case 'r' -> b = '\r';
+                    case 't' -> b = '\t';
+                    case 'u' -> {
+                        byte[] utf8 = String.valueOf((char) readHex4()).getBytes(StandardCharsets.UTF_8);
+                        if (len + utf8.length > buf.length) {
+                            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + utf8.length));
+                        }
+                        System.arraycopy(utf8, 0, buf, len, utf8.length);
+                        len += utf8.length;
+                        continue;
+                    }
+                    default -> throw new IllegalStateException("Invalid escape");
+                }
+            }
+            if (len == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            buf[len++] = (byte) b;
+        }
+    }
+
+    private int readHex4() {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(next(), 16);
+            if (digit < 0) {
+                throw new IllegalStateException("Invalid unicode escape");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Skip a JSON value whose first byte has already been read
+     */
+    private void skipValue(int first) {
+        if (first == '"') {
+            skipString();
+            return;
+        }
+        if (first != '{' && first != '[') {
+            // Number, true, false or null: runs until a structural character
+            while (true) {
+                int b = peek();
+                if (b == END || b == ',' || b == '}' || b == ']' || isWhitespace(b)) {
+                    return;
+                }
+                next();
+            }
+        }
+        int depth = 1;
+        while (depth > 0) {
+            int b = next();
+            if (b == END) {
+                throw new IllegalStateException("Unterminated value");
+            }
+            if (b == '"') {
+                skipString();
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+            }
+        }
+    }
+
+    private void skipString() {
+        while (true) {
+            int b = next();
+            if (b == END) {
+                throw new IllegalStateException("Unterminated string");
+            }
+            if (b == '\\') {
+                next();
+            } else if (b == '"') {
+                return;
+            }
+        }
+    }
+
+    private int nextNonWhitespace() {
+        int b;
+        do {
+            b = next();
+        } while (isWhitespace(b));
+        return b;
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private int peek() {
+        if (peeked == Integer.MIN_VALUE) {
+            peeked = decodeNext();
+        }
+        return peeked;
+    }
+
+    private int next() {
+        if (peeked != Integer.MIN_VALUE) {
+            int b = peeked;
+            peeked = Integer.MIN_VALUE;
+            return b;
+        }
+        return decodeNext();
+    }
+
+    /**
+     * Decode the next payload byte from the Base64url characters
+     */
+    private int decodeNext() {
+        while (bitCount < 8) {
+            if (pos >= end) {
+                return END;
+            }
+            char c = token.charAt(pos++);
+            if (c == '=') {
+                pos = end;
+                return END;
+            }
+            int v = c < 128 ? BASE64URL[c] : -1;
+            if (v < 0) {
+                throw new IllegalStateException("Invalid Base64url character");
+            }
+            bits = (bits << 6) | v;
+            bitCount += 6;
+        }
+        bitCount -= 8;
+        return (bits >> bitCount) & 0xFF;
+    }
+}
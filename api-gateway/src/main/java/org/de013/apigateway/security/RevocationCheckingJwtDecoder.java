@@ -0,0 +1,31 @@
+package org.de013.apigateway.security;
+
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ReactiveJwtDecoder} that rejects tokens revoked in {@link RevokedTokenStore}.
+ * Wraps the verified JWT cache, so a token cached on any pod stops working once it is
+ * revoked on one of them. The check is against the store's local set, no Redis call.
+ */
+public class RevocationCheckingJwtDecoder implements ReactiveJwtDecoder {
+
+    private final ReactiveJwtDecoder delegate;
+    private final RevokedTokenStore revokedTokens;
+
+    public RevocationCheckingJwtDecoder(ReactiveJwtDecoder delegate, RevokedTokenStore revokedTokens) {
+        this.delegate = delegate;
+        this.revokedTokens = revokedTokens;
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        return delegate.decode(token)
+                .flatMap(jwt -> revokedTokens.isRevoked(jwt)
+                        ? Mono.error(new BadJwtException("JWT token has been revoked"))
+                        : Mono.just(jwt));
+    }
+}
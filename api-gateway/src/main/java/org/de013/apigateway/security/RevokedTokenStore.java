@@ -0,0 +1,192 @@
+package org.de013.apigateway.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.apigateway.config.TokenBlacklistProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Denylist of access tokens revoked before their expiry, shared by all gateway pods.
+ * <p>
+ * A revoked token is stored in Redis under its {@code jti} until its own {@code exp}, after
+ * which the signature check rejects it anyway, and announced on a pub/sub channel. Every pod
+ * keeps the revoked ids in a local set fed by that channel and resynced from Redis every
+ * {@code sync-interval-seconds}, so checking a token never leaves the process. A revoked
+ * token is also dropped from {@link VerifiedJwtCache}. While Redis is unreachable, tokens
+ * revoked on other pods are only picked up by the next successful sync.
+ */
+@Slf4j
+@Component
+public class RevokedTokenStore implements InitializingBean, DisposableBean {
+
+    private static final String METRIC_PREFIX = "gateway.jwt.revoked";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final TokenBlacklistProperties properties;
+    private final VerifiedJwtCache verifiedJwtCache;
+    private final Cache<String, Instant> revoked;
+    private final Counter syncFailures;
+    private Disposable listener;
+    private Disposable syncer;
+
+    public RevokedTokenStore(ReactiveStringRedisTemplate redisTemplate,
+                             TokenBlacklistProperties properties,
+                             VerifiedJwtCache verifiedJwtCache,
+                             MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.verifiedJwtCache = verifiedJwtCache;
+        this.revoked = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaxSize())
+                .expireAfter(new UntilTokenExpiry())
+                .build();
+        this.syncFailures = Counter.builder(METRIC_PREFIX + ".sync.failures")
+                .description("Failed reads of the revoked token list or channel from Redis")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".local", revoked, Cache::estimatedSize)
+                .description("Revoked tokens held in the local denylist")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Listen for revocations from other pods and resync the full list periodically
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        listener = redisTemplate.listenToChannel(channel())
+                .doOnNext(message -> onMessage(message.getMessage()))
+                .doOnError(e -> {
+                    log.warn("Revoked token channel lost, resubscribing: {}", e.getMessage());
+                    syncFailures.increment();
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe();
+        syncer = Flux.interval(Duration.ZERO, Duration.ofSeconds(properties.getSyncIntervalSeconds()))
+                .concatMap(tick -> sync())
+                .subscribe();
+    }
+
+    /**
+     * Local lookup only, safe on the request path
+     */
+    public boolean isRevoked(Jwt jwt) {
+        return properties.isEnabled() && jwt.getId() != null && revoked.getIfPresent(jwt.getId()) != null;
+    }
+
+    /**
+     * Deny the token on every pod until it expires
+     */
+    public Mono<Void> revoke(Jwt jwt) {
+        if (!properties.isEnabled() || jwt.getId() == null || jwt.getExpiresAt() == null) {
+            return Mono.empty();
+        }
+        Duration ttl = Duration.between(Instant.now(), jwt.getExpiresAt());
+        if (ttl.isNegative() || ttl.isZero()) {
+            return Mono.empty();
+        }
+        markRevoked(jwt.getId(), jwt.getExpiresAt());
+        return redisTemplate.opsForValue().set(key(jwt.getId()), jwt.getSubject() == null ? "" : jwt.getSubject(), ttl)
+                .then(redisTemplate.convertAndSend(channel(), jwt.getId() + " " + jwt.getExpiresAt().getEpochSecond()))
+                .timeout(Duration.ofMillis(properties.getTimeoutMillis()))
+                .doOnNext(receivers -> log.debug("Revoked token {} for {}, announced to {} pods", jwt.getId(), ttl, receivers))
+                .onErrorResume(e -> {
+                    log.error("Failed to revoke token {}: {}", jwt.getId(), e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Handle a {@code "<jti> <exp epoch seconds>"} message from the revocation channel
+     */
+    void onMessage(String message) {
+        int space = message.indexOf(' ');
+        try {
+            markRevoked(message.substring(0, space), Instant.ofEpochSecond(Long.parseLong(message.substring(space + 1))));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed revoked token message '{}'", message);
+        }
+    }
+
+    /**
+     * Load every revoked token still in Redis, to catch up on messages missed while unsubscribed
+     */
+    Mono<Void> sync() {
+        String prefix = key("");
+        return redisTemplate.scan(ScanOptions.scanOptions().match(prefix + "*").count(1000).build())
+                .flatMap(key -> redisTemplate.getExpire(key)
+                        .filter(ttl -> !ttl.isNegative() && !ttl.isZero())
+                        .doOnNext(ttl -> markRevoked(key.substring(prefix.length()), Instant.now().plus(ttl))))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Could not sync revoked tokens from Redis: {}", e.getMessage());
+                    syncFailures.increment();
+                    return Mono.empty();
+                });
+    }
+
+    private void markRevoked(String jti, Instant expiresAt) {
+        if (revoked.asMap().putIfAbsent(jti, expiresAt) == null) {
+            verifiedJwtCache.invalidateJti(jti);
+        }
+    }
+
+    private String key(String jti) {
+        return properties.getPrefix() + ":revoked:" + jti;
+    }
+
+    private String channel() {
+        return properties.getPrefix() + ":revoked-tokens";
+    }
+
+    @Override
+    public void destroy() {
+        if (listener != null) {
+            listener.dispose();
+        }
+        if (syncer != null) {
+            syncer.dispose();
+        }
+    }
+
+    /**
+     * Forget a revoked id once its token has expired and fails verification on its own
+     */
+    private static final class UntilTokenExpiry implements Expiry<String, Instant> {
+
+        @Override
+        public long expireAfterCreate(String jti, Instant expiresAt, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), expiresAt).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String jti, Instant expiresAt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String jti, Instant expiresAt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
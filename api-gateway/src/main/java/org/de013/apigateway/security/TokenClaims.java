@@ -0,0 +1,53 @@
+package org.de013.apigateway.security;
+
+import lombok.Getter;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+/**
+ * User claims of the current request, resolved once per exchange and shared between
+ * gateway filters through the {@link #ATTRIBUTE} exchange attribute.
+ */
+@Getter
+public class TokenClaims {
+
+    public static final String ATTRIBUTE = TokenClaims.class.getName();
+
+    /**
+     * No bearer token, or no usable subject in it
+     */
+    public static final TokenClaims ANONYMOUS = new TokenClaims(null, null, null, false);
+
+    private final String subject;
+    private final String username;
+    private final String email;
+    /**
+     * True when the claims come from a JWT verified by the security chain
+     */
+    private final boolean verified;
+
+    private TokenClaims(String subject, String username, String email, boolean verified) {
+        this.subject = subject;
+        this.username = username;
+        this.email = email;
+        this.verified = verified;
+    }
+
+    /**
+     * Claims of a JWT already decoded and verified by Spring Security
+     */
+    public static TokenClaims fromJwt(Jwt jwt) {
+        return new TokenClaims(
+                jwt.getClaimAsString("sub"),
+                jwt.getClaimAsString("preferred_username"),
+                jwt.getClaimAsString("email"),
+                true
+        );
+    }
+
+    /**
+     * Subject read from an unverified token, only fit for best-effort uses
+     */
+    public static TokenClaims unverified(String subject) {
+        return subject == null ? ANONYMOUS : new TokenClaims(subject, null, null, false);
+    }
+}
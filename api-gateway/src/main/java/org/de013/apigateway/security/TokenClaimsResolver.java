@@ -0,0 +1,40 @@
+package org.de013.apigateway.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Resolves {@link TokenClaims} for an exchange at most once.
+ * <p>
+ * Spring Security's WebFilter chain runs before the gateway's global filters, so for a
+ * request carrying a valid bearer token the principal already holds the decoded, verified
+ * {@link Jwt}; its claims are reused instead of parsing the token again. Only when no
+ * authenticated JWT is available is the subject scanned from the raw header with
+ * {@link JwtSubjectScanner}. The result is cached in the exchange attributes for every
+ * later filter.
+ */
+@Component
+public class TokenClaimsResolver {
+
+    public Mono<TokenClaims> resolve(ServerWebExchange exchange) {
+        TokenClaims cached = exchange.getAttribute(TokenClaims.ATTRIBUTE);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return exchange.getPrincipal()
+                .filter(principal -> principal instanceof Authentication authentication
+                        && authentication.getPrincipal() instanceof Jwt)
+                .map(principal -> TokenClaims.fromJwt((Jwt) ((Authentication) principal).getPrincipal()))
+                .switchIfEmpty(Mono.fromSupplier(() -> fromAuthorizationHeader(exchange)))
+                .doOnNext(claims -> exchange.getAttributes().put(TokenClaims.ATTRIBUTE, claims));
+    }
+
+    private TokenClaims fromAuthorizationHeader(ServerWebExchange exchange) {
+        String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        return TokenClaims.unverified(JwtSubjectScanner.subjectFromAuthorizationHeader(authHeader));
+    }
+}
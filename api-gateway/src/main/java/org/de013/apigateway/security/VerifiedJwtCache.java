@@ -0,0 +1,192 @@
+package org.de013.apigateway.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.apigateway.config.JwtCacheProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of JWTs that already passed signature and claim validation.
+ * <p>
+ * Entries are keyed by the SHA-256 of the raw token and live until the token's
+ * {@code exp} (capped by {@code max-ttl-seconds}), so a cached token is never served
+ * past its own expiry. The whole cache is dropped when the Keycloak JWK Set changes.
+ * Tokens revoked on logout are dropped by {@link RevokedTokenStore} and rejected by
+ * {@link RevocationCheckingJwtDecoder} in any case.
+ */
+@Slf4j
+@Component
+public class VerifiedJwtCache implements DisposableBean {
+
+    private static final String METRIC_NAME = "gateway.jwt.cache";
+
+    private final JwtCacheProperties properties;
+    private final Cache<String, Jwt> cache;
+    private final Counter rotationCounter;
+    private final WebClient webClient;
+    private final String jwkSetUri;
+    private volatile Set<String> knownKeyIds;
+    private Disposable jwksWatcher;
+
+    public VerifiedJwtCache(JwtCacheProperties properties,
+                            MeterRegistry meterRegistry,
+                            @Qualifier("keycloakWebClient") WebClient webClient,
+                            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri) {
+        this.properties = properties;
+        this.jwkSetUri = jwkSetUri;
+        this.webClient = webClient;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfter(new TokenExpiry(Duration.ofSeconds(properties.getMaxTtlSeconds())))
+                .recordStats()
+                .build();
+
+        // Exposes size, evictions, hits and misses
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, METRIC_NAME);
+        this.rotationCounter = Counter.builder(METRIC_NAME + ".jwks.rotations")
+                .description("Number of JWK Set changes that flushed the verified JWT cache")
+                .register(meterRegistry);
+
+        if (properties.isEnabled() && properties.getJwksCheckIntervalSeconds() > 0) {
+            Duration interval = Duration.ofSeconds(properties.getJwksCheckIntervalSeconds());
+            this.jwksWatcher = Flux.interval(Duration.ZERO, interval)
+                    .concatMap(tick -> fetchKeyIds())
+                    .subscribe(this::onKeyIds);
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Get a previously verified JWT for the raw token, if still cached
+     */
+    public Jwt get(String token) {
+        return cache.getIfPresent(hash(token));
+    }
+
+    public void put(String token, Jwt jwt) {
+        cache.put(hash(token), jwt);
+    }
+
+    /**
+     * Drop every cached token with this {@code jti}; scans the cache, revocations are rare
+     */
+    public void invalidateJti(String jti) {
+        cache.asMap().values().removeIf(jwt -> jti.equals(jwt.getId()));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private Mono<Set<String>> fetchKeyIds() {
+        return webClient.get()
+                .uri(jwkSetUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .map(body -> {
+                    try {
+                        return JWKSet.parse(body).getKeys().stream()
+                                .map(JWK::getKeyID)
+                                .filter(Objects::nonNull)
+                                .collect(Collectors.toSet());
+                    } catch (ParseException e) {
+                        throw new IllegalStateException("Invalid JWK Set", e);
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.warn("Could not check JWK Set for rotation: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private void onKeyIds(Set<String> keyIds) {
+        Set<String> previous = knownKeyIds;
+        knownKeyIds = keyIds;
+        if (previous != null && !previous.equals(keyIds)) {
+            log.info("JWK Set changed ({} -> {}), flushing {} cached tokens",
+                    previous, keyIds, cache.estimatedSize());
+            rotationCounter.increment();
+            cache.invalidateAll();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (jwksWatcher != null) {
+            jwksWatcher.dispose();
+        }
+    }
+
+    /**
+     * Expire each entry at the token's own exp, capped by the max TTL
+     */
+    private static final class TokenExpiry implements Expiry<String, Jwt> {
+
+        private final Duration maxTtl;
+
+        private TokenExpiry(Duration maxTtl) {
+            this.maxTtl = maxTtl;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+            Instant expiresAt = jwt.getExpiresAt();
+            if (expiresAt == null) {
+                return maxTtl.toNanos();
+            }
+            Duration untilExpiry = Duration.between(Instant.now(), expiresAt);
+            if (untilExpiry.isNegative()) {
+                return 0;
+            }
+            return Math.min(untilExpiry.toNanos(), maxTtl.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.de013.apigateway.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.de013.apigateway.dto.auth.AuthResponse;
+import org.de013.apigateway.exception.KeycloakException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Shared Keycloak admin access token.
+ * <p>
+ * The token is fetched once and reused until shortly before it expires. Concurrent
+ * callers while a fetch is in flight all wait on that same fetch (single flight), so a
+ * registration burst costs one password grant against the master realm, not one per user.
+ * Failed fetches are not cached.
+ */
+@Slf4j
+@Component
+public class KeycloakAdminTokenHolder {
+
+    private static final long DEFAULT_EXPIRES_IN_SECONDS = 60;
+
+    private final WebClient webClient;
+    private final String serverUrl;
+    private final String adminUsername;
+    private final String adminPassword;
+    private final Duration refreshSkew;
+    private volatile Mono<String> token;
+
+    public KeycloakAdminTokenHolder(
+            @Qualifier("keycloakWebClient") WebClient webClient,
+            @Value("${keycloak.server-url}") String serverUrl,
+            @Value("${keycloak.admin-username:admin}") String adminUsername,
+            @Value("${keycloak.admin-password:admin}") String adminPassword,
+            @Value("${keycloak.admin-token.refresh-skew-seconds:30}") long refreshSkewSeconds) {
+        this.webClient = webClient;
+        this.serverUrl = serverUrl;
+        this.adminUsername = adminUsername;
+        this.adminPassword = adminPassword;
+        this.refreshSkew = Duration.ofSeconds(refreshSkewSeconds);
+        this.token = newCachedToken();
+    }
+
+    /**
+     * Get a valid admin access token, fetching a new one only when needed
+     */
+    public Mono<String> getToken() {
+        return token;
+    }
+
+    /**
+     * Discard the cached token, e.g. after Keycloak rejected it
+     */
+    public void invalidate() {
+        token = newCachedToken();
+    }
+
+    private Mono<String> newCachedToken() {
+        return fetchToken()
+                .cache(
+                        this::timeToLive,
+                        error -> Duration.ZERO,
+                        () -> Duration.ZERO
+                )
+                .map(AuthResponse::getAccessToken);
+    }
+
+    private Duration timeToLive(AuthResponse response) {
+        long expiresIn = response.getExpiresIn() != null ? response.getExpiresIn() : DEFAULT_EXPIRES_IN_SECONDS;
+        Duration ttl = Duration.ofSeconds(expiresIn).minus(refreshSkew);
+        return ttl.isNegative() ? Duration.ZERO : ttl;
+    }
+
+    private Mono<AuthResponse> fetchToken() {
+        MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
+        formData.add("grant_type", "password");
+        formData.add("client_id", "admin-cli");
+        formData.add("username", adminUsername);
+        formData.add("password", adminPassword);
+
+        return webClient
+                .post()
+                .uri(serverUrl + "/realms/master/protocol/openid-connect/token")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(BodyInserters.fromFormData(formData))
+                .retrieve()
+                .bodyToMono(AuthResponse.class)
+                .doOnNext(response -> log.debug("Admin token obtained, expires in {}s", response.getExpiresIn()))
+                .onErrorResume(e -> {
+                    log.error("Failed to get admin token: {}", e.getMessage());
+                    return Mono.error(new KeycloakException("Failed to authenticate with Keycloak Admin"));
+                });
+    }
+}
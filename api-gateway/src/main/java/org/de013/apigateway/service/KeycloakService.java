@@ -3,6 +3,7 @@ package org.de013.apigateway.service;
 import lombok.extern.slf4j.Slf4j;
 import org.de013.apigateway.dto.auth.AuthResponse;
 import org.de013.apigateway.exception.KeycloakException;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -24,28 +25,26 @@ import java.util.Map;
 public class KeycloakService {
 
     private final WebClient webClient;
+    private final KeycloakAdminTokenHolder adminTokenHolder;
     private final String serverUrl;
     private final String realm;
     private final String clientId;
     private final String clientSecret;
-    private final String adminUsername;
-    private final String adminPassword;
 
     public KeycloakService(
+            @Qualifier("keycloakWebClient") WebClient webClient,
+            KeycloakAdminTokenHolder adminTokenHolder,
             @Value("${keycloak.server-url}") String serverUrl,
             @Value("${keycloak.realm}") String realm,
             @Value("${keycloak.client-id}") String clientId,
-            @Value("${keycloak.client-secret}") String clientSecret,
-            @Value("${keycloak.admin-username:admin}") String adminUsername,
-            @Value("${keycloak.admin-password:admin}") String adminPassword) {
+            @Value("${keycloak.client-secret}") String clientSecret) {
+        // Pooled WebClient without @LoadBalanced to use direct URLs
+        this.webClient = webClient;
+        this.adminTokenHolder = adminTokenHolder;
         this.serverUrl = serverUrl;
         this.realm = realm;
         this.clientId = clientId;
         this.clientSecret = clientSecret;
-        this.adminUsername = adminUsername;
-        this.adminPassword = adminPassword;
-        // Create WebClient without @LoadBalanced to use direct URLs
-        this.webClient = WebClient.builder().build();
     }
 
     /**
@@ -87,7 +86,13 @@ public class KeycloakService {
                                     log.info("User created successfully in Keycloak: {}", userId);
                                     return Mono.just(userId);
                                 } else {
+                                    if (response.statusCode().equals(HttpStatus.UNAUTHORIZED)) {
+                                        // exchangeToMono never raises WebClientResponseException
+                                        log.warn("Keycloak rejected admin token, a new one will be requested");
+                                        adminTokenHolder.invalidate();
+                                    }
                                     return response.bodyToMono(String.class)
+                                            .defaultIfEmpty("")
                                             .flatMap(errorBody -> {
                                                 log.error("Failed to create user: {}", errorBody);
                                                 return Mono.error(new KeycloakException("User creation failed: " + errorBody));
@@ -97,6 +102,7 @@ public class KeycloakService {
                 })
                 .onErrorResume(WebClientResponseException.class, e -> {
                     log.error("Keycloak API error: {}", e.getResponseBodyAsString());
+                    invalidateAdminTokenIfRejected(e);
                     if (e.getStatusCode().equals(HttpStatus.CONFLICT)) {
                         return Mono.error(new KeycloakException("Username or email already exists"));
                     }
@@ -130,7 +136,12 @@ public class KeycloakService {
                                                 .doOnSuccess(v -> log.info("Role '{}' assigned to user {}", roleName, userId))
                                 )
                 )
+                .doOnError(WebClientResponseException.class, e -> {
+                    log.error("Keycloak API error: {}", e.getResponseBodyAsString());
+                    invalidateAdminTokenIfRejected(e);
+                })
                 .onErrorResume(e -> {
+                    // Connection failures and admin token errors too, so callers only see KeycloakException
                     log.error("Failed to assign role: {}", e.getMessage());
                     return Mono.error(new KeycloakException("Failed to assign role"));
                 });
@@ -231,6 +242,7 @@ public class KeycloakService {
                 })
                 .onErrorResume(WebClientResponseException.class, e -> {
                     log.error("Failed to set user enabled status: {}", e.getResponseBodyAsString());
+                    invalidateAdminTokenIfRejected(e);
                     if (e.getStatusCode().equals(HttpStatus.NOT_FOUND)) {
                         return Mono.error(new KeycloakException("User not found"));
                     }
@@ -253,6 +265,7 @@ public class KeycloakService {
                 )
                 .onErrorResume(WebClientResponseException.class, e -> {
                     log.error("Failed to logout sessions: {}", e.getResponseBodyAsString());
+                    invalidateAdminTokenIfRejected(e);
                     if (e.getStatusCode().equals(HttpStatus.NOT_FOUND)) {
                         return Mono.error(new KeycloakException("User not found"));
                     }
@@ -275,6 +288,7 @@ public class KeycloakService {
                 )
                 .onErrorResume(WebClientResponseException.class, e -> {
                     log.error("Failed to delete user: {}", e.getResponseBodyAsString());
+                    invalidateAdminTokenIfRejected(e);
                     if (e.getStatusCode().equals(HttpStatus.NOT_FOUND)) {
                         return Mono.error(new KeycloakException("User not found"));
                     }
@@ -283,27 +297,19 @@ public class KeycloakService {
     }
 
     /**
-     * Get admin access token for Keycloak Admin API
+     * Get admin access token for Keycloak Admin API (shared, refreshed before expiry)
      */
     private Mono<String> getAdminToken() {
-        MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
-        formData.add("grant_type", "password");
-        formData.add("client_id", "admin-cli");
-        formData.add("username", adminUsername);
-        formData.add("password", adminPassword);
+        return adminTokenHolder.getToken();
+    }
 
-        return webClient
-                .post()
-                .uri(serverUrl + "/realms/master/protocol/openid-connect/token")
-                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                .body(BodyInserters.fromFormData(formData))
-                .retrieve()
-                .bodyToMono(AuthResponse.class)
-                .map(AuthResponse::getAccessToken)
-                .doOnSuccess(token -> log.debug("Admin token obtained"))
-                .onErrorResume(e -> {
-                    log.error("Failed to get admin token: {}", e.getMessage());
-                    return Mono.error(new KeycloakException("Failed to authenticate with Keycloak Admin"));
-                });
+    /**
+     * Drop the shared admin token if Keycloak no longer accepts it
+     */
+    private void invalidateAdminTokenIfRejected(WebClientResponseException e) {
+        if (e.getStatusCode().equals(HttpStatus.UNAUTHORIZED)) {
+            log.warn("Keycloak rejected admin token, a new one will be requested");
+            adminTokenHolder.invalidate();
+        }
     }
 }
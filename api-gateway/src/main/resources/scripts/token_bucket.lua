@@ -0,0 +1,50 @@
+-- Token bucket with interval refill (same semantics as Bucket4j Refill.intervally).
+--
+-- KEYS[1] bucket hash key
+-- ARGV[1] capacity
+-- ARGV[2] tokens added per refill period
+-- ARGV[3] refill period in milliseconds
+-- ARGV[4] tokens requested (the caller may receive fewer, see below)
+--
+-- Returns { granted, remaining, millisToWaitForRefill }.
+-- Grants min(requested, available) tokens so a gateway pod can lease a small
+-- batch in one round trip; granted = 0 means the request is rejected.
+
+local capacity = tonumber(ARGV[1])
+local refill_tokens = tonumber(ARGV[2])
+local period_ms = tonumber(ARGV[3])
+local requested = tonumber(ARGV[4])
+
+-- Use Redis server time so gateway pods with skewed clocks share one timeline
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(state[1])
+local ts = tonumber(state[2])
+if tokens == nil or ts == nil then
+    tokens = capacity
+    ts = now
+end
+
+local elapsed = now - ts
+if elapsed >= period_ms then
+    local periods = math.floor(elapsed / period_ms)
+    tokens = math.min(capacity, tokens + periods * refill_tokens)
+    ts = ts + periods * period_ms
+end
+
+local granted = math.min(tokens, requested)
+tokens = tokens - granted
+
+local wait_ms = 0
+if tokens < 1 then
+    wait_ms = ts + period_ms - now
+end
+
+redis.call('HSET', KEYS[1], 'tokens', tokens, 'ts', ts)
+-- Once the bucket would be full again the state is indistinguishable from a fresh one
+local ttl_periods = math.ceil(capacity / refill_tokens) + 1
+redis.call('PEXPIRE', KEYS[1], ttl_periods * period_ms)
+
+return { granted, tokens, wait_ms }
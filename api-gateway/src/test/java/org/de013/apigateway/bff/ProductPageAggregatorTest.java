@@ -0,0 +1,115 @@
+package org.de013.apigateway.bff;
+
+import org.de013.apigateway.config.BffProperties;
+import org.de013.apigateway.dto.bff.ProductPageResponse;
+import org.de013.apigateway.exception.GatewayException;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreaker;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreakerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductPageAggregatorTest {
+
+    private static final String PRODUCT = "{\"success\":true,\"data\":{\"id\":7,\"name\":\"Phone\",\"primaryCategory\":{\"id\":3}}}";
+    private static final String INVENTORY = "{\"success\":true,\"data\":{\"quantity\":12}}";
+    private static final String VARIANTS = "{\"success\":true,\"data\":[{\"variantId\":1,\"quantity\":4}]}";
+    private static final String PATH = "{\"success\":true,\"data\":[{\"id\":1},{\"id\":3}]}";
+
+    private final BffProperties properties = new BffProperties();
+    private final Map<String, String> bodies = new ConcurrentHashMap<>(Map.of(
+            "/products/7", PRODUCT,
+            "/products/7/inventory", INVENTORY,
+            "/products/7/variants/inventory", VARIANTS,
+            "/categories/3/path", PATH));
+    private final Set<String> slow = ConcurrentHashMap.newKeySet();
+    private final Set<String> requested = ConcurrentHashMap.newKeySet();
+
+    private ProductPageAggregator aggregator() {
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            String path = request.url().getPath();
+            requested.add(path);
+            String body = bodies.get(path);
+            ClientResponse response = body == null
+                    ? ClientResponse.create(HttpStatus.NOT_FOUND).build()
+                    : ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build();
+            Mono<ClientResponse> result = Mono.just(response);
+            return slow.contains(path) ? result.delayElement(Duration.ofSeconds(5)) : result;
+        });
+        @SuppressWarnings("unchecked")
+        ReactiveCircuitBreakerFactory<Object, ?> factory = mock(ReactiveCircuitBreakerFactory.class);
+        when(factory.create(anyString())).thenReturn(new PassThroughCircuitBreaker());
+        return new ProductPageAggregator(properties, builder, factory);
+    }
+
+    @Test
+    void mergesAllLegs() {
+        ProductPageResponse page = aggregator().getProductPage(7, null, new HttpHeaders()).block();
+
+        assertNotNull(page);
+        assertEquals("Phone", page.getProduct().get("name").asText());
+        assertEquals(12, page.getInventory().get("quantity").asInt());
+        assertEquals(1, page.getVariantInventory().size());
+        assertEquals(2, page.getCategoryPath().size());
+        assertFalse(page.isPartial());
+        assertNull(page.getMissing());
+    }
+
+    @Test
+    void returnsPartialPageWhenOptionalLegsFail() {
+        properties.getProductPage().setInventoryTimeoutMillis(50);
+        slow.add("/products/7/inventory");
+        bodies.remove("/categories/9/path");
+
+        ProductPageResponse page = aggregator().getProductPage(7, 9L, new HttpHeaders()).block(Duration.ofSeconds(2));
+
+        assertNotNull(page);
+        assertNotNull(page.getProduct());
+        assertNull(page.getInventory());
+        assertNull(page.getCategoryPath());
+        assertNotNull(page.getVariantInventory());
+        assertTrue(page.isPartial());
+        assertEquals(Map.of("inventory", "TIMEOUT", "categoryPath", "NOT_FOUND"), page.getMissing());
+        assertTrue(requested.contains("/categories/9/path"));
+    }
+
+    @Test
+    void failsWhenProductIsMissing() {
+        GatewayException error = assertThrows(GatewayException.class,
+                () -> aggregator().getProductPage(8, 3L, new HttpHeaders()).block());
+
+        assertEquals(HttpStatus.NOT_FOUND, error.getHttpStatus());
+    }
+
+    private static class PassThroughCircuitBreaker implements ReactiveCircuitBreaker {
+
+        @Override
+        public <T> Mono<T> run(Mono<T> toRun, Function<Throwable, Mono<T>> fallback) {
+            return toRun.onErrorResume(fallback);
+        }
+
+        @Override
+        public <T> Flux<T> run(Flux<T> toRun, Function<Throwable, Flux<T>> fallback) {
+            return toRun.onErrorResume(fallback);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package org.de013.apigateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.de013.apigateway.config.CoalescingProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescingFilterTest {
+
+    private static final String PRODUCTS = "/api/v1/product-catalog-service/products?page=0&size=20";
+    private static final String BODY = "{\"success\":true,\"data\":[]}";
+    private static final int REQUESTS = 8;
+
+    private final CoalescingProperties properties = new CoalescingProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescingFilter filter = new RequestCoalescingFilter(properties, meterRegistry);
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    /**
+     * Upstream whose first call behaves like {@code leader} and later calls answer right away
+     */
+    private GatewayFilterChain upstream(Mono<Void> leader) {
+        return exchange -> {
+            if (upstreamCalls.incrementAndGet() == 1) {
+                return leader.then(Mono.defer(() -> write(exchange.getResponse(), Flux.just(BODY))));
+            }
+            return write(exchange.getResponse(), Flux.just(BODY));
+        };
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, Flux<String> chunks) {
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(chunks.map(chunk -> response.bufferFactory()
+                .wrap(chunk.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static MockServerWebExchange exchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(PRODUCTS));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id("product-catalog-service").uri("http://localhost").predicate(e -> true).build());
+        return exchange;
+    }
+
+    private double requests(String role) {
+        return meterRegistry.get("gateway.coalescing.requests").tag("role", role).counter().count();
+    }
+
+    @Test
+    void filter_WhenIdenticalGetsInFlight_ShouldCallUpstreamOnceAndShareResponse() {
+        GatewayFilterChain chain = upstream(Mono.delay(Duration.ofMillis(100)).then());
+        List<MockServerWebExchange> exchanges = new ArrayList<>();
+        List<Mono<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            MockServerWebExchange exchange = exchange();
+            exchanges.add(exchange);
+            requests.add(filter.filter(exchange, chain));
+        }
+
+        Mono.when(requests).block(Duration.ofSeconds(5));
+
+        assertEquals(1, upstreamCalls.get());
+        for (MockServerWebExchange exchange : exchanges) {
+            assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+            assertEquals(MediaType.APPLICATION_JSON, exchange.getResponse().getHeaders().getContentType());
+            assertEquals(BODY.length(), exchange.getResponse().getHeaders().getContentLength());
+            assertEquals(BODY, exchange.getResponse().getBodyAsString().block());
+        }
+        assertEquals(1, requests("leader"));
+        assertEquals(REQUESTS - 1, requests("follower"));
+    }
+
+    @Test
+    void filter_WhenLeaderFails_ShouldReleaseFollowersUpstream() {
+        properties.setMaxWaitMillis(30_000);
+        GatewayFilterChain chain = upstream(Mono.delay(Duration.ofMillis(100))
+                .then(Mono.error(new IllegalStateException("upstream reset"))));
+        Mono<Void> leader = filter.filter(exchange(), chain);
+        List<MockServerWebExchange> exchanges = new ArrayList<>();
+        List<Mono<Void>> followers = new ArrayList<>();
+        for (int i = 1; i < REQUESTS; i++) {
+            MockServerWebExchange exchange = exchange();
+            exchanges.add(exchange);
+            followers.add(filter.filter(exchange, chain));
+        }
+
+        AtomicReference<Throwable> leaderError = new AtomicReference<>();
+        Mono.when(leader.doOnError(leaderError::set).onErrorComplete(), Mono.when(followers))
+                .block(Duration.ofSeconds(5));
+
+        assertInstanceOf(IllegalStateException.class, leaderError.get());
+        assertEquals(REQUESTS - 1, requests("fallback"));
+        exchanges.forEach(exchange -> assertEquals(BODY, exchange.getResponse().getBodyAsString().block()));
+    }
+
+    @Test
+    void filter_WhenLeaderCancelled_ShouldReleaseFollowersUpstream() throws Exception {
+        properties.setMaxWaitMillis(30_000);
+        GatewayFilterChain chain = upstream(Mono.never());
+        Disposable leader = filter.filter(exchange(), chain).subscribe();
+        List<MockServerWebExchange> exchanges = new ArrayList<>();
+        List<Mono<Void>> followers = new ArrayList<>();
+        for (int i = 1; i < REQUESTS; i++) {
+            MockServerWebExchange exchange = exchange();
+            exchanges.add(exchange);
+            followers.add(filter.filter(exchange, chain));
+        }
+        CompletableFuture<Void> done = Mono.when(followers).toFuture();
+
+        leader.dispose();
+        done.get(5, TimeUnit.SECONDS);
+
+        assertEquals(REQUESTS, upstreamCalls.get());
+        assertEquals(REQUESTS - 1, requests("fallback"));
+        exchanges.forEach(exchange -> assertEquals(BODY, exchange.getResponse().getBodyAsString().block()));
+    }
+
+    @Test
+    void filter_WhenBodyWithoutLengthExceedsMax_ShouldStreamItAndReleaseFollowers() {
+        properties.setMaxWaitMillis(30_000);
+        properties.setMaxBodyBytes(10);
+        byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+        Flux<String> chunks = Flux.range(0, (bytes.length + 7) / 8)
+                .map(i -> new String(Arrays.copyOfRange(bytes, i * 8, Math.min(bytes.length, i * 8 + 8)), StandardCharsets.UTF_8))
+                .delaySubscription(Duration.ofMillis(100));
+        GatewayFilterChain chain = exchange -> {
+            upstreamCalls.incrementAndGet();
+            return write(exchange.getResponse(), chunks);
+        };
+        List<MockServerWebExchange> exchanges = new ArrayList<>();
+        List<Mono<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            MockServerWebExchange exchange = exchange();
+            exchanges.add(exchange);
+            requests.add(filter.filter(exchange, chain));
+        }
+
+        Mono.when(requests).block(Duration.ofSeconds(5));
+
+        assertEquals(REQUESTS, upstreamCalls.get());
+        assertEquals(REQUESTS - 1, requests("fallback"));
+        exchanges.forEach(exchange -> assertEquals(BODY, exchange.getResponse().getBodyAsString().block()));
+    }
+
+    @Test
+    void filter_WhenLeaderResponseIsPrivate_ShouldSendFollowersUpstream() {
+        properties.setMaxWaitMillis(30_000);
+        GatewayFilterChain chain = exchange -> {
+            int call = upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.getHeaders().add(HttpHeaders.SET_COOKIE, "session=client-" + call);
+            response.getHeaders().setCacheControl("private, max-age=60");
+            Mono<Void> delay = call == 1 ? Mono.delay(Duration.ofMillis(100)).then() : Mono.empty();
+            return delay.then(Mono.defer(() -> write(response, Flux.just(BODY))));
+        };
+        List<MockServerWebExchange> exchanges = new ArrayList<>();
+        List<Mono<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            MockServerWebExchange exchange = exchange();
+            exchanges.add(exchange);
+            requests.add(filter.filter(exchange, chain));
+        }
+
+        Mono.when(requests).block(Duration.ofSeconds(5));
+
+        assertEquals(REQUESTS, upstreamCalls.get());
+        assertEquals(REQUESTS - 1, requests("fallback"));
+        long distinctCookies = exchanges.stream()
+                .map(exchange -> exchange.getResponse().getHeaders().getFirst(HttpHeaders.SET_COOKIE))
+                .distinct().count();
+        assertEquals(REQUESTS, distinctCookies, "every client gets its own Set-Cookie");
+    }
+
+    @Test
+    void isShareable_ShouldFollowResponseCacheRules() {
+        HttpHeaders headers = new HttpHeaders();
+        assertTrue(RequestCoalescingFilter.isShareable(HttpStatus.OK, headers));
+        assertFalse(RequestCoalescingFilter.isShareable(HttpStatus.INTERNAL_SERVER_ERROR, headers));
+
+        headers.setCacheControl("no-cache, no-store, max-age=0, must-revalidate");
+        assertFalse(RequestCoalescingFilter.isShareable(HttpStatus.OK, headers));
+
+        headers.setCacheControl("public, max-age=60");
+        assertTrue(RequestCoalescingFilter.isShareable(HttpStatus.OK, headers));
+        headers.add(HttpHeaders.SET_COOKIE, "session=abc");
+        assertFalse(RequestCoalescingFilter.isShareable(HttpStatus.OK, headers));
+    }
+
+    @Test
+    void filter_WhenRequestCarriesCookie_ShouldNotCoalesce() {
+        GatewayFilterChain chain = upstream(Mono.delay(Duration.ofMillis(100)).then());
+        List<Mono<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(PRODUCTS)
+                    .header(HttpHeaders.COOKIE, "session=" + i));
+            exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                    .id("product-catalog-service").uri("http://localhost").predicate(e -> true).build());
+            requests.add(filter.filter(exchange, chain));
+        }
+
+        Mono.when(requests).block(Duration.ofSeconds(5));
+
+        assertEquals(REQUESTS, upstreamCalls.get());
+        assertEquals(0, requests("leader"));
+    }
+}
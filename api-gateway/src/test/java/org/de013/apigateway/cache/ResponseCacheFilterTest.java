@@ -0,0 +1,180 @@
+package org.de013.apigateway.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.de013.apigateway.config.ResponseCacheProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.DigestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheFilterTest {
+
+    private static final String PRODUCTS = "/api/v1/product-catalog-service/products?page=0&size=20";
+    private static final String BODY = "{\"success\":true,\"data\":[]}";
+
+    private final ResponseCacheProperties properties = new ResponseCacheProperties();
+    private final ResponseCacheFilter filter = new ResponseCacheFilter(properties,
+            new ResponseCacheStore(properties, null, new ObjectMapper(), new SimpleMeterRegistry()));
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private GatewayFilterChain upstream(String cacheControl) {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            if (cacheControl != null) {
+                response.getHeaders().setCacheControl(cacheControl);
+            }
+            return response.writeWith(Mono.just(response.bufferFactory()
+                    .wrap(BODY.getBytes(StandardCharsets.UTF_8))));
+        };
+    }
+
+    /**
+     * Cacheable response streamed in 8-byte chunks without a Content-Length
+     */
+    private GatewayFilterChain chunkedUpstream() {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setCacheControl("public, max-age=60");
+            byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+            return response.writeWith(Flux.range(0, (bytes.length + 7) / 8)
+                    .map(i -> response.bufferFactory().wrap(Arrays.copyOfRange(bytes, i * 8, Math.min(bytes.length, i * 8 + 8)))));
+        };
+    }
+
+    private MockServerWebExchange get(String uri, String ifNoneMatch) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(uri)
+                .header(HttpHeaders.ACCEPT, "application/json");
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return MockServerWebExchange.from(request.build());
+    }
+
+    @Test
+    void filter_WhenSameGetTwice_ShouldServeSecondFromCache() {
+        MockServerWebExchange first = get(PRODUCTS, null);
+        filter.filter(first, upstream("public, max-age=60")).block();
+
+        MockServerWebExchange second = get(PRODUCTS, null);
+        filter.filter(second, upstream("public, max-age=60")).block();
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals("MISS", first.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER));
+        assertEquals("HIT", second.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER));
+        assertEquals(BODY, second.getResponse().getBodyAsString().block());
+        assertEquals(first.getResponse().getHeaders().getETag(), second.getResponse().getHeaders().getETag());
+        assertEquals(MediaType.APPLICATION_JSON, second.getResponse().getHeaders().getContentType());
+    }
+
+    @Test
+    void filter_WhenIfNoneMatchesCachedEtag_ShouldReturnNotModified() {
+        MockServerWebExchange first = get(PRODUCTS, null);
+        filter.filter(first, upstream(null)).block();
+        String etag = first.getResponse().getHeaders().getETag();
+        assertNotNull(etag);
+
+        MockServerWebExchange conditional = get(PRODUCTS, "W/" + etag);
+        filter.filter(conditional, upstream(null)).block();
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(HttpStatus.NOT_MODIFIED, conditional.getResponse().getStatusCode());
+        assertEquals(etag, conditional.getResponse().getHeaders().getETag());
+    }
+
+    @Test
+    void filter_WhenIfNoneMatchesOnMiss_ShouldStoreAndReturnNotModified() {
+        String etag = "\"" + DigestUtils.md5DigestAsHex(BODY.getBytes(StandardCharsets.UTF_8)) + "\"";
+
+        MockServerWebExchange conditional = get(PRODUCTS, etag);
+        filter.filter(conditional, upstream("public, max-age=60")).block();
+
+        assertEquals(HttpStatus.NOT_MODIFIED, conditional.getResponse().getStatusCode());
+        assertEquals("MISS", conditional.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER));
+        assertEquals("", conditional.getResponse().getBodyAsString().defaultIfEmpty("").block());
+
+        MockServerWebExchange second = get(PRODUCTS, null);
+        filter.filter(second, upstream("public, max-age=60")).block();
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(BODY, second.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void filter_WhenBodyWithoutLengthExceedsMax_ShouldStreamItAndBypass() {
+        properties.setMaxBodyBytes(10);
+
+        MockServerWebExchange first = get(PRODUCTS, null);
+        filter.filter(first, chunkedUpstream()).block();
+        MockServerWebExchange second = get(PRODUCTS, null);
+        filter.filter(second, chunkedUpstream()).block();
+
+        assertEquals(2, upstreamCalls.get());
+        assertEquals("BYPASS", first.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER));
+        assertEquals(BODY, first.getResponse().getBodyAsString().block());
+        assertEquals(BODY, second.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void filter_WhenUpstreamSaysNoStore_ShouldNotCache() {
+        filter.filter(get(PRODUCTS, null), upstream("no-store")).block();
+        MockServerWebExchange second = get(PRODUCTS, null);
+        filter.filter(second, upstream("no-store")).block();
+
+        assertEquals(2, upstreamCalls.get());
+        assertEquals("BYPASS", second.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER));
+    }
+
+    @Test
+    void filter_WhenInventoryPathOrDifferentQuery_ShouldGoUpstream() {
+        filter.filter(get("/api/v1/product-catalog-service/products/1/inventory", null), upstream(null)).block();
+        filter.filter(get("/api/v1/product-catalog-service/products/1/inventory", null), upstream(null)).block();
+        filter.filter(get(PRODUCTS, null), upstream(null)).block();
+        filter.filter(get("/api/v1/product-catalog-service/products?page=1&size=20", null), upstream(null)).block();
+
+        assertEquals(4, upstreamCalls.get());
+    }
+
+    @Test
+    void ttlSeconds_ShouldPreferSharedMaxAgeAndCapAtMaxTtl() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("public, max-age=10, s-maxage=20");
+        assertEquals(20, filter.ttlSeconds(headers));
+
+        headers.setCacheControl("max-age=86400");
+        assertEquals(properties.getMaxTtlSeconds(), filter.ttlSeconds(headers));
+
+        headers.setCacheControl("private, max-age=60");
+        assertEquals(-1, filter.ttlSeconds(headers));
+    }
+
+    @Test
+    void ttlSeconds_WithCatalogHeaders_ShouldCachePublicReadsOnly() {
+        HttpHeaders headers = new HttpHeaders();
+        // What the catalog sends on public product/category/search GETs
+        headers.setCacheControl("public, max-age=60");
+        assertEquals(60, filter.ttlSeconds(headers));
+
+        // Spring Security's default, still sent on inventory, errors and writes
+        headers.setCacheControl("no-cache, no-store, max-age=0, must-revalidate");
+        assertEquals(-1, filter.ttlSeconds(headers));
+    }
+}
@@ -0,0 +1,187 @@
+package org.de013.apigateway.compression;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.de013.apigateway.config.CompressionProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCompressionFilterTest {
+
+    private static final String PRODUCTS = "/api/v1/product-catalog-service/products?page=0&size=20";
+    private static final Set<ContentCoding> ALL = EnumSet.allOf(ContentCoding.class);
+
+    private final CompressionProperties properties = new CompressionProperties();
+    private final AtomicReference<HttpHeaders> upstreamHeaders = new AtomicReference<>();
+
+    private ResponseCompressionFilter filter() {
+        properties.getBrotli().setEnabled(false);
+        return new ResponseCompressionFilter(properties, new ResponseCompressor(properties), new SimpleMeterRegistry());
+    }
+
+    private static String page(int items) {
+        StringBuilder json = new StringBuilder("{\"success\":true,\"data\":{\"content\":[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i).append(",\"name\":\"Product ").append(i)
+                    .append("\",\"sku\":\"SKU-").append(i).append("\",\"price\":199000,\"currency\":\"VND\"}");
+        }
+        return json.append("],\"page\":0,\"size\":").append(items).append("}}").toString();
+    }
+
+    private GatewayFilterChain upstream(String body) {
+        return exchange -> {
+            upstreamHeaders.set(exchange.getRequest().getHeaders());
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return response.writeWith(Mono.just(response.bufferFactory()
+                    .wrap(body.getBytes(StandardCharsets.UTF_8))));
+        };
+    }
+
+    /**
+     * Streams the body in chunks without a Content-Length
+     */
+    private GatewayFilterChain chunkedUpstream(Flux<String> chunks) {
+        return exchange -> {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return response.writeWith(chunks.map(chunk -> response.bufferFactory()
+                    .wrap(chunk.getBytes(StandardCharsets.UTF_8))));
+        };
+    }
+
+    private static List<String> chunks(String body, int size) {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < body.length(); i += size) {
+            chunks.add(body.substring(i, Math.min(body.length(), i + size)));
+        }
+        return chunks;
+    }
+
+    private MockServerWebExchange exchange(String acceptEncoding) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(PRODUCTS);
+        if (acceptEncoding != null) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id("product-catalog-service").uri("http://localhost").predicate(e -> true).build());
+        return exchange;
+    }
+
+    @Test
+    void filter_WhenLargeJson_ShouldGzipAndAskUpstreamForIdentity() throws Exception {
+        String body = page(50);
+        MockServerWebExchange exchange = exchange("gzip, deflate, br");
+
+        filter().filter(exchange, upstream(body)).block();
+
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(headers.getVary().contains(HttpHeaders.ACCEPT_ENCODING));
+        assertFalse(upstreamHeaders.get().containsKey(HttpHeaders.ACCEPT_ENCODING));
+
+        byte[] compressed = exchange.getResponse().getBodyAsByteArray().block();
+        assertNotNull(compressed);
+        assertEquals(compressed.length, headers.getContentLength());
+        assertTrue(compressed.length < body.length() / 3);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(body, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void filter_WhenBodySmall_ShouldSendItAsIs() {
+        MockServerWebExchange exchange = exchange("gzip");
+
+        filter().filter(exchange, upstream("{\"success\":true}")).block();
+
+        assertNull(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("{\"success\":true}", exchange.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void filter_WhenUpstreamPassthrough_ShouldForwardAcceptEncodingAndKeepUpstreamEncoding() {
+        properties.setUpstreamPassthrough(true);
+        MockServerWebExchange exchange = exchange("gzip");
+        GatewayFilterChain encodedUpstream = ex -> {
+            upstreamHeaders.set(ex.getRequest().getHeaders());
+            ServerHttpResponse response = ex.getResponse();
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(new byte[4096])));
+        };
+
+        filter().filter(exchange, encodedUpstream).block();
+
+        assertEquals("gzip", upstreamHeaders.get().getFirst(HttpHeaders.ACCEPT_ENCODING));
+        assertEquals(4096, exchange.getResponse().getBodyAsByteArray().block().length);
+    }
+
+    @Test
+    void filter_WhenBodyWithoutLengthExceedsMax_ShouldPassItThroughUncompressed() {
+        properties.setMaxBodyBytes(1024);
+        String body = page(50);
+        MockServerWebExchange exchange = exchange("gzip");
+
+        filter().filter(exchange, chunkedUpstream(Flux.fromIterable(chunks(body, 256)))).block();
+
+        assertNull(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(body, exchange.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void filter_WhenBodyWithoutLengthExceedsMax_ShouldStreamBeforeUpstreamCompletes() {
+        properties.setMaxBodyBytes(1024);
+        List<String> chunks = chunks(page(50), 256);
+        MockServerWebExchange exchange = exchange("gzip");
+
+        // Upstream never completes, so nothing would be written if the whole body were buffered
+        filter().filter(exchange, chunkedUpstream(Flux.concat(Flux.fromIterable(chunks), Flux.never()))).subscribe();
+
+        List<String> written = exchange.getResponse().getBody()
+                .map(buffer -> buffer.toString(StandardCharsets.UTF_8))
+                .take(chunks.size())
+                .collectList()
+                .block(Duration.ofSeconds(1));
+        assertEquals(chunks, written);
+    }
+
+    @Test
+    void negotiate_WhenSeveralCodingsAccepted_ShouldPickByQualityThenServerPreference() {
+        assertEquals(ContentCoding.BROTLI, ContentCoding.negotiate(List.of("gzip, br"), ALL));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate(List.of("gzip;q=1.0, br;q=0.5"), ALL));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate(List.of("br, gzip"), EnumSet.of(ContentCoding.GZIP)));
+        assertEquals(ContentCoding.BROTLI, ContentCoding.negotiate(List.of("*"), ALL));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate(List.of("br;q=0, *"), ALL));
+        assertNull(ContentCoding.negotiate(List.of("identity"), ALL));
+        assertNull(ContentCoding.negotiate(List.of("gzip;q=0"), ALL));
+        assertNull(ContentCoding.negotiate(null, ALL));
+    }
+}
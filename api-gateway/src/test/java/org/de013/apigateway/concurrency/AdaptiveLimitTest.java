@@ -0,0 +1,110 @@
+package org.de013.apigateway.concurrency;
+
+import org.de013.apigateway.config.ConcurrencyLimitProperties.Algorithm;
+import org.de013.apigateway.config.ConcurrencyLimitProperties.LimitSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimitTest {
+
+    private static final long BASELINE = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void vegas_WhenLatencyStaysAtBaseline_ShouldGrowLimit() {
+        AdaptiveLimit limit = AdaptiveLimit.create(settings(Algorithm.VEGAS));
+        limit.onSample(BASELINE, 20, false);
+
+        limit.onSample(BASELINE, 20, false);
+
+        assertTrue(limit.getLimit() > 20, "limit was " + limit.getLimit());
+    }
+
+    @Test
+    void vegas_WhenQueueBuildsUp_ShouldShrinkLimit() {
+        AdaptiveLimit limit = AdaptiveLimit.create(settings(Algorithm.VEGAS));
+        limit.onSample(BASELINE, 20, false);
+
+        limit.onSample(SLOW, 20, false);
+
+        assertTrue(limit.getLimit() < 20, "limit was " + limit.getLimit());
+    }
+
+    @Test
+    void vegas_WhenFewRequestsInFlight_ShouldKeepLimit() {
+        AdaptiveLimit limit = AdaptiveLimit.create(settings(Algorithm.VEGAS));
+        limit.onSample(BASELINE, 20, false);
+
+        limit.onSample(SLOW, 5, false);
+
+        assertEquals(20, limit.getLimit());
+    }
+
+    @Test
+    void vegas_WhenDropsRepeat_ShouldStopAtMinLimit() {
+        AdaptiveLimit limit = AdaptiveLimit.create(settings(Algorithm.VEGAS));
+        limit.onSample(BASELINE, 20, false);
+
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(BASELINE, 1, true);
+        }
+
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    void gradient_WhenLatencyIsStable_ShouldGrowLimit() {
+        AdaptiveLimit limit = AdaptiveLimit.create(settings(Algorithm.GRADIENT));
+
+        limit.onSample(BASELINE, 20, false);
+
+        assertTrue(limit.getLimit() > 20, "limit was " + limit.getLimit());
+    }
+
+    @Test
+    void gradient_WhenLatencySpikes_ShouldShrinkLimit() {
+        AdaptiveLimit limit = AdaptiveLimit.create(settings(Algorithm.GRADIENT));
+        limit.onSample(BASELINE, 20, false);
+        int grown = limit.getLimit();
+
+        limit.onSample(SLOW, grown, false);
+
+        assertTrue(limit.getLimit() < grown, "limit was " + limit.getLimit());
+    }
+
+    @Test
+    void gradient_WhenDropsRepeat_ShouldStopAtMinLimit() {
+        AdaptiveLimit limit = AdaptiveLimit.create(settings(Algorithm.GRADIENT));
+
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(BASELINE, 1, true);
+        }
+
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    void gradient_WhenLatencyStaysLow_ShouldStopAtMaxLimit() {
+        LimitSettings settings = settings(Algorithm.GRADIENT);
+        settings.setMaxLimit(40);
+        AdaptiveLimit limit = AdaptiveLimit.create(settings);
+
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(BASELINE, limit.getLimit(), false);
+        }
+
+        assertEquals(40, limit.getLimit());
+    }
+
+    private static LimitSettings settings(Algorithm algorithm) {
+        LimitSettings settings = new LimitSettings();
+        settings.setAlgorithm(algorithm);
+        settings.setInitialLimit(20);
+        settings.setMinLimit(5);
+        settings.setMaxLimit(500);
+        return settings;
+    }
+}
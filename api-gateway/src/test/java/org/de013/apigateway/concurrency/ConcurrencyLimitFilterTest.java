@@ -0,0 +1,129 @@
+package org.de013.apigateway.concurrency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.de013.apigateway.config.ConcurrencyLimitProperties;
+import org.de013.apigateway.exception.ErrorBodyTemplates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private static final String ROUTE = "product-catalog-service";
+    private static final String INSTANCE = "10.0.0.1:8080";
+
+    private final ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger forwarded = new AtomicInteger();
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties.getDefaults().setInitialLimit(1);
+        properties.getDefaults().setMinLimit(1);
+        filter = new ConcurrencyLimitFilter(properties, meterRegistry, new ErrorBodyTemplates(new ObjectMapper()));
+    }
+
+    @Test
+    void filter_WhenLimitReached_ShouldShedWith503() {
+        Disposable first = filter.filter(exchange(), exchange -> Mono.never()).subscribe();
+        MockServerWebExchange second = exchange();
+
+        filter.filter(second, respond(HttpStatus.OK)).block(Duration.ofSeconds(1));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, second.getResponse().getStatusCode());
+        assertEquals("1", second.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertTrue(second.getResponse().getBodyAsString().block().contains("CONCURRENCY_LIMIT_EXCEEDED"));
+        assertEquals(0, forwarded.get());
+        assertEquals(1, meterRegistry.get("gateway.concurrency.rejected")
+                .tags("route", ROUTE, "instance", INSTANCE).counter().count());
+        first.dispose();
+    }
+
+    @Test
+    void filter_WhenClientCancels_ShouldReleaseSlot() {
+        Disposable first = filter.filter(exchange(), exchange -> Mono.never()).subscribe();
+        assertEquals(1, inflight());
+
+        first.dispose();
+
+        assertEquals(0, inflight());
+        MockServerWebExchange next = exchange();
+        filter.filter(next, respond(HttpStatus.OK)).block(Duration.ofSeconds(1));
+        assertEquals(HttpStatus.OK, next.getResponse().getStatusCode());
+        assertEquals(1, forwarded.get());
+    }
+
+    @Test
+    void filter_WhenUpstreamAnswers_ShouldReleaseSlot() {
+        filter.filter(exchange(), respond(HttpStatus.OK)).block(Duration.ofSeconds(1));
+        filter.filter(exchange(), respond(HttpStatus.SERVICE_UNAVAILABLE)).block(Duration.ofSeconds(1));
+
+        assertEquals(0, inflight());
+        assertEquals(2, forwarded.get());
+        assertEquals(0, meterRegistry.get("gateway.concurrency.rejected")
+                .tags("route", ROUTE, "instance", INSTANCE).counter().count());
+    }
+
+    @Test
+    void filter_WhenUpstreamFails_ShouldReleaseSlot() {
+        assertThrows(IllegalStateException.class, () -> filter.filter(exchange(),
+                exchange -> Mono.error(new IllegalStateException("connection reset"))).block(Duration.ofSeconds(1)));
+
+        assertEquals(0, inflight());
+        MockServerWebExchange next = exchange();
+        filter.filter(next, respond(HttpStatus.OK)).block(Duration.ofSeconds(1));
+        assertEquals(HttpStatus.OK, next.getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_WhenDisabledForRoute_ShouldNotLimit() {
+        ConcurrencyLimitProperties.LimitSettings settings = new ConcurrencyLimitProperties.LimitSettings();
+        settings.setEnabled(false);
+        properties.getRoutes().put(ROUTE, settings);
+        Disposable first = filter.filter(exchange(), exchange -> Mono.never()).subscribe();
+
+        MockServerWebExchange second = exchange();
+        filter.filter(second, respond(HttpStatus.OK)).block(Duration.ofSeconds(1));
+
+        assertEquals(HttpStatus.OK, second.getResponse().getStatusCode());
+        first.dispose();
+    }
+
+    private double inflight() {
+        return meterRegistry.get("gateway.concurrency.inflight")
+                .tags("route", ROUTE, "instance", INSTANCE).gauge().value();
+    }
+
+    private GatewayFilterChain respond(HttpStatus status) {
+        return exchange -> {
+            forwarded.incrementAndGet();
+            exchange.getResponse().setStatusCode(status);
+            return Mono.empty();
+        };
+    }
+
+    private static MockServerWebExchange exchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/products/1"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id(ROUTE).uri("lb://" + ROUTE).predicate(e -> true).build());
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR,
+                URI.create("http://" + INSTANCE + "/products/1"));
+        return exchange;
+    }
+}
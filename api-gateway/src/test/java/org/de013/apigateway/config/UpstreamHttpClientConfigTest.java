@@ -0,0 +1,31 @@
+package org.de013.apigateway.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UpstreamHttpClientConfigTest {
+
+    @Test
+    void uriTagCollapsesIdsAndDropsQuery() {
+        assertEquals("/products/{id}", UpstreamHttpClientConfig.uriTag("/products/42"));
+        assertEquals("/products/{id}/variants/inventory", UpstreamHttpClientConfig.uriTag("/products/42/variants/inventory"));
+        assertEquals("/products", UpstreamHttpClientConfig.uriTag("/products?page=3&size=20"));
+        assertEquals("/products/sku/{id}", UpstreamHttpClientConfig.uriTag("/products/sku/ABC-1"));
+    }
+
+    @Test
+    void uriTagCollapsesNonNumericPathValues() {
+        assertEquals("/orders/user/{id}/cursor",
+                UpstreamHttpClientConfig.uriTag("/orders/user/3f2c9a1e-8b7d-4e6f-9a0b-1c2d3e4f5a6b/cursor?size=20"));
+        assertEquals("/payments/user/{id}",
+                UpstreamHttpClientConfig.uriTag("/payments/user/3f2c9a1e-8b7d-4e6f-9a0b-1c2d3e4f5a6b"));
+        assertEquals("/variants/sku/{id}", UpstreamHttpClientConfig.uriTag("/variants/sku/PHONE-BLK-128"));
+        assertEquals("/orders/number/{id}", UpstreamHttpClientConfig.uriTag("/orders/number/ORD-20261015-000123"));
+        assertEquals("/refunds/number/{id}", UpstreamHttpClientConfig.uriTag("/refunds/number/REF-1001"));
+        assertEquals("/payment-methods/{id}", UpstreamHttpClientConfig.uriTag("/payment-methods/cus_NffrFeUfNV2Hib"));
+        assertEquals("/categories/slug/{id}", UpstreamHttpClientConfig.uriTag("/categories/slug/smart-phones"));
+        assertEquals("/api/v1/orders/my-orders/summary", UpstreamHttpClientConfig.uriTag("/api/v1/orders/my-orders/summary"));
+        assertEquals("/", UpstreamHttpClientConfig.uriTag("/"));
+    }
+}
@@ -0,0 +1,112 @@
+package org.de013.apigateway.exception;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorBodyTemplateTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final ErrorBodyTemplates templates = new ErrorBodyTemplates(objectMapper);
+
+    private JsonNode render(ErrorBodyTemplate template, String path, String method, String traceId) throws Exception {
+        return render(template, null, null, path, method, traceId);
+    }
+
+    private JsonNode render(ErrorBodyTemplate template, String message, String details,
+                            String path, String method, String traceId) throws Exception {
+        DataBuffer buffer = template.render(DefaultDataBufferFactory.sharedInstance, message, details, path, method, traceId);
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        assertEquals(0, buffer.writableByteCount(), "buffer should be sized exactly");
+        return objectMapper.readTree(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void render_WhenCompiledWithFixedMessage_ShouldWriteSameFieldsAsErrorResponse() throws Exception {
+        ErrorBodyTemplate template = templates.compile(HttpStatus.TOO_MANY_REQUESTS,
+                "RATE_LIMIT_EXCEEDED", "IP rate limit exceeded. Please try again later.");
+
+        JsonNode body = render(template, "/api/v1/product-catalog-service/products", "GET", "abc12345");
+
+        assertFalse(body.get("success").asBoolean());
+        assertEquals(429, body.get("status").asInt());
+        assertEquals("Too Many Requests", body.get("error").asText());
+        assertEquals("RATE_LIMIT_EXCEEDED", body.get("code").asText());
+        assertEquals("IP rate limit exceeded. Please try again later.", body.get("message").asText());
+        assertEquals("/api/v1/product-catalog-service/products", body.get("path").asText());
+        assertEquals("GET", body.get("method").asText());
+        assertEquals("abc12345", body.get("traceId").asText());
+        assertTrue(body.get("timestamp").asText().matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}"));
+    }
+
+    @Test
+    void render_WhenPathNeedsEscapingAndNoTraceId_ShouldEscapePathAndGenerateTraceId() throws Exception {
+        ErrorBodyTemplate template = templates.compile(HttpStatus.SERVICE_UNAVAILABLE,
+                "CONCURRENCY_LIMIT_EXCEEDED", "Service is busy. Please try again later.");
+        String path = "/api/\"quoted\"\\tên-sản-phẩm\n😀";
+
+        JsonNode body = render(template, path, "POST", null);
+
+        assertEquals(path, body.get("path").asText());
+        assertTrue(body.get("traceId").asText().matches("[0-9a-f]{8}"));
+    }
+
+    @Test
+    void render_WhenMessageAndDetailsAreSlots_ShouldWriteGivenText() throws Exception {
+        ErrorBodyTemplate template = templates.get(HttpStatus.SERVICE_UNAVAILABLE, "SERVICE_UNAVAILABLE", true);
+
+        JsonNode body = render(template, "Service 'product-catalog-service' is \"down\"", "Try again later",
+                "/api/v1/product-catalog-service/products", "GET", "abc12345");
+
+        assertEquals(503, body.get("status").asInt());
+        assertEquals("SERVICE_UNAVAILABLE", body.get("code").asText());
+        assertEquals("Service 'product-catalog-service' is \"down\"", body.get("message").asText());
+        assertEquals("Try again later", body.get("details").asText());
+    }
+
+    @Test
+    void render_WhenMessageOrDetailsIsNull_ShouldLeaveFieldOutLikeErrorResponse() throws Exception {
+        ErrorBodyTemplate template = templates.get(HttpStatus.SERVICE_UNAVAILABLE, "SERVICE_UNAVAILABLE", true);
+
+        JsonNode noMessage = render(template, null, "Try again later", "/api", "GET", "abc12345");
+        JsonNode noDetails = render(template, "Service is down", null, "/api", "GET", "abc12345");
+        JsonNode neither = render(template, null, null, "/api", "GET", "abc12345");
+
+        assertFalse(noMessage.has("message"));
+        assertEquals("Try again later", noMessage.get("details").asText());
+        assertEquals("Service is down", noDetails.get("message").asText());
+        assertFalse(noDetails.has("details"));
+        assertFalse(neither.has("message"));
+        assertFalse(neither.has("details"));
+        assertEquals("SERVICE_UNAVAILABLE", neither.get("code").asText());
+        assertEquals("abc12345", neither.get("traceId").asText());
+    }
+
+    @Test
+    void get_WhenWithoutDetails_ShouldLeaveDetailsOut() throws Exception {
+        ErrorBodyTemplate template = templates.get(HttpStatus.SERVICE_UNAVAILABLE, "CIRCUIT_BREAKER_OPEN", false);
+
+        JsonNode body = render(template, "Circuit breaker is open", null, "/api", "GET", "abc12345");
+
+        assertEquals("Circuit breaker is open", body.get("message").asText());
+        assertFalse(body.has("details"));
+    }
+
+    @Test
+    void get_WhenSameStatusAndCode_ShouldReuseTemplateWhateverTheMessage() {
+        ErrorBodyTemplate template = templates.get(HttpStatus.SERVICE_UNAVAILABLE, "SERVICE_UNAVAILABLE", false);
+
+        assertSame(template, templates.get(HttpStatus.SERVICE_UNAVAILABLE, "SERVICE_UNAVAILABLE", false));
+        assertNotSame(template, templates.get(HttpStatus.SERVICE_UNAVAILABLE, "SERVICE_UNAVAILABLE", true));
+        assertNotSame(template, templates.get(HttpStatus.TOO_MANY_REQUESTS, "SERVICE_UNAVAILABLE", false));
+    }
+}
@@ -0,0 +1,135 @@
+package org.de013.apigateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.de013.apigateway.config.UpstreamLatencyProperties;
+import org.de013.apigateway.config.UpstreamLatencyProperties.Hedging;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HedgingFilterTest {
+
+    private static final String SERVICE = "product-catalog-service";
+    private static final String PRIMARY_HOST = "10.0.0.1";
+    private static final String HEDGE_HOST = "10.0.0.2";
+    private static final Duration SLOW = Duration.ofSeconds(2);
+
+    private final UpstreamLatencyProperties properties = new UpstreamLatencyProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicBoolean primaryCancelled = new AtomicBoolean();
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        Hedging hedging = properties.getHedging();
+        hedging.setEnabled(true);
+        hedging.setRoutes(List.of(SERVICE));
+        hedging.setMinDelayMillis(20);
+        hedging.setMaxDelayMillis(20);
+        hedging.setMaxHedgeRatio(1.0);
+    }
+
+    @Test
+    void filter_WhenPrimaryIsSlow_ShouldUseHedgeAndCancelPrimary() {
+        MockServerWebExchange exchange = exchange();
+
+        filter(instance(PRIMARY_HOST), instance(HEDGE_HOST))
+                .filter(exchange, upstream(SLOW, Duration.ZERO)).block(Duration.ofSeconds(1));
+
+        assertEquals(HEDGE_HOST, exchange.getResponse().getHeaders().getFirst("X-Served-By"));
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertTrue(primaryCancelled.get());
+        assertEquals(2, attempts.get());
+        assertEquals(1, meterRegistry.get("gateway.hedge.sent").counter().count());
+        assertEquals(1, meterRegistry.get("gateway.hedge.wins").tag("winner", "hedge").counter().count());
+    }
+
+    @Test
+    void filter_WhenPrimaryAnswersBeforeDelay_ShouldNotSendHedge() {
+        MockServerWebExchange exchange = exchange();
+
+        filter(instance(PRIMARY_HOST), instance(HEDGE_HOST))
+                .filter(exchange, upstream(Duration.ZERO, Duration.ZERO)).block(Duration.ofSeconds(1));
+
+        assertEquals(PRIMARY_HOST, exchange.getResponse().getHeaders().getFirst("X-Served-By"));
+        assertFalse(primaryCancelled.get());
+        assertEquals(1, attempts.get());
+        assertEquals(0, meterRegistry.get("gateway.hedge.sent").counter().count());
+        assertEquals(1, meterRegistry.get("gateway.hedge.wins").tag("winner", "primary").counter().count());
+    }
+
+    @Test
+    void filter_WhenNoOtherInstance_ShouldWaitForPrimary() {
+        MockServerWebExchange exchange = exchange();
+
+        filter(instance(PRIMARY_HOST))
+                .filter(exchange, upstream(Duration.ofMillis(100), Duration.ZERO)).block(Duration.ofSeconds(1));
+
+        assertEquals(PRIMARY_HOST, exchange.getResponse().getHeaders().getFirst("X-Served-By"));
+        assertEquals(1, attempts.get());
+        assertEquals(0, meterRegistry.get("gateway.hedge.sent").counter().count());
+    }
+
+    @SuppressWarnings("unchecked")
+    private HedgingFilter filter(ServiceInstance... instances) {
+        ServiceInstanceListSupplier supplier = ServiceInstanceListSuppliers.from(SERVICE, instances);
+        ObjectProvider<ServiceInstanceListSupplier> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(supplier);
+        LoadBalancerClientFactory clientFactory = mock(LoadBalancerClientFactory.class);
+        when(clientFactory.getLazyProvider(SERVICE, ServiceInstanceListSupplier.class)).thenReturn(provider);
+        return new HedgingFilter(properties, new InstanceLatencyTracker(properties, meterRegistry), clientFactory, meterRegistry);
+    }
+
+    /**
+     * Answers after the given delay per instance, naming the instance in a response header
+     */
+    private GatewayFilterChain upstream(Duration primaryDelay, Duration hedgeDelay) {
+        return exchange -> {
+            attempts.incrementAndGet();
+            URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+            boolean hedge = HEDGE_HOST.equals(url.getHost());
+            Mono<Void> response = Mono.delay(hedge ? hedgeDelay : primaryDelay)
+                    .doOnNext(tick -> {
+                        exchange.getResponse().setStatusCode(HttpStatus.OK);
+                        exchange.getResponse().getHeaders().set("X-Served-By", url.getHost());
+                    })
+                    .then();
+            return hedge ? response : response.doOnCancel(() -> primaryCancelled.set(true));
+        };
+    }
+
+    private static MockServerWebExchange exchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/products/1"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id(SERVICE).uri("lb://" + SERVICE).predicate(e -> true).build());
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR,
+                URI.create("http://" + PRIMARY_HOST + ":8080/products/1"));
+        return exchange;
+    }
+
+    private static ServiceInstance instance(String host) {
+        return new DefaultServiceInstance(host, SERVICE, host, 8080, false);
+    }
+}
@@ -0,0 +1,67 @@
+package org.de013.apigateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.de013.apigateway.config.UpstreamLatencyProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstanceLatencyTrackerTest {
+
+    private static final String METRIC_NAME = "gateway.upstream.latency";
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InstanceLatencyTracker tracker =
+            new InstanceLatencyTracker(new UpstreamLatencyProperties(), meterRegistry, nanos::get);
+
+    @Test
+    void onComplete_WhenInstanceGoesIdle_ShouldDropItsStatsAndHistogram() {
+        sample("10.0.0.1:8080");
+        sample("10.0.0.2:8080");
+        assertNotNull(meterRegistry.find(METRIC_NAME).tag("instance", "10.0.0.1:8080").timer());
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(6));
+        sample("10.0.0.2:8080");
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(6));
+
+        assertEquals(1, tracker.trackedInstances());
+        assertNull(meterRegistry.find(METRIC_NAME).tag("instance", "10.0.0.1:8080").timer());
+        assertNotNull(meterRegistry.find(METRIC_NAME).tag("instance", "10.0.0.2:8080").timer());
+    }
+
+    @Test
+    void onComplete_WhenIdleInstanceReturns_ShouldRegisterHistogramAgain() {
+        sample("10.0.0.1:8080");
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(11));
+        assertEquals(0, tracker.trackedInstances());
+
+        sample("10.0.0.1:8080");
+
+        assertEquals(1, meterRegistry.get(METRIC_NAME).tag("instance", "10.0.0.1:8080").timer().count());
+    }
+
+    @Test
+    void complete_WhenInstanceEvictedInFlight_ShouldNotLeaveNegativeInflight() {
+        InstanceLatencyTracker.InFlight slow = tracker.onStart("product-catalog-service", "10.0.0.1:8080");
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(11));
+        assertEquals(0, tracker.trackedInstances());
+        sample("10.0.0.1:8080");
+        tracker.onStart("product-catalog-service", "10.0.0.1:8080");
+        ServiceInstance instance = new DefaultServiceInstance("i1", "product-catalog-service", "10.0.0.1", 8080, false);
+        double busy = tracker.cost(instance);
+
+        slow.complete(TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertEquals(busy, tracker.cost(instance), "the request ended on the evicted entry, not the new one");
+    }
+
+    private void sample(String instance) {
+        tracker.onStart("product-catalog-service", instance).complete(TimeUnit.MILLISECONDS.toNanos(5));
+    }
+}
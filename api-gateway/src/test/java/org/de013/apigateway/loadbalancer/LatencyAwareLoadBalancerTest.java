@@ -0,0 +1,88 @@
+package org.de013.apigateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.de013.apigateway.config.UpstreamLatencyProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LatencyAwareLoadBalancerTest {
+
+    private static final String SERVICE = "product-catalog-service";
+
+    private final InstanceLatencyTracker tracker =
+            new InstanceLatencyTracker(new UpstreamLatencyProperties(), new SimpleMeterRegistry());
+    private final ServiceInstance slow = instance("10.0.0.1");
+    private final ServiceInstance fast = instance("10.0.0.2");
+
+    @Test
+    void choose_WhenOneInstanceIsSlower_ShouldPreferFasterOne() {
+        sample(slow, 500);
+        sample(fast, 5);
+
+        for (int i = 0; i < 50; i++) {
+            assertSame(fast, LatencyAwareLoadBalancer.choose(List.of(slow, fast), tracker, null));
+        }
+    }
+
+    @Test
+    void choose_WhenInstanceHasNoSamples_ShouldProbeIt() {
+        sample(slow, 500);
+
+        assertSame(fast, LatencyAwareLoadBalancer.choose(List.of(slow, fast), tracker, null));
+    }
+
+    @Test
+    void choose_WhenInstanceExcluded_ShouldPickAnotherOrNone() {
+        sample(slow, 500);
+        sample(fast, 5);
+
+        assertSame(slow, LatencyAwareLoadBalancer.choose(List.of(slow, fast), tracker, "10.0.0.2:8080"));
+        assertNull(LatencyAwareLoadBalancer.choose(List.of(fast), tracker, "10.0.0.2:8080"));
+    }
+
+    @Test
+    void choose_WhenRequested_ShouldRespondWithChosenInstanceOrEmpty() {
+        sample(slow, 500);
+        sample(fast, 5);
+
+        Response<ServiceInstance> chosen = balancer(ServiceInstanceListSuppliers.from(SERVICE, slow, fast))
+                .choose(new DefaultRequest<>()).block();
+        Response<ServiceInstance> none = balancer(ServiceInstanceListSuppliers.from(SERVICE))
+                .choose(new DefaultRequest<>()).block();
+
+        assertTrue(chosen.hasServer());
+        assertSame(fast, chosen.getServer());
+        assertFalse(none.hasServer());
+    }
+
+    @SuppressWarnings("unchecked")
+    private LatencyAwareLoadBalancer balancer(ServiceInstanceListSupplier supplier) {
+        ObjectProvider<ServiceInstanceListSupplier> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable(any(Supplier.class))).thenReturn(supplier);
+        return new LatencyAwareLoadBalancer(provider, SERVICE, tracker);
+    }
+
+    private void sample(ServiceInstance instance, long millis) {
+        String key = InstanceLatencyTracker.instanceKey(instance);
+        tracker.onStart(SERVICE, key).complete(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static ServiceInstance instance(String host) {
+        return new DefaultServiceInstance(host, SERVICE, host, 8080, false);
+    }
+}
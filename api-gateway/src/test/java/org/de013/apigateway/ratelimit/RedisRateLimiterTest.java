@@ -0,0 +1,103 @@
+package org.de013.apigateway.ratelimit;
+
+import org.de013.apigateway.config.RateLimitConfig;
+import org.de013.apigateway.config.RateLimitConfig.LimitConfig;
+import org.de013.apigateway.config.RateLimitConfig.RateLimitProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RedisRateLimiterTest {
+
+    private static final LimitConfig LIMIT = new LimitConfig(100, 100, 1);
+    private static final int MAX_KEYS = 100;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private ReactiveStringRedisTemplate redisTemplate;
+    private RedisRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getRedis().setLocalBatchSize(10);
+        properties.getRedis().setLocalLeaseMillis(1000);
+        properties.getRedis().setLocalMaxKeys(MAX_KEYS);
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        // Every lease grants the full batch: 10 tokens, 90 left in Redis
+        doReturn(Flux.just(List.of(10L, 90L, 0L)))
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
+        limiter = new RedisRateLimiter(redisTemplate, new RateLimitConfig(properties, mock(BucketStore.class)), nanos::get);
+    }
+
+    @Test
+    void tryConsume_WhenLeaseHasTokens_ShouldServeFromFrontCache() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryConsume("ip:1", LIMIT).block().isConsumed());
+        }
+
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), eq(List.of("rate-limit:ip:1")), anyList());
+    }
+
+    @Test
+    void tryConsume_WhenFrontCacheFull_ShouldStillAdmitNewKeys() {
+        for (int i = 0; i < MAX_KEYS * 10; i++) {
+            limiter.tryConsume("ip:" + i, LIMIT).block();
+        }
+        String newest = "ip:" + (MAX_KEYS * 10 - 1);
+
+        limiter.tryConsume(newest, LIMIT).block();
+
+        assertTrue(limiter.getFrontCacheSize() <= MAX_KEYS);
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), eq(List.of("rate-limit:" + newest)), anyList());
+    }
+
+    @Test
+    void tryConsume_WhenLeaseExpired_ShouldEvictKeyAndLeaseAgain() {
+        limiter.tryConsume("ip:1", LIMIT).block();
+        assertEquals(1, limiter.getFrontCacheSize());
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1001));
+
+        assertEquals(0, limiter.getFrontCacheSize());
+        limiter.tryConsume("ip:1", LIMIT).block();
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), eq(List.of("rate-limit:ip:1")), anyList());
+    }
+
+    @Test
+    void tryConsume_WhenConcurrentMissesLease_ShouldKeepEveryLeasedToken() {
+        Sinks.One<List<Long>> first = Sinks.one();
+        Sinks.One<List<Long>> second = Sinks.one();
+        doReturn(Flux.from(first.asMono()), Flux.from(second.asMono()))
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
+        Mono<RateLimitResult> a = limiter.tryConsume("ip:1", LIMIT);
+        Mono<RateLimitResult> b = limiter.tryConsume("ip:1", LIMIT);
+        CompletableFuture<RateLimitResult> pendingA = a.toFuture();
+        CompletableFuture<RateLimitResult> pendingB = b.toFuture();
+
+        first.tryEmitValue(List.of(10L, 90L, 0L));
+        second.tryEmitValue(List.of(10L, 80L, 0L));
+        assertTrue(pendingA.join().isConsumed());
+        assertTrue(pendingB.join().isConsumed());
+
+        // 9 + 9 leased tokens left locally
+        for (int i = 0; i < 18; i++) {
+            assertTrue(limiter.tryConsume("ip:1", LIMIT).block().isConsumed());
+        }
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), eq(List.of("rate-limit:ip:1")), anyList());
+    }
+}
@@ -0,0 +1,62 @@
+package org.de013.apigateway.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtSubjectScannerTest {
+
+    private static final String HEADER = encode("{\"alg\":\"RS256\",\"typ\":\"JWT\"}");
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String token(String payloadJson) {
+        return HEADER + "." + encode(payloadJson) + ".c2lnbmF0dXJl";
+    }
+
+    @Test
+    void subjectFromAuthorizationHeader_WhenKeycloakToken_ShouldReturnSub() {
+        String payload = "{\"exp\":1716372480,\"realm_access\":{\"roles\":[\"CUSTOMER\",\"sub\"]},"
+                + "\"scope\":\"openid profile\",\"sub\":\"5f0c3a4e-9d1b-4c7a-8e2f-1a2b3c4d5e6f\","
+                + "\"preferred_username\":\"john_doe\"}";
+
+        assertEquals("5f0c3a4e-9d1b-4c7a-8e2f-1a2b3c4d5e6f",
+                JwtSubjectScanner.subjectFromAuthorizationHeader("Bearer " + token(payload)));
+    }
+
+    @Test
+    void subjectFromAuthorizationHeader_WhenSubOnlyNested_ShouldReturnNull() {
+        String payload = "{\"act\":{\"sub\":\"impersonator\"},\"note\":\"\\\"sub\\\"\"}";
+
+        assertNull(JwtSubjectScanner.subjectFromAuthorizationHeader("Bearer " + token(payload)));
+    }
+
+    @Test
+    void subjectFromAuthorizationHeader_WhenSubHasEscapesAndUnicode_ShouldDecode() {
+        String payload = "{ \"iat\" : 1, \"sub\" : \"a\\\"b\\u00e9ü\" }";
+
+        assertEquals("a\"béü", JwtSubjectScanner.subjectFromAuthorizationHeader("Bearer " + token(payload)));
+    }
+
+    @Test
+    void subjectFromAuthorizationHeader_WhenSimilarKeys_ShouldNotMatch() {
+        String payload = "{\"su\":\"x\",\"subject\":\"y\",\"sub_id\":\"z\"}";
+
+        assertNull(JwtSubjectScanner.subjectFromAuthorizationHeader("Bearer " + token(payload)));
+    }
+
+    @Test
+    void subjectFromAuthorizationHeader_WhenNotBearerOrMalformed_ShouldReturnNull() {
+        assertNull(JwtSubjectScanner.subjectFromAuthorizationHeader(null));
+        assertNull(JwtSubjectScanner.subjectFromAuthorizationHeader("Basic dXNlcjpwYXNz"));
+        assertNull(JwtSubjectScanner.subjectFromAuthorizationHeader("Bearer not-a-jwt"));
+        assertNull(JwtSubjectScanner.subjectFromAuthorizationHeader("Bearer " + HEADER + ".!!!.sig"));
+        assertNull(JwtSubjectScanner.subjectFromAuthorizationHeader("Bearer " + token("{\"sub\":\"unterminated")));
+        assertNull(JwtSubjectScanner.subjectFromAuthorizationHeader("Bearer " + token("{\"sub\":42}")));
+    }
+}
@@ -0,0 +1,86 @@
+package org.de013.apigateway.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeycloakUserContextFilterTest {
+
+    private final KeycloakUserContextFilter filter = new KeycloakUserContextFilter(new TokenClaimsResolver());
+
+    @Test
+    void filter_WhenVerifiedClaims_ShouldCopyHeadersAtMostOncePerRequest() {
+        AtomicInteger originalHeaderReads = new AtomicInteger();
+        ServerHttpRequest original = new ServerHttpRequestDecorator(
+                MockServerHttpRequest.get("/api/v1/order-service/orders/my-orders")
+                        .header(HttpHeaders.ACCEPT, "application/json")
+                        .build()) {
+            @Override
+            public HttpHeaders getHeaders() {
+                originalHeaderReads.incrementAndGet();
+                return super.getHeaders();
+            }
+        };
+        ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/").build())
+                .mutate()
+                .request(original)
+                .build();
+        exchange.getAttributes().put(TokenClaims.ATTRIBUTE, TokenClaims.fromJwt(jwt()));
+
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+        GatewayFilterChain chain = ex -> {
+            forwarded.set(ex);
+            return Mono.empty();
+        };
+
+        filter.filter(exchange, chain).block();
+
+        ServerHttpRequest downstream = forwarded.get().getRequest();
+        HttpHeaders first = downstream.getHeaders();
+        for (int i = 0; i < 20; i++) {
+            // Downstream filters and Netty read headers repeatedly; no call may copy them again
+            assertSame(first, downstream.getHeaders());
+        }
+        assertTrue(originalHeaderReads.get() <= 1, "headers copied " + originalHeaderReads.get() + " times");
+        assertEquals("user-uuid-123", first.getFirst(KeycloakUserContextFilter.USER_ID_HEADER));
+        assertEquals("john_doe", first.getFirst(KeycloakUserContextFilter.USERNAME_HEADER));
+        assertEquals("john@example.com", first.getFirst(KeycloakUserContextFilter.EMAIL_HEADER));
+        assertEquals("application/json", first.getFirst(HttpHeaders.ACCEPT));
+    }
+
+    @Test
+    void filter_WhenNoToken_ShouldForwardRequestUnchanged() {
+        ServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/api/v1/product-catalog-service/products").build());
+
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+        filter.filter(exchange, ex -> {
+            forwarded.set(ex);
+            return Mono.empty();
+        }).block();
+
+        assertSame(exchange, forwarded.get());
+        assertNull(forwarded.get().getRequest().getHeaders().getFirst(KeycloakUserContextFilter.USER_ID_HEADER));
+    }
+
+    private static Jwt jwt() {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .claim("sub", "user-uuid-123")
+                .claim("preferred_username", "john_doe")
+                .claim("email", "john@example.com")
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package org.de013.apigateway.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.de013.apigateway.config.TokenBlacklistProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RevocationCheckingJwtDecoderTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    private final Jwt jwt = Jwt.withTokenValue(TOKEN)
+            .header("alg", "RS256")
+            .jti("token-1")
+            .subject("user-1")
+            .issuedAt(Instant.now())
+            .expiresAt(Instant.now().plusSeconds(300))
+            .build();
+
+    private ReactiveStringRedisTemplate redisTemplate;
+    private VerifiedJwtCache verifiedJwtCache;
+    private RevokedTokenStore store;
+    private RevocationCheckingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        verifiedJwtCache = mock(VerifiedJwtCache.class);
+        store = new RevokedTokenStore(redisTemplate, new TokenBlacklistProperties(), verifiedJwtCache, new SimpleMeterRegistry());
+        decoder = new RevocationCheckingJwtDecoder(token -> Mono.just(jwt), store);
+    }
+
+    @Test
+    void decode_WhenJtiNotRevoked_ShouldReturnTokenWithoutCallingRedis() {
+        assertSame(jwt, decoder.decode(TOKEN).block());
+
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void decode_WhenRevokedOnAnotherPod_ShouldRejectTokenAndDropItFromCache() {
+        store.onMessage("token-1 " + jwt.getExpiresAt().getEpochSecond());
+
+        assertThrows(BadJwtException.class, () -> decoder.decode(TOKEN).block());
+        verify(verifiedJwtCache).invalidateJti("token-1");
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void sync_ShouldLoadTokensRevokedWhileUnsubscribed() {
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(Flux.just("auth:revoked:token-1"));
+        when(redisTemplate.getExpire("auth:revoked:token-1")).thenReturn(Mono.just(Duration.ofSeconds(200)));
+
+        store.sync().block();
+
+        assertThrows(BadJwtException.class, () -> decoder.decode(TOKEN).block());
+    }
+
+    @Test
+    void sync_WhenRedisUnavailable_ShouldKeepLettingTokensThrough() {
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(Flux.error(new RedisConnectionFailureException("down")));
+
+        store.sync().block();
+
+        assertSame(jwt, decoder.decode(TOKEN).block());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void revoke_ShouldStoreJtiUntilTokenExpires() {
+        ReactiveValueOperations<String, String> values = mock(ReactiveValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.set(any(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(redisTemplate.convertAndSend(any(), any())).thenReturn(Mono.just(2L));
+
+        store.revoke(jwt).block();
+
+        ArgumentCaptor<Duration> ttl = ArgumentCaptor.forClass(Duration.class);
+        verify(values).set(eq("auth:revoked:token-1"), eq("user-1"), ttl.capture());
+        assertTrue(ttl.getValue().compareTo(Duration.ofSeconds(290)) > 0);
+        assertTrue(ttl.getValue().compareTo(Duration.ofSeconds(300)) <= 0);
+        verify(redisTemplate).convertAndSend("auth:revoked-tokens", "token-1 " + jwt.getExpiresAt().getEpochSecond());
+        assertThrows(BadJwtException.class, () -> decoder.decode(TOKEN).block());
+    }
+}
@@ -0,0 +1,76 @@
+package org.de013.apigateway.service;
+
+import org.de013.apigateway.exception.KeycloakException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import java.net.ConnectException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeycloakServiceTest {
+
+    private static final String SERVER = "http://keycloak";
+
+    /**
+     * Keycloak only accepts the second admin token, as if the first had been revoked
+     */
+    private static final String ACCEPTED_TOKEN = "admin-2";
+
+    private final AtomicInteger adminTokens = new AtomicInteger();
+    private volatile boolean keycloakDown;
+
+    private KeycloakService service() {
+        WebClient webClient = WebClient.builder().exchangeFunction(request -> {
+            String path = request.url().getPath();
+            if (keycloakDown) {
+                return Mono.error(new WebClientRequestException(new ConnectException("Connection refused"),
+                        request.method(), request.url(), request.headers()));
+            }
+            if (path.equals("/realms/master/protocol/openid-connect/token")) {
+                String token = "admin-" + adminTokens.incrementAndGet();
+                return Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body("{\"access_token\":\"" + token + "\",\"expires_in\":300}")
+                        .build());
+            }
+            if (!("Bearer " + ACCEPTED_TOKEN).equals(request.headers().getFirst(HttpHeaders.AUTHORIZATION))) {
+                return Mono.just(ClientResponse.create(HttpStatus.UNAUTHORIZED).build());
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.CREATED)
+                    .header(HttpHeaders.LOCATION, SERVER + "/admin/realms/ecommerce/users/u-1")
+                    .build());
+        }).build();
+        KeycloakAdminTokenHolder holder = new KeycloakAdminTokenHolder(webClient, SERVER, "admin", "admin", 30);
+        return new KeycloakService(webClient, holder, SERVER, "ecommerce", "gateway", "secret");
+    }
+
+    @Test
+    void createUser_WhenAdminTokenRejected_ShouldFetchNewTokenForNextCall() {
+        KeycloakService service = service();
+
+        assertThrows(KeycloakException.class,
+                () -> service.createUser("jane", "jane@example.com", "pw", "Jane", "Doe").block());
+        assertEquals(1, adminTokens.get());
+
+        assertEquals("u-1", service.createUser("jane", "jane@example.com", "pw", "Jane", "Doe").block());
+        assertEquals(2, adminTokens.get());
+    }
+
+    @Test
+    void assignRole_WhenKeycloakUnreachable_ShouldFailWithKeycloakException() {
+        KeycloakService service = service();
+        keycloakDown = true;
+
+        KeycloakException e = assertThrows(KeycloakException.class,
+                () -> service.assignRole("u-1", "CUSTOMER").block());
+        assertEquals("Failed to assign role", e.getMessage());
+    }
+}
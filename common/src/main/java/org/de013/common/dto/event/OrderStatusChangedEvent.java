@@ -0,0 +1,51 @@
+package org.de013.common.dto.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Shared event published by Order Service (exchange {@code order.events}, routing key
+ * {@code order.status.<status>}) whenever an order changes status.
+ * Delivery is at least once: consumers should ignore an {@code eventId} they have already handled.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OrderStatusChangedEvent {
+
+    public static final String TYPE = "order.status-changed";
+
+    private String eventId;
+
+    private Long orderId;
+
+    private String orderNumber;
+
+    private String userId;
+
+    /**
+     * Status before the change; null for a newly created order
+     */
+    private String previousStatus;
+
+    private String status;
+
+    /**
+     * Cancellation or payment failure reason, when there is one
+     */
+    private String reason;
+
+    private BigDecimal totalAmount;
+
+    private String currency;
+
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,61 @@
+package org.de013.common.virtualthread;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Startup check for JDBC drivers that still hold a monitor ({@code synchronized}) across
+ * socket reads. A virtual thread blocked inside such a driver pins its carrier thread, so a
+ * handful of slow queries can stall every request on the node.
+ */
+@Slf4j
+public class JdbcDriverPinningCheck implements InitializingBean {
+
+    /**
+     * First driver version (major, minor) that guards its I/O with locks instead of monitors
+     */
+    private static final Map<String, int[]> FIRST_SAFE_VERSIONS = Map.of(
+            "org.postgresql.Driver", new int[]{42, 6},
+            "com.mysql.cj.jdbc.Driver", new int[]{9, 0}
+    );
+
+    private final boolean failOnPinningDriver;
+
+    public JdbcDriverPinningCheck(boolean failOnPinningDriver) {
+        this.failOnPinningDriver = failOnPinningDriver;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        List<String> pinning = DriverManager.drivers()
+                .filter(driver -> pinsCarrier(driver.getClass().getName(), driver.getMajorVersion(), driver.getMinorVersion()))
+                .map(JdbcDriverPinningCheck::describe)
+                .toList();
+        if (pinning.isEmpty()) {
+            return;
+        }
+        String message = "JDBC driver(s) " + pinning + " block inside synchronized code and pin virtual threads; "
+                + "upgrade the driver or disable spring.threads.virtual.enabled";
+        if (failOnPinningDriver) {
+            throw new IllegalStateException(message);
+        }
+        log.warn(message);
+    }
+
+    static boolean pinsCarrier(String driverClass, int major, int minor) {
+        int[] safe = FIRST_SAFE_VERSIONS.get(driverClass);
+        if (safe == null) {
+            return false;
+        }
+        return major < safe[0] || (major == safe[0] && minor < safe[1]);
+    }
+
+    private static String describe(Driver driver) {
+        return driver.getClass().getName() + " " + driver.getMajorVersion() + "." + driver.getMinorVersion();
+    }
+}
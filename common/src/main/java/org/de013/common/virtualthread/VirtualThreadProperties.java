@@ -0,0 +1,44 @@
+package org.de013.common.virtualthread;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Tuning for virtual-thread mode; the mode itself is switched by {@code spring.threads.virtual.enabled}
+ */
+@Data
+@ConfigurationProperties(prefix = "app.virtual-threads")
+public class VirtualThreadProperties {
+
+    private Pinning pinning = new Pinning();
+
+    private Jdbc jdbc = new Jdbc();
+
+    @Data
+    public static class Pinning {
+
+        /**
+         * Record jdk.VirtualThreadPinned JFR events as metrics and log lines
+         */
+        private boolean monitor = true;
+
+        /**
+         * Pinned periods shorter than this are ignored
+         */
+        private long thresholdMillis = 20;
+
+        /**
+         * At most one pinned stack trace is logged per interval
+         */
+        private long logIntervalSeconds = 60;
+    }
+
+    @Data
+    public static class Jdbc {
+
+        /**
+         * Refuse to start when a registered JDBC driver is known to pin carrier threads
+         */
+        private boolean failOnPinningDriver = false;
+    }
+}
@@ -0,0 +1,104 @@
+package org.de013.common.virtualthread;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnJava;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JCircuitBreakerFactory;
+import org.springframework.cloud.client.circuitbreaker.Customizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual-thread mode for the servlet services, switched on for all of them at once by
+ * {@code spring.threads.virtual.enabled} (VIRTUAL_THREADS_ENABLED in the shared config).
+ * <p>
+ * Spring Boot itself then moves the Tomcat request executor, the {@code @Async} executor
+ * and the {@code @Scheduled} scheduler onto virtual threads. This adds what Boot does not
+ * cover: the executor Resilience4j runs Feign calls on when Feign's circuit breaker is
+ * enabled, and the JDBC pinning guards. Nothing here is active on a JVM older than 21.
+ */
+@Slf4j
+@AutoConfiguration(afterName = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+@EnableConfigurationProperties(VirtualThreadProperties.class)
+public class VirtualThreadsAutoConfiguration {
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    static class JdbcPinningConfiguration {
+
+        @Bean
+        JdbcDriverPinningCheck jdbcDriverPinningCheck(VirtualThreadProperties properties) {
+            return new JdbcDriverPinningCheck(properties.getJdbc().isFailOnPinningDriver());
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    @ConditionalOnClass({MeterRegistry.class, RecordingStream.class})
+    @ConditionalOnBean(MeterRegistry.class)
+    @ConditionalOnProperty(prefix = "app.virtual-threads.pinning", name = "monitor", matchIfMissing = true)
+    static class PinningMonitorConfiguration {
+
+        @Bean
+        VirtualThreadPinningMonitor virtualThreadPinningMonitor(VirtualThreadProperties properties,
+                                                                MeterRegistry meterRegistry) {
+            return new VirtualThreadPinningMonitor(properties.getPinning(), meterRegistry);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    @ConditionalOnClass(Resilience4JCircuitBreakerFactory.class)
+    static class CircuitBreakerConfiguration {
+
+        /**
+         * Resilience4j runs each guarded call (our Feign clients) on a separate thread so its
+         * time limiter can interrupt it; by default that is a cached platform-thread pool.
+         */
+        @Bean
+        Customizer<Resilience4JCircuitBreakerFactory> virtualThreadCircuitBreakerExecutor() {
+            return factory -> factory.configureExecutorService(newVirtualThreadPerTaskExecutor("circuit-breaker-"));
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "spring.threads.virtual", name = "enabled", havingValue = "true")
+    @ConditionalOnJava(range = ConditionalOnJava.Range.OLDER_THAN, value = JavaVersion.TWENTY_ONE)
+    static class UnsupportedJavaConfiguration {
+
+        UnsupportedJavaConfiguration(@Value("${java.version}") String javaVersion) {
+            log.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads; "
+                    + "staying on platform threads (build with -Pjava21 and run on a Java 21 image)", javaVersion);
+        }
+    }
+
+    /**
+     * Thread-per-task executor on virtual threads. Looked up reflectively because common is
+     * still compiled for Java 17 unless built with the java21 profile.
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor(String threadNamePrefix) {
+        ThreadFactory threadFactory = new VirtualThreadTaskExecutor(threadNamePrefix).getVirtualThreadFactory();
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21", e);
+        }
+    }
+}
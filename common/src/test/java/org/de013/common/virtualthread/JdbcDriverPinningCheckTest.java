@@ -0,0 +1,25 @@
+package org.de013.common.virtualthread;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcDriverPinningCheckTest {
+
+    @Test
+    void pinsCarrier_WhenPostgresDriverOlderThan42_6_ShouldReturnTrue() {
+        assertTrue(JdbcDriverPinningCheck.pinsCarrier("org.postgresql.Driver", 42, 5));
+        assertTrue(JdbcDriverPinningCheck.pinsCarrier("org.postgresql.Driver", 41, 9));
+    }
+
+    @Test
+    void pinsCarrier_WhenPostgresDriverIs42_6OrNewer_ShouldReturnFalse() {
+        assertFalse(JdbcDriverPinningCheck.pinsCarrier("org.postgresql.Driver", 42, 6));
+        assertFalse(JdbcDriverPinningCheck.pinsCarrier("org.postgresql.Driver", 42, 7));
+    }
+
+    @Test
+    void pinsCarrier_WhenDriverUnknown_ShouldReturnFalse() {
+        assertFalse(JdbcDriverPinningCheck.pinsCarrier("org.h2.Driver", 1, 0));
+    }
+}
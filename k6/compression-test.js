@@ -0,0 +1,88 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Trend } from 'k6/metrics';
+
+/**
+ * k6 Compression Benchmark — bytes on the wire and gateway CPU per Accept-Encoding.
+ *
+ *   k6 run -e BASE_URL=http://localhost:8080 k6/compression-test.js
+ *
+ * Notes:
+ * - Three back-to-back scenarios request the same PageResponse<ProductSummaryDto> pages
+ *   with Accept-Encoding identity, gzip and br; compare data_received{encoding:...}.
+ * - Run with RESPONSE_CACHE_ENABLED=false so every request is encoded by the gateway,
+ *   otherwise cache hits replay the stored (already compressed) body.
+ * - CPU cost of encoding comes from gateway_compression_time_seconds (p50/p99 per
+ *   encoding) and process_cpu_usage, printed in teardown.
+ */
+
+const RATE = parseInt(__ENV.RATE || '200', 10);
+const DURATION = __ENV.DURATION || '1m';
+const PAGE_SIZES = (__ENV.PAGE_SIZES || '20,50,100').split(',');
+
+const wireBytes = new Trend('response_wire_bytes');
+
+function scenario(encoding, startTime) {
+  return {
+    executor: 'constant-arrival-rate',
+    rate: RATE,
+    timeUnit: '1s',
+    duration: DURATION,
+    startTime,
+    preAllocatedVUs: 50,
+    maxVUs: 200,
+    env: { ENCODING: encoding },
+    tags: { encoding },
+  };
+}
+
+export const options = {
+  scenarios: {
+    identity: scenario('identity', '0s'),
+    gzip: scenario('gzip', '70s'),
+    br: scenario('br', '140s'),
+  },
+  // Per-scenario sub-metrics so the summary shows each encoding side by side
+  thresholds: {
+    'data_received{encoding:identity}': ['count>=0'],
+    'data_received{encoding:gzip}': ['count>=0'],
+    'data_received{encoding:br}': ['count>=0'],
+    'response_wire_bytes{encoding:identity}': ['avg>=0'],
+    'response_wire_bytes{encoding:gzip}': ['avg>=0'],
+    'response_wire_bytes{encoding:br}': ['avg>=0'],
+    'http_req_duration{encoding:gzip}': ['p(99)<500'],
+    'http_req_duration{encoding:br}': ['p(99)<500'],
+  },
+};
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+
+export default function () {
+  const size = PAGE_SIZES[Math.floor(Math.random() * PAGE_SIZES.length)];
+  const page = Math.floor(Math.random() * 5);
+  const res = http.get(`${BASE_URL}/api/v1/product-catalog-service/products?page=${page}&size=${size}`, {
+    headers: {
+      'Accept-Encoding': __ENV.ENCODING,
+      'User-Agent': 'k6-compression-test',
+    },
+  });
+
+  // k6 decodes the body transparently; Content-Length is what went over the wire
+  const length = parseInt(res.headers['Content-Length'] || '0', 10);
+  if (length > 0) {
+    wireBytes.add(length);
+  }
+  check(res, {
+    'status is 200': (r) => r.status === 200,
+    'encoding negotiated': (r) => __ENV.ENCODING === 'identity'
+      ? !r.headers['Content-Encoding']
+      : r.headers['Content-Encoding'] === __ENV.ENCODING,
+  });
+}
+
+export function teardown() {
+  const metrics = http.get(`${BASE_URL}/actuator/prometheus`).body || '';
+  metrics.split('\n')
+    .filter((line) => line.startsWith('gateway_compression_') || line.startsWith('process_cpu_usage'))
+    .forEach((line) => console.log(line));
+}
@@ -13,13 +13,16 @@ import { check, sleep } from 'k6';
  * - BASE_URL defaults to the API Gateway on http://localhost:8080.
  * - TOKEN is optional: if the product listing route is secured at the gateway,
  *   pass a Bearer token via -e TOKEN=...; otherwise it can be omitted.
+ * - VUS overrides the plateau (default 20), e.g. -e VUS=400 for the virtual-thread comparison.
  * - The full prod stack must be running (see README "Khởi động full-stack").
  */
 
+const VUS = parseInt(__ENV.VUS || '20', 10);
+
 export const options = {
   stages: [
-    { duration: '30s', target: 20 }, // ramp up to 20 VUs
-    { duration: '1m', target: 20 },  // hold at 20 VUs
+    { duration: '30s', target: VUS }, // ramp up to VUS
+    { duration: '1m', target: VUS },  // hold at VUS
     { duration: '30s', target: 0 },  // ramp down
   ],
   thresholds: {
@@ -0,0 +1,103 @@
+import http from 'k6/http';
+import encoding from 'k6/encoding';
+import { check, fail } from 'k6';
+import { Trend } from 'k6/metrics';
+
+/**
+ * k6 Order Listing Pagination Benchmark — OFFSET pages vs keyset cursor, shallow and deep.
+ *
+ *   psql -d order_service_db -v rows=1000000 -f k6/sql/seed-orders.sql
+ *   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<admin jwt> k6/order-pagination-test.js
+ *
+ * Four scenarios run one after another against the admin listing of all orders:
+ *   offset_first  GET /orders?page=0
+ *   offset_deep   GET /orders?page=DEEP_PAGE            (OFFSET DEEP_PAGE * SIZE, plus COUNT(*))
+ *   cursor_first  GET /orders/cursor
+ *   cursor_deep   GET /orders/cursor?cursor=<DEEP_PAGE> (same rows as offset_deep)
+ *
+ * Notes:
+ * - setup() reads the last order of offset page DEEP_PAGE - 1 once and builds the cursor that
+ *   starts page DEEP_PAGE from it. It relies on the cursor format (base64url of
+ *   "<createdAt>|<id>"), which clients must treat as opaque; only this benchmark builds one.
+ * - SIZE (default 20), DEEP_PAGE (default 10000, needs SIZE * DEEP_PAGE orders seeded),
+ *   RATE (req/s, default 10) and DURATION per scenario (default 30s).
+ * - Compare page_duration per scenario (k6 tags it with the scenario name); EXPLAIN ANALYZE of the two deep queries shows where
+ *   the time goes (rows skipped by OFFSET vs an index seek).
+ */
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const TOKEN = __ENV.TOKEN || '';
+const SIZE = parseInt(__ENV.SIZE || '20', 10);
+const DEEP_PAGE = parseInt(__ENV.DEEP_PAGE || '10000', 10);
+const RATE = parseInt(__ENV.RATE || '10', 10);
+const DURATION = __ENV.DURATION || '30s';
+const ORDERS = `${BASE_URL}/api/v1/order-service/orders`;
+
+const pageDuration = new Trend('page_duration', true);
+
+function scenario(exec, startTime) {
+  return {
+    executor: 'constant-arrival-rate',
+    exec,
+    rate: RATE,
+    timeUnit: '1s',
+    duration: DURATION,
+    startTime,
+    preAllocatedVUs: 10,
+    maxVUs: 50,
+  };
+}
+
+const step = parseInt(DURATION, 10) + 5;
+
+export const options = {
+  scenarios: {
+    offset_first: scenario('offsetFirst', '0s'),
+    offset_deep: scenario('offsetDeep', `${step}s`),
+    cursor_first: scenario('cursorFirst', `${2 * step}s`),
+    cursor_deep: scenario('cursorDeep', `${3 * step}s`),
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+  },
+};
+
+function params(name) {
+  const headers = { 'User-Agent': 'k6-order-pagination-test' };
+  if (TOKEN) {
+    headers['Authorization'] = `Bearer ${TOKEN}`;
+  }
+  return { headers, tags: { name } };
+}
+
+export function setup() {
+  const res = http.get(`${ORDERS}?page=${DEEP_PAGE - 1}&size=${SIZE}&sort=createdAt,desc&sort=id,desc`, params('setup'));
+  const content = res.status === 200 ? res.json('content') : null;
+  if (!content || content.length < SIZE) {
+    fail(`offset page ${DEEP_PAGE - 1} returned status ${res.status}; seed at least ${SIZE * DEEP_PAGE} orders`);
+  }
+  const last = content[content.length - 1];
+  return { deepCursor: encoding.b64encode(`${last.createdAt}|${last.id}`, 'rawurl') };
+}
+
+function get(url, name) {
+  const res = http.get(url, params(name));
+  check(res, { 'page returned': (r) => r.status === 200 });
+  pageDuration.add(res.timings.duration);
+}
+
+export function offsetFirst() {
+  get(`${ORDERS}?page=0&size=${SIZE}&sort=createdAt,desc&sort=id,desc`, 'offset_first');
+}
+
+export function offsetDeep() {
+  get(`${ORDERS}?page=${DEEP_PAGE}&size=${SIZE}&sort=createdAt,desc&sort=id,desc`, 'offset_deep');
+}
+
+export function cursorFirst() {
+  get(`${ORDERS}/cursor?size=${SIZE}`, 'cursor_first');
+}
+
+export function cursorDeep(data) {
+  get(`${ORDERS}/cursor?size=${SIZE}&cursor=${data.deepCursor}`, 'cursor_deep');
+}
@@ -0,0 +1,111 @@
+import http from 'k6/http';
+import { check, fail } from 'k6';
+
+/**
+ * k6 Order Placement Benchmark — POST /api/v1/order-service/orders by cart size.
+ *
+ * Run once per cart size and compare:
+ *   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<jwt> -e LINES=1  k6/order-placement-test.js
+ *   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<jwt> -e LINES=10 k6/order-placement-test.js
+ *   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<jwt> -e LINES=50 k6/order-placement-test.js
+ *
+ * Notes:
+ * - setup() empties the user's cart and fills it with LINES products (quantity 1) taken
+ *   from the first page of the catalog; every iteration then places an order from it.
+ *   Each order reserves one unit per line, so give those products plenty of stock first
+ *   (POST /products/{id}/inventory/set), and run order-service with ORDER_CLEAR_CART=false
+ *   so the cart survives each order.
+ * - RATE (orders/s, default 5) for DURATION (default 1m).
+ * - teardown prints order_placement_* from order-service's /actuator/prometheus
+ *   (ORDER_SERVICE_URL, default http://localhost:8084): per-stage timings
+ *   (fetch_cart / reserve_stock / persist / clear_cart) and the end-to-end time.
+ */
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const ORDER_SERVICE_URL = __ENV.ORDER_SERVICE_URL || 'http://localhost:8084';
+const TOKEN = __ENV.TOKEN || '';
+const LINES = parseInt(__ENV.LINES || '10', 10);
+
+export const options = {
+  scenarios: {
+    place_orders: {
+      executor: 'constant-arrival-rate',
+      rate: parseInt(__ENV.RATE || '5', 10),
+      timeUnit: '1s',
+      duration: __ENV.DURATION || '1m',
+      preAllocatedVUs: 20,
+      maxVUs: 100,
+    },
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+  },
+  tags: { lines: String(LINES) },
+};
+
+function headers() {
+  const h = {
+    'Content-Type': 'application/json',
+    'User-Agent': 'k6-order-placement-test',
+  };
+  if (TOKEN) {
+    h['Authorization'] = `Bearer ${TOKEN}`;
+  }
+  return h;
+}
+
+export function setup() {
+  const params = { headers: headers() };
+  http.del(`${BASE_URL}/api/v1/shopping-cart-service/carts/clear`, null, params);
+
+  const cart = http.get(`${BASE_URL}/api/v1/shopping-cart-service/carts`, params);
+  const cartId = cart.json('data.cart_id');
+  if (!cartId) {
+    fail(`could not get a cart (status ${cart.status}); is TOKEN set?`);
+  }
+
+  const products = http.get(`${BASE_URL}/api/v1/product-catalog-service/products?page=0&size=${LINES}`, params);
+  const ids = (products.json('data.content') || []).map((p) => String(p.id));
+  if (ids.length < LINES) {
+    fail(`catalog returned ${ids.length} products, need ${LINES}`);
+  }
+
+  ids.forEach((id) => {
+    const res = http.post(`${BASE_URL}/api/v1/shopping-cart-service/cart-items`,
+      JSON.stringify({ product_id: id, quantity: 1 }), params);
+    if (res.status >= 300) {
+      fail(`adding product ${id} to the cart failed with ${res.status}`);
+    }
+  });
+  return { cartId };
+}
+
+export default function (data) {
+  const body = {
+    cartId: data.cartId,
+    orderType: 'STANDARD',
+    paymentMethod: 'CREDIT_CARD',
+    currency: 'USD',
+    shippingAddress: {
+      firstName: 'K6',
+      lastName: 'Bench',
+      streetAddress: '1 Load Test St',
+      city: 'Hanoi',
+      state: 'Hanoi',
+      postalCode: '100000',
+      country: 'VN',
+      phone: '+84987654321',
+    },
+  };
+  const res = http.post(`${BASE_URL}/api/v1/order-service/orders`, JSON.stringify(body), { headers: headers() });
+  check(res, {
+    'order created': (r) => r.status === 201,
+  });
+}
+
+export function teardown() {
+  const metrics = http.get(`${ORDER_SERVICE_URL}/actuator/prometheus`).body || '';
+  metrics.split('\n')
+    .filter((line) => line.startsWith('order_placement_'))
+    .forEach((line) => console.log(line));
+}
@@ -0,0 +1,81 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Trend } from 'k6/metrics';
+
+/**
+ * k6 Order History Benchmark — full order listing vs summary projection for one user.
+ *
+ *   psql -d order_service_db -v rows=1000000 -v users=10000 -f k6/sql/seed-orders.sql
+ *   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<admin jwt> k6/order-summary-test.js
+ *
+ * Two scenarios run one after another, reading the first page of USER_ID's orders:
+ *   full     GET /orders/user/{USER_ID}/cursor   (OrderResponse: addresses, money blocks, items)
+ *   summary  GET /orders/user/{USER_ID}/summary  (number, status, total, line count, date)
+ *
+ * Notes:
+ * - USER_ID (default bench-user-1; the seed gives each user rows/users orders), SIZE (default 20),
+ *   RATE (req/s, default 20) and DURATION per scenario (default 30s).
+ * - page_bytes is the uncompressed JSON body size; page_duration the request time. Both are
+ *   tagged with the scenario name.
+ * - Send Accept-Encoding: identity (the default here) so the gateway does not compress and the
+ *   byte counts stay comparable.
+ */
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const TOKEN = __ENV.TOKEN || '';
+const USER_ID = __ENV.USER_ID || 'bench-user-1';
+const SIZE = parseInt(__ENV.SIZE || '20', 10);
+const RATE = parseInt(__ENV.RATE || '20', 10);
+const DURATION = __ENV.DURATION || '30s';
+const USER_ORDERS = `${BASE_URL}/api/v1/order-service/orders/user/${USER_ID}`;
+
+const pageDuration = new Trend('page_duration', true);
+const pageBytes = new Trend('page_bytes');
+
+function scenario(exec, startTime) {
+  return {
+    executor: 'constant-arrival-rate',
+    exec,
+    rate: RATE,
+    timeUnit: '1s',
+    duration: DURATION,
+    startTime,
+    preAllocatedVUs: 10,
+    maxVUs: 50,
+  };
+}
+
+export const options = {
+  scenarios: {
+    full: scenario('full', '0s'),
+    summary: scenario('summary', `${parseInt(DURATION, 10) + 5}s`),
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+  },
+};
+
+function get(url) {
+  const headers = {
+    'User-Agent': 'k6-order-summary-test',
+    'Accept-Encoding': 'identity',
+  };
+  if (TOKEN) {
+    headers['Authorization'] = `Bearer ${TOKEN}`;
+  }
+  const res = http.get(url, { headers });
+  check(res, {
+    'page returned': (r) => r.status === 200,
+    'page not empty': (r) => r.status === 200 && r.json('content').length > 0,
+  });
+  pageDuration.add(res.timings.duration);
+  pageBytes.add(res.body ? res.body.length : 0);
+}
+
+export function full() {
+  get(`${USER_ORDERS}/cursor?size=${SIZE}`);
+}
+
+export function summary() {
+  get(`${USER_ORDERS}/summary?size=${SIZE}`);
+}
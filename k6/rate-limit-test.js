@@ -0,0 +1,68 @@
+import http from 'k6/http';
+import { check } from 'k6';
+
+/**
+ * k6 Rate Limit Benchmark — compares GlobalRateLimitFilter latency across modes.
+ *
+ * Run once per mode (restart the gateway in between):
+ *   RATE_LIMIT_MODE=local  → k6 run -e BASE_URL=http://localhost:8080 -e MODE=local k6/rate-limit-test.js
+ *   RATE_LIMIT_MODE=redis  → k6 run -e BASE_URL=http://localhost:8080 -e MODE=redis k6/rate-limit-test.js
+ *
+ * Notes:
+ * - Each VU iteration picks a client IP out of CLIENTS via X-Forwarded-For, so the
+ *   gateway sees many distinct buckets plus a few hot ones (HOT_RATIO).
+ * - End-to-end latency includes the catalog call; the filter-only p99 comes from
+ *   the gateway metric gateway_ratelimit_check_seconds{mode="...",quantile="0.99"}
+ *   on /actuator/prometheus, scraped at the end of each run.
+ */
+
+const RATE = parseInt(__ENV.RATE || '500', 10);
+const CLIENTS = parseInt(__ENV.CLIENTS || '5000', 10);
+const HOT_RATIO = parseFloat(__ENV.HOT_RATIO || '0.8');
+
+export const options = {
+  scenarios: {
+    rate_limit: {
+      executor: 'constant-arrival-rate',
+      rate: RATE,
+      timeUnit: '1s',
+      duration: '1m',
+      preAllocatedVUs: 50,
+      maxVUs: 200,
+    },
+  },
+  thresholds: {
+    http_req_duration: ['p(99)<500'],
+  },
+  tags: { mode: __ENV.MODE || 'unknown' },
+};
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+
+function clientIp() {
+  // 80% of traffic from 10 hot clients, the rest spread across CLIENTS
+  const id = Math.random() < HOT_RATIO
+    ? Math.floor(Math.random() * 10)
+    : Math.floor(Math.random() * CLIENTS);
+  return `10.${(id >> 16) & 255}.${(id >> 8) & 255}.${id & 255}`;
+}
+
+export default function () {
+  const res = http.get(`${BASE_URL}/api/v1/product-catalog-service/products`, {
+    headers: {
+      'X-Forwarded-For': clientIp(),
+      'User-Agent': 'k6-rate-limit-test',
+    },
+  });
+
+  check(res, {
+    'status is 200 or 429': (r) => r.status === 200 || r.status === 429,
+  });
+}
+
+export function teardown() {
+  const metrics = http.get(`${BASE_URL}/actuator/prometheus`).body || '';
+  metrics.split('\n')
+    .filter((line) => line.startsWith('gateway_ratelimit_check_seconds'))
+    .forEach((line) => console.log(line));
+}
@@ -0,0 +1,70 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter } from 'k6/metrics';
+
+/**
+ * k6 Rejection Throughput Benchmark — how many 429s per second the gateway can write.
+ *
+ * Start the gateway on a single core with a tiny per-IP bucket, so nearly every
+ * request is rejected by GlobalRateLimitFilter:
+ *   RATE_LIMIT_MODE=local RATE_LIMIT_IP_CAPACITY=5 RATE_LIMIT_IP_REFILL=5 \
+ *   JAVA_TOOL_OPTIONS="-XX:ActiveProcessorCount=1"   (or docker run --cpus=1 ...)
+ *
+ *   k6 run -e BASE_URL=http://localhost:8080 k6/rejection-test.js
+ *
+ * Notes:
+ * - All traffic uses one X-Forwarded-For IP, so the bucket stays empty.
+ * - The arrival rate ramps until the gateway saturates; the sustained rejects/s and
+ *   the latency of rejected requests are the numbers to compare before/after.
+ */
+
+const START_RATE = parseInt(__ENV.START_RATE || '1000', 10);
+const PEAK_RATE = parseInt(__ENV.PEAK_RATE || '20000', 10);
+const CLIENT_IP = __ENV.CLIENT_IP || '10.66.0.1';
+
+const rejected = new Counter('rejected_requests');
+
+export const options = {
+  scenarios: {
+    rejections: {
+      executor: 'ramping-arrival-rate',
+      startRate: START_RATE,
+      timeUnit: '1s',
+      preAllocatedVUs: 200,
+      maxVUs: 2000,
+      stages: [
+        { target: PEAK_RATE, duration: '1m' },
+        { target: PEAK_RATE, duration: '1m' },
+      ],
+    },
+  },
+  thresholds: {
+    'http_req_duration{status:429}': ['p(99)<50'],
+  },
+};
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+
+export default function () {
+  const res = http.get(`${BASE_URL}/api/v1/product-catalog-service/products`, {
+    headers: {
+      'X-Forwarded-For': CLIENT_IP,
+      'User-Agent': 'k6-rejection-test',
+    },
+  });
+
+  if (res.status === 429) {
+    rejected.add(1);
+  }
+  check(res, {
+    'status is 429': (r) => r.status === 429,
+    'body is an error response': (r) => r.status !== 429 || r.json('code') === 'RATE_LIMIT_EXCEEDED',
+  });
+}
+
+export function teardown() {
+  const metrics = http.get(`${BASE_URL}/actuator/prometheus`).body || '';
+  metrics.split('\n')
+    .filter((line) => line.startsWith('process_cpu_usage') || line.startsWith('jvm_gc_memory_allocated_bytes_total'))
+    .forEach((line) => console.log(line));
+}
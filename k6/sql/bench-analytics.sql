@@ -0,0 +1,106 @@
+-- Order analytics: raw-table reports (before V9) against the daily rollups they now read.
+-- Seed first, let OrderRollupJob backfill (log line "Rebuilt order rollups for N day(s)", metric
+-- order.rollup.refresh), then:
+--
+--   psql -d order_service_db -v rows=10000000 -v users=100000 -f k6/sql/seed-orders.sql
+--   psql -d order_service_db -v days=30 -f k6/sql/bench-analytics.sql
+--
+-- days  report window ending today (default 30; try 365 for the worst case)
+-- Each report runs twice with EXPLAIN (ANALYZE, BUFFERS); compare Execution Time and shared
+-- buffers of the raw query against the rollup query.
+
+\if :{?days}
+\else
+  \set days 30
+\endif
+
+\set from 'CURRENT_DATE - ' :days
+\timing on
+
+SELECT count(*) AS orders, min(created_at) AS oldest, max(created_at) AS newest FROM orders;
+SELECT name, watermark, refreshed_at FROM order_rollup_watermarks;
+
+\echo '== getOrderCountByStatus: raw'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT status, count(*) FROM orders
+WHERE deleted_at IS NULL AND created_at >= :from AND created_at < CURRENT_DATE + 1
+GROUP BY status;
+
+\echo '== getOrderCountByStatus: rollup'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT status, sum(order_count) FROM order_daily_status_stats
+WHERE order_date BETWEEN :from AND CURRENT_DATE
+GROUP BY status;
+
+\echo '== getDailyOrderCounts: raw'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT CAST(created_at AS DATE), count(*) FROM orders
+WHERE deleted_at IS NULL AND created_at >= :from AND created_at < CURRENT_DATE + 1
+GROUP BY 1 ORDER BY 1;
+
+\echo '== getDailyOrderCounts: rollup'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT order_date, sum(order_count) FROM order_daily_status_stats
+WHERE order_date BETWEEN :from AND CURRENT_DATE
+GROUP BY order_date ORDER BY order_date;
+
+\echo '== findTopCustomersByRevenue: raw'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT user_id, sum(total_amount), count(*) FROM orders
+WHERE deleted_at IS NULL AND created_at >= :from AND created_at < CURRENT_DATE + 1
+GROUP BY user_id ORDER BY sum(total_amount) DESC LIMIT 10;
+
+\echo '== findTopCustomersByRevenue: rollup'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT user_id, sum(total_amount), sum(order_count) FROM order_daily_customer_stats
+WHERE order_date BETWEEN :from AND CURRENT_DATE
+GROUP BY user_id ORDER BY sum(total_amount) DESC LIMIT 10;
+
+\echo '== findTopSellingProductsByRevenue: raw'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT product_id, product_name, sku, sum(total_price), sum(quantity), count(DISTINCT order_id)
+FROM order_items
+WHERE deleted_at IS NULL AND created_at >= :from AND created_at < CURRENT_DATE + 1
+GROUP BY product_id, product_name, sku ORDER BY sum(total_price) DESC LIMIT 10;
+
+\echo '== findTopSellingProductsByRevenue: rollup'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT product_id, product_name, sku, sum(revenue), sum(quantity), sum(order_count)
+FROM order_daily_product_stats
+WHERE order_date BETWEEN :from AND CURRENT_DATE
+GROUP BY product_id, product_name, sku ORDER BY sum(revenue) DESC LIMIT 10;
+
+\echo '== findCategoryPerformance: raw'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT product_category, count(DISTINCT order_id), sum(quantity), sum(total_price), avg(total_price)
+FROM order_items
+WHERE deleted_at IS NULL AND created_at >= :from AND created_at < CURRENT_DATE + 1
+  AND product_category IS NOT NULL
+GROUP BY product_category ORDER BY sum(total_price) DESC;
+
+\echo '== findCategoryPerformance: rollup'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT dimension_value, sum(order_count), sum(quantity), sum(revenue), sum(revenue) / sum(item_count)
+FROM order_daily_dimension_stats
+WHERE dimension = 'CATEGORY' AND order_date BETWEEN :from AND CURRENT_DATE
+GROUP BY dimension_value ORDER BY sum(revenue) DESC;
+
+\echo '== findBrandPerformance: raw'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT product_brand, count(DISTINCT order_id), sum(quantity), sum(total_price), avg(total_price)
+FROM order_items
+WHERE deleted_at IS NULL AND created_at >= :from AND created_at < CURRENT_DATE + 1
+  AND product_brand IS NOT NULL
+GROUP BY product_brand ORDER BY sum(total_price) DESC;
+
+\echo '== findBrandPerformance: rollup'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT dimension_value, sum(order_count), sum(quantity), sum(revenue), sum(revenue) / sum(item_count)
+FROM order_daily_dimension_stats
+WHERE dimension = 'BRAND' AND order_date BETWEEN :from AND CURRENT_DATE
+GROUP BY dimension_value ORDER BY sum(revenue) DESC;
+
+SELECT 'order_daily_status_stats' AS rollup, count(*) FROM order_daily_status_stats
+UNION ALL SELECT 'order_daily_customer_stats', count(*) FROM order_daily_customer_stats
+UNION ALL SELECT 'order_daily_product_stats', count(*) FROM order_daily_product_stats
+UNION ALL SELECT 'order_daily_dimension_stats', count(*) FROM order_daily_dimension_stats;
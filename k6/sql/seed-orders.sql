@@ -0,0 +1,63 @@
+-- Synthetic orders for the order-service benchmarks (pagination, listing, analytics).
+-- Run against order_service_db; never against a database with real orders.
+--
+--   psql -d order_service_db -v rows=1000000 -v users=10000 -v items=3 -f k6/sql/seed-orders.sql
+--
+-- rows   orders to insert (default 1,000,000)
+-- users  distinct user ids; user_id is 'bench-user-<n>' (default 10,000)
+-- items  order_items per order (default 3)
+-- Orders are spread over the last 365 days with a mix of statuses. Delete them again with
+--   DELETE FROM order_items WHERE order_id IN (SELECT id FROM orders WHERE order_number LIKE 'BENCH-%');
+--   DELETE FROM orders WHERE order_number LIKE 'BENCH-%';
+
+\if :{?rows}
+\else
+  \set rows 1000000
+\endif
+\if :{?users}
+\else
+  \set users 10000
+\endif
+\if :{?items}
+\else
+  \set items 3
+\endif
+
+BEGIN;
+
+INSERT INTO orders (order_number, user_id, status, order_type,
+                    total_amount, currency, subtotal_amount, subtotal_currency,
+                    shipping_first_name, shipping_last_name, shipping_street_address,
+                    shipping_city, shipping_country,
+                    created_at, updated_at)
+SELECT 'BENCH-' || lpad(g::text, 10, '0'),
+       'bench-user-' || (g % :users),
+       (ARRAY['PENDING', 'CONFIRMED', 'PAID', 'PROCESSING', 'SHIPPED', 'DELIVERED', 'CANCELLED', 'FAILED'])[1 + g % 8],
+       'STANDARD',
+       round((10 + random() * 490)::numeric, 2), 'USD',
+       round((10 + random() * 490)::numeric, 2), 'USD',
+       'Bench', 'User', '1 Benchmark St', 'Hanoi', 'VN',
+       ts, ts
+FROM generate_series(1, :rows) AS g,
+     LATERAL (SELECT now() - (random() * interval '365 days') AS ts) t;
+
+INSERT INTO order_items (order_id, product_id, sku, product_name, product_category, product_brand,
+                         quantity, unit_price, unit_price_currency, total_price, total_price_currency,
+                         created_at, updated_at)
+SELECT o.id,
+       (1 + (o.id * 7 + i) % 500)::text,
+       'BENCH-SKU-' || (1 + (o.id * 7 + i) % 500),
+       'Benchmark product ' || (1 + (o.id * 7 + i) % 500),
+       'Category ' || (1 + (o.id + i) % 20),
+       'Brand ' || (1 + (o.id + i) % 50),
+       q, 19.99, 'USD', 19.99 * q, 'USD',
+       o.created_at, o.created_at
+FROM orders o
+CROSS JOIN generate_series(1, :items) AS i
+CROSS JOIN LATERAL (SELECT 1 + (o.id + i) % 3 AS q) qty
+WHERE o.order_number LIKE 'BENCH-%';
+
+COMMIT;
+
+ANALYZE orders;
+ANALYZE order_items;
@@ -0,0 +1,72 @@
+import http from 'k6/http';
+import { check, sleep } from 'k6';
+
+/**
+ * k6 Upstream Pool Benchmark — connection churn between the gateway and catalog.
+ *
+ * Run twice and compare (restart the gateway in between):
+ *   UPSTREAM_POOL_ENABLED=false → k6 run -e BASE_URL=http://localhost:8080 -e PROFILE=default k6/upstream-pool-test.js
+ *   UPSTREAM_POOL_ENABLED=true  → k6 run -e BASE_URL=http://localhost:8080 -e PROFILE=pooled  k6/upstream-pool-test.js
+ *
+ * Notes:
+ * - Bursts of high concurrency separated by idle gaps longer than the pool's
+ *   max-idle-time: with an elastic pool every burst opens a fresh set of
+ *   connections and closes them afterwards.
+ * - Watch TIME_WAIT sockets on the gateway host while it runs:
+ *     watch -n1 "ss -tan state time-wait '( dport = :8081 )' | wc -l"
+ *   (8081 = product-catalog-service port; adjust to the upstream port).
+ * - teardown prints the reactor_netty_connection_provider_* gauges for the
+ *   gateway-upstream pool (total / active / idle / pending connections).
+ * - RESPONSE_CACHE_ENABLED=false and REQUEST_COALESCING_ENABLED=false keep every
+ *   request going upstream.
+ */
+
+const BURST_VUS = parseInt(__ENV.BURST_VUS || '400', 10);
+const IDLE_GAP = __ENV.IDLE_GAP || '25s';
+
+function burst(startTime) {
+  return {
+    executor: 'constant-vus',
+    vus: BURST_VUS,
+    duration: '20s',
+    startTime,
+  };
+}
+
+export const options = {
+  scenarios: {
+    burst1: burst('0s'),
+    burst2: burst(`${20 + parseInt(IDLE_GAP, 10)}s`),
+    burst3: burst(`${2 * (20 + parseInt(IDLE_GAP, 10))}s`),
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+    http_req_duration: ['p(99)<1000'],
+  },
+  tags: { profile: __ENV.PROFILE || 'unknown' },
+};
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+
+export default function () {
+  const id = 1 + Math.floor(Math.random() * 50);
+  const res = http.get(`${BASE_URL}/api/v1/product-catalog-service/products/${id}`, {
+    headers: {
+      // Spread across IP buckets so the rate limiter stays out of the way
+      'X-Forwarded-For': `10.77.${Math.floor(Math.random() * 255)}.${Math.floor(Math.random() * 255)}`,
+      'User-Agent': 'k6-upstream-pool-test',
+    },
+  });
+
+  check(res, {
+    'status is 200 or 404': (r) => r.status === 200 || r.status === 404,
+  });
+  sleep(0.05);
+}
+
+export function teardown() {
+  const metrics = http.get(`${BASE_URL}/actuator/prometheus`).body || '';
+  metrics.split('\n')
+    .filter((line) => line.startsWith('reactor_netty_connection_provider_'))
+    .forEach((line) => console.log(line));
+}
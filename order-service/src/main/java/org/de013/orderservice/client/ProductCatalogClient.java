@@ -2,9 +2,12 @@ package org.de013.orderservice.client;
 
 import org.de013.common.dto.ApiResponse;
 import org.de013.orderservice.config.FeignConfig;
+import org.de013.orderservice.dto.StockReservationRequest;
+import org.de013.orderservice.dto.StockReservationResult;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 /**
@@ -21,4 +24,31 @@ public interface ProductCatalogClient {
             @PathVariable("id") String id,
             @RequestParam("quantity") Integer quantity
     );
+
+    /**
+     * Give back inventory deducted by {@link #removeStock}
+     */
+    @PostMapping("/products/{id}/inventory/add")
+    ApiResponse<Object> addStock(
+            @PathVariable("id") String id,
+            @RequestParam("quantity") Integer quantity
+    );
+
+    /**
+     * Reserve stock for all lines in one transaction, all or nothing
+     */
+    @PostMapping("/inventory/reservations")
+    ApiResponse<StockReservationResult> reserveStock(@RequestBody StockReservationRequest request);
+
+    /**
+     * Release a reservation made by {@link #reserveStock(StockReservationRequest)}
+     */
+    @PostMapping("/inventory/reservations/release")
+    ApiResponse<StockReservationResult> releaseReservedStock(@RequestBody StockReservationRequest request);
+
+    /**
+     * Take the stock held by a reservation out of the inventory once its order is placed
+     */
+    @PostMapping("/inventory/reservations/fulfill")
+    ApiResponse<StockReservationResult> fulfillReservedStock(@RequestBody StockReservationRequest request);
 }
@@ -0,0 +1,27 @@
+package org.de013.orderservice.client;
+
+import org.de013.common.dto.ApiResponse;
+import org.de013.orderservice.config.FeignConfig;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * Feign client for cart-level operations of Shopping Cart Service
+ */
+@FeignClient(name = "shopping-cart-service", contextId = "shoppingCartClient", path = "/carts",
+        configuration = FeignConfig.class)
+public interface ShoppingCartClient {
+
+    /**
+     * Remove all items from the user's cart. The user headers are passed explicitly because
+     * the saga recovery sweeper calls this outside any incoming request.
+     */
+    @DeleteMapping("/clear")
+    ApiResponse<Object> clearCart(
+            @RequestParam("userId") String userId,
+            @RequestHeader("X-User-Id") String userIdHeader,
+            @RequestHeader("X-User-Username") String username
+    );
+}
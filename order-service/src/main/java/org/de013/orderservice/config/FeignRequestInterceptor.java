@@ -26,7 +26,8 @@ public class FeignRequestInterceptor implements RequestInterceptor {
             HttpServletRequest request = attributes.getRequest();
             for (String headerName : HEADERS_TO_FORWARD) {
                 String headerValue = request.getHeader(headerName);
-                if (headerValue != null) {
+                // Headers set explicitly on the call win over the incoming request's
+                if (headerValue != null && !template.headers().containsKey(headerName)) {
                     template.header(headerName, headerValue);
                 }
             }
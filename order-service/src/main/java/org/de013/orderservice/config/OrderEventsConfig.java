@@ -0,0 +1,18 @@
+package org.de013.orderservice.config;
+
+import org.springframework.amqp.core.ExchangeBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * RabbitMQ topology owned by Order Service; consumers bind their own queues to the exchange
+ */
+@Configuration
+public class OrderEventsConfig {
+
+    @Bean
+    public TopicExchange orderEventsExchange(OutboxProperties properties) {
+        return ExchangeBuilder.topicExchange(properties.getExchange()).durable(true).build();
+    }
+}
@@ -0,0 +1,73 @@
+package org.de013.orderservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for the order placement saga
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.placement")
+public class OrderPlacementProperties {
+
+    /**
+     * Clear the user's cart once the order is written
+     */
+    private boolean clearCart = true;
+
+    private Recovery recovery = new Recovery();
+
+    private Idempotency idempotency = new Idempotency();
+
+    @Data
+    public static class Recovery {
+
+        /**
+         * Run the sweeper that compensates or completes stuck sagas
+         */
+        private boolean enabled = true;
+
+        /**
+         * Delay between sweeps
+         */
+        private long intervalMillis = 30000;
+
+        /**
+         * A saga that has not moved for this long is considered stuck; keep it well above
+         * the Feign read timeout so an in-flight reservation has finished
+         */
+        private long stuckAfterSeconds = 60;
+
+        /**
+         * Sagas recovered per sweep
+         */
+        private int batchSize = 50;
+
+        /**
+         * Recovery attempts before a saga is marked FAILED for manual attention
+         */
+        private int maxAttempts = 10;
+    }
+
+    @Data
+    public static class Idempotency {
+
+        /**
+         * How long a completed Idempotency-Key keeps replaying its order
+         */
+        private long keyTtlHours = 24;
+
+        /**
+         * Lease of a request placing an order under a key; keep it above the longest placement
+         * so a slow request is never taken over, only one that died
+         */
+        private long inProgressTimeoutSeconds = 120;
+
+        /**
+         * Delay between purges of expired keys
+         */
+        private long purgeIntervalMillis = 3600000;
+    }
+}
@@ -0,0 +1,30 @@
+package org.de013.orderservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for the daily order analytics rollups
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.rollup")
+public class OrderRollupProperties {
+
+    /**
+     * Refresh the rollups from this instance; instances take turns through the watermark lock
+     */
+    private boolean enabled = true;
+
+    /**
+     * Delay between refreshes, and before the first one; bounds how stale the analytics are
+     */
+    private long intervalMillis = 60000;
+
+    /**
+     * Changes newer than this are left for the next refresh, so a transaction that stamped
+     * updated_at but has not committed yet is not skipped by the watermark
+     */
+    private long settleSeconds = 60;
+}
@@ -0,0 +1,75 @@
+package org.de013.orderservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for the order event outbox and its RabbitMQ relay
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.outbox")
+public class OutboxProperties {
+
+    /**
+     * Topic exchange order events are published to
+     */
+    private String exchange = "order.events";
+
+    private Relay relay = new Relay();
+    private Retention retention = new Retention();
+
+    @Data
+    public static class Relay {
+
+        /**
+         * Publish pending events from this instance; events are still written when disabled
+         */
+        private boolean enabled = true;
+
+        /**
+         * Delay between relay runs
+         */
+        private long intervalMillis = 1000;
+
+        /**
+         * Events locked, published and confirmed together
+         */
+        private int batchSize = 100;
+
+        /**
+         * Full batches drained per run before yielding to the next run
+         */
+        private int maxBatchesPerRun = 10;
+
+        /**
+         * How long to wait for the broker to confirm a batch
+         */
+        private long confirmTimeoutMillis = 5000;
+
+        /**
+         * Failed attempts before an event is parked and no longer holds up the events behind it
+         */
+        private int maxAttempts = 10;
+    }
+
+    @Data
+    public static class Retention {
+
+        /**
+         * Days published events are kept; replay cannot reach further back than this
+         */
+        private int publishedRetentionDays = 7;
+
+        /**
+         * Delay between purges of published events
+         */
+        private long purgeIntervalMillis = 3600000;
+
+        /**
+         * Events deleted per statement, so a purge never holds long locks
+         */
+        private int purgeBatchSize = 1000;
+    }
+}
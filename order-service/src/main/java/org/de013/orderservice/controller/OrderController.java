@@ -7,8 +7,12 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
@@ -17,8 +21,11 @@ import org.de013.common.security.UserContextHolder;
 import org.de013.orderservice.dto.request.CancelOrderRequest;
 import org.de013.orderservice.dto.request.CreateOrderRequest;
 import org.de013.orderservice.dto.request.UpdateOrderRequest;
+import org.de013.orderservice.dto.response.CursorPage;
 import org.de013.orderservice.dto.response.OrderResponse;
+import org.de013.orderservice.dto.response.OrderSummaryResponse;
 import org.de013.orderservice.service.OrderService;
+import org.de013.orderservice.service.idempotency.OrderIdempotency;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
@@ -36,25 +43,35 @@ import org.springframework.security.access.prepost.PreAuthorize;
 @Tag(name = "Order Management", description = "APIs for order management including creation, retrieval, updates, and cancellation")
 public class OrderController {
 
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final OrderService orderService;
+    private final OrderIdempotency orderIdempotency;
 
     /**
      * Create a new order
      */
-    @Operation(summary = "Create order (Authenticated)", description = "Create a new order from shopping cart. Converts cart items to order items and initializes order with PENDING status. Authorization handled by API Gateway.")
+    @Operation(summary = "Create order (Authenticated)", description = "Create a new order from shopping cart. Converts cart items to order items and initializes order with PENDING status. "
+            + "Send an Idempotency-Key header to make retries safe: a retry with the same key and body returns the first order (with Idempotent-Replayed: true) instead of placing another. Authorization handled by API Gateway.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Order created successfully",
                     content = @Content(schema = @Schema(implementation = OrderResponse.class))),
             @ApiResponse(responseCode = "400", description = "Invalid request data or empty cart"),
             @ApiResponse(responseCode = "401", description = "Authentication required"),
             @ApiResponse(responseCode = "404", description = "Cart not found"),
+            @ApiResponse(responseCode = "409", description = "An order with the same Idempotency-Key is still being placed"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key already used with a different request"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public OrderResponse createOrder(
             @Parameter(description = "Order creation request", required = true)
-            @Valid @RequestBody CreateOrderRequest request) {
+            @Valid @RequestBody CreateOrderRequest request,
+            @Parameter(description = "Client-generated key (e.g. a UUID) identifying this order attempt across retries")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) @Size(min = 1, max = 255) String idempotencyKey,
+            HttpServletResponse httpResponse) {
         UserContext userContext = UserContextHolder.getCurrentUser();
         if (userContext != null && userContext.getUserId() != null) {
             log.info("Overriding request userId with Keycloak authenticated userId: {}", userContext.getUserId());
@@ -62,7 +79,15 @@ public class OrderController {
         } else {
             throw new IllegalArgumentException("User context is missing");
         }
-        return orderService.createOrder(request);
+        if (idempotencyKey == null) {
+            return orderService.createOrder(request);
+        }
+        OrderIdempotency.Result result = orderIdempotency.execute(userContext.getUserId(), idempotencyKey, request,
+                orderNumber -> orderService.createOrder(request, orderNumber));
+        if (result.replayed()) {
+            httpResponse.setHeader(IDEMPOTENT_REPLAYED_HEADER, "true");
+        }
+        return result.response();
     }
 
     /**
@@ -140,6 +165,123 @@ public class OrderController {
         return orderService.listAllOrders(pageable);
     }
 
+    /**
+     * Get current user's orders by cursor
+     */
+    @Operation(summary = "Get my orders by cursor (Authenticated)", description = "Keyset-paginated list of the authenticated user's orders, newest first. "
+            + "Pass nextCursor from the previous page as cursor; every page costs the same however deep it is. The total is only counted with includeTotal=true. Authorization handled by API Gateway.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or size"),
+            @ApiResponse(responseCode = "401", description = "Authentication required"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/my-orders/cursor")
+    public CursorPage<OrderResponse> scrollMyOrders(
+            @Parameter(description = "nextCursor of the previous page; omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (1-100)", example = "20")
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+            @Parameter(description = "Also count all matching orders")
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        UserContext userContext = UserContextHolder.requireAuthenticated();
+        log.debug("User {} scrolling their orders", userContext.getUsername());
+        return orderService.scrollOrdersByUser(userContext.getUserId(), cursor, size, includeTotal);
+    }
+
+    /**
+     * Get current user's order history summaries
+     */
+    @Operation(summary = "Get my order summaries (Authenticated)", description = "Order history rows of the authenticated user, newest first: number, status, total, line count and date only. "
+            + "Much lighter than the full order listing; fetch an order by ID for its details. Cursor-paginated like /my-orders/cursor. Authorization handled by API Gateway.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Order summaries retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or size"),
+            @ApiResponse(responseCode = "401", description = "Authentication required"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/my-orders/summary")
+    public CursorPage<OrderSummaryResponse> getMyOrderSummaries(
+            @Parameter(description = "nextCursor of the previous page; omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (1-100)", example = "20")
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size) {
+        UserContext userContext = UserContextHolder.requireAuthenticated();
+        log.debug("User {} requesting their order summaries", userContext.getUsername());
+        return orderService.scrollOrderSummariesByUser(userContext.getUserId(), cursor, size);
+    }
+
+    /**
+     * Get order history summaries of a user (admin only)
+     */
+    @Operation(summary = "Get user order summaries (Admin/Owner)", description = "Order history rows of a user, newest first, as returned by /my-orders/summary. Authorization handled by API Gateway.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Order summaries retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or size"),
+            @ApiResponse(responseCode = "401", description = "Authentication required"),
+            @ApiResponse(responseCode = "403", description = "Access denied - admin required"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/user/{userId}/summary")
+    public CursorPage<OrderSummaryResponse> getUserOrderSummaries(
+            @Parameter(description = "User ID", required = true, example = "1")
+            @PathVariable String userId,
+            @Parameter(description = "nextCursor of the previous page; omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (1-100)", example = "20")
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size) {
+        log.debug("Getting order summaries for user {}", userId);
+        return orderService.scrollOrderSummariesByUser(userId, cursor, size);
+    }
+
+    /**
+     * Get orders by user ID by cursor (admin only)
+     */
+    @Operation(summary = "Get user orders by cursor (Admin/Owner)", description = "Keyset-paginated list of a user's orders, newest first. Authorization handled by API Gateway.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or size"),
+            @ApiResponse(responseCode = "401", description = "Authentication required"),
+            @ApiResponse(responseCode = "403", description = "Access denied - admin required"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/user/{userId}/cursor")
+    public CursorPage<OrderResponse> scrollUserOrders(
+            @Parameter(description = "User ID", required = true, example = "1")
+            @PathVariable String userId,
+            @Parameter(description = "nextCursor of the previous page; omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (1-100)", example = "20")
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+            @Parameter(description = "Also count all matching orders")
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        log.debug("Scrolling orders for user {}", userId);
+        return orderService.scrollOrdersByUser(userId, cursor, size, includeTotal);
+    }
+
+    /**
+     * Get all orders by cursor (admin only)
+     */
+    @Operation(summary = "Get all orders by cursor (Admin Only)", description = "Keyset-paginated list of all orders, newest first. Use this instead of deep page numbers on large tables. Authorization handled by API Gateway.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or size"),
+            @ApiResponse(responseCode = "401", description = "Authentication required"),
+            @ApiResponse(responseCode = "403", description = "Access denied - admin required"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/cursor")
+    public CursorPage<OrderResponse> scrollAllOrders(
+            @Parameter(description = "nextCursor of the previous page; omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (1-100)", example = "20")
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+            @Parameter(description = "Also count all orders")
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        log.debug("Admin scrolling all orders");
+        return orderService.scrollAllOrders(cursor, size, includeTotal);
+    }
+
     /**
      * Get order by order number
      */
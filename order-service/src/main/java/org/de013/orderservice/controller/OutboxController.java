@@ -0,0 +1,63 @@
+package org.de013.orderservice.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.orderservice.dto.response.OutboxReplayResponse;
+import org.de013.orderservice.dto.response.OutboxStatusResponse;
+import org.de013.orderservice.service.outbox.OrderOutbox;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+/**
+ * Operations on the order event outbox
+ */
+@RestController
+@RequestMapping("/outbox")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Order Event Outbox", description = "Backlog and replay of order events published to RabbitMQ")
+public class OutboxController {
+
+    private final OrderOutbox orderOutbox;
+
+    @Operation(summary = "Get outbox status (Admin Only)", description = "Number of order events not yet published, the age of the oldest one and how many were parked after repeated failures. Authorization handled by API Gateway.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Status retrieved successfully"),
+            @ApiResponse(responseCode = "401", description = "Authentication required"),
+            @ApiResponse(responseCode = "403", description = "Access denied - admin required")
+    })
+    @GetMapping
+    public OutboxStatusResponse getStatus() {
+        return orderOutbox.status();
+    }
+
+    @Operation(summary = "Replay order events (Admin Only)", description = "Publish order events created in [from, to) again and retry parked ones, optionally for one order only. Events keep their message ids; published events are only kept for the outbox retention window. Authorization handled by API Gateway.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Events requeued for publishing"),
+            @ApiResponse(responseCode = "400", description = "Invalid time window"),
+            @ApiResponse(responseCode = "401", description = "Authentication required"),
+            @ApiResponse(responseCode = "403", description = "Access denied - admin required")
+    })
+    @PostMapping("/replay")
+    public OutboxReplayResponse replay(
+            @Parameter(description = "Start of the window (inclusive), ISO date-time", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the window (exclusive), ISO date-time", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Only replay events of this order")
+            @RequestParam(required = false) Long orderId) {
+        log.info("Replaying order events created in [{}, {}) for order {}", from, to, orderId);
+        return orderOutbox.replay(from, to, orderId);
+    }
+}
@@ -0,0 +1,31 @@
+package org.de013.orderservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk reservation; when {@code reserved} is false nothing was reserved
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationResult {
+
+    private boolean reserved;
+
+    private int products;
+
+    private List<Shortage> shortages;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Shortage {
+        private Long productId;
+        private Integer requested;
+        private Integer available;
+    }
+}
@@ -0,0 +1,40 @@
+package org.de013.orderservice.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.de013.orderservice.entity.enums.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Order Summary Response DTO
+ * <p>
+ * One row of a user's order history: just what the list shows. Built directly by a JPQL
+ * constructor expression, so neither the order entity nor its items are loaded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderSummaryResponse {
+
+    private Long id;
+
+    private String orderNumber;
+
+    private OrderStatus status;
+
+    private BigDecimal totalAmount;
+
+    private String currency;
+
+    /**
+     * Number of order lines
+     */
+    private Long itemCount;
+
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,26 @@
+package org.de013.orderservice.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Result of requeuing published order events for another delivery
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxReplayResponse {
+
+    private LocalDateTime from;
+
+    private LocalDateTime to;
+
+    private Long orderId;
+
+    private int requeued;
+}
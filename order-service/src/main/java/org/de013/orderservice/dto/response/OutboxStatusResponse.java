@@ -0,0 +1,29 @@
+package org.de013.orderservice.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Order event outbox backlog, as seen by the relay
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxStatusResponse {
+
+    private long pending;
+
+    private LocalDateTime oldestPendingAt;
+
+    private long lagSeconds;
+
+    /**
+     * Events the relay gave up on; a replay covering them publishes them again
+     */
+    private long parked;
+}
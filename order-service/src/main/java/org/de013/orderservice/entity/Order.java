@@ -35,9 +35,12 @@ import java.util.List;
         @Index(name = "idx_order_type", columnList = "orderType"),
         @Index(name = "idx_created_at", columnList = "createdAt"),
         @Index(name = "idx_user_status", columnList = "userId, status"),
-        @Index(name = "idx_status_created", columnList = "status, createdAt")
+        @Index(name = "idx_status_created", columnList = "status, createdAt"),
+        @Index(name = "idx_orders_user_summary", columnList = "userId, createdAt DESC, id DESC"),
+        @Index(name = "idx_orders_created_id", columnList = "createdAt DESC, id DESC"),
+        @Index(name = "idx_orders_updated_at", columnList = "updatedAt")
 })
-@SQLDelete(sql = "UPDATE orders SET deleted_at = CURRENT_TIMESTAMP WHERE id = ?")
+@SQLDelete(sql = "UPDATE orders SET deleted_at = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP WHERE id = ?")
 @Where(clause = "deleted_at IS NULL")
 @Getter
 @Setter
@@ -0,0 +1,42 @@
+package org.de013.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Order Daily Customer Stats Entity
+ * <p>
+ * Orders a user created on a day, with their total amount. Written only by
+ * {@link org.de013.orderservice.service.analytics.OrderRollupJob}.
+ */
+@Entity
+@Immutable
+@Table(name = "order_daily_customer_stats",
+        uniqueConstraints = @UniqueConstraint(name = "uk_order_daily_customer", columnNames = {"order_date", "user_id"}))
+@Getter
+@NoArgsConstructor
+@ToString
+public class OrderDailyCustomerStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_date", nullable = false)
+    private LocalDate orderDate;
+
+    @Column(name = "user_id", length = 36, nullable = false)
+    private String userId;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "total_amount", precision = 19, scale = 4, nullable = false)
+    private BigDecimal totalAmount;
+}
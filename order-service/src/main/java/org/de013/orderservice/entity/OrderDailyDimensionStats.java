@@ -0,0 +1,57 @@
+package org.de013.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.de013.orderservice.entity.enums.RollupDimension;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Order Daily Dimension Stats Entity
+ * <p>
+ * Sales of one product category or brand in the orders created on a day. Written only by
+ * {@link org.de013.orderservice.service.analytics.OrderRollupJob}.
+ */
+@Entity
+@Immutable
+@Table(name = "order_daily_dimension_stats",
+        uniqueConstraints = @UniqueConstraint(name = "uk_order_daily_dimension",
+                columnNames = {"order_date", "dimension", "dimension_value"}))
+@Getter
+@NoArgsConstructor
+@ToString
+public class OrderDailyDimensionStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_date", nullable = false)
+    private LocalDate orderDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dimension", length = 20, nullable = false)
+    private RollupDimension dimension;
+
+    @Column(name = "dimension_value", length = 200, nullable = false)
+    private String dimensionValue;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    /**
+     * Order lines, kept so the average line value can be derived over any range of days
+     */
+    @Column(name = "item_count", nullable = false)
+    private Long itemCount;
+
+    @Column(name = "quantity", nullable = false)
+    private Long quantity;
+
+    @Column(name = "revenue", precision = 19, scale = 4, nullable = false)
+    private BigDecimal revenue;
+}
@@ -0,0 +1,55 @@
+package org.de013.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Order Daily Product Stats Entity
+ * <p>
+ * Sales of one product (id, name and SKU as ordered) in the orders created on a day. Written
+ * only by {@link org.de013.orderservice.service.analytics.OrderRollupJob}.
+ */
+@Entity
+@Immutable
+@Table(name = "order_daily_product_stats",
+        indexes = @Index(name = "idx_order_daily_product_date", columnList = "order_date"))
+@Getter
+@NoArgsConstructor
+@ToString
+public class OrderDailyProductStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_date", nullable = false)
+    private LocalDate orderDate;
+
+    @Column(name = "product_id", length = 36, nullable = false)
+    private String productId;
+
+    @Column(name = "product_name", length = 500, nullable = false)
+    private String productName;
+
+    @Column(name = "sku", length = 100, nullable = false)
+    private String sku;
+
+    /**
+     * Distinct orders containing the product; exact when summed over days since an order
+     * belongs to a single day
+     */
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "quantity", nullable = false)
+    private Long quantity;
+
+    @Column(name = "revenue", precision = 19, scale = 4, nullable = false)
+    private BigDecimal revenue;
+}
@@ -0,0 +1,44 @@
+package org.de013.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.de013.orderservice.entity.enums.OrderStatus;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Order Daily Status Stats Entity
+ * <p>
+ * Orders created on a day that are currently in a status, with their total amount. Written
+ * only by {@link org.de013.orderservice.service.analytics.OrderRollupJob}.
+ */
+@Entity
+@Immutable
+@Table(name = "order_daily_status_stats",
+        uniqueConstraints = @UniqueConstraint(name = "uk_order_daily_status", columnNames = {"order_date", "status"}))
+@Getter
+@NoArgsConstructor
+@ToString
+public class OrderDailyStatusStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_date", nullable = false)
+    private LocalDate orderDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 30, nullable = false)
+    private OrderStatus status;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "total_amount", precision = 19, scale = 4, nullable = false)
+    private BigDecimal totalAmount;
+}
@@ -0,0 +1,79 @@
+package org.de013.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.de013.orderservice.entity.enums.IdempotencyKeyStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Order Idempotency Key Entity
+ * <p>
+ * An Idempotency-Key a user sent with {@code POST /orders}. The row is claimed before the
+ * order is placed, so a concurrent duplicate finds it and backs off, and keeps the response
+ * afterwards so a retry gets the same order instead of a second one.
+ */
+@Entity
+@Table(name = "order_idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_order_idempotency_user_key", columnNames = {"user_id", "idempotency_key"}),
+        indexes = @Index(name = "idx_order_idempotency_expires_at", columnList = "expires_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString(exclude = {"response"})
+public class OrderIdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", length = 100, nullable = false)
+    private String userId;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    /**
+     * SHA-256 of the request body; the key may only be reused with the same body
+     */
+    @Column(name = "request_hash", length = 64, nullable = false)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20, nullable = false)
+    private IdempotencyKeyStatus status;
+
+    /**
+     * Order number reserved for this key when it is claimed, before the order is placed; a
+     * request taking the key over looks the order up by it instead of placing a second one
+     */
+    @Column(name = "order_number", length = 50)
+    private String orderNumber;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    /**
+     * OrderResponse JSON, set once the order is placed
+     */
+    @Column(name = "response", columnDefinition = "TEXT")
+    private String response;
+
+    /**
+     * An IN_PROGRESS key whose lease has run out belongs to a request that died; another
+     * request with the same key may take it over
+     */
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
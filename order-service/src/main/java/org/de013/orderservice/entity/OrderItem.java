@@ -27,9 +27,10 @@ import java.time.LocalDateTime;
         @Index(name = "idx_order_items_order_id", columnList = "order_id"),
         @Index(name = "idx_order_items_product_id", columnList = "product_id"),
         @Index(name = "idx_order_items_order_product", columnList = "order_id, product_id"),
-        @Index(name = "idx_order_items_sku", columnList = "sku")
+        @Index(name = "idx_order_items_sku", columnList = "sku"),
+        @Index(name = "idx_order_items_updated_at", columnList = "updatedAt")
 })
-@SQLDelete(sql = "UPDATE order_items SET deleted_at = CURRENT_TIMESTAMP WHERE id = ?")
+@SQLDelete(sql = "UPDATE order_items SET deleted_at = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP WHERE id = ?")
 @SQLRestriction("deleted_at IS NULL")
 @Getter
 @Setter
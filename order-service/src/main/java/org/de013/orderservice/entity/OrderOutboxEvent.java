@@ -0,0 +1,78 @@
+package org.de013.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Order Outbox Event Entity
+ * <p>
+ * An order event waiting to be published. Written in the same transaction as the change it
+ * describes, so an event exists exactly when the change was committed; the relay publishes
+ * it and sets {@code publishedAt}, or parks it by setting {@code failedAt} once it has
+ * failed too often.
+ */
+@Entity
+@Table(name = "order_outbox", indexes = {
+        @Index(name = "idx_order_outbox_aggregate_created", columnList = "aggregate_id, created_at"),
+        @Index(name = "idx_order_outbox_created_at", columnList = "created_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString(exclude = {"payload"})
+public class OrderOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Sent as the AMQP message id, for consumer-side deduplication
+     */
+    @Column(name = "event_id", length = 36, nullable = false, unique = true)
+    private String eventId;
+
+    /**
+     * Order ID
+     */
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(name = "event_type", length = 100, nullable = false)
+    private String eventType;
+
+    @Column(name = "routing_key", nullable = false)
+    private String routingKey;
+
+    /**
+     * Event body as JSON
+     */
+    @Column(name = "payload", columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Set once the broker confirmed the event; null while it is pending
+     */
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    /**
+     * Set when the relay gave up on the event; parked events wait for a replay
+     */
+    @Column(name = "failed_at")
+    private LocalDateTime failedAt;
+}
@@ -0,0 +1,32 @@
+package org.de013.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Order Rollup Watermark Entity
+ * <p>
+ * How far a rollup has caught up: every order and item updated at or before the watermark is
+ * reflected in it. The refreshing instance holds this row locked.
+ */
+@Entity
+@Table(name = "order_rollup_watermarks")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class OrderRollupWatermark {
+
+    @Id
+    @Column(name = "name", length = 50)
+    private String name;
+
+    @Column(name = "watermark", nullable = false)
+    private LocalDateTime watermark;
+
+    @Column(name = "refreshed_at")
+    private LocalDateTime refreshedAt;
+}
@@ -0,0 +1,82 @@
+package org.de013.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import org.de013.orderservice.entity.enums.SagaStatus;
+
+/**
+ * Order Saga Entity
+ * <p>
+ * Saga log row for one order placement. Records how far placement got, so a saga left
+ * behind by a crash or a failed remote call can be compensated or completed later by
+ * the recovery sweeper.
+ */
+@Entity
+@Table(name = "order_sagas", indexes = {
+        @Index(name = "idx_order_sagas_status_updated", columnList = "status, updated_at"),
+        @Index(name = "idx_order_sagas_order_number", columnList = "order_number")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@SuperBuilder
+@ToString(exclude = {"reservation"})
+@EqualsAndHashCode(callSuper = true)
+public class OrderSaga extends BaseEntity {
+
+    /**
+     * Saga id, also used as the stock reservation reference in product-catalog-service
+     */
+    @Column(name = "saga_id", length = 36, nullable = false, unique = true)
+    private String sagaId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 30, nullable = false)
+    private SagaStatus status;
+
+    @Column(name = "user_id", length = 36, nullable = false)
+    private String userId;
+
+    /**
+     * Username forwarded to shopping-cart-service when the cart is cleared outside a request
+     */
+    @Column(name = "username")
+    private String username;
+
+    @Column(name = "cart_id")
+    private Long cartId;
+
+    @Column(name = "order_number", length = 50, nullable = false)
+    private String orderNumber;
+
+    /**
+     * Set in the same transaction that writes the order
+     */
+    @Column(name = "order_id")
+    private Long orderId;
+
+    /**
+     * Reserved lines as JSON, kept for release and manual reconciliation
+     */
+    @Column(name = "reservation", columnDefinition = "TEXT", nullable = false)
+    private String reservation;
+
+    /**
+     * Recovery attempts so far
+     */
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    /**
+     * Keeps two sweeper instances from recovering the same saga at once
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+}
@@ -0,0 +1,17 @@
+package org.de013.orderservice.entity.enums;
+
+/**
+ * State of an Idempotency-Key used to create an order
+ */
+public enum IdempotencyKeyStatus {
+
+    /**
+     * A request holding this key is placing the order
+     */
+    IN_PROGRESS,
+
+    /**
+     * The order was placed; replays get the stored response
+     */
+    COMPLETED
+}
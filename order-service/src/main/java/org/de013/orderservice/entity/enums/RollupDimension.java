@@ -0,0 +1,17 @@
+package org.de013.orderservice.entity.enums;
+
+/**
+ * Order item attribute a daily dimension rollup is grouped by
+ */
+public enum RollupDimension {
+
+    /**
+     * OrderItem.productCategory
+     */
+    CATEGORY,
+
+    /**
+     * OrderItem.productBrand
+     */
+    BRAND
+}
@@ -0,0 +1,59 @@
+package org.de013.orderservice.entity.enums;
+
+/**
+ * Order placement saga states, recorded in the saga log.
+ * <p>
+ * Persisting the order is the pivot: a saga that fails before it is compensated by
+ * releasing its stock reservation, one that gets past it is only ever driven forward.
+ */
+public enum SagaStatus {
+
+    /**
+     * Stock reservation requested; its outcome is unknown until the status moves on
+     */
+    RESERVING_STOCK,
+
+    /**
+     * Stock reserved, order not yet written
+     */
+    PERSISTING_ORDER,
+
+    /**
+     * Order written; the reservation still has to be fulfilled and the cart cleared
+     */
+    CLEARING_CART,
+
+    /**
+     * Order placed and cart cleared
+     */
+    COMPLETED,
+
+    /**
+     * Failed before the pivot; the stock reservation still has to be released
+     */
+    COMPENSATING,
+
+    /**
+     * Order not placed and no stock held
+     */
+    ABORTED,
+
+    /**
+     * Placed order cancelled; its stock reservation still has to be released
+     */
+    RELEASING_STOCK,
+
+    /**
+     * Placed order cancelled and its stock given back
+     */
+    CANCELLED,
+
+    /**
+     * Recovery gave up after the configured attempts; needs manual attention
+     */
+    FAILED;
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == ABORTED || this == CANCELLED || this == FAILED;
+    }
+}
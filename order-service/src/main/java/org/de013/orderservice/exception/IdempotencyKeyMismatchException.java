@@ -0,0 +1,10 @@
+package org.de013.orderservice.exception;
+
+/**
+ * An Idempotency-Key was reused with a different request body
+ */
+public class IdempotencyKeyMismatchException extends RuntimeException {
+    public IdempotencyKeyMismatchException(String message) {
+        super(message);
+    }
+}
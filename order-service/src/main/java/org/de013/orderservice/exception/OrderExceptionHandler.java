@@ -5,6 +5,7 @@ import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.de013.common.dto.ErrorResponse;
 import org.de013.common.exception.BusinessException;
+import org.de013.common.exception.ConflictException;
 import org.de013.common.exception.ResourceNotFoundException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -113,6 +114,52 @@ public class OrderExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
+    /**
+     * Handle conflicts (e.g. an order with the same Idempotency-Key still being placed)
+     */
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<ErrorResponse> handleConflictException(
+            ConflictException ex, HttpServletRequest request) {
+
+        String traceId = generateTraceId();
+        log.warn("Conflict [{}] for {}: {}", traceId, request.getRequestURI(), ex.getMessage());
+
+        ErrorResponse response = ErrorResponse.of(
+                HttpStatus.CONFLICT.value(),
+                HttpStatus.CONFLICT.getReasonPhrase(),
+                "CONFLICT",
+                ex.getMessage(),
+                request.getRequestURI(),
+                request.getMethod(),
+                traceId
+        );
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    /**
+     * Handle an Idempotency-Key reused with a different request body
+     */
+    @ExceptionHandler(IdempotencyKeyMismatchException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyMismatchException(
+            IdempotencyKeyMismatchException ex, HttpServletRequest request) {
+
+        String traceId = generateTraceId();
+        log.warn("Idempotency-Key mismatch [{}] for {}: {}", traceId, request.getRequestURI(), ex.getMessage());
+
+        ErrorResponse response = ErrorResponse.of(
+                HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                HttpStatus.UNPROCESSABLE_ENTITY.getReasonPhrase(),
+                "IDEMPOTENCY_KEY_MISMATCH",
+                ex.getMessage(),
+                request.getRequestURI(),
+                request.getMethod(),
+                traceId
+        );
+
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(response);
+    }
+
     /**
      * Handle illegal argument exceptions (e.g., empty cart)
      */
@@ -0,0 +1,89 @@
+package org.de013.orderservice.repository;
+
+import org.de013.orderservice.entity.OrderIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Order Idempotency Key Repository
+ * <p>
+ * Each write is a single statement in its own short transaction, so claiming a key never
+ * holds a lock while the order is being placed.
+ */
+@Repository
+public interface OrderIdempotencyKeyRepository extends JpaRepository<OrderIdempotencyKey, Long> {
+
+    Optional<OrderIdempotencyKey> findByUserIdAndIdempotencyKey(String userId, String idempotencyKey);
+
+    /**
+     * Claim a key as IN_PROGRESS under the order number the order will be placed with; a
+     * duplicate (user, key) is skipped instead of failing
+     *
+     * @return 1 when claimed, 0 when the key already exists
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO order_idempotency_keys " +
+            "(user_id, idempotency_key, request_hash, order_number, status, locked_until, created_at, expires_at) " +
+            "VALUES (:userId, :key, :requestHash, :orderNumber, 'IN_PROGRESS', :lockedUntil, :now, :expiresAt) " +
+            "ON CONFLICT (user_id, idempotency_key) DO NOTHING", nativeQuery = true)
+    int tryClaim(@Param("userId") String userId,
+                 @Param("key") String key,
+                 @Param("requestHash") String requestHash,
+                 @Param("orderNumber") String orderNumber,
+                 @Param("lockedUntil") LocalDateTime lockedUntil,
+                 @Param("now") LocalDateTime now,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Take over an IN_PROGRESS key whose lease ran out; only one contender wins
+     *
+     * @return 1 when taken over
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE OrderIdempotencyKey k SET k.lockedUntil = :lockedUntil " +
+            "WHERE k.id = :id AND k.status = org.de013.orderservice.entity.enums.IdempotencyKeyStatus.IN_PROGRESS " +
+            "AND k.lockedUntil < :now")
+    int takeOver(@Param("id") Long id, @Param("lockedUntil") LocalDateTime lockedUntil, @Param("now") LocalDateTime now);
+
+    /**
+     * Give a taken-over key an order number; only for keys claimed before order numbers were recorded
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE OrderIdempotencyKey k SET k.orderNumber = :orderNumber WHERE k.id = :id AND k.orderNumber IS NULL")
+    int assignOrderNumber(@Param("id") Long id, @Param("orderNumber") String orderNumber);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OrderIdempotencyKey k SET k.status = org.de013.orderservice.entity.enums.IdempotencyKeyStatus.COMPLETED, " +
+            "k.orderId = :orderId, k.response = :response, k.completedAt = :now " +
+            "WHERE k.userId = :userId AND k.idempotencyKey = :key")
+    int complete(@Param("userId") String userId,
+                 @Param("key") String key,
+                 @Param("orderId") Long orderId,
+                 @Param("response") String response,
+                 @Param("now") LocalDateTime now);
+
+    /**
+     * Give a key back after the order could not be placed, so the client can retry with it
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OrderIdempotencyKey k WHERE k.userId = :userId AND k.idempotencyKey = :key " +
+            "AND k.status = org.de013.orderservice.entity.enums.IdempotencyKeyStatus.IN_PROGRESS")
+    int release(@Param("userId") String userId, @Param("key") String key);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OrderIdempotencyKey k WHERE k.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -11,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -169,72 +170,73 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long>, Jpa
                                             @Param("endDate") LocalDateTime endDate);
 
     /**
-     * Find top selling products by quantity
+     * Find top selling products by quantity, from the daily rollup (days of order creation,
+     * as fresh as the last OrderRollupJob run)
      *
-     * @param startDate start date
-     * @param endDate   end date
+     * @param startDate first day, inclusive
+     * @param endDate   last day, inclusive
      * @param pageable  pagination information
      * @return list of product sales data
      */
-    @Query("SELECT oi.productId, oi.productName, oi.sku, SUM(oi.quantity) as totalQuantity, " +
-            "COUNT(DISTINCT oi.order.id) as orderCount, SUM(oi.totalPrice.amount) as totalRevenue " +
-            "FROM OrderItem oi WHERE oi.createdAt BETWEEN :startDate AND :endDate " +
-            "GROUP BY oi.productId, oi.productName, oi.sku " +
-            "ORDER BY SUM(oi.quantity) DESC")
-    List<Object[]> findTopSellingProductsByQuantity(@Param("startDate") LocalDateTime startDate,
-                                                    @Param("endDate") LocalDateTime endDate,
+    @Query("SELECT p.productId, p.productName, p.sku, SUM(p.quantity) as totalQuantity, " +
+            "SUM(p.orderCount) as orderCount, SUM(p.revenue) as totalRevenue " +
+            "FROM OrderDailyProductStats p WHERE p.orderDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY p.productId, p.productName, p.sku " +
+            "ORDER BY SUM(p.quantity) DESC")
+    List<Object[]> findTopSellingProductsByQuantity(@Param("startDate") LocalDate startDate,
+                                                    @Param("endDate") LocalDate endDate,
                                                     Pageable pageable);
 
     /**
-     * Find top selling products by revenue
+     * Find top selling products by revenue, from the daily rollup
      *
-     * @param startDate start date
-     * @param endDate   end date
+     * @param startDate first day, inclusive
+     * @param endDate   last day, inclusive
      * @param pageable  pagination information
      * @return list of product revenue data
      */
-    @Query("SELECT oi.productId, oi.productName, oi.sku, SUM(oi.totalPrice.amount) as totalRevenue, " +
-            "SUM(oi.quantity) as totalQuantity, COUNT(DISTINCT oi.order.id) as orderCount " +
-            "FROM OrderItem oi WHERE oi.createdAt BETWEEN :startDate AND :endDate " +
-            "GROUP BY oi.productId, oi.productName, oi.sku " +
-            "ORDER BY SUM(oi.totalPrice.amount) DESC")
-    List<Object[]> findTopSellingProductsByRevenue(@Param("startDate") LocalDateTime startDate,
-                                                   @Param("endDate") LocalDateTime endDate,
+    @Query("SELECT p.productId, p.productName, p.sku, SUM(p.revenue) as totalRevenue, " +
+            "SUM(p.quantity) as totalQuantity, SUM(p.orderCount) as orderCount " +
+            "FROM OrderDailyProductStats p WHERE p.orderDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY p.productId, p.productName, p.sku " +
+            "ORDER BY SUM(p.revenue) DESC")
+    List<Object[]> findTopSellingProductsByRevenue(@Param("startDate") LocalDate startDate,
+                                                   @Param("endDate") LocalDate endDate,
                                                    Pageable pageable);
 
     /**
-     * Find product category performance
+     * Find product category performance, from the daily rollup
      *
-     * @param startDate start date
-     * @param endDate   end date
+     * @param startDate first day, inclusive
+     * @param endDate   last day, inclusive
      * @return list of category performance data
      */
-    @Query("SELECT oi.productCategory, COUNT(DISTINCT oi.order.id) as orderCount, " +
-            "SUM(oi.quantity) as totalQuantity, SUM(oi.totalPrice.amount) as totalRevenue, " +
-            "AVG(oi.totalPrice.amount) as averageOrderValue " +
-            "FROM OrderItem oi WHERE oi.createdAt BETWEEN :startDate AND :endDate " +
-            "AND oi.productCategory IS NOT NULL " +
-            "GROUP BY oi.productCategory " +
-            "ORDER BY SUM(oi.totalPrice.amount) DESC")
-    List<Object[]> findCategoryPerformance(@Param("startDate") LocalDateTime startDate,
-                                           @Param("endDate") LocalDateTime endDate);
+    @Query("SELECT d.dimensionValue, SUM(d.orderCount) as orderCount, " +
+            "SUM(d.quantity) as totalQuantity, SUM(d.revenue) as totalRevenue, " +
+            "SUM(d.revenue) / SUM(d.itemCount) as averageOrderValue " +
+            "FROM OrderDailyDimensionStats d WHERE d.orderDate BETWEEN :startDate AND :endDate " +
+            "AND d.dimension = org.de013.orderservice.entity.enums.RollupDimension.CATEGORY " +
+            "GROUP BY d.dimensionValue " +
+            "ORDER BY SUM(d.revenue) DESC")
+    List<Object[]> findCategoryPerformance(@Param("startDate") LocalDate startDate,
+                                           @Param("endDate") LocalDate endDate);
 
     /**
-     * Find product brand performance
+     * Find product brand performance, from the daily rollup
      *
-     * @param startDate start date
-     * @param endDate   end date
+     * @param startDate first day, inclusive
+     * @param endDate   last day, inclusive
      * @return list of brand performance data
      */
-    @Query("SELECT oi.productBrand, COUNT(DISTINCT oi.order.id) as orderCount, " +
-            "SUM(oi.quantity) as totalQuantity, SUM(oi.totalPrice.amount) as totalRevenue, " +
-            "AVG(oi.totalPrice.amount) as averageOrderValue " +
-            "FROM OrderItem oi WHERE oi.createdAt BETWEEN :startDate AND :endDate " +
-            "AND oi.productBrand IS NOT NULL " +
-            "GROUP BY oi.productBrand " +
-            "ORDER BY SUM(oi.totalPrice.amount) DESC")
-    List<Object[]> findBrandPerformance(@Param("startDate") LocalDateTime startDate,
-                                        @Param("endDate") LocalDateTime endDate);
+    @Query("SELECT d.dimensionValue, SUM(d.orderCount) as orderCount, " +
+            "SUM(d.quantity) as totalQuantity, SUM(d.revenue) as totalRevenue, " +
+            "SUM(d.revenue) / SUM(d.itemCount) as averageOrderValue " +
+            "FROM OrderDailyDimensionStats d WHERE d.orderDate BETWEEN :startDate AND :endDate " +
+            "AND d.dimension = org.de013.orderservice.entity.enums.RollupDimension.BRAND " +
+            "GROUP BY d.dimensionValue " +
+            "ORDER BY SUM(d.revenue) DESC")
+    List<Object[]> findBrandPerformance(@Param("startDate") LocalDate startDate,
+                                        @Param("endDate") LocalDate endDate);
 
     /**
      * Find items with high discount percentage
@@ -389,7 +391,7 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long>, Jpa
      * @return number of deleted records
      */
     @Modifying
-    @Query("UPDATE OrderItem oi SET oi.deletedAt = :deletedAt WHERE oi.order.id = :orderId")
+    @Query("UPDATE OrderItem oi SET oi.deletedAt = :deletedAt, oi.updatedAt = :deletedAt WHERE oi.order.id = :orderId")
     int softDeleteByOrderId(@Param("orderId") Long orderId, @Param("deletedAt") LocalDateTime deletedAt);
 
     /**
@@ -0,0 +1,75 @@
+package org.de013.orderservice.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.de013.orderservice.entity.OrderOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Order Outbox Repository
+ * <p>
+ * Outbox access for order event writers, the relay and replay.
+ */
+@Repository
+public interface OrderOutboxRepository extends JpaRepository<OrderOutboxEvent, Long> {
+
+    /**
+     * Oldest unpublished events that are not parked, locked; rows another relay instance holds
+     * are skipped (lock timeout -2 is Hibernate's SKIP LOCKED)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OrderOutboxEvent e WHERE e.publishedAt IS NULL AND e.failedAt IS NULL ORDER BY e.id")
+    List<OrderOutboxEvent> lockUnpublished(Pageable pageable);
+
+    Optional<OrderOutboxEvent> findFirstByPublishedAtIsNullAndFailedAtIsNullOrderByIdAsc();
+
+    long countByPublishedAtIsNullAndFailedAtIsNull();
+
+    long countByFailedAtIsNotNull();
+
+    /**
+     * Mark published and parked events in the window for publishing again
+     *
+     * @return number of events requeued
+     */
+    @Modifying
+    @Query("UPDATE OrderOutboxEvent e SET e.publishedAt = NULL, e.failedAt = NULL, e.attempts = 0, e.lastError = NULL " +
+            "WHERE (e.publishedAt IS NOT NULL OR e.failedAt IS NOT NULL) AND e.createdAt >= :from AND e.createdAt < :to")
+    int requeuePublished(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Same as {@link #requeuePublished(LocalDateTime, LocalDateTime)}, for one order only
+     */
+    @Modifying
+    @Query("UPDATE OrderOutboxEvent e SET e.publishedAt = NULL, e.failedAt = NULL, e.attempts = 0, e.lastError = NULL " +
+            "WHERE (e.publishedAt IS NOT NULL OR e.failedAt IS NOT NULL) AND e.aggregateId = :orderId " +
+            "AND e.createdAt >= :from AND e.createdAt < :to")
+    int requeuePublishedForOrder(@Param("orderId") Long orderId,
+                                 @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to);
+
+    /**
+     * Delete up to {@code limit} events published before the cutoff, oldest first
+     *
+     * @return number of events deleted
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM order_outbox WHERE id IN (" +
+            "SELECT id FROM order_outbox WHERE published_at < :cutoff ORDER BY id LIMIT :limit)",
+            nativeQuery = true)
+    int deletePublishedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -1,5 +1,6 @@
 package org.de013.orderservice.repository;
 
+import org.de013.orderservice.dto.response.OrderSummaryResponse;
 import org.de013.orderservice.entity.Order;
 import org.de013.orderservice.entity.enums.OrderStatus;
 import org.de013.orderservice.entity.enums.OrderType;
@@ -11,8 +12,11 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -45,6 +49,103 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
      */
     Page<Order> findByUserId(String userId, Pageable pageable);
 
+    /**
+     * First page of a user's orders, newest first, for keyset pagination.
+     * Served by idx_orders_user_summary; the pageable only limits rows and runs no count.
+     *
+     * @param userId the user ID
+     * @param limit  rows to read
+     * @return orders ordered by created_at, id descending
+     */
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> scrollByUserId(@Param("userId") String userId, Pageable limit);
+
+    /**
+     * Next page of a user's orders: those strictly after the (createdAt, id) of the last row seen
+     *
+     * @param userId    the user ID
+     * @param createdAt created_at of the last row seen
+     * @param id        id of the last row seen
+     * @param limit     rows to read
+     * @return orders ordered by created_at, id descending
+     */
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId " +
+            "AND o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> scrollByUserIdAfter(@Param("userId") String userId,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id,
+                                    Pageable limit);
+
+    /**
+     * First page of a user's order history as summaries, newest first. Reads only the columns
+     * in idx_orders_user_summary plus an index-only count of the order's lines.
+     *
+     * @param userId the user ID
+     * @param limit  rows to read
+     * @return summaries ordered by created_at, id descending
+     */
+    @Query("SELECT new org.de013.orderservice.dto.response.OrderSummaryResponse(" +
+            "o.id, o.orderNumber, o.status, o.totalAmount.amount, o.totalAmount.currency, " +
+            "(SELECT COUNT(i) FROM OrderItem i WHERE i.order.id = o.id), o.createdAt) " +
+            "FROM Order o WHERE o.userId = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryResponse> scrollSummariesByUserId(@Param("userId") String userId, Pageable limit);
+
+    /**
+     * Next page of a user's order summaries: those strictly after the (createdAt, id) of the last row seen
+     *
+     * @param userId    the user ID
+     * @param createdAt created_at of the last row seen
+     * @param id        id of the last row seen
+     * @param limit     rows to read
+     * @return summaries ordered by created_at, id descending
+     */
+    @Query("SELECT new org.de013.orderservice.dto.response.OrderSummaryResponse(" +
+            "o.id, o.orderNumber, o.status, o.totalAmount.amount, o.totalAmount.currency, " +
+            "(SELECT COUNT(i) FROM OrderItem i WHERE i.order.id = o.id), o.createdAt) " +
+            "FROM Order o WHERE o.userId = :userId " +
+            "AND o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryResponse> scrollSummariesByUserIdAfter(@Param("userId") String userId,
+                                                            @Param("createdAt") LocalDateTime createdAt,
+                                                            @Param("id") Long id,
+                                                            Pageable limit);
+
+    /**
+     * First page of all orders, newest first, for keyset pagination (idx_orders_created_id)
+     *
+     * @param limit rows to read
+     * @return orders ordered by created_at, id descending
+     */
+    @Query("SELECT o FROM Order o ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> scrollAll(Pageable limit);
+
+    /**
+     * Next page of all orders: those strictly after the (createdAt, id) of the last row seen
+     *
+     * @param createdAt created_at of the last row seen
+     * @param id        id of the last row seen
+     * @param limit     rows to read
+     * @return orders ordered by created_at, id descending
+     */
+    @Query("SELECT o FROM Order o " +
+            "WHERE o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> scrollAllAfter(@Param("createdAt") LocalDateTime createdAt,
+                               @Param("id") Long id,
+                               Pageable limit);
+
+    /**
+     * Load orders with their items in one query. Used as the second phase of paged listings:
+     * the page query selects the orders, this initializes all their item collections at once
+     * instead of one lazy SELECT per order.
+     *
+     * @param ids IDs of the orders on the page
+     * @return the orders, with items fetched (in no particular order)
+     */
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.id IN :ids")
+    List<Order> findAllWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Find orders by user ID and status
      *
@@ -200,6 +301,17 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
      */
     boolean existsByOrderNumber(String orderNumber);
 
+    /**
+     * Reserve the next block of order numbers. The sequence steps by the block size, so the
+     * value returned is the first number of a block no other caller will get.
+     * Not read-only: PostgreSQL refuses nextval in a read-only transaction.
+     *
+     * @return first number of the block
+     */
+    @Transactional
+    @Query(value = "SELECT nextval('order_number_seq')", nativeQuery = true)
+    long nextOrderNumberBlock();
+
     /**
      * Find orders with total amount greater than specified amount
      *
@@ -284,31 +396,32 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
                                                      @Param("endDate") LocalDateTime endDate);
 
     /**
-     * Get order count by status for date range
+     * Get order count by current status for orders created in a date range, from the daily
+     * rollup (as fresh as the last OrderRollupJob run)
      *
-     * @param startDate start date
-     * @param endDate   end date
+     * @param startDate first day, inclusive
+     * @param endDate   last day, inclusive
      * @return order count by status
      */
-    @Query("SELECT o.status, COUNT(o) FROM Order o " +
-            "WHERE o.createdAt BETWEEN :startDate AND :endDate " +
-            "GROUP BY o.status")
-    List<Object[]> getOrderCountByStatus(@Param("startDate") LocalDateTime startDate,
-                                         @Param("endDate") LocalDateTime endDate);
+    @Query("SELECT s.status, SUM(s.orderCount) FROM OrderDailyStatusStats s " +
+            "WHERE s.orderDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY s.status")
+    List<Object[]> getOrderCountByStatus(@Param("startDate") LocalDate startDate,
+                                         @Param("endDate") LocalDate endDate);
 
     /**
-     * Get daily order counts for date range
+     * Get daily order counts for date range, from the daily rollup
      *
-     * @param startDate start date
-     * @param endDate   end date
+     * @param startDate first day, inclusive
+     * @param endDate   last day, inclusive
      * @return daily order counts
      */
-    @Query("SELECT DATE(o.createdAt), COUNT(o) FROM Order o " +
-            "WHERE o.createdAt BETWEEN :startDate AND :endDate " +
-            "GROUP BY DATE(o.createdAt) " +
-            "ORDER BY DATE(o.createdAt)")
-    List<Object[]> getDailyOrderCounts(@Param("startDate") LocalDateTime startDate,
-                                       @Param("endDate") LocalDateTime endDate);
+    @Query("SELECT s.orderDate, SUM(s.orderCount) FROM OrderDailyStatusStats s " +
+            "WHERE s.orderDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY s.orderDate " +
+            "ORDER BY s.orderDate")
+    List<Object[]> getDailyOrderCounts(@Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate);
 
     /**
      * Update order status
@@ -354,34 +467,34 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
 
 
     /**
-     * Find top customers by order count
+     * Find top customers by order count, from the daily rollup
      *
-     * @param startDate start date
-     * @param endDate   end date
+     * @param startDate first day, inclusive
+     * @param endDate   last day, inclusive
      * @param limit     number of top customers
      * @return list of customer data
      */
-    @Query("SELECT o.userId, COUNT(o) as orderCount, SUM(o.totalAmount.amount) as totalSpent " +
-            "FROM Order o WHERE o.createdAt BETWEEN :startDate AND :endDate " +
-            "GROUP BY o.userId " +
-            "ORDER BY COUNT(o) DESC")
-    List<Object[]> findTopCustomersByOrderCount(@Param("startDate") LocalDateTime startDate,
-                                                @Param("endDate") LocalDateTime endDate,
+    @Query("SELECT c.userId, SUM(c.orderCount) as orderCount, SUM(c.totalAmount) as totalSpent " +
+            "FROM OrderDailyCustomerStats c WHERE c.orderDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY c.userId " +
+            "ORDER BY SUM(c.orderCount) DESC")
+    List<Object[]> findTopCustomersByOrderCount(@Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate,
                                                 Pageable pageable);
 
     /**
-     * Find top customers by revenue
+     * Find top customers by revenue, from the daily rollup
      *
-     * @param startDate start date
-     * @param endDate   end date
+     * @param startDate first day, inclusive
+     * @param endDate   last day, inclusive
      * @param limit     number of top customers
      * @return list of customer data
      */
-    @Query("SELECT o.userId, SUM(o.totalAmount.amount) as totalSpent, COUNT(o) as orderCount " +
-            "FROM Order o WHERE o.createdAt BETWEEN :startDate AND :endDate " +
-            "GROUP BY o.userId " +
-            "ORDER BY SUM(o.totalAmount.amount) DESC")
-    List<Object[]> findTopCustomersByRevenue(@Param("startDate") LocalDateTime startDate,
-                                             @Param("endDate") LocalDateTime endDate,
+    @Query("SELECT c.userId, SUM(c.totalAmount) as totalSpent, SUM(c.orderCount) as orderCount " +
+            "FROM OrderDailyCustomerStats c WHERE c.orderDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY c.userId " +
+            "ORDER BY SUM(c.totalAmount) DESC")
+    List<Object[]> findTopCustomersByRevenue(@Param("startDate") LocalDate startDate,
+                                             @Param("endDate") LocalDate endDate,
                                              Pageable pageable);
 }
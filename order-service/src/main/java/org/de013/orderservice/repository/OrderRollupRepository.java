@@ -0,0 +1,120 @@
+package org.de013.orderservice.repository;
+
+import jakarta.persistence.LockModeType;
+import org.de013.orderservice.entity.OrderRollupWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Order Rollup Repository
+ * <p>
+ * Maintenance of the daily analytics rollups: the watermark, the days changed since it, and a
+ * delete-and-reaggregate per rollup table for a range of days. The queries are native because
+ * they must also see soft-deleted rows, which the entity mappings filter out. Reads of the
+ * rollups live next to the raw queries they replace in {@link OrderRepository} and
+ * {@link OrderItemRepository}.
+ */
+@Repository
+public interface OrderRollupRepository extends JpaRepository<OrderRollupWatermark, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM OrderRollupWatermark w WHERE w.name = :name")
+    Optional<OrderRollupWatermark> lockByName(@Param("name") String name);
+
+    /**
+     * Creation days of the orders that changed, or had an item change, in (since, until]
+     *
+     * @return one {@code DATE} value per day, as the JDBC driver returns it
+     */
+    @Query(value = "SELECT CAST(o.created_at AS DATE) FROM orders o " +
+            "WHERE o.updated_at > :since AND o.updated_at <= :until AND o.created_at IS NOT NULL " +
+            "UNION " +
+            "SELECT CAST(o.created_at AS DATE) FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+            "WHERE oi.updated_at > :since AND oi.updated_at <= :until AND o.created_at IS NOT NULL",
+            nativeQuery = true)
+    List<Object> findChangedOrderDates(@Param("since") LocalDateTime since,
+                                       @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query(value = "DELETE FROM order_daily_status_stats WHERE order_date >= :from AND order_date < :to",
+            nativeQuery = true)
+    int deleteStatusStats(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query(value = "INSERT INTO order_daily_status_stats (order_date, status, order_count, total_amount) " +
+            "SELECT CAST(o.created_at AS DATE), o.status, COUNT(*), COALESCE(SUM(o.total_amount), 0) " +
+            "FROM orders o " +
+            "WHERE o.created_at >= :from AND o.created_at < :to AND o.deleted_at IS NULL " +
+            "GROUP BY CAST(o.created_at AS DATE), o.status",
+            nativeQuery = true)
+    int insertStatusStats(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query(value = "DELETE FROM order_daily_customer_stats WHERE order_date >= :from AND order_date < :to",
+            nativeQuery = true)
+    int deleteCustomerStats(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query(value = "INSERT INTO order_daily_customer_stats (order_date, user_id, order_count, total_amount) " +
+            "SELECT CAST(o.created_at AS DATE), o.user_id, COUNT(*), COALESCE(SUM(o.total_amount), 0) " +
+            "FROM orders o " +
+            "WHERE o.created_at >= :from AND o.created_at < :to AND o.deleted_at IS NULL " +
+            "GROUP BY CAST(o.created_at AS DATE), o.user_id",
+            nativeQuery = true)
+    int insertCustomerStats(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query(value = "DELETE FROM order_daily_product_stats WHERE order_date >= :from AND order_date < :to",
+            nativeQuery = true)
+    int deleteProductStats(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query(value = "INSERT INTO order_daily_product_stats " +
+            "(order_date, product_id, product_name, sku, order_count, quantity, revenue) " +
+            "SELECT CAST(o.created_at AS DATE), oi.product_id, oi.product_name, oi.sku, " +
+            "COUNT(DISTINCT o.id), COALESCE(SUM(oi.quantity), 0), COALESCE(SUM(oi.total_price), 0) " +
+            "FROM orders o JOIN order_items oi ON oi.order_id = o.id " +
+            "WHERE o.created_at >= :from AND o.created_at < :to " +
+            "AND o.deleted_at IS NULL AND oi.deleted_at IS NULL " +
+            "GROUP BY CAST(o.created_at AS DATE), oi.product_id, oi.product_name, oi.sku",
+            nativeQuery = true)
+    int insertProductStats(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query(value = "DELETE FROM order_daily_dimension_stats WHERE order_date >= :from AND order_date < :to",
+            nativeQuery = true)
+    int deleteDimensionStats(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query(value = "INSERT INTO order_daily_dimension_stats " +
+            "(order_date, dimension, dimension_value, order_count, item_count, quantity, revenue) " +
+            "SELECT CAST(o.created_at AS DATE), 'CATEGORY', oi.product_category, " +
+            "COUNT(DISTINCT o.id), COUNT(*), COALESCE(SUM(oi.quantity), 0), COALESCE(SUM(oi.total_price), 0) " +
+            "FROM orders o JOIN order_items oi ON oi.order_id = o.id " +
+            "WHERE o.created_at >= :from AND o.created_at < :to " +
+            "AND o.deleted_at IS NULL AND oi.deleted_at IS NULL AND oi.product_category IS NOT NULL " +
+            "GROUP BY CAST(o.created_at AS DATE), oi.product_category",
+            nativeQuery = true)
+    int insertCategoryStats(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query(value = "INSERT INTO order_daily_dimension_stats " +
+            "(order_date, dimension, dimension_value, order_count, item_count, quantity, revenue) " +
+            "SELECT CAST(o.created_at AS DATE), 'BRAND', oi.product_brand, " +
+            "COUNT(DISTINCT o.id), COUNT(*), COALESCE(SUM(oi.quantity), 0), COALESCE(SUM(oi.total_price), 0) " +
+            "FROM orders o JOIN order_items oi ON oi.order_id = o.id " +
+            "WHERE o.created_at >= :from AND o.created_at < :to " +
+            "AND o.deleted_at IS NULL AND oi.deleted_at IS NULL AND oi.product_brand IS NOT NULL " +
+            "GROUP BY CAST(o.created_at AS DATE), oi.product_brand",
+            nativeQuery = true)
+    int insertBrandStats(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
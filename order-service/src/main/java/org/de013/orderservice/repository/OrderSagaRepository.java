@@ -0,0 +1,78 @@
+package org.de013.orderservice.repository;
+
+import org.de013.orderservice.entity.OrderSaga;
+import org.de013.orderservice.entity.enums.SagaStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Order Saga Repository
+ * <p>
+ * Saga log access for order placement and its recovery sweeper.
+ */
+@Repository
+public interface OrderSagaRepository extends JpaRepository<OrderSaga, Long> {
+
+    Optional<OrderSaga> findBySagaId(String sagaId);
+
+    /**
+     * The saga that wrote the order; failed attempts under the same order number never get an order id
+     */
+    Optional<OrderSaga> findByOrderId(Long orderId);
+
+    boolean existsByOrderNumberAndStatusIn(String orderNumber, Collection<SagaStatus> statuses);
+
+    /**
+     * Sagas in the given states that have not moved since the cutoff, oldest first
+     */
+    List<OrderSaga> findByStatusInAndUpdatedAtBeforeOrderByUpdatedAtAsc(Collection<SagaStatus> statuses,
+                                                                         LocalDateTime cutoff,
+                                                                         Pageable pageable);
+
+    /**
+     * Move a saga on only if it is still in the expected state; bumps the version so a
+     * sweeper holding an older copy cannot claim it
+     *
+     * @return 1 if moved, 0 if the saga had already moved elsewhere
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE OrderSaga s SET s.status = :next, s.version = s.version + 1, s.updatedAt = :updatedAt " +
+            "WHERE s.id = :id AND s.status = :expected")
+    int transition(@Param("id") Long id,
+                   @Param("expected") SagaStatus expected,
+                   @Param("next") SagaStatus next,
+                   @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Same as {@link #transition} and records the error
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE OrderSaga s SET s.status = :next, s.lastError = :error, s.version = s.version + 1, s.updatedAt = :updatedAt " +
+            "WHERE s.id = :id AND s.status = :expected")
+    int transitionWithError(@Param("id") Long id,
+                            @Param("expected") SagaStatus expected,
+                            @Param("next") SagaStatus next,
+                            @Param("error") String error,
+                            @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Same as {@link #transition} and records the order written by the saga
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE OrderSaga s SET s.status = :next, s.orderId = :orderId, s.version = s.version + 1, s.updatedAt = :updatedAt " +
+            "WHERE s.id = :id AND s.status = :expected")
+    int transitionWithOrder(@Param("id") Long id,
+                            @Param("expected") SagaStatus expected,
+                            @Param("next") SagaStatus next,
+                            @Param("orderId") Long orderId,
+                            @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -2,7 +2,9 @@ package org.de013.orderservice.service;
 
 import org.de013.orderservice.dto.request.CreateOrderRequest;
 import org.de013.orderservice.dto.request.UpdateOrderRequest;
+import org.de013.orderservice.dto.response.CursorPage;
 import org.de013.orderservice.dto.response.OrderResponse;
+import org.de013.orderservice.dto.response.OrderSummaryResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -13,6 +15,11 @@ public interface OrderService {
     // Create operations
     OrderResponse createOrder(CreateOrderRequest request);
 
+    /**
+     * Create an order under an order number allocated by the caller
+     */
+    OrderResponse createOrder(CreateOrderRequest request, String orderNumber);
+
     // Read operations
     OrderResponse getOrderById(Long id);
 
@@ -22,6 +29,14 @@ public interface OrderService {
 
     Page<OrderResponse> listAllOrders(Pageable pageable);
 
+    // Keyset (cursor) listings, newest first; cursor is null for the first page
+    CursorPage<OrderResponse> scrollOrdersByUser(String userId, String cursor, int size, boolean includeTotal);
+
+    CursorPage<OrderResponse> scrollAllOrders(String cursor, int size, boolean includeTotal);
+
+    // Order history rows only (number, status, total, line count, date), newest first
+    CursorPage<OrderSummaryResponse> scrollOrderSummariesByUser(String userId, String cursor, int size);
+
     // Update operations
     OrderResponse updateOrder(Long id, UpdateOrderRequest request);
 
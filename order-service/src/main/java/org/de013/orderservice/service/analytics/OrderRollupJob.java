@@ -0,0 +1,152 @@
+package org.de013.orderservice.service.analytics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.orderservice.config.OrderRollupProperties;
+import org.de013.orderservice.entity.OrderRollupWatermark;
+import org.de013.orderservice.repository.OrderRollupRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Keeps the daily analytics rollups ({@code order_daily_*_stats}) up to date.
+ * <p>
+ * Each run locks the watermark, collects the creation days of every order or item updated
+ * since it, and rebuilds those days from {@code orders}/{@code order_items} in one
+ * transaction. Rebuilding whole days rather than applying deltas keeps a run idempotent and
+ * moves an order between status buckets without knowing its previous status. Consecutive
+ * days are rebuilt with one statement per table, so the first run's backfill is a single
+ * pass over the raw tables.
+ * <p>
+ * Metrics: {@code order.rollup.lag} (age of the watermark, seconds) and
+ * {@code order.rollup.refresh}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "order.rollup", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OrderRollupJob {
+
+    static final String WATERMARK = "order-daily";
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final OrderRollupRepository orderRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderRollupProperties properties;
+    private final Timer refreshTimer;
+    private volatile LocalDateTime watermark;
+
+    public OrderRollupJob(OrderRollupRepository orderRollupRepository,
+                          TransactionTemplate transactionTemplate,
+                          OrderRollupProperties properties,
+                          MeterRegistry meterRegistry) {
+        this.orderRollupRepository = orderRollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.refreshTimer = Timer.builder("order.rollup.refresh")
+                .description("Time to bring the order analytics rollups up to date")
+                .register(meterRegistry);
+        Gauge.builder("order.rollup.lag", this, OrderRollupJob::lagSeconds)
+                .description("Age of the order analytics rollup watermark")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${order.rollup.interval-millis:60000}",
+            initialDelayString = "${order.rollup.interval-millis:60000}")
+    public void refresh() {
+        LocalDateTime until = LocalDateTime.now().minusSeconds(properties.getSettleSeconds());
+        Integer days = refreshTimer.record(() -> transactionTemplate.execute(status -> catchUp(until)));
+        if (days != null && days > 0) {
+            log.info("Rebuilt order rollups for {} day(s) up to {}", days, until);
+        }
+    }
+
+    /**
+     * @return days rebuilt
+     */
+    private int catchUp(LocalDateTime until) {
+        OrderRollupWatermark current = orderRollupRepository.lockByName(WATERMARK)
+                .orElseGet(() -> orderRollupRepository.saveAndFlush(new OrderRollupWatermark(WATERMARK, EPOCH, null)));
+        if (!until.isAfter(current.getWatermark())) {
+            watermark = current.getWatermark();
+            return 0;
+        }
+
+        TreeSet<LocalDate> days = new TreeSet<>();
+        for (Object value : orderRollupRepository.findChangedOrderDates(current.getWatermark(), until)) {
+            days.add(toLocalDate(value));
+        }
+        for (LocalDate[] range : ranges(days)) {
+            rebuild(range[0], range[1]);
+        }
+
+        current.setWatermark(until);
+        current.setRefreshedAt(LocalDateTime.now());
+        watermark = until;
+        return days.size();
+    }
+
+    /**
+     * Replace the rollup rows of the days in [from, to)
+     */
+    private void rebuild(LocalDate from, LocalDate to) {
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.atStartOfDay();
+        orderRollupRepository.deleteStatusStats(from, to);
+        orderRollupRepository.insertStatusStats(start, end);
+        orderRollupRepository.deleteCustomerStats(from, to);
+        orderRollupRepository.insertCustomerStats(start, end);
+        orderRollupRepository.deleteProductStats(from, to);
+        orderRollupRepository.insertProductStats(start, end);
+        orderRollupRepository.deleteDimensionStats(from, to);
+        orderRollupRepository.insertCategoryStats(start, end);
+        orderRollupRepository.insertBrandStats(start, end);
+        log.debug("Rebuilt order rollups for [{}, {})", from, to);
+    }
+
+    /**
+     * Group sorted days into runs of consecutive days, each as [first, last + 1)
+     */
+    static List<LocalDate[]> ranges(TreeSet<LocalDate> days) {
+        List<LocalDate[]> ranges = new ArrayList<>();
+        LocalDate from = null;
+        LocalDate to = null;
+        for (LocalDate day : days) {
+            if (!day.equals(to)) {
+                if (from != null) {
+                    ranges.add(new LocalDate[]{from, to});
+                }
+                from = day;
+            }
+            to = day.plusDays(1);
+        }
+        if (from != null) {
+            ranges.add(new LocalDate[]{from, to});
+        }
+        return ranges;
+    }
+
+    /**
+     * Native DATE results come back as java.sql.Date or LocalDate depending on the Hibernate setup
+     */
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    private double lagSeconds() {
+        LocalDateTime current = watermark;
+        return current == null ? 0 : Duration.between(current, LocalDateTime.now()).toSeconds();
+    }
+}
@@ -0,0 +1,214 @@
+package org.de013.orderservice.service.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.common.exception.ConflictException;
+import org.de013.orderservice.config.OrderPlacementProperties;
+import org.de013.orderservice.dto.request.CreateOrderRequest;
+import org.de013.orderservice.dto.response.OrderResponse;
+import org.de013.orderservice.entity.OrderIdempotencyKey;
+import org.de013.orderservice.entity.enums.IdempotencyKeyStatus;
+import org.de013.orderservice.entity.enums.SagaStatus;
+import org.de013.orderservice.exception.IdempotencyKeyMismatchException;
+import org.de013.orderservice.exception.NotFoundException;
+import org.de013.orderservice.repository.OrderIdempotencyKeyRepository;
+import org.de013.orderservice.repository.OrderSagaRepository;
+import org.de013.orderservice.service.OrderService;
+import org.de013.orderservice.service.placement.OrderNumberAllocator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Idempotency-Key handling for order creation.
+ * <p>
+ * The first request with a key claims it with a single conflict-skipping insert that also
+ * reserves the order number, and places the order under that number; the response is then
+ * stored under the key. A retry with the same key and body gets that stored response, a
+ * concurrent duplicate is turned away with 409 while the first one is still running, and
+ * reusing the key for a different body is rejected with 422. If the order cannot be placed
+ * the key is given back, so the client can retry with it.
+ * <p>
+ * A key whose lease ran out (its request died, or is still running past the timeout) may be
+ * taken over. The order number decides what the taker does: an order already committed
+ * under it is replayed, a saga still in flight under it means 409, and only otherwise is the
+ * order placed again, under the same number, so that at most one order can ever commit.
+ * <p>
+ * Outcomes are counted as {@code order.idempotency} (tag: outcome).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderIdempotency {
+
+    /**
+     * Saga states in which an earlier attempt may still commit its order
+     */
+    private static final Set<SagaStatus> IN_FLIGHT =
+            EnumSet.of(SagaStatus.RESERVING_STOCK, SagaStatus.PERSISTING_ORDER, SagaStatus.COMPENSATING);
+
+    private final OrderIdempotencyKeyRepository keyRepository;
+    private final OrderSagaRepository sagaRepository;
+    private final OrderService orderService;
+    private final OrderNumberAllocator orderNumberAllocator;
+    private final ObjectMapper objectMapper;
+    private final OrderPlacementProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Order placed or replayed under an Idempotency-Key
+     *
+     * @param replayed true when the order was placed by an earlier request
+     */
+    public record Result(OrderResponse response, boolean replayed) {
+    }
+
+    /**
+     * @param placeOrder places the order under the given order number
+     */
+    public Result execute(String userId, String key, CreateOrderRequest request,
+                          Function<String, OrderResponse> placeOrder) {
+        OrderPlacementProperties.Idempotency settings = properties.getIdempotency();
+        String requestHash = fingerprint(request);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lease = now.plusSeconds(settings.getInProgressTimeoutSeconds());
+        // Numbers allocated for duplicates are skipped, like the rest of an unused hi/lo block
+        String orderNumber = orderNumberAllocator.nextOrderNumber();
+
+        if (keyRepository.tryClaim(userId, key, requestHash, orderNumber, lease, now, now.plusHours(settings.getKeyTtlHours())) == 0) {
+            OrderIdempotencyKey existing = keyRepository.findByUserIdAndIdempotencyKey(userId, key)
+                    .orElseThrow(() -> conflict(key));
+            if (!existing.getRequestHash().equals(requestHash)) {
+                count("mismatch");
+                throw new IdempotencyKeyMismatchException("Idempotency-Key " + key + " was already used with a different request");
+            }
+            if (existing.getStatus() == IdempotencyKeyStatus.COMPLETED) {
+                count("replayed");
+                log.info("Replaying order {} for Idempotency-Key {} of user {}", existing.getOrderId(), key, userId);
+                return new Result(readResponse(existing.getResponse()), true);
+            }
+            if (keyRepository.takeOver(existing.getId(), lease, now) == 0) {
+                throw conflict(key);
+            }
+            if (existing.getOrderNumber() != null) {
+                orderNumber = existing.getOrderNumber();
+                Optional<OrderResponse> placed = findOrder(orderNumber);
+                if (placed.isPresent()) {
+                    log.warn("Idempotency-Key {} of user {} was left unfinished after order {} was placed; replaying it",
+                            key, userId, orderNumber);
+                    complete(userId, key, placed.get());
+                    count("recovered");
+                    return new Result(placed.get(), true);
+                }
+                if (sagaRepository.existsByOrderNumberAndStatusIn(orderNumber, IN_FLIGHT)) {
+                    // The earlier attempt may still commit; the saga sweeper settles it either way
+                    throw conflict(key);
+                }
+            } else {
+                keyRepository.assignOrderNumber(existing.getId(), orderNumber);
+            }
+            log.warn("Took over Idempotency-Key {} of user {} from a request that did not finish; placing order {}",
+                    key, userId, orderNumber);
+        }
+
+        OrderResponse response;
+        try {
+            response = placeOrder.apply(orderNumber);
+        } catch (RuntimeException e) {
+            // The attempt we took the key over from may have committed under the same number
+            Optional<OrderResponse> placed = findOrder(orderNumber);
+            if (placed.isPresent()) {
+                complete(userId, key, placed.get());
+                count("recovered");
+                return new Result(placed.get(), true);
+            }
+            keyRepository.release(userId, key);
+            count("released");
+            throw e;
+        }
+        complete(userId, key, response);
+        count("placed");
+        return new Result(response, false);
+    }
+
+    @Scheduled(fixedDelayString = "${order.placement.idempotency.purge-interval-millis:3600000}")
+    public void purgeExpired() {
+        int purged = keyRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.info("Purged {} expired order Idempotency-Keys", purged);
+        }
+    }
+
+    /**
+     * Store the response under the key. The order exists at this point, so a failure here must
+     * not fail the request: the key stays IN_PROGRESS with its order number, and a retry after
+     * the lease runs out finds the order and replays it.
+     */
+    private void complete(String userId, String key, OrderResponse response) {
+        try {
+            keyRepository.complete(userId, key, response.getId(), writeResponse(response), LocalDateTime.now());
+        } catch (RuntimeException e) {
+            count("complete_failed");
+            log.error("Could not record order {} under Idempotency-Key {} of user {}; a retry will recover it: {}",
+                    response.getOrderNumber(), key, userId, e.getMessage());
+        }
+    }
+
+    private Optional<OrderResponse> findOrder(String orderNumber) {
+        try {
+            return Optional.of(orderService.getOrderByNumber(orderNumber));
+        } catch (NotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    private ConflictException conflict(String key) {
+        count("in_progress");
+        return new ConflictException("An order with Idempotency-Key " + key + " is still being placed; retry later");
+    }
+
+    private String fingerprint(CreateOrderRequest request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint order request", e);
+        }
+    }
+
+    private String writeResponse(OrderResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize order response", e);
+        }
+    }
+
+    private OrderResponse readResponse(String json) {
+        try {
+            return objectMapper.readValue(json, OrderResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored order response", e);
+        }
+    }
+
+    private void count(String outcome) {
+        Counter.builder("order.idempotency")
+                .description("Order creations carrying an Idempotency-Key, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
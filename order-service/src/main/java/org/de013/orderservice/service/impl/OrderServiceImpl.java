@@ -2,28 +2,29 @@ package org.de013.orderservice.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.de013.orderservice.client.CartServiceClient;
-import org.de013.orderservice.client.ProductCatalogClient;
 import org.de013.orderservice.dto.request.CreateOrderRequest;
 import org.de013.orderservice.dto.request.UpdateOrderRequest;
+import org.de013.orderservice.dto.response.CursorPage;
 import org.de013.orderservice.dto.response.OrderResponse;
+import org.de013.orderservice.dto.response.OrderSummaryResponse;
 import org.de013.orderservice.entity.Order;
-import org.de013.orderservice.entity.OrderItem;
 import org.de013.orderservice.entity.enums.OrderStatus;
-import org.de013.orderservice.entity.valueobject.Money;
 import org.de013.orderservice.exception.NotFoundException;
 import org.de013.orderservice.mapper.OrderMapper;
 import org.de013.orderservice.repository.OrderRepository;
+import org.de013.orderservice.repository.OrderSagaRepository;
 import org.de013.orderservice.service.OrderService;
+import org.de013.orderservice.service.outbox.OrderOutbox;
+import org.de013.orderservice.service.pagination.OrderCursor;
+import org.de013.orderservice.service.placement.OrderPlacementPipeline;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * Basic Order Service Implementation - Core operations only
@@ -35,84 +36,19 @@ public class OrderServiceImpl implements OrderService {
 
     private final OrderRepository orderRepository;
     private final OrderMapper orderMapper;
-    private final CartServiceClient cartServiceClient;
-    private final ProductCatalogClient productCatalogClient;
+    private final OrderPlacementPipeline orderPlacementPipeline;
+    private final OrderSagaRepository orderSagaRepository;
+    private final OrderOutbox orderOutbox;
 
     @Override
-    @Transactional
     public OrderResponse createOrder(CreateOrderRequest request) {
-        log.info("Creating order for user: {} from cart: {}", request.getUserId(), request.getCartId());
-
-        // Get cart items from Shopping Cart Service
-        List<org.de013.orderservice.dto.CartItemDto> cartItems = cartServiceClient.getCartItems(request.getCartId()).getData();
-        if (cartItems == null || cartItems.isEmpty()) {
-            throw new IllegalArgumentException("Cart is empty or not found");
-        }
-
-        // Generate order number
-        String orderNumber = "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        while (orderRepository.existsByOrderNumber(orderNumber)) {
-            orderNumber = "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        }
-
-        // Create order from request
-        Order order = orderMapper.toEntity(request);
-        order.setOrderNumber(orderNumber);
-        order.setStatus(OrderStatus.PENDING);
-        order.setCreatedAt(LocalDateTime.now());
-        order.setUpdatedAt(LocalDateTime.now());
-
-        String currency = request.getCurrency() != null ? request.getCurrency() : "USD";
-        order.setTaxAmount(new Money(BigDecimal.ZERO, currency));
-        order.setShippingAmount(new Money(BigDecimal.ZERO, currency));
-        order.setDiscountAmount(new Money(BigDecimal.ZERO, currency));
-
-        // Convert cart items to order items and deduct stock
-        for (org.de013.orderservice.dto.CartItemDto cartItem : cartItems) {
-            OrderItem orderItem = new OrderItem();
-
-            orderItem.setProductId(cartItem.getProductId());
-
-            orderItem.setSku(cartItem.getProductSku());
-            orderItem.setProductName(cartItem.getProductName());
-            orderItem.setProductDescription(cartItem.getProductDescription());
-            orderItem.setQuantity(cartItem.getQuantity());
-            // unitPrice is the list price per unit; totalPrice is the GROSS line amount (unitPrice * qty).
-            // The order-level recalculation subtracts the per-line discount once to reach the net total.
-            BigDecimal qty = BigDecimal.valueOf(cartItem.getQuantity());
-            orderItem.setUnitPrice(new Money(cartItem.getUnitPrice(), cartItem.getCurrency()));
-            orderItem.setTotalPrice(new Money(cartItem.getUnitPrice().multiply(qty), cartItem.getCurrency()));
-
-            // cart exposes discount per unit; scale by quantity for the line-level discount
-            BigDecimal discountPerUnit = cartItem.getDiscountAmount() != null ? cartItem.getDiscountAmount() : BigDecimal.ZERO;
-            orderItem.setDiscountAmount(new Money(discountPerUnit.multiply(qty), cartItem.getCurrency()));
-            
-            // Set tax amount (default to 0)
-            orderItem.setTaxAmount(new Money(BigDecimal.ZERO, cartItem.getCurrency()));
-            
-            // Set product category and brand
-            orderItem.setProductCategory(cartItem.getCategoryName());
-            orderItem.setProductBrand(cartItem.getProductBrand());
-            
-            orderItem.setOrder(order);
-            order.getOrderItems().add(orderItem);
-
-            // Deduct stock in Product Catalog Service
-            try {
-                log.info("Deducting {} stock for product ID: {}", cartItem.getQuantity(), cartItem.getProductId());
-                productCatalogClient.removeStock(cartItem.getProductId(), cartItem.getQuantity());
-            } catch (Exception e) {
-                log.error("Failed to deduct stock for product ID: {} - Error: {}", cartItem.getProductId(), e.getMessage());
-                throw new IllegalStateException("Failed to allocate inventory for product: " + cartItem.getProductName());
-            }
-        }
-
-        order.recalculateTotals();
-
-        order = orderRepository.save(order);
-        log.info("Order created successfully: {} with {} items", orderNumber, cartItems.size());
+        // Remote calls run outside the transaction; see OrderPlacementPipeline
+        return orderPlacementPipeline.place(request);
+    }
 
-        return orderMapper.toResponse(order);
+    @Override
+    public OrderResponse createOrder(CreateOrderRequest request, String orderNumber) {
+        return orderPlacementPipeline.place(request, orderNumber);
     }
 
     @Override
@@ -128,8 +64,9 @@ public class OrderServiceImpl implements OrderService {
     @Transactional(readOnly = true)
     public Page<OrderResponse> listOrdersByUser(String userId, Pageable pageable) {
         log.debug("Getting orders for user: {}", userId);
-        return orderRepository.findByUserId(userId, pageable)
-                .map(orderMapper::toResponse);
+        Page<Order> page = orderRepository.findByUserId(userId, pageable);
+        fetchItems(page.getContent());
+        return page.map(orderMapper::toResponse);
     }
 
     @Override
@@ -145,8 +82,86 @@ public class OrderServiceImpl implements OrderService {
     @Transactional(readOnly = true)
     public Page<OrderResponse> listAllOrders(Pageable pageable) {
         log.debug("Getting all orders");
-        return orderRepository.findAll(pageable)
-                .map(orderMapper::toResponse);
+        Page<Order> page = orderRepository.findAll(pageable);
+        fetchItems(page.getContent());
+        return page.map(orderMapper::toResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> scrollOrdersByUser(String userId, String cursor, int size, boolean includeTotal) {
+        log.debug("Scrolling orders for user: {} after cursor: {}", userId, cursor);
+        // One extra row tells whether another page follows
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Order> rows;
+        if (cursor == null) {
+            rows = orderRepository.scrollByUserId(userId, limit);
+        } else {
+            OrderCursor after = OrderCursor.decode(cursor);
+            rows = orderRepository.scrollByUserIdAfter(userId, after.createdAt(), after.id(), limit);
+        }
+        return toCursorPage(rows, size, includeTotal ? orderRepository.countByUserId(userId) : null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> scrollAllOrders(String cursor, int size, boolean includeTotal) {
+        log.debug("Scrolling all orders after cursor: {}", cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Order> rows;
+        if (cursor == null) {
+            rows = orderRepository.scrollAll(limit);
+        } else {
+            OrderCursor after = OrderCursor.decode(cursor);
+            rows = orderRepository.scrollAllAfter(after.createdAt(), after.id(), limit);
+        }
+        return toCursorPage(rows, size, includeTotal ? orderRepository.count() : null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<OrderSummaryResponse> scrollOrderSummariesByUser(String userId, String cursor, int size) {
+        log.debug("Scrolling order summaries for user: {} after cursor: {}", userId, cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<OrderSummaryResponse> rows;
+        if (cursor == null) {
+            rows = orderRepository.scrollSummariesByUserId(userId, limit);
+        } else {
+            OrderCursor after = OrderCursor.decode(cursor);
+            rows = orderRepository.scrollSummariesByUserIdAfter(userId, after.createdAt(), after.id(), limit);
+        }
+        boolean hasNext = rows.size() > size;
+        List<OrderSummaryResponse> page = hasNext ? rows.subList(0, size) : rows;
+        OrderSummaryResponse last = hasNext ? page.get(page.size() - 1) : null;
+        return CursorPage.<OrderSummaryResponse>builder()
+                .content(page)
+                .size(page.size())
+                .hasNext(hasNext)
+                .nextCursor(last != null ? new OrderCursor(last.getCreatedAt(), last.getId()).encode() : null)
+                .build();
+    }
+
+    private CursorPage<OrderResponse> toCursorPage(List<Order> rows, int size, Long total) {
+        boolean hasNext = rows.size() > size;
+        List<Order> page = hasNext ? rows.subList(0, size) : rows;
+        fetchItems(page);
+        return CursorPage.<OrderResponse>builder()
+                .content(page.stream().map(orderMapper::toResponse).toList())
+                .size(page.size())
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? OrderCursor.after(page.get(page.size() - 1)).encode() : null)
+                .totalElements(total)
+                .build();
+    }
+
+    /**
+     * Initialize the items of a page of orders with one query; the mapper reads them for every
+     * order, which would otherwise lazy-load them one order at a time
+     */
+    private void fetchItems(List<Order> orders) {
+        if (!orders.isEmpty()) {
+            orderRepository.findAllWithItemsByIdIn(orders.stream().map(Order::getId).toList());
+        }
     }
 
     @Override
@@ -175,12 +190,15 @@ public class OrderServiceImpl implements OrderService {
                 .orElseThrow(() -> new NotFoundException("Order not found"));
 
         // Basic cancellation - can be enhanced later
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(OrderStatus.CANCELLED);
         order.setCancelledAt(LocalDateTime.now());
         order.setCancellationReason(reason);
         order.setUpdatedAt(LocalDateTime.now());
 
         orderRepository.save(order);
+        orderOutbox.statusChanged(order, previousStatus, reason);
+        releaseStock(order);
         log.info("Order {} cancelled successfully", id);
     }
 
@@ -190,9 +208,11 @@ public class OrderServiceImpl implements OrderService {
         log.info("Marking order {} as PAID with paymentId {} and number {}", orderId, paymentId, paymentNumber);
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new NotFoundException("Order not found"));
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(OrderStatus.PAID);
         order.setUpdatedAt(LocalDateTime.now());
         orderRepository.save(order);
+        orderOutbox.statusChanged(order, previousStatus, null);
         log.info("Order {} successfully marked as PAID", orderId);
     }
 
@@ -202,9 +222,11 @@ public class OrderServiceImpl implements OrderService {
         log.info("Marking order {} as FAILED due to: {}", orderId, reason);
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new NotFoundException("Order not found"));
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(OrderStatus.FAILED);
         order.setUpdatedAt(LocalDateTime.now());
         orderRepository.save(order);
+        orderOutbox.statusChanged(order, previousStatus, reason);
         log.info("Order {} successfully marked as FAILED", orderId);
     }
 
@@ -218,11 +240,26 @@ public class OrderServiceImpl implements OrderService {
         if (newStatus == null) {
             throw new IllegalArgumentException("Invalid order status code: " + request.getStatus());
         }
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(newStatus);
         order.setUpdatedAt(LocalDateTime.now());
         orderRepository.save(order);
+        orderOutbox.statusChanged(order, previousStatus, request.getReason());
+        if (newStatus == OrderStatus.CANCELLED) {
+            releaseStock(order);
+        }
         log.info("Order {} status successfully updated to {}", orderId, newStatus);
     }
+
+    /**
+     * Marks the saga for release in the cancelling transaction; the release call itself runs
+     * after commit, see {@link OrderPlacementPipeline#releaseStock}
+     */
+    private void releaseStock(Order order) {
+        orderSagaRepository.findByOrderId(order.getId())
+                .ifPresentOrElse(orderPlacementPipeline::releaseStock,
+                        () -> log.debug("Order {} was not placed through a saga, no stock reservation to release", order.getId()));
+    }
 }
 
 
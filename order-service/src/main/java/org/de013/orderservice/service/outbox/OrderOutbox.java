@@ -0,0 +1,131 @@
+package org.de013.orderservice.service.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.common.dto.event.OrderStatusChangedEvent;
+import org.de013.orderservice.config.OutboxProperties;
+import org.de013.orderservice.dto.response.OutboxReplayResponse;
+import org.de013.orderservice.dto.response.OutboxStatusResponse;
+import org.de013.orderservice.entity.Order;
+import org.de013.orderservice.entity.OrderOutboxEvent;
+import org.de013.orderservice.entity.enums.OrderStatus;
+import org.de013.orderservice.repository.OrderOutboxRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Writes order events to the outbox. Joins the caller's transaction and refuses to run
+ * without one, so an event is committed exactly when the change it describes is.
+ * Published events are purged once they are older than the retention window.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderOutbox {
+
+    private static final String ROUTING_KEY_PREFIX = "order.status.";
+
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final ObjectMapper objectMapper;
+    private final OutboxProperties properties;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(Order order, OrderStatus previousStatus, String reason) {
+        LocalDateTime now = LocalDateTime.now();
+        OrderStatusChangedEvent event = OrderStatusChangedEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .orderId(order.getId())
+                .orderNumber(order.getOrderNumber())
+                .userId(order.getUserId())
+                .previousStatus(previousStatus != null ? previousStatus.getCode() : null)
+                .status(order.getStatus().getCode())
+                .reason(reason)
+                .totalAmount(order.getTotalAmount() != null ? order.getTotalAmount().getAmount() : null)
+                .currency(order.getTotalAmount() != null ? order.getTotalAmount().getCurrency() : null)
+                .occurredAt(now)
+                .build();
+
+        orderOutboxRepository.save(OrderOutboxEvent.builder()
+                .eventId(event.getEventId())
+                .aggregateId(order.getId())
+                .eventType(OrderStatusChangedEvent.TYPE)
+                .routingKey(ROUTING_KEY_PREFIX + event.getStatus().toLowerCase())
+                .payload(toJson(event))
+                .createdAt(now)
+                .build());
+        log.debug("Queued {} event for order {}: {} -> {}", OrderStatusChangedEvent.TYPE, order.getId(),
+                event.getPreviousStatus(), event.getStatus());
+    }
+
+    @Transactional(readOnly = true)
+    public OutboxStatusResponse status() {
+        LocalDateTime oldestPendingAt = orderOutboxRepository.findFirstByPublishedAtIsNullAndFailedAtIsNullOrderByIdAsc()
+                .map(OrderOutboxEvent::getCreatedAt)
+                .orElse(null);
+        return OutboxStatusResponse.builder()
+                .pending(orderOutboxRepository.countByPublishedAtIsNullAndFailedAtIsNull())
+                .parked(orderOutboxRepository.countByFailedAtIsNotNull())
+                .oldestPendingAt(oldestPendingAt)
+                .lagSeconds(oldestPendingAt != null ? Duration.between(oldestPendingAt, LocalDateTime.now()).toSeconds() : 0)
+                .build();
+    }
+
+    /**
+     * Publish already-published events created in [from, to) again, e.g. after a consumer lost
+     * its queue, and retry parked ones. Events keep their ids, so consumers that dedupe by
+     * message id are unaffected. Published events are only kept for
+     * {@code published-retention-days}, so a replay cannot reach further back than that.
+     */
+    @Transactional
+    public OutboxReplayResponse replay(LocalDateTime from, LocalDateTime to, Long orderId) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Replay window is empty: from must be before to");
+        }
+        int requeued = orderId != null
+                ? orderOutboxRepository.requeuePublishedForOrder(orderId, from, to)
+                : orderOutboxRepository.requeuePublished(from, to);
+        log.info("Requeued {} order events created in [{}, {}){}", requeued, from, to,
+                orderId != null ? " for order " + orderId : "");
+        return OutboxReplayResponse.builder()
+                .from(from)
+                .to(to)
+                .orderId(orderId)
+                .requeued(requeued)
+                .build();
+    }
+
+    /**
+     * Delete events published longer ago than the retention window, in batches
+     */
+    @Scheduled(fixedDelayString = "${order.outbox.retention.purge-interval-millis:3600000}")
+    public void purgePublished() {
+        OutboxProperties.Retention retention = properties.getRetention();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retention.getPublishedRetentionDays());
+        int batchSize = Math.max(1, retention.getPurgeBatchSize());
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = orderOutboxRepository.deletePublishedBefore(cutoff, batchSize);
+            purged += deleted;
+        } while (deleted >= batchSize);
+        if (purged > 0) {
+            log.info("Purged {} order events published before {}", purged, cutoff);
+        }
+    }
+
+    private String toJson(OrderStatusChangedEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize order event", e);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.de013.orderservice.service.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.orderservice.config.OutboxProperties;
+import org.de013.orderservice.entity.OrderOutboxEvent;
+import org.de013.orderservice.repository.OrderOutboxRepository;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes pending outbox events to RabbitMQ in batches, with publisher confirms.
+ * <p>
+ * Each batch is locked with SKIP LOCKED, so several instances can relay side by side, sent
+ * in id order and then awaited as a whole. Events are marked published up to the first one
+ * the broker did not confirm; that one and the rest of the batch are retried next run, so
+ * a consumer may see an event twice but never loses one. An event that still fails after
+ * {@code max-attempts} is parked ({@code failed_at}) so it stops holding up the events behind
+ * it; a replay covering it publishes it again. Failures to reach the broker at all say nothing
+ * about the event and never park it.
+ * <p>
+ * Metrics: {@code order.outbox.lag} (age of the oldest pending event, seconds),
+ * {@code order.outbox.pending}, {@code order.outbox.publish.delay} (commit to confirm) and
+ * {@code order.outbox.published} (tag: outcome, including {@code parked}).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "order.outbox.relay", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OrderOutboxRelay {
+
+    private static final String METRIC_PREFIX = "order.outbox";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Timer publishDelay;
+    private final AtomicLong oldestPendingMillis = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+
+    public OrderOutboxRelay(OrderOutboxRepository orderOutboxRepository,
+                            RabbitTemplate rabbitTemplate,
+                            TransactionTemplate transactionTemplate,
+                            OutboxProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.orderOutboxRepository = orderOutboxRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.publishDelay = Timer.builder(METRIC_PREFIX + ".publish.delay")
+                .description("Time from writing an order event to its broker confirm")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".lag", this, OrderOutboxRelay::lagSeconds)
+                .description("Age of the oldest order event not yet published")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".pending", pending, AtomicLong::get)
+                .description("Order events not yet published")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${order.outbox.relay.interval-millis:1000}")
+    public void relay() {
+        OutboxProperties.Relay settings = properties.getRelay();
+        try {
+            for (int i = 0; i < settings.getMaxBatchesPerRun(); i++) {
+                Integer published = transactionTemplate.execute(status -> relayBatch(settings));
+                if (published == null || published < settings.getBatchSize()) {
+                    break;
+                }
+            }
+        } finally {
+            refreshLag();
+        }
+    }
+
+    /**
+     * @return events published; less than a full batch means there is nothing more to do for now
+     */
+    private int relayBatch(OutboxProperties.Relay settings) {
+        List<OrderOutboxEvent> batch = orderOutboxRepository.lockUnpublished(PageRequest.of(0, settings.getBatchSize()));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CorrelationData> sent = new ArrayList<>(batch.size());
+        for (OrderOutboxEvent event : batch) {
+            CorrelationData correlation = new CorrelationData(event.getEventId());
+            try {
+                rabbitTemplate.send(properties.getExchange(), event.getRoutingKey(), toMessage(event), correlation);
+            } catch (AmqpConnectException e) {
+                failed(event, "send failed: " + e.getMessage(), false);
+                break;
+            } catch (AmqpException e) {
+                failed(event, "send failed: " + e.getMessage(), true);
+                break;
+            }
+            sent.add(correlation);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.getConfirmTimeoutMillis());
+        LocalDateTime now = LocalDateTime.now();
+        int published = 0;
+        for (int i = 0; i < sent.size(); i++) {
+            OrderOutboxEvent event = batch.get(i);
+            String error = awaitConfirm(sent.get(i), deadline);
+            if (error != null) {
+                failed(event, error, true);
+                break;
+            }
+            event.setPublishedAt(now);
+            publishDelay.record(Duration.between(event.getCreatedAt(), now));
+            published++;
+        }
+        count("ack", published);
+        log.debug("Published {} of {} order events", published, batch.size());
+        return published;
+    }
+
+    /**
+     * @return null when the broker acked, otherwise why the event is not published
+     */
+    private String awaitConfirm(CorrelationData correlation, long deadline) {
+        try {
+            CorrelationData.Confirm confirm = correlation.getFuture()
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (!confirm.isAck()) {
+                return "nacked: " + confirm.getReason();
+            }
+            if (correlation.getReturned() != null) {
+                // Routed nowhere: nobody has bound a queue for this key yet, retrying will not help
+                log.warn("Order event {} was not routed to any queue (routing key {})",
+                        correlation.getId(), correlation.getReturned().getRoutingKey());
+                count("unroutable", 1);
+            }
+            return null;
+        } catch (TimeoutException e) {
+            return "no confirm within " + properties.getRelay().getConfirmTimeoutMillis() + " ms";
+        } catch (ExecutionException e) {
+            return "confirm failed: " + e.getCause().getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        }
+    }
+
+    /**
+     * @param mayPark false when the broker was unreachable, which is no fault of the event
+     */
+    private void failed(OrderOutboxEvent event, String error, boolean mayPark) {
+        event.setAttempts(event.getAttempts() + 1);
+        event.setLastError(error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH));
+        if (mayPark && event.getAttempts() >= properties.getRelay().getMaxAttempts()) {
+            event.setFailedAt(LocalDateTime.now());
+            count("parked", 1);
+            log.error("Parking order event {} (order {}) after {} attempts, replay it once the cause is fixed: {}",
+                    event.getEventId(), event.getAggregateId(), event.getAttempts(), error);
+            return;
+        }
+        count("failed", 1);
+        log.warn("Order event {} (attempt {}) not published: {}", event.getEventId(), event.getAttempts(), error);
+    }
+
+    private Message toMessage(OrderOutboxEvent event) {
+        return MessageBuilder.withBody(event.getPayload().getBytes(StandardCharsets.UTF_8))
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setMessageId(event.getEventId())
+                .setType(event.getEventType())
+                .setTimestamp(Date.from(event.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant()))
+                .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                .setHeader("orderId", event.getAggregateId())
+                .build();
+    }
+
+    private void refreshLag() {
+        try {
+            pending.set(orderOutboxRepository.countByPublishedAtIsNullAndFailedAtIsNull());
+            oldestPendingMillis.set(orderOutboxRepository.findFirstByPublishedAtIsNullAndFailedAtIsNullOrderByIdAsc()
+                    .map(event -> event.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                    .orElse(0L));
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh order outbox lag: {}", e.getMessage());
+        }
+    }
+
+    private double lagSeconds() {
+        long oldest = oldestPendingMillis.get();
+        return oldest == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest) / 1000.0;
+    }
+
+    private void count(String outcome, int events) {
+        if (events == 0) {
+            return;
+        }
+        Counter.builder(METRIC_PREFIX + ".published")
+                .description("Order events handed to the broker, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(events);
+    }
+}
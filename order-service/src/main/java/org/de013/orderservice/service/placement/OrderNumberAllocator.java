@@ -0,0 +1,71 @@
+package org.de013.orderservice.service.placement;
+
+import lombok.extern.slf4j.Slf4j;
+import org.de013.orderservice.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out order numbers such as {@code ORD-261015-00012345}: the placement date followed by
+ * a number from the {@code order_number_seq} sequence.
+ * <p>
+ * The sequence steps by {@link #BLOCK_SIZE}, and each {@code nextval} gives this instance a
+ * whole block to number orders from in memory (hi/lo), so only one order in a hundred pays a
+ * database round trip and numbers are unique across instances without an existence check.
+ * Numbers of a block left unused at shutdown are skipped. Within a day numbers sort in
+ * allocation order per instance and roughly in time order across instances.
+ * <p>
+ * Guarded by a {@link ReentrantLock} rather than {@code synchronized}: the block fetch does
+ * JDBC I/O under the lock and must not pin a virtual thread.
+ */
+@Slf4j
+@Component
+public class OrderNumberAllocator {
+
+    /**
+     * Numbers per block; must equal INCREMENT BY of order_number_seq (V5 migration)
+     */
+    static final int BLOCK_SIZE = 100;
+
+    private static final String PREFIX = "ORD-";
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyMMdd");
+
+    private final OrderRepository orderRepository;
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next;
+    private long limit;
+
+    @Autowired
+    public OrderNumberAllocator(OrderRepository orderRepository) {
+        this(orderRepository, Clock.systemDefaultZone());
+    }
+
+    OrderNumberAllocator(OrderRepository orderRepository, Clock clock) {
+        this.orderRepository = orderRepository;
+        this.clock = clock;
+    }
+
+    public String nextOrderNumber() {
+        return PREFIX + DATE.format(LocalDate.now(clock)) + "-" + String.format("%08d", nextValue());
+    }
+
+    long nextValue() {
+        lock.lock();
+        try {
+            if (next == limit) {
+                next = orderRepository.nextOrderNumberBlock();
+                limit = next + BLOCK_SIZE;
+                log.debug("Allocated order number block [{}, {})", next, limit);
+            }
+            return next++;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package org.de013.orderservice.service.placement;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.FeignException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.common.dto.ApiResponse;
+import org.de013.common.security.UserContext;
+import org.de013.common.security.UserContextHolder;
+import org.de013.orderservice.client.CartServiceClient;
+import org.de013.orderservice.client.ProductCatalogClient;
+import org.de013.orderservice.client.ShoppingCartClient;
+import org.de013.orderservice.config.OrderPlacementProperties;
+import org.de013.orderservice.dto.CartItemDto;
+import org.de013.orderservice.dto.StockReservationRequest;
+import org.de013.orderservice.dto.StockReservationResult;
+import org.de013.orderservice.dto.request.CreateOrderRequest;
+import org.de013.orderservice.dto.response.OrderResponse;
+import org.de013.orderservice.entity.Order;
+import org.de013.orderservice.entity.OrderItem;
+import org.de013.orderservice.entity.OrderSaga;
+import org.de013.orderservice.entity.enums.OrderStatus;
+import org.de013.orderservice.entity.enums.SagaStatus;
+import org.de013.orderservice.entity.valueobject.Money;
+import org.de013.orderservice.mapper.OrderMapper;
+import org.de013.orderservice.repository.OrderRepository;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Order placement as an orchestrated saga whose stages ({@link PlacementStage}) are recorded
+ * in the {@code order_sagas} log, keeping remote calls out of the database transaction.
+ * <p>
+ * The cart is fetched and all lines are reserved with one all-or-nothing call, under the
+ * saga id as reservation reference, before any connection is borrowed for the order. Only
+ * the persist stage opens a transaction; it writes the order and moves the saga past the
+ * pivot atomically. A saga that fails before the pivot is compensated by releasing its
+ * reservation; after the pivot the reservation is fulfilled and the cart cleared, and a
+ * failure there is retried by {@link OrderSagaRecoverySweeper} instead of failing the order.
+ * Cancelling a placed order moves its saga to RELEASING_STOCK and releases the reservation
+ * once the cancellation has committed ({@link #releaseStock}).
+ * <p>
+ * Every saga transition is conditional on the state it leaves ({@link OrderSagaLog}), and
+ * a saga is moved to COMPENSATING before its reservation is released. So when the sweeper
+ * gives up on a slow placement, either it releases the stock and the placement can no longer
+ * write its order (the persist transaction rolls back), or the placement got there first and
+ * the sweeper leaves it alone.
+ * <p>
+ * Each stage is timed as {@code order.placement.stage} (tags: stage, outcome) and the whole
+ * placement as {@code order.placement}.
+ */
+@Slf4j
+@Component
+public class OrderPlacementPipeline {
+
+    private static final String METRIC_PREFIX = "order.placement";
+
+    private final CartServiceClient cartServiceClient;
+    private final ShoppingCartClient shoppingCartClient;
+    private final ProductCatalogClient productCatalogClient;
+    private final OrderRepository orderRepository;
+    private final OrderNumberAllocator orderNumberAllocator;
+    private final OrderSagaLog sagaLog;
+    private final OrderMapper orderMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate outsideTransaction;
+    private final ObjectMapper objectMapper;
+    private final OrderPlacementProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary lines;
+
+    public OrderPlacementPipeline(CartServiceClient cartServiceClient,
+                                  ShoppingCartClient shoppingCartClient,
+                                  ProductCatalogClient productCatalogClient,
+                                  OrderRepository orderRepository,
+                                  OrderNumberAllocator orderNumberAllocator,
+                                  OrderSagaLog sagaLog,
+                                  OrderMapper orderMapper,
+                                  TransactionTemplate transactionTemplate,
+                                  ObjectMapper objectMapper,
+                                  OrderPlacementProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.cartServiceClient = cartServiceClient;
+        this.shoppingCartClient = shoppingCartClient;
+        this.productCatalogClient = productCatalogClient;
+        this.orderRepository = orderRepository;
+        this.orderNumberAllocator = orderNumberAllocator;
+        this.sagaLog = sagaLog;
+        this.orderMapper = orderMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.outsideTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.outsideTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.lines = DistributionSummary.builder(METRIC_PREFIX + ".lines")
+                .description("Cart lines per placed order")
+                .register(meterRegistry);
+    }
+
+    public OrderResponse place(CreateOrderRequest request) {
+        return place(request, orderNumberAllocator.nextOrderNumber());
+    }
+
+    /**
+     * Place the order under a number allocated beforehand; the unique order number means at
+     * most one placement under it can ever commit an order
+     */
+    public OrderResponse place(CreateOrderRequest request, String orderNumber) {
+        log.info("Creating order {} for user: {} from cart: {}", orderNumber, request.getUserId(), request.getCartId());
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            List<CartItemDto> cartItems = stage(PlacementStage.FETCH_CART, () -> fetchCart(request.getCartId()));
+            lines.record(cartItems.size());
+            Order order = buildOrder(request, cartItems);
+            OrderSaga saga = sagaLog.start(newSaga(request, order, orderNumber, cartItems));
+
+            OrderSaga reserved = stage(PlacementStage.RESERVE_STOCK, () -> reserveStock(saga, cartItems));
+
+            PersistedOrder persisted;
+            try {
+                persisted = stage(PlacementStage.PERSIST, () -> transactionTemplate.execute(status -> persist(reserved, order)));
+            } catch (OptimisticLockingFailureException e) {
+                // Recovery took the saga over and released its stock; the order insert was rolled back
+                log.error("Order saga {} was aborted while persisting order {}: {}", reserved.getSagaId(), reserved.getOrderNumber(), e.getMessage());
+                throw e;
+            } catch (RuntimeException e) {
+                log.error("Persisting order {} failed, compensating saga {}: {}", reserved.getOrderNumber(), reserved.getSagaId(), e.getMessage());
+                compensate(reserved, e.getMessage());
+                throw e;
+            }
+
+            try {
+                stage(PlacementStage.FULFILL_STOCK, () -> fulfillStock(persisted.saga()));
+                stage(PlacementStage.CLEAR_CART, () -> clearCart(persisted.saga()));
+            } catch (RuntimeException e) {
+                // Past the pivot: the order stands, the sweeper retries stock and cart
+                log.warn("Finishing order {} failed, leaving it to saga recovery: {}",
+                        persisted.response().getOrderNumber(), e.getMessage());
+            }
+            outcome = "success";
+            log.info("Order created successfully: {} with {} items", persisted.response().getOrderNumber(), cartItems.size());
+            return persisted.response();
+        } finally {
+            Timer.builder(METRIC_PREFIX)
+                    .description("End-to-end order placement time")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Drive a stuck saga to a terminal state: release the reservation of one that had not
+     * passed the pivot or whose order was cancelled, finish one that had.
+     *
+     * @return the state the saga was left in
+     */
+    public SagaStatus recover(OrderSaga saga) {
+        switch (saga.getStatus()) {
+            case RESERVING_STOCK, PERSISTING_ORDER, COMPENSATING -> {
+                // The order row and CLEARING_CART are written together, so no order exists here;
+                // leaving the state first keeps a placement still in flight from writing one later
+                if (saga.getStatus() != SagaStatus.COMPENSATING) {
+                    sagaLog.transition(saga, saga.getStatus(), SagaStatus.COMPENSATING, null);
+                }
+                releaseReservation(saga);
+                sagaLog.transition(saga, SagaStatus.COMPENSATING, SagaStatus.ABORTED, null);
+                log.info("Order saga {} compensated, order {} not placed", saga.getSagaId(), saga.getOrderNumber());
+                return SagaStatus.ABORTED;
+            }
+            case RELEASING_STOCK -> {
+                return releaseCancelledStock(saga);
+            }
+            case CLEARING_CART -> {
+                fulfillStock(saga);
+                clearCart(saga);
+                log.info("Order saga {} completed for order {}", saga.getSagaId(), saga.getOrderNumber());
+                return SagaStatus.COMPLETED;
+            }
+            default -> {
+                return saga.getStatus();
+            }
+        }
+    }
+
+    private <T> T stage(PlacementStage stage, Supplier<T> action) {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            T result = action.get();
+            outcome = "success";
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Timer.builder(METRIC_PREFIX + ".stage")
+                    .description("Time spent in each order placement stage")
+                    .tag("stage", stage.getTag())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            log.debug("Order placement stage {} took {} ms ({})", stage, TimeUnit.NANOSECONDS.toMillis(elapsed), outcome);
+        }
+    }
+
+    private List<CartItemDto> fetchCart(Long cartId) {
+        List<CartItemDto> cartItems = cartServiceClient.getCartItems(cartId).getData();
+        if (cartItems == null || cartItems.isEmpty()) {
+            throw new IllegalArgumentException("Cart is empty or not found");
+        }
+        return cartItems;
+    }
+
+    private Order buildOrder(CreateOrderRequest request, List<CartItemDto> cartItems) {
+        Order order = orderMapper.toEntity(request);
+        order.setStatus(OrderStatus.PENDING);
+
+        String currency = request.getCurrency() != null ? request.getCurrency() : "USD";
+        order.setTaxAmount(new Money(BigDecimal.ZERO, currency));
+        order.setShippingAmount(new Money(BigDecimal.ZERO, currency));
+        order.setDiscountAmount(new Money(BigDecimal.ZERO, currency));
+
+        for (CartItemDto cartItem : cartItems) {
+            OrderItem orderItem = new OrderItem();
+
+            orderItem.setProductId(cartItem.getProductId());
+
+            orderItem.setSku(cartItem.getProductSku());
+            orderItem.setProductName(cartItem.getProductName());
+            orderItem.setProductDescription(cartItem.getProductDescription());
+            orderItem.setQuantity(cartItem.getQuantity());
+            // unitPrice is the list price per unit; totalPrice is the GROSS line amount (unitPrice * qty).
+            // The order-level recalculation subtracts the per-line discount once to reach the net total.
+            BigDecimal qty = BigDecimal.valueOf(cartItem.getQuantity());
+            orderItem.setUnitPrice(new Money(cartItem.getUnitPrice(), cartItem.getCurrency()));
+            orderItem.setTotalPrice(new Money(cartItem.getUnitPrice().multiply(qty), cartItem.getCurrency()));
+
+            // cart exposes discount per unit; scale by quantity for the line-level discount
+            BigDecimal discountPerUnit = cartItem.getDiscountAmount() != null ? cartItem.getDiscountAmount() : BigDecimal.ZERO;
+            orderItem.setDiscountAmount(new Money(discountPerUnit.multiply(qty), cartItem.getCurrency()));
+
+            // Set tax amount (default to 0)
+            orderItem.setTaxAmount(new Money(BigDecimal.ZERO, cartItem.getCurrency()));
+
+            // Set product category and brand
+            orderItem.setProductCategory(cartItem.getCategoryName());
+            orderItem.setProductBrand(cartItem.getProductBrand());
+
+            orderItem.setOrder(order);
+            order.getOrderItems().add(orderItem);
+        }
+
+        order.recalculateTotals();
+        return order;
+    }
+
+
+    private OrderSaga newSaga(CreateOrderRequest request, Order order, String orderNumber, List<CartItemDto> cartItems) {
+        order.setOrderNumber(orderNumber);
+
+        String sagaId = UUID.randomUUID().toString();
+        UserContext user = UserContextHolder.getCurrentUser();
+        return OrderSaga.builder()
+                .sagaId(sagaId)
+                .userId(request.getUserId())
+                .username(user != null && user.getUsername() != null ? user.getUsername() : request.getUserId())
+                .cartId(request.getCartId())
+                .orderNumber(orderNumber)
+                .reservation(writeReservation(toReservationRequest(sagaId, cartItems)))
+                .build();
+    }
+
+    /**
+     * Reserve every line with one call; product-catalog-service applies it all or nothing
+     */
+    private OrderSaga reserveStock(OrderSaga saga, List<CartItemDto> cartItems) {
+        log.info("Reserving stock for {} lines under saga {}", cartItems.size(), saga.getSagaId());
+        ApiResponse<StockReservationResult> response;
+        try {
+            response = productCatalogClient.reserveStock(readReservation(saga));
+        } catch (RuntimeException e) {
+            // Outcome unknown and the call may still commit; the sweeper releases it once the saga is stuck
+            log.error("Reserving stock for saga {} failed: {}", saga.getSagaId(), e.getMessage());
+            sagaLog.transition(saga, SagaStatus.RESERVING_STOCK, SagaStatus.COMPENSATING, e.getMessage());
+            throw e;
+        }
+        StockReservationResult result = response != null ? response.getData() : null;
+        if (result == null || !result.isReserved()) {
+            String product = shortProductName(cartItems, result);
+            log.error("Failed to reserve stock for cart lines - short on: {}", product);
+            sagaLog.transition(saga, SagaStatus.RESERVING_STOCK, SagaStatus.ABORTED, "Insufficient stock for product: " + product);
+            throw new IllegalStateException("Failed to allocate inventory for product: " + product);
+        }
+        return sagaLog.transition(saga, SagaStatus.RESERVING_STOCK, SagaStatus.PERSISTING_ORDER, null);
+    }
+
+    private static String shortProductName(List<CartItemDto> cartItems, StockReservationResult result) {
+        if (result == null || result.getShortages() == null || result.getShortages().isEmpty()) {
+            return "unknown";
+        }
+        String productId = String.valueOf(result.getShortages().get(0).getProductId());
+        return cartItems.stream()
+                .filter(item -> productId.equals(item.getProductId()))
+                .map(CartItemDto::getProductName)
+                .findFirst()
+                .orElse(productId);
+    }
+
+    private static StockReservationRequest toReservationRequest(String reference, List<CartItemDto> cartItems) {
+        List<StockReservationRequest.Line> lines = new ArrayList<>(cartItems.size());
+        for (CartItemDto cartItem : cartItems) {
+            try {
+                lines.add(new StockReservationRequest.Line(Long.valueOf(cartItem.getProductId()), cartItem.getQuantity()));
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("Failed to allocate inventory for product: " + cartItem.getProductName());
+            }
+        }
+        return new StockReservationRequest(reference, lines);
+    }
+
+    /**
+     * Runs in one transaction: if the saga was aborted meanwhile, orderPersisted fails and the
+     * order insert rolls back with it
+     */
+    private PersistedOrder persist(OrderSaga saga, Order order) {
+        LocalDateTime now = LocalDateTime.now();
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+        Order saved = orderRepository.save(order);
+        return new PersistedOrder(sagaLog.orderPersisted(saga, saved.getId()), orderMapper.toResponse(saved));
+    }
+
+    /**
+     * Release the reservation right away; if that fails too the saga stays COMPENSATING for the
+     * sweeper. Nothing is released when the sweeper has already taken the saga over.
+     */
+    private void compensate(OrderSaga saga, String error) {
+        try {
+            sagaLog.transition(saga, SagaStatus.PERSISTING_ORDER, SagaStatus.COMPENSATING, error);
+            releaseReservation(saga);
+            sagaLog.transition(saga, SagaStatus.COMPENSATING, SagaStatus.ABORTED, null);
+        } catch (RuntimeException e) {
+            log.error("Could not compensate order saga {}, left to recovery: {}", saga.getSagaId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Idempotent: product-catalog-service releases only what is still held under the saga id
+     */
+    private void releaseReservation(OrderSaga saga) {
+        productCatalogClient.releaseReservedStock(readReservation(saga));
+    }
+
+    /**
+     * Give back the stock of a placed order that is being cancelled, whether its reservation
+     * was fulfilled yet or not; a reservation released before it is fulfilled is never
+     * fulfilled afterwards.
+     * <p>
+     * Must be called in the cancelling transaction: the saga moves to RELEASING_STOCK with the
+     * order, and the release call runs only once that transaction has committed, outside it.
+     * If the call fails, or the instance dies first, {@link OrderSagaRecoverySweeper} retries it.
+     */
+    public void releaseStock(OrderSaga saga) {
+        if (saga.getStatus() == SagaStatus.CANCELLED) {
+            log.debug("Stock of order {} already released under saga {}", saga.getOrderNumber(), saga.getSagaId());
+            return;
+        }
+        OrderSaga releasing = saga.getStatus() == SagaStatus.RELEASING_STOCK ? saga : sagaLog.releasing(saga);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    // The committed transaction is still bound here; suspend it so the saga update gets its own
+                    outsideTransaction.executeWithoutResult(status -> releaseCancelledStock(releasing));
+                } catch (RuntimeException e) {
+                    log.warn("Releasing stock of cancelled order {} failed, leaving it to saga recovery: {}",
+                            releasing.getOrderNumber(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    private SagaStatus releaseCancelledStock(OrderSaga saga) {
+        log.info("Releasing stock of order {} held under saga {}", saga.getOrderNumber(), saga.getSagaId());
+        releaseReservation(saga);
+        sagaLog.transition(saga, SagaStatus.RELEASING_STOCK, SagaStatus.CANCELLED, null);
+        return SagaStatus.CANCELLED;
+    }
+
+    /**
+     * Idempotent: product-catalog-service fulfils a reservation once, and never one already released
+     */
+    private OrderSaga fulfillStock(OrderSaga saga) {
+        ApiResponse<StockReservationResult> response = productCatalogClient.fulfillReservedStock(readReservation(saga));
+        StockReservationResult result = response != null ? response.getData() : null;
+        if (result == null || !result.isReserved()) {
+            log.warn("No stock held under saga {} to fulfill for order {}", saga.getSagaId(), saga.getOrderNumber());
+        }
+        return saga;
+    }
+
+    private OrderSaga clearCart(OrderSaga saga) {
+        if (properties.isClearCart()) {
+            try {
+                shoppingCartClient.clearCart(saga.getUserId(), saga.getUserId(), saga.getUsername());
+            } catch (FeignException.NotFound e) {
+                log.debug("No cart left to clear for user: {}", saga.getUserId());
+            }
+        }
+        return sagaLog.transition(saga, SagaStatus.CLEARING_CART, SagaStatus.COMPLETED, null);
+    }
+
+    private String writeReservation(StockReservationRequest reservation) {
+        try {
+            return objectMapper.writeValueAsString(reservation);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize stock reservation", e);
+        }
+    }
+
+    private StockReservationRequest readReservation(OrderSaga saga) {
+        try {
+            return objectMapper.readValue(saga.getReservation(), StockReservationRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stock reservation of saga " + saga.getSagaId(), e);
+        }
+    }
+
+    private record PersistedOrder(OrderSaga saga, OrderResponse response) {
+    }
+}
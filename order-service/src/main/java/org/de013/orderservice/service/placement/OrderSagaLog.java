@@ -0,0 +1,109 @@
+package org.de013.orderservice.service.placement;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.orderservice.entity.OrderSaga;
+import org.de013.orderservice.entity.enums.SagaStatus;
+import org.de013.orderservice.repository.OrderSagaRepository;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+
+/**
+ * Writes to the order placement saga log.
+ * <p>
+ * Every transition is a conditional update from the state the caller expects the saga to be
+ * in, run inside a transaction (joining the caller's, if any). When the placement and the
+ * recovery sweeper race, only one of them moves the saga on; the other gets an
+ * {@link OptimisticLockingFailureException} and must stop. The caller's copy is updated only
+ * once the write succeeded.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderSagaLog {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OrderSagaRepository orderSagaRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderSaga start(OrderSaga saga) {
+        saga.setStatus(SagaStatus.RESERVING_STOCK);
+        OrderSaga started = orderSagaRepository.save(saga);
+        log.debug("Started order saga {} for order {}", started.getSagaId(), started.getOrderNumber());
+        return started;
+    }
+
+    /**
+     * Move the saga from {@code expected} to {@code next}, recording the error if there is one
+     *
+     * @throws OptimisticLockingFailureException if the saga is no longer in {@code expected}
+     */
+    public OrderSaga transition(OrderSaga saga, SagaStatus expected, SagaStatus next, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        String lastError = error != null ? truncate(error) : null;
+        update(saga, expected, next, () -> lastError != null
+                ? orderSagaRepository.transitionWithError(saga.getId(), expected, next, lastError, now)
+                : orderSagaRepository.transition(saga.getId(), expected, next, now));
+        if (lastError != null) {
+            saga.setLastError(lastError);
+        }
+        saga.setStatus(next);
+        saga.setUpdatedAt(now);
+        return saga;
+    }
+
+    /**
+     * Record that the order row was written and move the saga past the pivot; must run in the
+     * transaction that writes the order, so a saga aborted meanwhile rolls the order back
+     *
+     * @throws OptimisticLockingFailureException if the saga is no longer PERSISTING_ORDER
+     */
+    public OrderSaga orderPersisted(OrderSaga saga, Long orderId) {
+        LocalDateTime now = LocalDateTime.now();
+        update(saga, SagaStatus.PERSISTING_ORDER, SagaStatus.CLEARING_CART, () -> orderSagaRepository.transitionWithOrder(
+                saga.getId(), SagaStatus.PERSISTING_ORDER, SagaStatus.CLEARING_CART, orderId, now));
+        saga.setOrderId(orderId);
+        saga.setStatus(SagaStatus.CLEARING_CART);
+        saga.setUpdatedAt(now);
+        return saga;
+    }
+
+    /**
+     * Take a stuck saga for recovery. Fails with an optimistic locking exception when another
+     * instance has touched it since it was read.
+     */
+    public OrderSaga claim(OrderSaga saga) {
+        saga.setAttempts(saga.getAttempts() + 1);
+        return orderSagaRepository.save(saga);
+    }
+
+    /**
+     * Mark the saga of an order being cancelled for stock release; joins the cancelling
+     * transaction, whose commit fails with an optimistic locking exception when the saga was
+     * moved on meanwhile
+     */
+    public OrderSaga releasing(OrderSaga saga) {
+        saga.setStatus(SagaStatus.RELEASING_STOCK);
+        return orderSagaRepository.save(saga);
+    }
+
+    private void update(OrderSaga saga, SagaStatus expected, SagaStatus next, IntSupplier write) {
+        Integer updated = transactionTemplate.execute(status -> write.getAsInt());
+        if (updated == null || updated == 0) {
+            throw new OptimisticLockingFailureException("Order saga " + saga.getSagaId()
+                    + " is no longer " + expected + ", not moving it to " + next);
+        }
+        if (saga.getVersion() != null) {
+            saga.setVersion(saga.getVersion() + 1);
+        }
+    }
+
+    private static String truncate(String error) {
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
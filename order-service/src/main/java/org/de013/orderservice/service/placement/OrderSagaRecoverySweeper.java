@@ -0,0 +1,120 @@
+package org.de013.orderservice.service.placement;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.de013.orderservice.config.OrderPlacementProperties;
+import org.de013.orderservice.entity.OrderSaga;
+import org.de013.orderservice.entity.enums.SagaStatus;
+import org.de013.orderservice.repository.OrderSagaRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds order placement sagas that stopped moving (crash, timeout, failed compensation, cart
+ * clear or release of a cancelled order's stock) and hands them to {@link OrderPlacementPipeline#recover}. Each attempt is
+ * counted on the saga; after {@code max-attempts} it is marked FAILED and logged for manual
+ * attention. Claiming a saga bumps its version, so only one instance recovers it at a time,
+ * and each transition is conditional, so a placement that is slow rather than dead either
+ * finishes or loses its saga to recovery, never both.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "order.placement.recovery", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OrderSagaRecoverySweeper {
+
+    private static final Set<SagaStatus> RECOVERABLE = EnumSet.of(
+            SagaStatus.RESERVING_STOCK,
+            SagaStatus.PERSISTING_ORDER,
+            SagaStatus.CLEARING_CART,
+            SagaStatus.COMPENSATING,
+            SagaStatus.RELEASING_STOCK);
+
+    private final OrderSagaRepository orderSagaRepository;
+    private final OrderSagaLog sagaLog;
+    private final OrderPlacementPipeline pipeline;
+    private final OrderPlacementProperties.Recovery settings;
+    private final MeterRegistry meterRegistry;
+
+    public OrderSagaRecoverySweeper(OrderSagaRepository orderSagaRepository,
+                                    OrderSagaLog sagaLog,
+                                    OrderPlacementPipeline pipeline,
+                                    OrderPlacementProperties properties,
+                                    MeterRegistry meterRegistry) {
+        this.orderSagaRepository = orderSagaRepository;
+        this.sagaLog = sagaLog;
+        this.pipeline = pipeline;
+        this.settings = properties.getRecovery();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(fixedDelayString = "${order.placement.recovery.interval-millis:30000}",
+            initialDelayString = "${order.placement.recovery.interval-millis:30000}")
+    public void sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(settings.getStuckAfterSeconds());
+        List<OrderSaga> stuck = orderSagaRepository.findByStatusInAndUpdatedAtBeforeOrderByUpdatedAtAsc(
+                RECOVERABLE, cutoff, PageRequest.of(0, settings.getBatchSize()));
+        if (stuck.isEmpty()) {
+            return;
+        }
+        log.info("Recovering {} stuck order sagas", stuck.size());
+        stuck.forEach(this::recover);
+    }
+
+    void recover(OrderSaga saga) {
+        OrderSaga claimed;
+        try {
+            claimed = sagaLog.claim(saga);
+        } catch (OptimisticLockingFailureException e) {
+            log.debug("Order saga {} was picked up elsewhere", saga.getSagaId());
+            return;
+        }
+
+        try {
+            SagaStatus status = pipeline.recover(claimed);
+            count(status.name().toLowerCase());
+        } catch (OptimisticLockingFailureException e) {
+            // The placement moved the saga on while it was being recovered
+            log.info("Order saga {} moved on during recovery: {}", claimed.getSagaId(), e.getMessage());
+            count("superseded");
+        } catch (RuntimeException e) {
+            try {
+                recordFailure(claimed, e);
+            } catch (OptimisticLockingFailureException conflict) {
+                // Same as above, only noticed when writing down the failed attempt
+                log.info("Order saga {} moved on before its failed recovery was recorded: {}",
+                        claimed.getSagaId(), conflict.getMessage());
+                count("superseded");
+            }
+        }
+    }
+
+    private void recordFailure(OrderSaga claimed, RuntimeException e) {
+        if (claimed.getAttempts() >= settings.getMaxAttempts()) {
+            log.error("Giving up on order saga {} (order {}, status {}) after {} attempts: {}",
+                    claimed.getSagaId(), claimed.getOrderNumber(), claimed.getStatus(), claimed.getAttempts(), e.getMessage());
+            sagaLog.transition(claimed, claimed.getStatus(), SagaStatus.FAILED, e.getMessage());
+            count("failed");
+        } else {
+            log.warn("Recovery attempt {} of order saga {} failed: {}", claimed.getAttempts(), claimed.getSagaId(), e.getMessage());
+            sagaLog.transition(claimed, claimed.getStatus(), claimed.getStatus(), e.getMessage());
+            count("retry");
+        }
+    }
+
+    private void count(String outcome) {
+        Counter.builder("order.saga.recovery")
+                .description("Stuck order sagas handled by the recovery sweeper")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
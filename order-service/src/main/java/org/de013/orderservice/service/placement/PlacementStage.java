@@ -0,0 +1,42 @@
+package org.de013.orderservice.service.placement;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Stages of {@link OrderPlacementPipeline}, in execution order
+ */
+@Getter
+@RequiredArgsConstructor
+public enum PlacementStage {
+
+    /**
+     * Load the cart lines from shopping-cart-service
+     */
+    FETCH_CART("fetch_cart"),
+
+    /**
+     * Reserve stock for all lines in product-catalog-service; compensated by releasing the reservation
+     */
+    RESERVE_STOCK("reserve_stock"),
+
+    /**
+     * Insert the order and its items in one short transaction; the saga's pivot
+     */
+    PERSIST("persist"),
+
+    /**
+     * Turn the reservation into a stock deduction; retried by the recovery sweeper rather than compensated
+     */
+    FULFILL_STOCK("fulfill_stock"),
+
+    /**
+     * Clear the user's cart; retried by the recovery sweeper rather than compensated
+     */
+    CLEAR_CART("clear_cart");
+
+    /**
+     * Metric tag value
+     */
+    private final String tag;
+}
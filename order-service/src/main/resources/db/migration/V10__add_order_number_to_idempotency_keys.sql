@@ -0,0 +1,6 @@
+-- V10__add_order_number_to_idempotency_keys.sql
+-- The order number is reserved when an Idempotency-Key is claimed, so a request taking over
+-- an abandoned key can find an order the first attempt already committed instead of placing
+-- a second one. Keys claimed before this migration have none.
+
+ALTER TABLE order_idempotency_keys ADD COLUMN IF NOT EXISTS order_number VARCHAR(50);
@@ -0,0 +1,11 @@
+-- V11__add_order_outbox_parking_and_retention.sql
+-- Events that keep failing are parked (failed_at) so they no longer block the relay;
+-- published events are purged after the retention window
+
+ALTER TABLE order_outbox ADD COLUMN IF NOT EXISTS failed_at TIMESTAMP;
+
+-- The relay only ever scans unpublished, unparked rows
+DROP INDEX IF EXISTS idx_order_outbox_unpublished;
+CREATE INDEX IF NOT EXISTS idx_order_outbox_unpublished ON order_outbox (id) WHERE published_at IS NULL AND failed_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_order_outbox_parked ON order_outbox (id) WHERE failed_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_order_outbox_published_at ON order_outbox (published_at) WHERE published_at IS NOT NULL;
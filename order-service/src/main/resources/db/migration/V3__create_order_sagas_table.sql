@@ -0,0 +1,24 @@
+-- V3__create_order_sagas_table.sql
+-- Saga log for order placement: one row per placement attempt, advanced stage by stage
+
+CREATE TABLE IF NOT EXISTS order_sagas (
+    id BIGSERIAL PRIMARY KEY,
+    saga_id VARCHAR(36) NOT NULL UNIQUE,
+    status VARCHAR(30) NOT NULL,
+    user_id VARCHAR(36) NOT NULL,
+    username VARCHAR(255),
+    cart_id BIGINT,
+    order_number VARCHAR(50) NOT NULL,
+    order_id BIGINT,
+    reservation TEXT NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    last_error VARCHAR(1000),
+    version BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    created_by VARCHAR(255),
+    updated_by VARCHAR(255)
+);
+
+CREATE INDEX IF NOT EXISTS idx_order_sagas_status_updated ON order_sagas (status, updated_at);
+CREATE INDEX IF NOT EXISTS idx_order_sagas_order_number ON order_sagas (order_number);
@@ -0,0 +1,20 @@
+-- V4__create_order_outbox_table.sql
+-- Transactional outbox: order events written with the status change, published to RabbitMQ by the relay
+
+CREATE TABLE IF NOT EXISTS order_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    event_id VARCHAR(36) NOT NULL UNIQUE,
+    aggregate_id BIGINT NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    routing_key VARCHAR(255) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    published_at TIMESTAMP,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    last_error VARCHAR(1000)
+);
+
+-- The relay only ever scans unpublished rows
+CREATE INDEX IF NOT EXISTS idx_order_outbox_unpublished ON order_outbox (id) WHERE published_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_order_outbox_aggregate_created ON order_outbox (aggregate_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_order_outbox_created_at ON order_outbox (created_at);
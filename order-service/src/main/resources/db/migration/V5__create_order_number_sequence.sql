@@ -0,0 +1,4 @@
+-- Order numbers are handed out in blocks (hi/lo): each nextval reserves 100 numbers for one
+-- instance, which then numbers orders from memory. INCREMENT BY must stay equal to
+-- OrderNumberAllocator.BLOCK_SIZE; blocks would overlap otherwise.
+CREATE SEQUENCE IF NOT EXISTS order_number_seq START WITH 1 INCREMENT BY 100;
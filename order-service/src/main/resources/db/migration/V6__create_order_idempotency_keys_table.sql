@@ -0,0 +1,20 @@
+-- V6__create_order_idempotency_keys_table.sql
+-- Idempotency-Key header on POST /orders: one row per (user, key) holding the request
+-- fingerprint and, once done, the order response that replays return
+
+CREATE TABLE IF NOT EXISTS order_idempotency_keys (
+    id BIGSERIAL PRIMARY KEY,
+    user_id VARCHAR(100) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    order_id BIGINT,
+    response TEXT,
+    locked_until TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    completed_at TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    CONSTRAINT uk_order_idempotency_user_key UNIQUE (user_id, idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_order_idempotency_expires_at ON order_idempotency_keys (expires_at);
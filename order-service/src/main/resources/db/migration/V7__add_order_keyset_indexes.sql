@@ -0,0 +1,8 @@
+-- V7__add_order_keyset_indexes.sql
+-- Keyset pagination of order listings: ORDER BY created_at DESC, id DESC with a
+-- (created_at, id) < (:created_at, :id) seek. idx_user_status cannot order a user's orders by
+-- date and idx_created_at has no tie-breaker, so both listings get a matching index. Partial on
+-- deleted_at IS NULL like every entity query.
+
+CREATE INDEX IF NOT EXISTS idx_orders_user_created_id ON orders (user_id, created_at DESC, id DESC) WHERE deleted_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_orders_created_id ON orders (created_at DESC, id DESC) WHERE deleted_at IS NULL;
@@ -0,0 +1,10 @@
+-- V8__add_order_summary_covering_index.sql
+-- Order history summaries (number, status, total, date) are read from the index alone:
+-- same key as idx_orders_user_created_id, which it replaces, plus the summary columns.
+-- The per-order line count is an index-only scan of idx_order_items_order_id.
+
+CREATE INDEX IF NOT EXISTS idx_orders_user_summary ON orders (user_id, created_at DESC, id DESC)
+    INCLUDE (order_number, status, total_amount, currency)
+    WHERE deleted_at IS NULL;
+
+DROP INDEX IF EXISTS idx_orders_user_created_id;
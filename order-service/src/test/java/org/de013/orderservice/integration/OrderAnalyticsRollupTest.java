@@ -0,0 +1,159 @@
+package org.de013.orderservice.integration;
+
+import jakarta.persistence.EntityManager;
+import org.de013.orderservice.entity.Order;
+import org.de013.orderservice.entity.OrderItem;
+import org.de013.orderservice.entity.enums.OrderStatus;
+import org.de013.orderservice.entity.enums.OrderType;
+import org.de013.orderservice.entity.valueobject.Address;
+import org.de013.orderservice.entity.valueobject.Money;
+import org.de013.orderservice.repository.OrderItemRepository;
+import org.de013.orderservice.repository.OrderRepository;
+import org.de013.orderservice.service.analytics.OrderRollupJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The analytics queries read the daily rollups, which OrderRollupJob rebuilds from the orders
+ * changed since its last run
+ */
+@SpringBootTest(properties = {
+        "order.rollup.enabled=true",
+        "order.rollup.settle-seconds=0",
+        "order.rollup.interval-millis=3600000"
+})
+@ActiveProfiles("test")
+@Transactional
+class OrderAnalyticsRollupTest {
+
+    @Autowired
+    private OrderRollupJob orderRollupJob;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private LocalDate today;
+    private Order cancelled;
+
+    @BeforeEach
+    void setUp() {
+        today = LocalDate.now();
+        cancelled = order("ORD-ROLLUP-1", "user-a", OrderStatus.PENDING, 30.00);
+        order("ORD-ROLLUP-2", "user-a", OrderStatus.PENDING, 30.00);
+        order("ORD-ROLLUP-3", "user-b", OrderStatus.DELIVERED, 30.00);
+        entityManager.flush();
+    }
+
+    @Test
+    void refresh_ShouldAggregateOrdersByDayStatusAndCustomer() {
+        orderRollupJob.refresh();
+
+        assertEquals(Map.of(OrderStatus.PENDING, 2L, OrderStatus.DELIVERED, 1L), countByStatus());
+
+        List<Object[]> daily = orderRepository.getDailyOrderCounts(today, today);
+        assertEquals(1, daily.size());
+        assertEquals(today, daily.get(0)[0]);
+        assertEquals(3L, daily.get(0)[1]);
+
+        List<Object[]> customers = orderRepository.findTopCustomersByRevenue(today, today, PageRequest.of(0, 10));
+        assertEquals("user-a", customers.get(0)[0]);
+        assertEquals(0, new BigDecimal("60.00").compareTo((BigDecimal) customers.get(0)[1]));
+        assertEquals(2L, customers.get(0)[2]);
+    }
+
+    @Test
+    void refresh_ShouldAggregateItemsByProductCategoryAndBrand() {
+        orderRollupJob.refresh();
+
+        List<Object[]> products = orderItemRepository.findTopSellingProductsByQuantity(today, today, PageRequest.of(0, 10));
+        assertEquals("2", products.get(0)[0]);
+        assertEquals(6L, products.get(0)[3]);
+        assertEquals(3L, products.get(0)[4]);
+
+        List<Object[]> categories = orderItemRepository.findCategoryPerformance(today, today);
+        assertEquals(1, categories.size());
+        assertEquals("Books", categories.get(0)[0]);
+        assertEquals(3L, categories.get(0)[1]);
+        assertEquals(0, new BigDecimal("90.00").compareTo((BigDecimal) categories.get(0)[3]));
+        assertEquals(0, new BigDecimal("15.00").compareTo((BigDecimal) categories.get(0)[4]));
+
+        List<Object[]> brands = orderItemRepository.findBrandPerformance(today, today);
+        assertEquals(2, brands.size());
+        assertEquals("Globex", brands.get(0)[0]);
+    }
+
+    @Test
+    void refresh_ShouldMoveChangedOrderToItsNewStatus() {
+        orderRollupJob.refresh();
+
+        orderRepository.updateOrderStatus(cancelled.getId(), OrderStatus.CANCELLED, LocalDateTime.now());
+        assertEquals(Map.of(OrderStatus.PENDING, 2L, OrderStatus.DELIVERED, 1L), countByStatus());
+
+        orderRollupJob.refresh();
+
+        assertEquals(Map.of(OrderStatus.PENDING, 1L, OrderStatus.DELIVERED, 1L, OrderStatus.CANCELLED, 1L),
+                countByStatus());
+    }
+
+    private Map<OrderStatus, Long> countByStatus() {
+        return orderRepository.getOrderCountByStatus(today, today).stream()
+                .collect(Collectors.toMap(row -> (OrderStatus) row[0], row -> (Long) row[1]));
+    }
+
+    private Order order(String orderNumber, String userId, OrderStatus status, double total) {
+        Order order = Order.builder()
+                .orderNumber(orderNumber)
+                .userId(userId)
+                .status(status)
+                .orderType(OrderType.STANDARD)
+                .totalAmount(Money.of(total, "USD"))
+                .shippingAddress(Address.builder()
+                        .firstName("John")
+                        .lastName("Doe")
+                        .streetAddress("123 Main St")
+                        .city("Hanoi")
+                        .state("Hanoi")
+                        .postalCode("100000")
+                        .country("VN")
+                        .phone("+84987654321")
+                        .email("john@example.com")
+                        .build())
+                .build();
+        order.addOrderItem(item("1", 1, 10.00, "Acme"));
+        order.addOrderItem(item("2", 2, 20.00, "Globex"));
+        return orderRepository.save(order);
+    }
+
+    private OrderItem item(String productId, int quantity, double total, String brand) {
+        return OrderItem.builder()
+                .productId(productId)
+                .sku("SKU-" + productId)
+                .productName("Product " + productId)
+                .productCategory("Books")
+                .productBrand(brand)
+                .quantity(quantity)
+                .unitPrice(Money.of(10.00, "USD"))
+                .totalPrice(Money.of(total, "USD"))
+                .build();
+    }
+}
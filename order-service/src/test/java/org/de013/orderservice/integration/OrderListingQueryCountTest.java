@@ -0,0 +1,126 @@
+package org.de013.orderservice.integration;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.de013.orderservice.dto.response.CursorPage;
+import org.de013.orderservice.dto.response.OrderResponse;
+import org.de013.orderservice.dto.response.OrderSummaryResponse;
+import org.de013.orderservice.entity.Order;
+import org.de013.orderservice.entity.OrderItem;
+import org.de013.orderservice.entity.enums.OrderStatus;
+import org.de013.orderservice.entity.enums.OrderType;
+import org.de013.orderservice.entity.valueobject.Address;
+import org.de013.orderservice.entity.valueobject.Money;
+import org.de013.orderservice.repository.OrderRepository;
+import org.de013.orderservice.service.OrderService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Order listings must load a page of orders with their items in a fixed number of statements,
+ * not one extra SELECT per order
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Transactional
+class OrderListingQueryCountTest {
+
+    private static final String USER_ID = "user-listing";
+    private static final int ORDERS = 50;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = Order.builder()
+                    .orderNumber("ORD-LIST-" + i)
+                    .userId(USER_ID)
+                    .status(OrderStatus.PENDING)
+                    .orderType(OrderType.STANDARD)
+                    .totalAmount(Money.of(30.00, "USD"))
+                    .shippingAddress(Address.builder()
+                            .firstName("John")
+                            .lastName("Doe")
+                            .streetAddress("123 Main St")
+                            .city("Hanoi")
+                            .state("Hanoi")
+                            .postalCode("100000")
+                            .country("VN")
+                            .phone("+84987654321")
+                            .email("john@example.com")
+                            .build())
+                    .build();
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                order.addOrderItem(OrderItem.builder()
+                        .productId(String.valueOf(j + 1))
+                        .sku("SKU-" + (j + 1))
+                        .productName("Product " + (j + 1))
+                        .quantity(1)
+                        .unitPrice(Money.of(10.00, "USD"))
+                        .totalPrice(Money.of(10.00, "USD"))
+                        .build());
+            }
+            orderRepository.save(order);
+        }
+        // Start from an empty persistence context so every row really comes from the database
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void listOrdersByUser_ShouldLoadPageAndItemsInConstantStatements() {
+        Page<OrderResponse> page = orderService.listOrdersByUser(USER_ID, PageRequest.of(0, ORDERS));
+
+        assertEquals(ORDERS, page.getContent().size());
+        assertTrue(page.getContent().stream().allMatch(order -> order.getOrderItems().size() == ITEMS_PER_ORDER));
+        // Page query, count query, one batched item query
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void scrollOrdersByUser_ShouldLoadPageAndItemsInConstantStatements() {
+        CursorPage<OrderResponse> page = orderService.scrollOrdersByUser(USER_ID, null, ORDERS, false);
+
+        assertEquals(ORDERS, page.getContent().size());
+        assertTrue(page.getContent().stream().allMatch(order -> order.getOrderItems().size() == ITEMS_PER_ORDER));
+        // Seek query, one batched item query
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void scrollOrderSummariesByUser_ShouldReadOneStatementAndNoEntities() {
+        CursorPage<OrderSummaryResponse> page = orderService.scrollOrderSummariesByUser(USER_ID, null, ORDERS);
+
+        assertEquals(ORDERS, page.getContent().size());
+        assertTrue(page.getContent().stream().allMatch(order -> order.getItemCount() == ITEMS_PER_ORDER));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+}
@@ -0,0 +1,68 @@
+package org.de013.orderservice.integration;
+
+import org.de013.orderservice.entity.OrderOutboxEvent;
+import org.de013.orderservice.repository.OrderOutboxRepository;
+import org.de013.orderservice.service.outbox.OrderOutbox;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Published events past the retention window are purged in batches; pending, parked and
+ * recently published events stay
+ */
+@SpringBootTest(properties = {
+        "order.outbox.retention.published-retention-days=7",
+        "order.outbox.retention.purge-batch-size=2"
+})
+@ActiveProfiles("test")
+class OrderOutboxRetentionTest {
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Autowired
+    private OrderOutboxRepository orderOutboxRepository;
+
+    @AfterEach
+    void tearDown() {
+        orderOutboxRepository.deleteAll();
+    }
+
+    @Test
+    void purgePublished_ShouldOnlyDeleteEventsPublishedBeforeRetention() {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            save(now.minusDays(10), now.minusDays(10), null);
+        }
+        OrderOutboxEvent recent = save(now.minusDays(1), now.minusDays(1), null);
+        OrderOutboxEvent pending = save(now.minusDays(10), null, null);
+        OrderOutboxEvent parked = save(now.minusDays(10), null, now.minusDays(9));
+
+        orderOutbox.purgePublished();
+
+        List<Long> remaining = orderOutboxRepository.findAll().stream().map(OrderOutboxEvent::getId).sorted().toList();
+        assertEquals(List.of(recent.getId(), pending.getId(), parked.getId()), remaining);
+    }
+
+    private OrderOutboxEvent save(LocalDateTime createdAt, LocalDateTime publishedAt, LocalDateTime failedAt) {
+        return orderOutboxRepository.save(OrderOutboxEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .aggregateId(1L)
+                .eventType("order.status-changed")
+                .routingKey("order.status.paid")
+                .payload("{\"orderId\":1}")
+                .createdAt(createdAt)
+                .publishedAt(publishedAt)
+                .failedAt(failedAt)
+                .build());
+    }
+}
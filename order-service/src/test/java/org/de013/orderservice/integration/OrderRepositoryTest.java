@@ -6,6 +6,7 @@ import org.de013.orderservice.entity.enums.OrderType;
 import org.de013.orderservice.entity.valueobject.Address;
 import org.de013.orderservice.entity.valueobject.Money;
 import org.de013.orderservice.repository.OrderRepository;
+import org.de013.orderservice.service.pagination.OrderCursor;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -15,6 +16,9 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -62,4 +66,50 @@ class OrderRepositoryTest {
         Page<Order> page = orderRepository.findByUserId("user-uuid-9999", PageRequest.of(0, 10));
         assertEquals(1, page.getTotalElements());
     }
+
+    @Test
+    void scrollByUserId_ShouldWalkNewestFirstAcrossEqualTimestamps() {
+        LocalDateTime noon = LocalDateTime.of(2026, 10, 15, 12, 0);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Order order = orderRepository.saveAndFlush(Order.builder()
+                    .orderNumber("ORD-SCROLL-" + i)
+                    .userId("user-scroll")
+                    .status(OrderStatus.PENDING)
+                    .orderType(OrderType.STANDARD)
+                    .totalAmount(Money.of(10.00, "USD"))
+                    .shippingAddress(address())
+                    .build());
+            // Three orders share a timestamp so the id tie-breaker decides their order
+            order.setCreatedAt(i < 3 ? noon : noon.plusMinutes(i));
+            orderRepository.saveAndFlush(order);
+            expected.add(order.getId());
+        }
+        // Newest first: the two later orders (highest minute first), then the tied ones by id descending
+        List<Long> newestFirst = List.of(expected.get(4), expected.get(3), expected.get(2), expected.get(1), expected.get(0));
+
+        List<Long> walked = new ArrayList<>();
+        List<Order> page = orderRepository.scrollByUserId("user-scroll", PageRequest.of(0, 2));
+        while (!page.isEmpty()) {
+            page.forEach(order -> walked.add(order.getId()));
+            OrderCursor after = OrderCursor.decode(OrderCursor.after(page.get(page.size() - 1)).encode());
+            page = orderRepository.scrollByUserIdAfter("user-scroll", after.createdAt(), after.id(), PageRequest.of(0, 2));
+        }
+
+        assertEquals(newestFirst, walked);
+    }
+
+    private static Address address() {
+        return Address.builder()
+                .firstName("John")
+                .lastName("Doe")
+                .streetAddress("123 Main St")
+                .city("Hanoi")
+                .state("Hanoi")
+                .postalCode("100000")
+                .country("VN")
+                .phone("+84987654321")
+                .email("john@example.com")
+                .build();
+    }
 }
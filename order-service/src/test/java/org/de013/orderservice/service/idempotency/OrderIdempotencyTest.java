@@ -0,0 +1,308 @@
+package org.de013.orderservice.service.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.de013.common.exception.ConflictException;
+import org.de013.orderservice.config.OrderPlacementProperties;
+import org.de013.orderservice.dto.request.CreateOrderRequest;
+import org.de013.orderservice.dto.response.OrderResponse;
+import org.de013.orderservice.entity.OrderIdempotencyKey;
+import org.de013.orderservice.entity.enums.IdempotencyKeyStatus;
+import org.de013.orderservice.exception.IdempotencyKeyMismatchException;
+import org.de013.orderservice.exception.NotFoundException;
+import org.de013.orderservice.repository.OrderIdempotencyKeyRepository;
+import org.de013.orderservice.repository.OrderSagaRepository;
+import org.de013.orderservice.service.OrderService;
+import org.de013.orderservice.service.placement.OrderNumberAllocator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class OrderIdempotencyTest {
+
+    private static final String USER = "user-1";
+    private static final String KEY = "3f1c8a2e-key";
+
+    /**
+     * Stands in for order_idempotency_keys with its (user_id, idempotency_key) unique constraint
+     */
+    private final Map<String, OrderIdempotencyKey> table = new ConcurrentHashMap<>();
+    /**
+     * Stands in for orders, by order number
+     */
+    private final Map<String, OrderResponse> orders = new ConcurrentHashMap<>();
+    private final AtomicInteger placed = new AtomicInteger();
+    private final AtomicLong numbers = new AtomicLong();
+    private OrderIdempotencyKeyRepository keyRepository;
+    private OrderSagaRepository sagaRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderIdempotency orderIdempotency;
+
+    @BeforeEach
+    void setUp() {
+        keyRepository = mock(OrderIdempotencyKeyRepository.class);
+        when(keyRepository.tryClaim(anyString(), anyString(), anyString(), anyString(), any(), any(), any())).thenAnswer(invocation -> {
+            OrderIdempotencyKey key = OrderIdempotencyKey.builder()
+                    .id((long) table.size() + 1)
+                    .userId(invocation.getArgument(0))
+                    .idempotencyKey(invocation.getArgument(1))
+                    .requestHash(invocation.getArgument(2))
+                    .orderNumber(invocation.getArgument(3))
+                    .status(IdempotencyKeyStatus.IN_PROGRESS)
+                    .lockedUntil(invocation.getArgument(4))
+                    .build();
+            return table.putIfAbsent(id(key.getUserId(), key.getIdempotencyKey()), key) == null ? 1 : 0;
+        });
+        when(keyRepository.findByUserIdAndIdempotencyKey(anyString(), anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(table.get(id(invocation.getArgument(0), invocation.getArgument(1)))));
+        when(keyRepository.takeOver(anyLong(), any(), any())).thenAnswer(invocation -> {
+            OrderIdempotencyKey key = table.values().stream()
+                    .filter(k -> k.getId().equals(invocation.getArgument(0)))
+                    .findFirst()
+                    .orElseThrow();
+            synchronized (key) {
+                if (key.getStatus() != IdempotencyKeyStatus.IN_PROGRESS || !key.getLockedUntil().isBefore(invocation.getArgument(2))) {
+                    return 0;
+                }
+                key.setLockedUntil(invocation.getArgument(1));
+                return 1;
+            }
+        });
+        when(keyRepository.complete(anyString(), anyString(), any(), anyString(), any())).thenAnswer(invocation -> {
+            OrderIdempotencyKey key = table.get(id(invocation.getArgument(0), invocation.getArgument(1)));
+            key.setOrderId(invocation.getArgument(2));
+            key.setResponse(invocation.getArgument(3));
+            key.setStatus(IdempotencyKeyStatus.COMPLETED);
+            return 1;
+        });
+        when(keyRepository.release(anyString(), anyString()))
+                .thenAnswer(invocation -> table.remove(id(invocation.getArgument(0), invocation.getArgument(1))) != null ? 1 : 0);
+
+        sagaRepository = mock(OrderSagaRepository.class);
+        OrderService orderService = mock(OrderService.class);
+        when(orderService.getOrderByNumber(anyString())).thenAnswer(invocation -> {
+            OrderResponse order = orders.get(invocation.<String>getArgument(0));
+            if (order == null) {
+                throw new NotFoundException("Order not found");
+            }
+            return order;
+        });
+        OrderNumberAllocator allocator = mock(OrderNumberAllocator.class);
+        when(allocator.nextOrderNumber()).thenAnswer(invocation -> String.format("ORD-261015-%08d", numbers.incrementAndGet()));
+
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        meterRegistry = new SimpleMeterRegistry();
+        orderIdempotency = new OrderIdempotency(keyRepository, sagaRepository, orderService, allocator, objectMapper,
+                new OrderPlacementProperties(), meterRegistry);
+    }
+
+    @Test
+    void execute_WithSameKeyFromManyThreads_ShouldPlaceOneOrder() throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch duplicatesDone = new CountDownLatch(threads - 1);
+        Function<String, OrderResponse> slowPlacement = orderNumber -> {
+            try {
+                // Hold the key until every duplicate has been turned away
+                assertTrue(duplicatesDone.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return placeOrder().apply(orderNumber);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<OrderIdempotency.Result>> results = new ArrayList<>();
+        OrderIdempotency.Result first = null;
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        return orderIdempotency.execute(USER, KEY, request(), slowPlacement);
+                    } catch (ConflictException e) {
+                        duplicatesDone.countDown();
+                        throw e;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int conflicts = 0;
+            for (Future<OrderIdempotency.Result> result : results) {
+                try {
+                    first = result.get(20, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    assertInstanceOf(ConflictException.class, e.getCause());
+                    conflicts++;
+                }
+            }
+
+            assertEquals(1, placed.get());
+            assertEquals(threads - 1, conflicts);
+            assertNotNull(first);
+            assertFalse(first.replayed());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        OrderIdempotency.Result retry = orderIdempotency.execute(USER, KEY, request(), placeOrder());
+        assertTrue(retry.replayed());
+        assertEquals(1, placed.get());
+        assertEquals(first.response().getOrderNumber(), retry.response().getOrderNumber());
+        assertEquals(1, meterRegistry.get("order.idempotency").tag("outcome", "replayed").counter().count());
+    }
+
+    @Test
+    void execute_WithKeyReusedForOtherRequest_ShouldReject() {
+        orderIdempotency.execute(USER, KEY, request(), placeOrder());
+
+        CreateOrderRequest other = request();
+        other.setCartId(99L);
+
+        assertThrows(IdempotencyKeyMismatchException.class, () -> orderIdempotency.execute(USER, KEY, other, placeOrder()));
+        assertEquals(1, placed.get());
+    }
+
+    @Test
+    void execute_WhenPlacementFails_ShouldReleaseKeyForRetry() {
+        assertThrows(IllegalStateException.class, () -> orderIdempotency.execute(USER, KEY, request(), orderNumber -> {
+            throw new IllegalStateException("Failed to allocate inventory");
+        }));
+        assertTrue(table.isEmpty());
+
+        OrderIdempotency.Result retry = orderIdempotency.execute(USER, KEY, request(), placeOrder());
+
+        assertFalse(retry.replayed());
+        assertEquals(1, placed.get());
+    }
+
+    @Test
+    void execute_WithSameKeyForOtherUser_ShouldPlaceSeparately() {
+        orderIdempotency.execute(USER, KEY, request(), placeOrder());
+        orderIdempotency.execute("user-2", KEY, request(), placeOrder());
+
+        assertEquals(2, placed.get());
+    }
+
+    @Test
+    void execute_WhenKeyCannotBeCompleted_ShouldReturnOrderAndReplayItAfterLease() {
+        doThrow(new IllegalStateException("connection reset"))
+                .when(keyRepository).complete(anyString(), anyString(), any(), anyString(), any());
+
+        OrderIdempotency.Result result = orderIdempotency.execute(USER, KEY, request(), placeOrder());
+
+        assertFalse(result.replayed());
+        assertEquals(IdempotencyKeyStatus.IN_PROGRESS, table.get(id(USER, KEY)).getStatus());
+        assertThrows(ConflictException.class, () -> orderIdempotency.execute(USER, KEY, request(), placeOrder()));
+
+        expireLease();
+        OrderIdempotency.Result retry = orderIdempotency.execute(USER, KEY, request(), placeOrder());
+
+        assertTrue(retry.replayed());
+        assertEquals(result.response().getOrderNumber(), retry.response().getOrderNumber());
+        assertEquals(1, placed.get());
+        assertEquals(1, meterRegistry.get("order.idempotency").tag("outcome", "recovered").counter().count());
+    }
+
+    @Test
+    void execute_WhenTakingOverKeyOfUnfinishedSaga_ShouldWaitThenPlaceUnderSameNumber() {
+        abandonKey();
+        String orderNumber = table.get(id(USER, KEY)).getOrderNumber();
+        expireLease();
+        when(sagaRepository.existsByOrderNumberAndStatusIn(eq(orderNumber), any())).thenReturn(true);
+
+        assertThrows(ConflictException.class, () -> orderIdempotency.execute(USER, KEY, request(), placeOrder()));
+        assertEquals(0, placed.get());
+
+        // The sweeper aborted the saga; nothing was committed under the number
+        when(sagaRepository.existsByOrderNumberAndStatusIn(eq(orderNumber), any())).thenReturn(false);
+        expireLease();
+        OrderIdempotency.Result result = orderIdempotency.execute(USER, KEY, request(), placeOrder());
+
+        assertFalse(result.replayed());
+        assertEquals(orderNumber, result.response().getOrderNumber());
+        assertEquals(1, placed.get());
+    }
+
+    @Test
+    void execute_WhenTakeoverLosesToEarlierAttempt_ShouldReplayItsOrder() {
+        abandonKey();
+        String orderNumber = table.get(id(USER, KEY)).getOrderNumber();
+        expireLease();
+
+        // The earlier attempt commits first; placing again under its number hits the unique constraint
+        OrderIdempotency.Result result = orderIdempotency.execute(USER, KEY, request(), number -> {
+            placeOrder().apply(number);
+            throw new IllegalStateException("duplicate key value violates unique constraint \"uk_orders_order_number\"");
+        });
+
+        assertTrue(result.replayed());
+        assertEquals(orderNumber, result.response().getOrderNumber());
+        assertEquals(IdempotencyKeyStatus.COMPLETED, table.get(id(USER, KEY)).getStatus());
+    }
+
+    /**
+     * Leave the key IN_PROGRESS without an order, as a request that died mid-placement does
+     */
+    private void abandonKey() {
+        when(keyRepository.release(anyString(), anyString())).thenReturn(0);
+        assertThrows(IllegalStateException.class, () -> orderIdempotency.execute(USER, KEY, request(), orderNumber -> {
+            throw new IllegalStateException("instance shut down");
+        }));
+        assertEquals(IdempotencyKeyStatus.IN_PROGRESS, table.get(id(USER, KEY)).getStatus());
+    }
+
+    private void expireLease() {
+        table.get(id(USER, KEY)).setLockedUntil(LocalDateTime.now().minusSeconds(1));
+    }
+
+    private Function<String, OrderResponse> placeOrder() {
+        return orderNumber -> {
+            int n = placed.incrementAndGet();
+            OrderResponse order = OrderResponse.builder()
+                    .id((long) n)
+                    .orderNumber(orderNumber)
+                    .createdAt(LocalDateTime.now())
+                    .build();
+            orders.put(orderNumber, order);
+            return order;
+        };
+    }
+
+    private static CreateOrderRequest request() {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setUserId(USER);
+        request.setCartId(7L);
+        return request;
+    }
+
+    private static String id(String userId, String key) {
+        return userId + "/" + key;
+    }
+}
@@ -0,0 +1,184 @@
+package org.de013.orderservice.service.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.de013.orderservice.config.OutboxProperties;
+import org.de013.orderservice.entity.OrderOutboxEvent;
+import org.de013.orderservice.repository.OrderOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.ConnectException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OrderOutboxRelayTest {
+
+    private OrderOutboxRepository orderOutboxRepository;
+    private RabbitTemplate rabbitTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderOutboxRelay relay;
+
+    /**
+     * Event ids the fake broker nacks
+     */
+    private final Set<String> nacked = new HashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        orderOutboxRepository = mock(OrderOutboxRepository.class);
+        rabbitTemplate = mock(RabbitTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        OutboxProperties properties = new OutboxProperties();
+        properties.getRelay().setBatchSize(3);
+        properties.getRelay().setMaxBatchesPerRun(2);
+        properties.getRelay().setConfirmTimeoutMillis(100);
+        properties.getRelay().setMaxAttempts(3);
+
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            correlation.getFuture().complete(new CorrelationData.Confirm(!nacked.contains(correlation.getId()), "nack"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        when(orderOutboxRepository.findFirstByPublishedAtIsNullAndFailedAtIsNullOrderByIdAsc()).thenReturn(Optional.empty());
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+        relay = new OrderOutboxRelay(orderOutboxRepository, rabbitTemplate, transactionTemplate, properties, meterRegistry);
+    }
+
+    @Test
+    void relay_ShouldPublishBatchesUntilOneIsShort() {
+        List<OrderOutboxEvent> full = List.of(event(1), event(2), event(3));
+        List<OrderOutboxEvent> rest = List.of(event(4));
+        when(orderOutboxRepository.lockUnpublished(any(Pageable.class))).thenReturn(full, rest);
+
+        relay.relay();
+
+        verify(orderOutboxRepository, times(2)).lockUnpublished(any(Pageable.class));
+        assertTrue(full.stream().allMatch(event -> event.getPublishedAt() != null));
+        assertNotNull(rest.get(0).getPublishedAt());
+        assertEquals(4, meterRegistry.get("order.outbox.published").tag("outcome", "ack").counter().count());
+        assertEquals(4, meterRegistry.get("order.outbox.publish.delay").timer().count());
+    }
+
+    @Test
+    void relay_WhenBrokerNacks_ShouldOnlyMarkPrefixBeforeIt() {
+        List<OrderOutboxEvent> batch = List.of(event(1), event(2), event(3));
+        when(orderOutboxRepository.lockUnpublished(any(Pageable.class))).thenReturn(batch);
+        nacked.add("evt-2");
+
+        relay.relay();
+
+        assertNotNull(batch.get(0).getPublishedAt());
+        assertNull(batch.get(1).getPublishedAt());
+        assertNull(batch.get(2).getPublishedAt(), "events after a failure wait so ordering is kept");
+        assertEquals(1, batch.get(1).getAttempts());
+        assertTrue(batch.get(1).getLastError().startsWith("nacked"));
+        // A short batch ends the run
+        verify(orderOutboxRepository, times(1)).lockUnpublished(any(Pageable.class));
+    }
+
+    @Test
+    void relay_WhenSendFails_ShouldStopSendingAndRecordError() {
+        List<OrderOutboxEvent> batch = List.of(event(1), event(2), event(3));
+        when(orderOutboxRepository.lockUnpublished(any(Pageable.class))).thenReturn(batch);
+        doThrow(new AmqpConnectException(new ConnectException("refused")))
+                .when(rabbitTemplate).send(anyString(), eq("order.status.paid"), any(Message.class), any(CorrelationData.class));
+
+        relay.relay();
+
+        verify(rabbitTemplate, times(1)).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        assertTrue(batch.stream().allMatch(event -> event.getPublishedAt() == null));
+        assertEquals(1, batch.get(0).getAttempts());
+        assertEquals(0, batch.get(1).getAttempts());
+    }
+
+    @Test
+    void relay_WhenEventKeepsFailing_ShouldParkItAtMaxAttempts() {
+        OrderOutboxEvent poison = event(1);
+        poison.setAttempts(2);
+        when(orderOutboxRepository.lockUnpublished(any(Pageable.class))).thenReturn(List.of(poison, event(2)));
+        nacked.add("evt-1");
+
+        relay.relay();
+
+        assertEquals(3, poison.getAttempts());
+        assertNotNull(poison.getFailedAt(), "a parked event no longer blocks the head of the outbox");
+        assertNull(poison.getPublishedAt());
+        assertEquals(1, meterRegistry.get("order.outbox.published").tag("outcome", "parked").counter().count());
+    }
+
+    @Test
+    void relay_WhenBrokerUnreachable_ShouldNeverPark() {
+        OrderOutboxEvent head = event(1);
+        head.setAttempts(5);
+        when(orderOutboxRepository.lockUnpublished(any(Pageable.class))).thenReturn(List.of(head));
+        doThrow(new AmqpConnectException(new ConnectException("refused")))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        relay.relay();
+
+        assertEquals(6, head.getAttempts());
+        assertNull(head.getFailedAt());
+    }
+
+    @Test
+    void lagGauge_ShouldReportOldestPendingEvent() {
+        OrderOutboxEvent oldest = event(1);
+        oldest.setCreatedAt(LocalDateTime.now().minusMinutes(2));
+        when(orderOutboxRepository.lockUnpublished(any(Pageable.class))).thenReturn(List.of());
+        when(orderOutboxRepository.findFirstByPublishedAtIsNullAndFailedAtIsNullOrderByIdAsc()).thenReturn(Optional.of(oldest));
+        when(orderOutboxRepository.countByPublishedAtIsNullAndFailedAtIsNull()).thenReturn(7L);
+
+        relay.relay();
+
+        assertTrue(meterRegistry.get("order.outbox.lag").gauge().value() >= 119);
+        assertEquals(7, meterRegistry.get("order.outbox.pending").gauge().value());
+    }
+
+    private static OrderOutboxEvent event(long id) {
+        return OrderOutboxEvent.builder()
+                .id(id)
+                .eventId("evt-" + id)
+                .aggregateId(100L)
+                .eventType("order.status-changed")
+                .routingKey("order.status.paid")
+                .payload("{\"orderId\":100}")
+                .createdAt(LocalDateTime.now().minusSeconds(1))
+                .build();
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
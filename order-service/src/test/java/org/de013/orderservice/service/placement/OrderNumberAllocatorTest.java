@@ -0,0 +1,99 @@
+package org.de013.orderservice.service.placement;
+
+import org.de013.orderservice.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderNumberAllocatorTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-15T08:00:00Z"), ZoneOffset.UTC);
+
+    /**
+     * Stands in for order_number_seq: START WITH 1 INCREMENT BY BLOCK_SIZE
+     */
+    private final AtomicLong sequence = new AtomicLong(1);
+    private final AtomicLong sequenceCalls = new AtomicLong();
+
+    @Test
+    void nextOrderNumber_ShouldBeDatedAndFetchOneBlockPerHundred() {
+        OrderNumberAllocator allocator = new OrderNumberAllocator(sharedSequence(), CLOCK);
+
+        assertEquals("ORD-261015-00000001", allocator.nextOrderNumber());
+        for (int i = 0; i < OrderNumberAllocator.BLOCK_SIZE - 1; i++) {
+            allocator.nextOrderNumber();
+        }
+        assertEquals(1, sequenceCalls.get());
+
+        assertEquals("ORD-261015-00000101", allocator.nextOrderNumber());
+        assertEquals(2, sequenceCalls.get());
+    }
+
+    @Test
+    void nextOrderNumber_AcrossThreadsAndInstances_ShouldNeverRepeat() throws Exception {
+        int pods = 4;
+        int threads = 32;
+        int perThread = 2_000;
+        List<OrderNumberAllocator> allocators = new ArrayList<>();
+        for (int i = 0; i < pods; i++) {
+            allocators.add(new OrderNumberAllocator(sharedSequence(), CLOCK));
+        }
+
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                OrderNumberAllocator allocator = allocators.get(t % pods);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    String previous = "";
+                    for (int i = 0; i < perThread; i++) {
+                        String number = allocator.nextOrderNumber();
+                        if (!seen.add(number) || number.compareTo(previous) <= 0) {
+                            return false;
+                        }
+                        previous = number;
+                    }
+                    return true;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS), "numbers must be unique and increasing per caller");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int total = threads * perThread;
+        assertEquals(total, seen.size());
+        // At most one partly used block per instance on top of the full ones
+        assertTrue(sequenceCalls.get() <= total / OrderNumberAllocator.BLOCK_SIZE + pods);
+    }
+
+    private OrderRepository sharedSequence() {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.nextOrderNumberBlock()).thenAnswer(invocation -> {
+            sequenceCalls.incrementAndGet();
+            return sequence.getAndAdd(OrderNumberAllocator.BLOCK_SIZE);
+        });
+        return orderRepository;
+    }
+}
@@ -0,0 +1,447 @@
+package org.de013.orderservice.service.placement;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.de013.common.dto.ApiResponse;
+import org.de013.orderservice.client.CartServiceClient;
+import org.de013.orderservice.client.ProductCatalogClient;
+import org.de013.orderservice.client.ShoppingCartClient;
+import org.de013.orderservice.config.OrderPlacementProperties;
+import org.de013.orderservice.dto.CartItemDto;
+import org.de013.orderservice.dto.StockReservationRequest;
+import org.de013.orderservice.dto.StockReservationResult;
+import org.de013.orderservice.dto.request.CreateOrderRequest;
+import org.de013.orderservice.dto.response.OrderResponse;
+import org.de013.orderservice.entity.Order;
+import org.de013.orderservice.entity.OrderSaga;
+import org.de013.orderservice.entity.enums.OrderType;
+import org.de013.orderservice.entity.enums.SagaStatus;
+import org.de013.orderservice.entity.valueobject.Address;
+import org.de013.orderservice.mapper.OrderMapper;
+import org.de013.orderservice.repository.OrderRepository;
+import org.de013.orderservice.repository.OrderSagaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class OrderPlacementPipelineTest {
+
+    private CartServiceClient cartServiceClient;
+    private ShoppingCartClient shoppingCartClient;
+    private ProductCatalogClient productCatalogClient;
+    private OrderRepository orderRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private final AtomicBoolean transactionOpen = new AtomicBoolean();
+    private final Map<Long, OrderSaga> sagas = new ConcurrentHashMap<>();
+    private final List<Order> pendingOrders = new ArrayList<>();
+    private final List<Order> committedOrders = new ArrayList<>();
+    private OrderPlacementPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        cartServiceClient = mock(CartServiceClient.class);
+        shoppingCartClient = mock(ShoppingCartClient.class);
+        productCatalogClient = mock(ProductCatalogClient.class);
+        orderRepository = mock(OrderRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        when(orderRepository.nextOrderNumberBlock()).thenReturn(1L);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            assertTrue(transactionOpen.get(), "order must be saved inside the transaction");
+            Order order = invocation.getArgument(0);
+            order.setId(100L);
+            pendingOrders.add(order);
+            return order;
+        });
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new FlagTransactionManager());
+        OrderSagaLog sagaLog = new OrderSagaLog(inMemorySagaRepository(), transactionTemplate);
+        pipeline = new OrderPlacementPipeline(cartServiceClient, shoppingCartClient, productCatalogClient, orderRepository,
+                new OrderNumberAllocator(orderRepository), sagaLog, new OrderMapper(), transactionTemplate,
+                new ObjectMapper(), new OrderPlacementProperties(), meterRegistry);
+    }
+
+    @Test
+    void place_ShouldReserveOutsideTransactionAndCompleteSaga() {
+        givenCart(10);
+        when(productCatalogClient.reserveStock(any(StockReservationRequest.class))).thenAnswer(invocation -> {
+            assertFalse(transactionOpen.get(), "stock must be reserved before the transaction opens");
+            return reserved(invocation.getArgument(0));
+        });
+
+        OrderResponse response = pipeline.place(request());
+
+        assertNotNull(response.getOrderNumber());
+        assertTrue(response.getOrderNumber().matches("ORD-\\d{6}-00000001"));
+        OrderSaga saga = onlySaga();
+        assertEquals(SagaStatus.COMPLETED, saga.getStatus());
+        assertEquals(100L, saga.getOrderId());
+        assertEquals(response.getOrderNumber(), saga.getOrderNumber());
+        assertEquals(1, committedOrders.size());
+        verify(productCatalogClient).reserveStock(argThat(reservation -> saga.getSagaId().equals(reservation.getReference())
+                && reservation.getLines().size() == 10
+                && reservation.getLines().get(0).getProductId() == 1L
+                && reservation.getLines().get(0).getQuantity() == 2));
+        verify(productCatalogClient).fulfillReservedStock(argThat(fulfil -> saga.getSagaId().equals(fulfil.getReference())));
+        verify(shoppingCartClient).clearCart("user-123", "user-123", "user-123");
+        verify(productCatalogClient, never()).releaseReservedStock(any());
+        for (PlacementStage stage : PlacementStage.values()) {
+            assertEquals(1, meterRegistry.get("order.placement.stage")
+                    .tag("stage", stage.getTag()).tag("outcome", "success").timer().count());
+        }
+        assertEquals(1, meterRegistry.get("order.placement").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void place_WhenStockShort_ShouldAbortSagaWithoutPersisting() {
+        givenCart(3);
+        when(productCatalogClient.reserveStock(any(StockReservationRequest.class))).thenReturn(ApiResponse.success(
+                new StockReservationResult(false, 0, List.of(new StockReservationResult.Shortage(2L, 2, 1)))));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> pipeline.place(request()));
+
+        assertEquals("Failed to allocate inventory for product: Product 2", e.getMessage());
+        assertEquals(SagaStatus.ABORTED, onlySaga().getStatus());
+        verify(productCatalogClient, never()).releaseReservedStock(any());
+        verify(orderRepository, never()).save(any());
+        verifyNoInteractions(shoppingCartClient);
+    }
+
+    @Test
+    void place_WhenReserveCallFails_ShouldLeaveReleaseToRecovery() {
+        givenCart(3);
+        when(productCatalogClient.reserveStock(any(StockReservationRequest.class))).thenThrow(new RuntimeException("read timed out"));
+
+        assertThrows(RuntimeException.class, () -> pipeline.place(request()));
+
+        OrderSaga saga = onlySaga();
+        assertEquals(SagaStatus.COMPENSATING, saga.getStatus());
+        assertEquals("read timed out", saga.getLastError());
+        verify(productCatalogClient, never()).releaseReservedStock(any());
+
+        assertEquals(SagaStatus.ABORTED, pipeline.recover(saga));
+        assertEquals(SagaStatus.ABORTED, saga.getStatus());
+        verify(productCatalogClient).releaseReservedStock(argThat(release -> saga.getSagaId().equals(release.getReference())));
+    }
+
+    @Test
+    void place_WhenPersistFails_ShouldReleaseReservationAndAbort() {
+        givenCart(3);
+        when(productCatalogClient.reserveStock(any(StockReservationRequest.class)))
+                .thenAnswer(invocation -> reserved(invocation.getArgument(0)));
+        when(orderRepository.save(any(Order.class))).thenThrow(new IllegalStateException("db down"));
+
+        assertThrows(IllegalStateException.class, () -> pipeline.place(request()));
+
+        OrderSaga saga = onlySaga();
+        assertEquals(SagaStatus.ABORTED, saga.getStatus());
+        assertNull(saga.getOrderId());
+        verify(productCatalogClient).releaseReservedStock(argThat(release -> saga.getSagaId().equals(release.getReference())
+                && release.getLines().size() == 3));
+        verify(productCatalogClient, never()).fulfillReservedStock(any());
+        verifyNoInteractions(shoppingCartClient);
+        assertEquals(1, meterRegistry.get("order.placement").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    void place_WhenSagaRecoveredWhileReserving_ShouldNotPersistOrder() {
+        givenCart(3);
+        when(productCatalogClient.reserveStock(any(StockReservationRequest.class))).thenAnswer(invocation -> {
+            // The reserve call is slow enough for the sweeper to give up on the saga meanwhile
+            assertEquals(SagaStatus.ABORTED, pipeline.recover(sweeperCopy(onlySaga())));
+            return reserved(invocation.getArgument(0));
+        });
+
+        assertThrows(OptimisticLockingFailureException.class, () -> pipeline.place(request()));
+
+        assertEquals(SagaStatus.ABORTED, onlySaga().getStatus());
+        verify(orderRepository, never()).save(any());
+        verify(productCatalogClient, times(1)).releaseReservedStock(any());
+        verify(productCatalogClient, never()).fulfillReservedStock(any());
+        verifyNoInteractions(shoppingCartClient);
+    }
+
+    @Test
+    void place_WhenSagaAbortedBetweenReserveAndPersist_ShouldRollBackOrder() {
+        givenCart(3);
+        when(productCatalogClient.reserveStock(any(StockReservationRequest.class)))
+                .thenAnswer(invocation -> reserved(invocation.getArgument(0)));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            // The sweeper released the stock and aborted the saga before the persist transaction got to it
+            onlySaga().setStatus(SagaStatus.ABORTED);
+            Order order = invocation.getArgument(0);
+            order.setId(100L);
+            pendingOrders.add(order);
+            return order;
+        });
+
+        assertThrows(OptimisticLockingFailureException.class, () -> pipeline.place(request()));
+
+        assertTrue(committedOrders.isEmpty(), "order must be rolled back with the saga aborted");
+        OrderSaga saga = onlySaga();
+        assertEquals(SagaStatus.ABORTED, saga.getStatus());
+        assertNull(saga.getOrderId());
+        verify(productCatalogClient, never()).fulfillReservedStock(any());
+        verify(productCatalogClient, never()).releaseReservedStock(any());
+        verifyNoInteractions(shoppingCartClient);
+    }
+
+    @Test
+    void place_WhenClearCartFails_ShouldKeepOrderAndLeaveCartToRecovery() {
+        givenCart(2);
+        when(productCatalogClient.reserveStock(any(StockReservationRequest.class)))
+                .thenAnswer(invocation -> reserved(invocation.getArgument(0)));
+        when(shoppingCartClient.clearCart(anyString(), anyString(), anyString()))
+                .thenThrow(new RuntimeException("cart down"))
+                .thenReturn(ApiResponse.success(null));
+
+        OrderResponse response = pipeline.place(request());
+
+        assertNotNull(response.getOrderNumber());
+        OrderSaga saga = onlySaga();
+        assertEquals(SagaStatus.CLEARING_CART, saga.getStatus());
+        verify(productCatalogClient, never()).releaseReservedStock(any());
+
+        assertEquals(SagaStatus.COMPLETED, pipeline.recover(saga));
+        assertEquals(SagaStatus.COMPLETED, saga.getStatus());
+        verify(shoppingCartClient, times(2)).clearCart("user-123", "user-123", "user-123");
+    }
+
+    @Test
+    void place_WhenFulfillFails_ShouldKeepOrderAndLeaveStockAndCartToRecovery() {
+        givenCart(2);
+        when(productCatalogClient.reserveStock(any(StockReservationRequest.class)))
+                .thenAnswer(invocation -> reserved(invocation.getArgument(0)));
+        when(productCatalogClient.fulfillReservedStock(any(StockReservationRequest.class)))
+                .thenThrow(new RuntimeException("catalog down"))
+                .thenAnswer(invocation -> reserved(invocation.getArgument(0)));
+
+        OrderResponse response = pipeline.place(request());
+
+        assertNotNull(response.getOrderNumber());
+        OrderSaga saga = onlySaga();
+        assertEquals(SagaStatus.CLEARING_CART, saga.getStatus());
+        verifyNoInteractions(shoppingCartClient);
+
+        assertEquals(SagaStatus.COMPLETED, pipeline.recover(saga));
+        verify(productCatalogClient, times(2)).fulfillReservedStock(argThat(fulfil -> saga.getSagaId().equals(fulfil.getReference())));
+        verify(shoppingCartClient).clearCart("user-123", "user-123", "user-123");
+        verify(productCatalogClient, never()).releaseReservedStock(any());
+    }
+
+    @Test
+    void releaseStock_ShouldReleaseReservationOnlyOnceCancellationCommitted() {
+        givenCart(2);
+        when(productCatalogClient.reserveStock(any(StockReservationRequest.class)))
+                .thenAnswer(invocation -> reserved(invocation.getArgument(0)));
+        pipeline.place(request());
+        OrderSaga saga = onlySaga();
+        when(productCatalogClient.releaseReservedStock(any(StockReservationRequest.class))).thenAnswer(invocation -> {
+            assertFalse(transactionOpen.get(), "stock must be released outside the transaction");
+            return reserved(invocation.getArgument(0));
+        });
+
+        List<TransactionSynchronization> afterCommit = cancelling(() -> pipeline.releaseStock(saga));
+
+        verify(productCatalogClient, never()).releaseReservedStock(any());
+        assertEquals(SagaStatus.RELEASING_STOCK, saga.getStatus());
+
+        afterCommit.forEach(TransactionSynchronization::afterCommit);
+
+        verify(productCatalogClient).releaseReservedStock(argThat(release -> saga.getSagaId().equals(release.getReference())
+                && release.getLines().size() == 2));
+        assertEquals(SagaStatus.CANCELLED, saga.getStatus());
+    }
+
+    @Test
+    void releaseStock_WhenReleaseFailsAfterCommit_ShouldLeaveItToRecovery() {
+        givenCart(1);
+        when(productCatalogClient.reserveStock(any(StockReservationRequest.class)))
+                .thenAnswer(invocation -> reserved(invocation.getArgument(0)));
+        pipeline.place(request());
+        OrderSaga saga = onlySaga();
+        when(productCatalogClient.releaseReservedStock(any(StockReservationRequest.class)))
+                .thenThrow(new RuntimeException("product-catalog-service unavailable"))
+                .thenAnswer(invocation -> reserved(invocation.getArgument(0)));
+
+        cancelling(() -> pipeline.releaseStock(saga)).forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(SagaStatus.RELEASING_STOCK, saga.getStatus());
+        assertEquals(SagaStatus.CANCELLED, pipeline.recover(sweeperCopy(saga)));
+        assertEquals(SagaStatus.CANCELLED, saga.getStatus());
+        verify(productCatalogClient, times(2)).releaseReservedStock(any());
+    }
+
+    @Test
+    void place_WhenCartEmpty_ShouldFailBeforeTouchingStock() {
+        when(cartServiceClient.getCartItems(1L)).thenReturn(ApiResponse.success(List.of()));
+
+        assertThrows(IllegalArgumentException.class, () -> pipeline.place(request()));
+
+        verifyNoInteractions(productCatalogClient);
+        verify(orderRepository, never()).save(any());
+        assertTrue(sagas.isEmpty());
+    }
+
+    private OrderSagaRepository inMemorySagaRepository() {
+        OrderSagaRepository repository = mock(OrderSagaRepository.class);
+        AtomicLong ids = new AtomicLong();
+        when(repository.save(any(OrderSaga.class))).thenAnswer(invocation -> {
+            OrderSaga saga = invocation.getArgument(0);
+            if (saga.getId() == null) {
+                saga.setId(ids.incrementAndGet());
+            }
+            sagas.put(saga.getId(), saga);
+            return saga;
+        });
+        when(repository.findById(anyLong())).thenAnswer(invocation -> Optional.ofNullable(sagas.get(invocation.<Long>getArgument(0))));
+        when(repository.transition(anyLong(), any(), any(), any())).thenAnswer(invocation ->
+                transition(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2), saga -> { }));
+        when(repository.transitionWithError(anyLong(), any(), any(), anyString(), any())).thenAnswer(invocation ->
+                transition(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2),
+                        saga -> saga.setLastError(invocation.getArgument(3))));
+        when(repository.transitionWithOrder(anyLong(), any(), any(), anyLong(), any())).thenAnswer(invocation ->
+                transition(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2),
+                        saga -> saga.setOrderId(invocation.getArgument(3))));
+        return repository;
+    }
+
+    /**
+     * Conditional update of the stored saga, like the repository's UPDATE ... WHERE status = :expected
+     */
+    private int transition(Long id, SagaStatus expected, SagaStatus next, Consumer<OrderSaga> change) {
+        OrderSaga stored = sagas.get(id);
+        if (stored == null || stored.getStatus() != expected) {
+            return 0;
+        }
+        change.accept(stored);
+        stored.setStatus(next);
+        return 1;
+    }
+
+    /**
+     * The saga as the recovery sweeper read it, separate from the placement's copy
+     */
+    private static OrderSaga sweeperCopy(OrderSaga saga) {
+        return OrderSaga.builder()
+                .id(saga.getId())
+                .sagaId(saga.getSagaId())
+                .status(saga.getStatus())
+                .userId(saga.getUserId())
+                .orderNumber(saga.getOrderNumber())
+                .reservation(saga.getReservation())
+                .build();
+    }
+
+    /**
+     * Run the action as the cancelling transaction would and return what it registered to run after commit
+     */
+    private static List<TransactionSynchronization> cancelling(Runnable action) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private OrderSaga onlySaga() {
+        assertEquals(1, sagas.size());
+        return sagas.values().iterator().next();
+    }
+
+    private static ApiResponse<StockReservationResult> reserved(StockReservationRequest reservation) {
+        return ApiResponse.success(new StockReservationResult(true, reservation.getLines().size(), List.of()));
+    }
+
+    private void givenCart(int lines) {
+        List<CartItemDto> items = new ArrayList<>();
+        for (int i = 1; i <= lines; i++) {
+            CartItemDto item = new CartItemDto();
+            item.setProductId(String.valueOf(i));
+            item.setProductSku("SKU-" + i);
+            item.setProductName("Product " + i);
+            item.setQuantity(2);
+            item.setUnitPrice(new BigDecimal("10.00"));
+            item.setCurrency("USD");
+            items.add(item);
+        }
+        when(cartServiceClient.getCartItems(1L)).thenReturn(ApiResponse.success(items));
+    }
+
+    private static CreateOrderRequest request() {
+        return CreateOrderRequest.builder()
+                .userId("user-123")
+                .cartId(1L)
+                .orderType(OrderType.STANDARD)
+                .shippingAddress(Address.builder()
+                        .firstName("John")
+                        .lastName("Doe")
+                        .streetAddress("123 Main St")
+                        .city("Hanoi")
+                        .postalCode("100000")
+                        .country("VN")
+                        .build())
+                .paymentMethod("CREDIT_CARD")
+                .currency("USD")
+                .build();
+    }
+
+    /**
+     * Tracks whether a transaction is open, without a database
+     */
+    private class FlagTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            if (definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_NOT_SUPPORTED) {
+                return new SimpleTransactionStatus(false);
+            }
+            transactionOpen.set(true);
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            if (!status.isNewTransaction()) {
+                return;
+            }
+            transactionOpen.set(false);
+            committedOrders.addAll(pendingOrders);
+            pendingOrders.clear();
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            if (!status.isNewTransaction()) {
+                return;
+            }
+            transactionOpen.set(false);
+            pendingOrders.clear();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.de013.orderservice.service.placement;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.de013.orderservice.config.OrderPlacementProperties;
+import org.de013.orderservice.entity.OrderSaga;
+import org.de013.orderservice.entity.enums.SagaStatus;
+import org.de013.orderservice.repository.OrderSagaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class OrderSagaRecoverySweeperTest {
+
+    private OrderSagaRepository orderSagaRepository;
+    private OrderSagaLog sagaLog;
+    private OrderPlacementPipeline pipeline;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderSagaRecoverySweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        orderSagaRepository = mock(OrderSagaRepository.class);
+        sagaLog = mock(OrderSagaLog.class);
+        pipeline = mock(OrderPlacementPipeline.class);
+        meterRegistry = new SimpleMeterRegistry();
+        OrderPlacementProperties properties = new OrderPlacementProperties();
+        properties.getRecovery().setMaxAttempts(3);
+
+        when(sagaLog.claim(any(OrderSaga.class))).thenAnswer(invocation -> {
+            OrderSaga saga = invocation.getArgument(0);
+            saga.setAttempts(saga.getAttempts() + 1);
+            return saga;
+        });
+        sweeper = new OrderSagaRecoverySweeper(orderSagaRepository, sagaLog, pipeline, properties, meterRegistry);
+    }
+
+    @Test
+    void sweep_ShouldRecoverStuckSagas() {
+        OrderSaga saga = saga(SagaStatus.COMPENSATING, 0);
+        when(orderSagaRepository.findByStatusInAndUpdatedAtBeforeOrderByUpdatedAtAsc(anyCollection(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(saga));
+        when(pipeline.recover(saga)).thenReturn(SagaStatus.ABORTED);
+
+        sweeper.sweep();
+
+        verify(pipeline).recover(saga);
+        assertEquals(1, saga.getAttempts());
+        assertEquals(1, meterRegistry.get("order.saga.recovery").tag("outcome", "aborted").counter().count());
+    }
+
+    @Test
+    void recover_WhenAttemptsExhausted_ShouldMarkSagaFailed() {
+        OrderSaga retried = saga(SagaStatus.CLEARING_CART, 0);
+        OrderSaga exhausted = saga(SagaStatus.CLEARING_CART, 2);
+        when(pipeline.recover(any(OrderSaga.class))).thenThrow(new RuntimeException("cart down"));
+
+        sweeper.recover(retried);
+        sweeper.recover(exhausted);
+
+        verify(sagaLog).transition(retried, SagaStatus.CLEARING_CART, SagaStatus.CLEARING_CART, "cart down");
+        verify(sagaLog).transition(exhausted, SagaStatus.CLEARING_CART, SagaStatus.FAILED, "cart down");
+        assertEquals(1, meterRegistry.get("order.saga.recovery").tag("outcome", "failed").counter().count());
+    }
+
+    @Test
+    void recover_WhenPlacementMovesSagaOn_ShouldLeaveItAlone() {
+        OrderSaga saga = saga(SagaStatus.PERSISTING_ORDER, 0);
+        when(pipeline.recover(saga)).thenThrow(new OptimisticLockingFailureException("saga is no longer PERSISTING_ORDER"));
+
+        sweeper.recover(saga);
+
+        verify(sagaLog, never()).transition(any(), any(), any(), anyString());
+        assertEquals(1, meterRegistry.get("order.saga.recovery").tag("outcome", "superseded").counter().count());
+    }
+
+    @Test
+    void sweep_WhenSagaMovesOnBeforeFailureIsRecorded_ShouldCountSupersededAndContinue() {
+        OrderSaga retried = saga(SagaStatus.CLEARING_CART, 0);
+        OrderSaga exhausted = saga(SagaStatus.CLEARING_CART, 2);
+        OrderSaga next = saga(SagaStatus.COMPENSATING, 0);
+        when(orderSagaRepository.findByStatusInAndUpdatedAtBeforeOrderByUpdatedAtAsc(anyCollection(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(retried, exhausted, next));
+        when(pipeline.recover(retried)).thenThrow(new RuntimeException("cart down"));
+        when(pipeline.recover(exhausted)).thenThrow(new RuntimeException("cart down"));
+        when(pipeline.recover(next)).thenReturn(SagaStatus.ABORTED);
+        when(sagaLog.transition(any(OrderSaga.class), any(), any(), anyString()))
+                .thenThrow(new OptimisticLockingFailureException("saga is no longer CLEARING_CART"));
+
+        sweeper.sweep();
+
+        verify(pipeline).recover(next);
+        assertEquals(2, meterRegistry.get("order.saga.recovery").tag("outcome", "superseded").counter().count());
+        assertNull(meterRegistry.find("order.saga.recovery").tag("outcome", "retry").counter());
+        assertNull(meterRegistry.find("order.saga.recovery").tag("outcome", "failed").counter());
+    }
+
+    @Test
+    void recover_WhenClaimedElsewhere_ShouldSkipSaga() {
+        OrderSaga saga = saga(SagaStatus.RESERVING_STOCK, 0);
+        when(sagaLog.claim(saga)).thenThrow(new OptimisticLockingFailureException("version changed"));
+
+        sweeper.recover(saga);
+
+        verifyNoInteractions(pipeline);
+        verify(sagaLog, never()).transition(any(), any(), any(), anyString());
+    }
+
+    private static OrderSaga saga(SagaStatus status, int attempts) {
+        return OrderSaga.builder()
+                .sagaId("saga-" + status + "-" + attempts)
+                .status(status)
+                .userId("user-123")
+                .orderNumber("ORD-TEST")
+                .reservation("{}")
+                .attempts(attempts)
+                .build();
+    }
+}
@@ -1,28 +1,45 @@
 package org.de013.productcatalog.config;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.de013.productcatalog.security.HeaderAuthenticationFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.header.HeaderWriter;
+import org.springframework.security.web.header.writers.CacheControlHeadersWriter;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.NegatedRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
 
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
+
 /**
  * Security configuration for Product Catalog Service
  * <p>
  * Architecture: Trust internal network - API Gateway handles authentication
  * - API Gateway validates JWT with Keycloak and forwards user context
  * - This service trusts all internal requests
+ * <p>
+ * Successful public catalog GETs are sent with {@code Cache-Control: public, max-age=N} so the
+ * gateway response cache and browsers can keep them; everything else, including live stock
+ * levels, keeps Spring Security's {@code no-store} default.
  */
 @Configuration
 @EnableWebSecurity
@@ -32,17 +49,56 @@ public class SecurityConfig {
 
     private final HeaderAuthenticationFilter headerAuthenticationFilter;
 
+    @Value("${app.product.http-cache.max-age-seconds:60}")
+    private long publicMaxAgeSeconds;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(authz -> authz.anyRequest().permitAll())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .headers(headers -> headers
+                        .cacheControl(HeadersConfigurer.CacheControlConfig::disable)
+                        .addHeaderWriter(cacheControlHeaderWriter()))
                 .addFilterBefore(headerAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
 
+    /**
+     * Public max-age on 200 responses to public catalog reads, Spring Security's no-store elsewhere
+     */
+    private HeaderWriter cacheControlHeaderWriter() {
+        RequestMatcher publicReads = publicCatalogReads();
+        HeaderWriter noStore = new CacheControlHeadersWriter();
+        String publicCacheControl = "public, max-age=" + publicMaxAgeSeconds;
+        return (request, response) -> {
+            if (publicMaxAgeSeconds > 0 && response.getStatus() == HttpServletResponse.SC_OK
+                    && publicReads.matches(request)) {
+                if (!response.containsHeader(HttpHeaders.CACHE_CONTROL)) {
+                    response.setHeader(HttpHeaders.CACHE_CONTROL, publicCacheControl);
+                }
+            } else {
+                noStore.writeHeaders(request, response);
+            }
+        };
+    }
+
+    /**
+     * Product, category and search GETs, minus the live inventory endpoints
+     */
+    private RequestMatcher publicCatalogReads() {
+        return new AndRequestMatcher(
+                new OrRequestMatcher(
+                        antMatcher(HttpMethod.GET, "/products/**"),
+                        antMatcher(HttpMethod.GET, "/categories/**"),
+                        antMatcher(HttpMethod.GET, "/search/**")),
+                new NegatedRequestMatcher(new OrRequestMatcher(
+                        antMatcher("/products/*/inventory/**"),
+                        antMatcher("/products/*/variants/inventory"))));
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
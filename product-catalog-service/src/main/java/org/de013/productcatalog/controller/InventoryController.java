@@ -4,10 +4,13 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.de013.common.controller.BaseController;
 import org.de013.common.dto.InventoryDto;
+import org.de013.productcatalog.dto.inventory.StockReservationRequest;
+import org.de013.productcatalog.dto.inventory.StockReservationResultDto;
 import org.de013.productcatalog.service.InventoryService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -135,6 +138,51 @@ public class InventoryController extends BaseController {
         return success(success, message);
     }
 
+    // Bulk Reservation Operations
+    @Operation(summary = "[ADMIN] Reserve stock for several products",
+            description = "Reserve every line in one transaction, all or nothing; when any line is short nothing is reserved and the shortages are returned")
+    @PostMapping("/inventory/reservations")
+    public ResponseEntity<org.de013.common.dto.ApiResponse<StockReservationResultDto>> reserveStockBulk(
+            @Valid @RequestBody StockReservationRequest request) {
+
+        log.info("Reserving stock for {} lines", request.getLines().size());
+
+        StockReservationResultDto result = inventoryService.reserveStockBulk(request);
+        String message = result.isReserved() ?
+                String.format("Reserved stock for %d products successfully", result.getProducts()) :
+                "Failed to reserve stock - insufficient quantity";
+
+        return success(result, message);
+    }
+
+    @Operation(summary = "[ADMIN] Release reserved stock for several products",
+            description = "Release reservations made by the bulk reserve endpoint in one transaction")
+    @PostMapping("/inventory/reservations/release")
+    public ResponseEntity<org.de013.common.dto.ApiResponse<StockReservationResultDto>> releaseReservedStockBulk(
+            @Valid @RequestBody StockReservationRequest request) {
+
+        log.info("Releasing reserved stock for {} lines", request.getLines().size());
+
+        StockReservationResultDto result = inventoryService.releaseReservedStockBulk(request);
+        return success(result, String.format("Released reserved stock for %d products", result.getProducts()));
+    }
+
+    @Operation(summary = "[ADMIN] Fulfill reserved stock for several products",
+            description = "Take the stock held under the request's reference out of the inventory once the order is placed")
+    @PostMapping("/inventory/reservations/fulfill")
+    public ResponseEntity<org.de013.common.dto.ApiResponse<StockReservationResultDto>> fulfillReservedStockBulk(
+            @Valid @RequestBody StockReservationRequest request) {
+
+        log.info("Fulfilling reserved stock under reference: {}", request.getReference());
+
+        StockReservationResultDto result = inventoryService.fulfillReservedStockBulk(request);
+        String message = result.isReserved() ?
+                String.format("Fulfilled reserved stock for %d products", result.getProducts()) :
+                "Failed to fulfill - no stock held under reference";
+
+        return success(result, message);
+    }
+
     @Operation(summary = "Check stock availability", description = "Check if sufficient stock is available for an order")
     @GetMapping("/products/{id}/inventory/check")
     public ResponseEntity<org.de013.common.dto.ApiResponse<Boolean>> checkStockAvailability(
@@ -0,0 +1,48 @@
+package org.de013.productcatalog.dto.inventory;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Stock lines to reserve or release together, all or nothing")
+public class StockReservationRequest {
+
+    @Size(max = 64, message = "Reference must not exceed 64 characters")
+    @Schema(description = "Caller's reservation reference; repeating a reserve or release with the same reference has no further effect",
+            example = "3f6c1a2e-8d4b-4f7a-9c1e-2b5d7e9f0a13")
+    private String reference;
+
+    @NotEmpty(message = "At least one line is required")
+    @Size(max = 500, message = "At most 500 lines per request")
+    @Valid
+    @Schema(description = "Product and quantity per line; repeated products are summed")
+    private List<Line> lines;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Line {
+
+        @NotNull(message = "Product ID is required")
+        @Schema(description = "Product ID", example = "1")
+        private Long productId;
+
+        @NotNull(message = "Quantity is required")
+        @Positive(message = "Quantity must be positive")
+        @Schema(description = "Quantity", example = "2")
+        private Integer quantity;
+    }
+}
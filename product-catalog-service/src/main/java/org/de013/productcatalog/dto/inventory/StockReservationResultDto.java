@@ -0,0 +1,43 @@
+package org.de013.productcatalog.dto.inventory;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Outcome of a bulk stock reservation")
+public class StockReservationResultDto {
+
+    @Schema(description = "Whether every line was applied; when false nothing was changed", example = "true")
+    private boolean reserved;
+
+    @Schema(description = "Number of distinct products in the request", example = "3")
+    private int products;
+
+    @Schema(description = "Lines that could not be reserved (only when reserved is false)")
+    private List<Shortage> shortages;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Shortage {
+
+        @Schema(description = "Product ID", example = "1")
+        private Long productId;
+
+        @Schema(description = "Requested quantity", example = "5")
+        private Integer requested;
+
+        @Schema(description = "Available quantity (0 when the product has no inventory)", example = "2")
+        private Integer available;
+    }
+}
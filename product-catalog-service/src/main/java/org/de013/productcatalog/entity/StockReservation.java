@@ -0,0 +1,49 @@
+package org.de013.productcatalog.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.de013.productcatalog.entity.enums.ReservationStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock held for one product under a caller's reservation reference (e.g. an order saga id).
+ * Makes bulk reserve, fulfil and release idempotent per reference; rows are kept after
+ * fulfilment or release so a repeated or late call sees what already happened.
+ */
+@Entity
+@Table(name = "stock_reservations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stock_reservation_reference_product", columnNames = {"reference", "product_id"}),
+        indexes = @Index(name = "idx_stock_reservation_created_at", columnList = "created_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Caller-supplied reservation reference
+     */
+    @Column(name = "reference", nullable = false, length = 64)
+    private String reference;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private ReservationStatus status = ReservationStatus.RESERVED;
+
+    @Column(name = "created_at", nullable = false)
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
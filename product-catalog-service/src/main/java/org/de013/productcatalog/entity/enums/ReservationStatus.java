@@ -0,0 +1,22 @@
+package org.de013.productcatalog.entity.enums;
+
+/**
+ * Lifecycle of a {@link org.de013.productcatalog.entity.StockReservation}
+ */
+public enum ReservationStatus {
+    /**
+     * Counted in the inventory's reserved quantity
+     */
+    RESERVED,
+
+    /**
+     * Taken out of stock for the order it was held for
+     */
+    FULFILLED,
+
+    /**
+     * Given back, or released before it was ever made; a later reserve under the same
+     * reference is ignored
+     */
+    RELEASED
+}
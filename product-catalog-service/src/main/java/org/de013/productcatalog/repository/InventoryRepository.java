@@ -1,12 +1,16 @@
 package org.de013.productcatalog.repository;
 
+import jakarta.persistence.LockModeType;
 import org.de013.productcatalog.entity.Inventory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -30,4 +34,9 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     @Query("UPDATE Inventory i SET i.quantity = i.quantity - :quantity, i.reservedQuantity = i.reservedQuantity - :quantity " +
             "WHERE i.product.id = :productId AND i.reservedQuantity >= :quantity")
     int fulfillOrder(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+
+    // Bulk reservation - rows are locked in product id order so concurrent batches cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.product.id IN :productIds ORDER BY i.product.id")
+    List<Inventory> lockByProductIds(@Param("productIds") Collection<Long> productIds);
 }
@@ -0,0 +1,19 @@
+package org.de013.productcatalog.repository;
+
+import org.de013.productcatalog.entity.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    List<StockReservation> findByReference(String reference);
+
+    // Product ids only, so finding which rows to lock does not load the reservations before they are locked
+    @Query("SELECT DISTINCT r.productId FROM StockReservation r WHERE r.reference = :reference")
+    List<Long> findProductIdsByReference(@Param("reference") String reference);
+}
@@ -1,6 +1,8 @@
 package org.de013.productcatalog.service;
 
 import org.de013.common.dto.InventoryDto;
+import org.de013.productcatalog.dto.inventory.StockReservationRequest;
+import org.de013.productcatalog.dto.inventory.StockReservationResultDto;
 
 public interface InventoryService {
 
@@ -21,6 +23,13 @@ public interface InventoryService {
 
     boolean fulfillOrder(Long productId, Integer quantity);
 
+    // Bulk Reservation Operations (all or nothing, one transaction)
+    StockReservationResultDto reserveStockBulk(StockReservationRequest request);
+
+    StockReservationResultDto releaseReservedStockBulk(StockReservationRequest request);
+
+    StockReservationResultDto fulfillReservedStockBulk(StockReservationRequest request);
+
     // Core Inventory Validation
     Integer getAvailableQuantity(Long productId);
 }
@@ -3,15 +3,29 @@ package org.de013.productcatalog.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.de013.common.dto.InventoryDto;
+import org.de013.productcatalog.dto.inventory.StockReservationRequest;
+import org.de013.productcatalog.dto.inventory.StockReservationResultDto;
 import org.de013.productcatalog.entity.Inventory;
+import org.de013.productcatalog.entity.StockReservation;
+import org.de013.productcatalog.entity.enums.ReservationStatus;
 import org.de013.productcatalog.mapper.InventoryMapper;
 import org.de013.productcatalog.repository.InventoryRepository;
+import org.de013.productcatalog.repository.StockReservationRepository;
 import org.de013.productcatalog.service.InventoryService;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -19,6 +33,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class InventoryServiceImpl implements InventoryService {
 
     private final InventoryRepository inventoryRepository;
+    private final StockReservationRepository stockReservationRepository;
     private final InventoryMapper inventoryMapper;
     private final org.springframework.cache.CacheManager cacheManager;
 
@@ -159,6 +174,224 @@ public class InventoryServiceImpl implements InventoryService {
     }
 
 
+    @Override
+    @Transactional
+    public StockReservationResultDto reserveStockBulk(StockReservationRequest request) {
+        SortedMap<Long, Integer> quantities = mergeLines(request);
+        log.info("Reserving stock for {} products in one batch", quantities.size());
+
+        Map<Long, Inventory> inventories = lockInventories(quantities);
+        // Checked under the row locks, so a concurrent retry or release of the same reference waits and sees it
+        String reference = request.getReference();
+        List<StockReservation> existing = reference != null ? stockReservationRepository.findByReference(reference) : List.of();
+        if (!existing.isEmpty()) {
+            boolean released = existing.stream().anyMatch(reservation -> reservation.getStatus() == ReservationStatus.RELEASED);
+            log.info("Stock under reference: {} already {}", reference, released ? "released, ignoring late reserve" : "reserved");
+            return StockReservationResultDto.builder()
+                    .reserved(!released)
+                    .products(quantities.size())
+                    .build();
+        }
+
+        List<StockReservationResultDto.Shortage> shortages = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> {
+            Inventory inventory = inventories.get(productId);
+            int available = inventory != null ? inventory.getQuantity() - inventory.getReservedQuantity() : 0;
+            if (available < quantity) {
+                shortages.add(StockReservationResultDto.Shortage.builder()
+                        .productId(productId)
+                        .requested(quantity)
+                        .available(Math.max(0, available))
+                        .build());
+            }
+        });
+        if (!shortages.isEmpty()) {
+            log.warn("Failed to reserve stock batch - insufficient stock for products: {}",
+                    shortages.stream().map(StockReservationResultDto.Shortage::getProductId).toList());
+            return StockReservationResultDto.builder()
+                    .reserved(false)
+                    .products(quantities.size())
+                    .shortages(shortages)
+                    .build();
+        }
+
+        quantities.forEach((productId, quantity) -> {
+            Inventory inventory = inventories.get(productId);
+            inventory.setReservedQuantity(inventory.getReservedQuantity() + quantity);
+            clearInventoryCache(productId);
+            if (reference != null) {
+                stockReservationRepository.save(StockReservation.builder()
+                        .reference(reference)
+                        .productId(productId)
+                        .quantity(quantity)
+                        .build());
+            }
+        });
+        log.info("Successfully reserved stock for {} products", quantities.size());
+        return StockReservationResultDto.builder()
+                .reserved(true)
+                .products(quantities.size())
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public StockReservationResultDto releaseReservedStockBulk(StockReservationRequest request) {
+        if (request.getReference() != null) {
+            return releaseReservation(request);
+        }
+        SortedMap<Long, Integer> quantities = mergeLines(request);
+        log.info("Releasing reserved stock for {} products in one batch", quantities.size());
+
+        Map<Long, Inventory> inventories = lockInventories(quantities);
+        quantities.forEach((productId, quantity) -> {
+            Inventory inventory = inventories.get(productId);
+            if (inventory == null) {
+                log.warn("No inventory for product ID: {}, nothing to release", productId);
+                return;
+            }
+            inventory.releaseReservedStock(quantity);
+            clearInventoryCache(productId);
+        });
+        return StockReservationResultDto.builder()
+                .reserved(true)
+                .products(quantities.size())
+                .build();
+    }
+
+    /**
+     * Take the stock held under the reference out of the inventory for good: both the
+     * quantity and the reserved quantity drop. Fulfilling an already fulfilled reference
+     * changes nothing; an unknown or released one is not fulfilled.
+     */
+    @Override
+    @Transactional
+    public StockReservationResultDto fulfillReservedStockBulk(StockReservationRequest request) {
+        String reference = request.getReference();
+        if (reference == null) {
+            throw new IllegalArgumentException("Reference is required to fulfill reserved stock");
+        }
+        SortedMap<Long, Integer> quantities = mergeLines(request);
+        Map<Long, Inventory> inventories = lockReservation(reference, quantities);
+        List<StockReservation> reservations = stockReservationRepository.findByReference(reference);
+        if (reservations.isEmpty()
+                || reservations.stream().anyMatch(reservation -> reservation.getStatus() == ReservationStatus.RELEASED)) {
+            log.warn("No stock held under reference: {}, nothing to fulfill", reference);
+            return StockReservationResultDto.builder()
+                    .reserved(false)
+                    .products(0)
+                    .build();
+        }
+
+        int fulfilled = 0;
+        for (StockReservation reservation : reservations) {
+            if (reservation.getStatus() != ReservationStatus.RESERVED) {
+                continue;
+            }
+            Inventory inventory = inventories.get(reservation.getProductId());
+            if (inventory != null) {
+                inventory.releaseReservedStock(reservation.getQuantity());
+                inventory.setQuantity(Math.max(0, inventory.getQuantity() - reservation.getQuantity()));
+                clearInventoryCache(reservation.getProductId());
+            }
+            reservation.setStatus(ReservationStatus.FULFILLED);
+            fulfilled++;
+        }
+        log.info("Fulfilled stock reserved under reference: {} for {} products", reference, fulfilled);
+        return StockReservationResultDto.builder()
+                .reserved(true)
+                .products(reservations.size())
+                .build();
+    }
+
+    /**
+     * Give back whatever the reference still holds: reserved stock is unreserved, fulfilled
+     * stock is put back into the inventory. Releasing a reference nothing was reserved under
+     * records it as RELEASED, so a reserve that arrives late is ignored instead of holding
+     * stock nobody will release; releasing twice changes nothing.
+     */
+    private StockReservationResultDto releaseReservation(StockReservationRequest request) {
+        String reference = request.getReference();
+        SortedMap<Long, Integer> quantities = mergeLines(request);
+        Map<Long, Inventory> inventories = lockReservation(reference, quantities);
+        List<StockReservation> reservations = stockReservationRepository.findByReference(reference);
+        if (reservations.isEmpty()) {
+            log.info("No stock reserved under reference: {}, recording it as released", reference);
+            quantities.forEach((productId, quantity) -> stockReservationRepository.save(StockReservation.builder()
+                    .reference(reference)
+                    .productId(productId)
+                    .quantity(quantity)
+                    .status(ReservationStatus.RELEASED)
+                    .build()));
+            return StockReservationResultDto.builder()
+                    .reserved(false)
+                    .products(0)
+                    .build();
+        }
+
+        int released = 0;
+        for (StockReservation reservation : reservations) {
+            Inventory inventory = inventories.get(reservation.getProductId());
+            if (reservation.getStatus() == ReservationStatus.RELEASED) {
+                continue;
+            }
+            if (inventory != null) {
+                if (reservation.getStatus() == ReservationStatus.RESERVED) {
+                    inventory.releaseReservedStock(reservation.getQuantity());
+                } else {
+                    inventory.addStock(reservation.getQuantity());
+                }
+                clearInventoryCache(reservation.getProductId());
+            }
+            reservation.setStatus(ReservationStatus.RELEASED);
+            released++;
+        }
+        log.info("Released stock held under reference: {} for {} products", reference, released);
+        return StockReservationResultDto.builder()
+                .reserved(released > 0)
+                .products(released)
+                .build();
+    }
+
+    /**
+     * Quantity per product, summed over repeated lines and ordered by product id
+     */
+    private static SortedMap<Long, Integer> mergeLines(StockReservationRequest request) {
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        for (StockReservationRequest.Line line : request.getLines()) {
+            quantities.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * Lock the inventory rows in product id order; every batch takes its locks in the same
+     * order, so two overlapping batches wait for each other instead of deadlocking
+     */
+    private Map<Long, Inventory> lockInventories(SortedMap<Long, Integer> quantities) {
+        return inventoryRepository.lockByProductIds(quantities.keySet()).stream()
+                .collect(Collectors.toMap(inventory -> inventory.getProduct().getId(), Function.identity()));
+    }
+
+    /**
+     * Lock the inventory rows of the request lines and of every product reserved under the
+     * reference, all at once and in product id order, so no reservation changes status without
+     * its stock. A concurrent reserve of the same reference may add products while we wait for
+     * the locks; locking those afterwards would break the order, so the transaction is rolled
+     * back instead and the caller retries it.
+     */
+    private Map<Long, Inventory> lockReservation(String reference, SortedMap<Long, Integer> quantities) {
+        stockReservationRepository.findProductIdsByReference(reference)
+                .forEach(productId -> quantities.putIfAbsent(productId, 0));
+        Map<Long, Inventory> inventories = lockInventories(quantities);
+        List<Long> reserved = stockReservationRepository.findProductIdsByReference(reference);
+        if (!quantities.keySet().containsAll(reserved)) {
+            throw new ConcurrencyFailureException("Stock under reference " + reference
+                    + " was reserved concurrently, retry the request");
+        }
+        return inventories;
+    }
+
     // Helper methods
     private Inventory findInventoryByProductId(Long productId) {
         return inventoryRepository.findByProductId(productId)
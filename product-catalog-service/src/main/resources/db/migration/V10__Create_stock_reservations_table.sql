@@ -0,0 +1,13 @@
+-- Create stock_reservations table: stock held per product under a caller's reference,
+-- so bulk reserve/release can be retried safely
+CREATE TABLE stock_reservations (
+    id BIGSERIAL PRIMARY KEY,
+    reference VARCHAR(64) NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL CHECK (quantity > 0),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT uk_stock_reservation_reference_product UNIQUE (reference, product_id)
+);
+
+CREATE INDEX idx_stock_reservation_created_at ON stock_reservations(created_at);
@@ -0,0 +1,5 @@
+-- Track each reservation through fulfilment or release instead of deleting it, so a release
+-- that arrives before its reserve leaves a RELEASED row the late reserve finds
+ALTER TABLE stock_reservations ADD COLUMN status VARCHAR(20) NOT NULL DEFAULT 'RESERVED';
+ALTER TABLE stock_reservations ADD CONSTRAINT chk_stock_reservation_status
+    CHECK (status IN ('RESERVED', 'FULFILLED', 'RELEASED'));
@@ -0,0 +1,273 @@
+package org.de013.productcatalog.integration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.de013.productcatalog.dto.inventory.StockReservationRequest;
+import org.de013.productcatalog.dto.inventory.StockReservationResultDto;
+import org.de013.productcatalog.entity.Inventory;
+import org.de013.productcatalog.entity.Product;
+import org.de013.productcatalog.entity.enums.ProductStatus;
+import org.de013.productcatalog.repository.InventoryRepository;
+import org.de013.productcatalog.repository.ProductRepository;
+import org.de013.productcatalog.service.InventoryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many threads reserving overlapping product sets, each listing its lines in random
+ * order: no deadlocks, no overselling, and reserved quantities add up exactly.
+ * Logs the batch throughput as a rough high-contention benchmark.
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkStockReservationContentionTest {
+
+    private static final int PRODUCTS = 8;
+    private static final int STOCK_PER_PRODUCT = 150;
+    private static final int THREADS = 16;
+    private static final int BATCHES_PER_THREAD = 25;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = productRepository.save(Product.builder()
+                    .name("Contended " + i)
+                    .sku("BULK-CONTENDED-" + i)
+                    .price(BigDecimal.TEN)
+                    .status(ProductStatus.ACTIVE)
+                    .build());
+            inventoryRepository.save(Inventory.builder()
+                    .product(product)
+                    .quantity(STOCK_PER_PRODUCT)
+                    .reservedQuantity(0)
+                    .build());
+            productIds.add(product.getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        productIds.forEach(id -> inventoryRepository.findByProductId(id).ifPresent(inventoryRepository::delete));
+        productRepository.deleteAllById(productIds);
+        productIds.clear();
+    }
+
+    @Test
+    void reserveStockBulk_UnderContention_ShouldNotDeadlockOrOversell() throws Exception {
+        Map<Long, AtomicInteger> expectedReserved = new ConcurrentHashMap<>();
+        productIds.forEach(id -> expectedReserved.put(id, new AtomicInteger()));
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int b = 0; b < BATCHES_PER_THREAD; b++) {
+                    StockReservationRequest request = randomBatch();
+                    StockReservationResultDto result = inventoryService.reserveStockBulk(request);
+                    if (result.isReserved()) {
+                        accepted.incrementAndGet();
+                        request.getLines().forEach(line ->
+                                expectedReserved.get(line.getProductId()).addAndGet(line.getQuantity()));
+                    } else {
+                        rejected.incrementAndGet();
+                        assertFalse(result.getShortages().isEmpty());
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        executor.shutdown();
+
+        int batches = THREADS * BATCHES_PER_THREAD;
+        log.info("Bulk reservation: {} batches ({} accepted, {} rejected) on {} threads in {} ms = {} batches/s",
+                batches, accepted.get(), rejected.get(), THREADS, elapsedMillis,
+                elapsedMillis > 0 ? batches * 1000L / elapsedMillis : batches);
+
+        assertEquals(batches, accepted.get() + rejected.get());
+        assertTrue(accepted.get() > 0);
+        for (Long productId : productIds) {
+            Inventory inventory = inventoryRepository.findByProductId(productId).orElseThrow();
+            assertEquals(expectedReserved.get(productId).get(), inventory.getReservedQuantity(),
+                    "reserved quantity of product " + productId);
+            assertTrue(inventory.getReservedQuantity() <= inventory.getQuantity(), "oversold product " + productId);
+        }
+    }
+
+    @Test
+    void reserveStockBulk_WhenOneLineShort_ShouldReserveNothing() {
+        Long plenty = productIds.get(0);
+        Long scarce = productIds.get(1);
+
+        StockReservationResultDto result = inventoryService.reserveStockBulk(StockReservationRequest.builder()
+                .lines(List.of(line(plenty, 5), line(scarce, STOCK_PER_PRODUCT + 1)))
+                .build());
+
+        assertFalse(result.isReserved());
+        assertEquals(1, result.getShortages().size());
+        assertEquals(scarce, result.getShortages().get(0).getProductId());
+        assertEquals(STOCK_PER_PRODUCT, result.getShortages().get(0).getAvailable());
+        assertEquals(0, inventoryRepository.findByProductId(plenty).orElseThrow().getReservedQuantity());
+    }
+
+    @Test
+    void releaseReservedStockBulk_ShouldGiveBackReservation() {
+        Long productId = productIds.get(0);
+        StockReservationRequest request = StockReservationRequest.builder()
+                .lines(List.of(line(productId, 2), line(productId, 3)))
+                .build();
+
+        assertTrue(inventoryService.reserveStockBulk(request).isReserved());
+        assertEquals(5, inventoryRepository.findByProductId(productId).orElseThrow().getReservedQuantity());
+
+        inventoryService.releaseReservedStockBulk(request);
+        assertEquals(0, inventoryRepository.findByProductId(productId).orElseThrow().getReservedQuantity());
+    }
+
+    @Test
+    void reserveAndRelease_WithReference_ShouldBeIdempotent() {
+        Long productId = productIds.get(0);
+        StockReservationRequest request = StockReservationRequest.builder()
+                .reference("saga-" + productId)
+                .lines(List.of(line(productId, 4)))
+                .build();
+
+        assertTrue(inventoryService.reserveStockBulk(request).isReserved());
+        assertTrue(inventoryService.reserveStockBulk(request).isReserved());
+        assertEquals(4, inventoryRepository.findByProductId(productId).orElseThrow().getReservedQuantity());
+
+        assertTrue(inventoryService.releaseReservedStockBulk(request).isReserved());
+        assertFalse(inventoryService.releaseReservedStockBulk(request).isReserved());
+        assertEquals(0, inventoryRepository.findByProductId(productId).orElseThrow().getReservedQuantity());
+    }
+
+    @Test
+    void fulfillReservedStockBulk_ShouldTakeReservationOutOfStockOnce() {
+        Long productId = productIds.get(0);
+        StockReservationRequest request = StockReservationRequest.builder()
+                .reference("saga-fulfill-" + productId)
+                .lines(List.of(line(productId, 4)))
+                .build();
+
+        assertTrue(inventoryService.reserveStockBulk(request).isReserved());
+        assertTrue(inventoryService.fulfillReservedStockBulk(request).isReserved());
+        assertTrue(inventoryService.fulfillReservedStockBulk(request).isReserved());
+
+        Inventory inventory = inventoryRepository.findByProductId(productId).orElseThrow();
+        assertEquals(STOCK_PER_PRODUCT - 4, inventory.getQuantity());
+        assertEquals(0, inventory.getReservedQuantity());
+    }
+
+    @Test
+    void fulfillAndRelease_WhenLinesCoverPartOfReservation_ShouldMoveStockOfEveryReservedProduct() {
+        Long first = productIds.get(0);
+        Long second = productIds.get(1);
+        String reference = "saga-partial-" + first;
+        inventoryService.reserveStockBulk(StockReservationRequest.builder()
+                .reference(reference)
+                .lines(List.of(line(first, 4), line(second, 3)))
+                .build());
+        StockReservationRequest partial = StockReservationRequest.builder()
+                .reference(reference)
+                .lines(List.of(line(first, 4)))
+                .build();
+
+        assertTrue(inventoryService.fulfillReservedStockBulk(partial).isReserved());
+        Inventory fulfilled = inventoryRepository.findByProductId(second).orElseThrow();
+        assertEquals(STOCK_PER_PRODUCT - 3, fulfilled.getQuantity());
+        assertEquals(0, fulfilled.getReservedQuantity());
+
+        assertTrue(inventoryService.releaseReservedStockBulk(partial).isReserved());
+        Inventory released = inventoryRepository.findByProductId(second).orElseThrow();
+        assertEquals(STOCK_PER_PRODUCT, released.getQuantity());
+        assertEquals(0, released.getReservedQuantity());
+    }
+
+    @Test
+    void releaseReservedStockBulk_WhenFulfilled_ShouldPutStockBack() {
+        Long productId = productIds.get(0);
+        StockReservationRequest request = StockReservationRequest.builder()
+                .reference("saga-cancel-" + productId)
+                .lines(List.of(line(productId, 4)))
+                .build();
+
+        inventoryService.reserveStockBulk(request);
+        inventoryService.fulfillReservedStockBulk(request);
+        assertTrue(inventoryService.releaseReservedStockBulk(request).isReserved());
+        assertFalse(inventoryService.fulfillReservedStockBulk(request).isReserved());
+
+        Inventory inventory = inventoryRepository.findByProductId(productId).orElseThrow();
+        assertEquals(STOCK_PER_PRODUCT, inventory.getQuantity());
+        assertEquals(0, inventory.getReservedQuantity());
+    }
+
+    @Test
+    void reserveStockBulk_WhenReferenceReleasedFirst_ShouldHoldNothing() {
+        Long productId = productIds.get(0);
+        StockReservationRequest request = StockReservationRequest.builder()
+                .reference("saga-late-" + productId)
+                .lines(List.of(line(productId, 4)))
+                .build();
+
+        assertFalse(inventoryService.releaseReservedStockBulk(request).isReserved());
+        assertFalse(inventoryService.reserveStockBulk(request).isReserved());
+
+        assertEquals(0, inventoryRepository.findByProductId(productId).orElseThrow().getReservedQuantity());
+    }
+
+    private StockReservationRequest randomBatch() {
+        List<Long> shuffled = new ArrayList<>(productIds);
+        Collections.shuffle(shuffled);
+        int size = 2 + ThreadLocalRandom.current().nextInt(4);
+        List<StockReservationRequest.Line> lines = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            lines.add(line(shuffled.get(i), 1 + ThreadLocalRandom.current().nextInt(3)));
+        }
+        return StockReservationRequest.builder().lines(lines).build();
+    }
+
+    private static StockReservationRequest.Line line(Long productId, int quantity) {
+        return StockReservationRequest.Line.builder().productId(productId).quantity(quantity).build();
+    }
+}
@@ -0,0 +1,100 @@
+package org.de013.productcatalog.integration;
+
+import org.de013.productcatalog.entity.Inventory;
+import org.de013.productcatalog.entity.Product;
+import org.de013.productcatalog.entity.enums.ProductStatus;
+import org.de013.productcatalog.repository.InventoryRepository;
+import org.de013.productcatalog.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Cache-Control as actually written by the security filter chain: public reads must be
+ * cacheable by the gateway, live stock, errors and writes must not.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class CatalogCacheHeadersTest {
+
+    private static final String PUBLIC = "public, max-age=60";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Test
+    void publicCatalogGets_ShouldBeCacheable() throws Exception {
+        Product product = saveProductWithStock();
+
+        mockMvc.perform(get("/products").param("page", "0").param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, PUBLIC));
+        mockMvc.perform(get("/products/{id}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, PUBLIC));
+        mockMvc.perform(get("/products/featured"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, PUBLIC));
+        mockMvc.perform(get("/categories/root"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, PUBLIC));
+    }
+
+    @Test
+    void inventoryErrorsAndWrites_ShouldKeepNoStore() throws Exception {
+        Product product = saveProductWithStock();
+
+        String inventory = mockMvc.perform(get("/products/{id}/inventory", product.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.CACHE_CONTROL);
+        assertNotNull(inventory);
+        assertTrue(inventory.contains("no-store"));
+
+        String missing = mockMvc.perform(get("/products/{id}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound())
+                .andReturn().getResponse().getHeader(HttpHeaders.CACHE_CONTROL);
+        assertNotNull(missing);
+        assertTrue(missing.contains("no-store"));
+
+        String write = mockMvc.perform(post("/products/{id}/inventory/add", product.getId()).param("quantity", "1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.CACHE_CONTROL);
+        assertNotNull(write);
+        assertTrue(write.contains("no-store"));
+    }
+
+    private Product saveProductWithStock() {
+        Product product = productRepository.save(Product.builder()
+                .name("Cacheable Phone")
+                .sku("CACHE-HDR-1")
+                .price(BigDecimal.TEN)
+                .status(ProductStatus.ACTIVE)
+                .build());
+        inventoryRepository.save(Inventory.builder()
+                .product(product)
+                .quantity(10)
+                .reservedQuantity(0)
+                .build());
+        return product;
+    }
+}